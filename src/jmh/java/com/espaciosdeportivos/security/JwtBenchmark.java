@@ -0,0 +1,69 @@
+package com.espaciosdeportivos.security;
+
+import com.espaciosdeportivos.model.AppUser;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Emision y validacion de JWT (HS512) con los claims propios de la aplicacion
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtBenchmark {
+
+    private JwtUtils jwtUtils;
+    private Authentication autenticacion;
+    private AppUser usuario;
+    private String token;
+
+    @Setup
+    public void preparar() {
+        jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret",
+                "claveDeBenchmarkSoloParaMedirConAlMenosSesentaYCuatroCaracteresDeLargo0123456789");
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 86_400_000);
+        jwtUtils.init();
+
+        User principal = new User("cliente1", "", List.of(new SimpleGrantedAuthority("ROLE_CLIENTE")));
+        autenticacion = new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+        usuario = new AppUser();
+        usuario.setUsername("cliente1");
+        usuario.setActivo(true);
+        token = jwtUtils.generateJwtToken(autenticacion, usuario);
+    }
+
+    @Benchmark
+    public String generar() {
+        return jwtUtils.generateJwtToken(autenticacion, usuario);
+    }
+
+    @Benchmark
+    public boolean validar() {
+        return jwtUtils.validateJwtToken(token);
+    }
+
+    // lo que hace el filtro en cada peticion: un solo parseo del que salen usuario y claims
+    @Benchmark
+    public Claims parsearClaims() {
+        return jwtUtils.parseClaims(token);
+    }
+}
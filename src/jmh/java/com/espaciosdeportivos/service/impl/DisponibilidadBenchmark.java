@@ -0,0 +1,96 @@
+package com.espaciosdeportivos.service.impl;
+
+import com.espaciosdeportivos.model.AreaDeportiva;
+import com.espaciosdeportivos.model.Cancha;
+import com.espaciosdeportivos.model.Reserva;
+import com.espaciosdeportivos.repository.CanchaRepository;
+import com.espaciosdeportivos.repository.ReservaRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Calculo de bloques libres: la agenda sola (armado + bloques) y obtenerHorasDisponibles con el indice ya cargado
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DisponibilidadBenchmark {
+
+    private static final long ID_CANCHA = 1L;
+
+    // reservas de una hora en el dia (0 = cancha libre)
+    @Param({"0", "8", "16"})
+    int reservasEnElDia;
+
+    @Param({"30", "60"})
+    int minutosBloque;
+
+    private Cancha cancha;
+    private List<Reserva> reservas;
+    private LocalDate fecha;
+    private ReservaServiceImpl reservaService;
+
+    @Setup
+    public void preparar() {
+        AreaDeportiva area = AreaDeportiva.builder().idAreaDeportiva(1L)
+                .horaInicioArea(LocalTime.of(6, 0)).horaFinArea(LocalTime.of(23, 0)).build();
+        cancha = Cancha.builder().idCancha(ID_CANCHA)
+                .horaInicio(LocalTime.of(6, 0)).horaFin(LocalTime.of(23, 0)).areaDeportiva(area).build();
+
+        reservas = new ArrayList<>();
+        for (int i = 0; i < reservasEnElDia; i++) {
+            LocalTime inicio = LocalTime.of(6 + i, 0);
+            reservas.add(Reserva.builder().idReserva((long) i + 1)
+                    .horaInicio(inicio).horaFin(inicio.plusHours(1)).build());
+        }
+
+        fecha = LocalDate.now().plusDays(1);
+        CanchaRepository canchaRepository = mock(CanchaRepository.class);
+        ReservaRepository reservaRepository = mock(ReservaRepository.class);
+        when(canchaRepository.findByIdConArea(anyLong())).thenReturn(Optional.of(cancha));
+        when(reservaRepository.findNoCanceladasByCanchaAndFecha(anyLong(), any())).thenReturn(reservas);
+
+        DisponibilidadCanchaIndex index = new DisponibilidadCanchaIndex(canchaRepository, reservaRepository);
+        reservaService = new ReservaServiceImpl(reservaRepository, canchaRepository, null, null, null, null, null,
+                null, null, null, index, null, null, new SimpleMeterRegistry());
+        // primera consulta: carga la agenda en el indice
+        reservaService.obtenerHorasDisponibles(ID_CANCHA, fecha, minutosBloque);
+    }
+
+    @Benchmark
+    public List<String> agendaDesdeCero() {
+        AgendaDiaCancha agenda = AgendaDiaCancha.paraCancha(cancha);
+        for (Reserva r : reservas) {
+            agenda.ocupar(r.getIdReserva(), r.getHoraInicio(), r.getHoraFin());
+        }
+        return agenda.bloquesLibres(minutosBloque);
+    }
+
+    @Benchmark
+    public List<String> horasDisponiblesIndexadas() {
+        return reservaService.obtenerHorasDisponibles(ID_CANCHA, fecha, minutosBloque);
+    }
+}
@@ -0,0 +1,143 @@
+package com.espaciosdeportivos.service.impl;
+
+import com.espaciosdeportivos.dto.CanchaDTO;
+import com.espaciosdeportivos.dto.ReservaDTO;
+import com.espaciosdeportivos.model.AreaDeportiva;
+import com.espaciosdeportivos.model.Cancha;
+import com.espaciosdeportivos.model.Cliente;
+import com.espaciosdeportivos.model.Disciplina;
+import com.espaciosdeportivos.model.Dispone;
+import com.espaciosdeportivos.model.Equipamiento;
+import com.espaciosdeportivos.model.Incluye;
+import com.espaciosdeportivos.model.IncluyeId;
+import com.espaciosdeportivos.model.Pago;
+import com.espaciosdeportivos.model.Qr;
+import com.espaciosdeportivos.model.Reserva;
+import com.espaciosdeportivos.model.Sepractica;
+import com.espaciosdeportivos.repository.CanchaRepository;
+import com.espaciosdeportivos.repository.ClienteRepository;
+import com.espaciosdeportivos.repository.IncluyeRepository;
+import com.espaciosdeportivos.repository.PagoRepository;
+import com.espaciosdeportivos.repository.QrRepository;
+import com.espaciosdeportivos.repository.ReservaRepository;
+import com.espaciosdeportivos.repository.disponeRepository;
+import com.espaciosdeportivos.repository.sepracticaRepository;
+import com.espaciosdeportivos.service.ImagenService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Mapeo entidad -> DTO de listados de reservas y canchas.
+// Los repositorios son mocks con datos en memoria: se mide el armado de los DTO, no la BD.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapeoDtoBenchmark {
+
+    @Param({"10", "200"})
+    int filas;
+
+    private ReservaServiceImpl reservaService;
+    private CanchaServiceImpl canchaService;
+
+    @Setup
+    public void preparar() {
+        AreaDeportiva area = AreaDeportiva.builder().idAreaDeportiva(1L).nombreArea("Area central")
+                .horaInicioArea(LocalTime.of(6, 0)).horaFinArea(LocalTime.of(23, 0)).estado(true).build();
+        Disciplina disciplina = Disciplina.builder().idDisciplina(1L).nombre("Futsal").estado(true)
+                .areaDeportiva(area).build();
+        Equipamiento equipamiento = Equipamiento.builder().idEquipamiento(1L).nombreEquipamiento("Balon")
+                .tipoEquipamiento("Pelota").estado(true).build();
+
+        List<Cancha> canchas = new ArrayList<>();
+        List<Reserva> reservas = new ArrayList<>();
+        List<Incluye> incluyes = new ArrayList<>();
+        List<Pago> pagos = new ArrayList<>();
+        List<Qr> qrs = new ArrayList<>();
+        for (int i = 0; i < filas; i++) {
+            long id = i + 1;
+            Cancha cancha = Cancha.builder().idCancha(id).nombre("Cancha " + id).costoHora(100.0).capacidad(12)
+                    .mantenimiento("NO").horaInicio(LocalTime.of(6, 0)).horaFin(LocalTime.of(23, 0))
+                    .tipoSuperficie("Sintetico").tamano("Mediana").iluminacion("LED").cubierta("NO")
+                    .estado(true).areaDeportiva(area).build();
+            canchas.add(cancha);
+
+            Cliente cliente = Cliente.builder().id(id).nombre("Cliente " + id).apellidoPaterno("Perez")
+                    .apellidoMaterno("Quispe").email("c" + id + "@correo.bo").telefono("70000000")
+                    .categoria("REGULAR").build();
+            Reserva reserva = Reserva.builder().idReserva(id).fechaReserva(LocalDate.now().plusDays(1))
+                    .horaInicio(LocalTime.of(10, 0)).horaFin(LocalTime.of(11, 0)).duracionMinutos(60)
+                    .estadoReserva("CONFIRMADA").cliente(cliente).build();
+            reservas.add(reserva);
+            incluyes.add(Incluye.builder().id(new IncluyeId(id, id, 1L)).cancha(cancha).reserva(reserva)
+                    .disciplina(disciplina).montoTotal(100.0).build());
+            for (int p = 0; p < 2; p++) {
+                pagos.add(Pago.builder().idPago(id * 10 + p).monto(50.0).fecha(LocalDate.now()).tipoPago("PARCIAL")
+                        .metodoPago("QR").estado("CONFIRMADO").reserva(reserva).cliente(cliente).build());
+            }
+            qrs.add(Qr.builder().idQr(id).codigoQr("qr_" + id).fechaGeneracion(LocalDateTime.now())
+                    .estado(true).esCliente(true).reserva(reserva).persona(cliente).build());
+        }
+
+        ReservaRepository reservaRepository = mock(ReservaRepository.class);
+        ClienteRepository clienteRepository = mock(ClienteRepository.class);
+        IncluyeRepository incluyeRepository = mock(IncluyeRepository.class);
+        PagoRepository pagoRepository = mock(PagoRepository.class);
+        QrRepository qrRepository = mock(QrRepository.class);
+        when(reservaRepository.findPagina(any(), any(), any(), any())).thenReturn(reservas);
+        when(incluyeRepository.findConCanchaYDisciplinaByReservaIds(any())).thenReturn(incluyes);
+        when(pagoRepository.findConClienteByReservaIds(any())).thenReturn(pagos);
+        when(qrRepository.findByReservaIdReservaIn(any())).thenReturn(qrs);
+        reservaService = new ReservaServiceImpl(reservaRepository, null, clienteRepository, null, null,
+                pagoRepository, qrRepository, null, null, incluyeRepository, null, null, null,
+                new SimpleMeterRegistry());
+
+        CanchaRepository canchaRepository = mock(CanchaRepository.class);
+        sepracticaRepository sepracticaRepository = mock(sepracticaRepository.class);
+        disponeRepository disponeRepository = mock(disponeRepository.class);
+        ImagenService imagenService = mock(ImagenService.class);
+        when(canchaRepository.findByEstadoTrue()).thenReturn(canchas);
+        when(sepracticaRepository.findByCanchaIdCancha(anyLong()))
+                .thenReturn(List.of(Sepractica.builder().disciplina(disciplina).build()));
+        when(disponeRepository.findByCanchaIdCancha(anyLong()))
+                .thenReturn(List.of(Dispone.builder().equipamiento(equipamiento).cantidad(4).build()));
+        when(imagenService.obtenerImagenesPorEntidad(anyString(), anyLong())).thenReturn(List.of());
+        canchaService = new CanchaServiceImpl(canchaRepository, null, null, null, disponeRepository, null,
+                sepracticaRepository, imagenService, null);
+    }
+
+    @Benchmark
+    public List<ReservaDTO> reservasPorLotes() {
+        return reservaService.listarTodas(null, filas).getContenido();
+    }
+
+    @Benchmark
+    public List<CanchaDTO> canchasActivas() {
+        return canchaService.obtenerTodasLasCanchas();
+    }
+}
@@ -0,0 +1,78 @@
+package com.espaciosdeportivos.service.impl;
+
+import com.espaciosdeportivos.security.QrFirmador;
+import com.espaciosdeportivos.security.QrFirmador.QrFirmado;
+import com.espaciosdeportivos.service.IQrImagenService.Formato;
+import com.espaciosdeportivos.service.IQrService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Codificacion ZXing y escritura PNG/SVG de un QR firmado, sin la cache de imagenes (se dibuja cada vez)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QrImagenBenchmark {
+
+    @Param({"200", "400"})
+    int tamano;
+
+    private QrImagenServiceImpl qrImagenService;
+    private QrFirmador qrFirmador;
+    private QrFirmado qr;
+    private String contenido;
+
+    @Setup
+    public void preparar() {
+        qrFirmador = new QrFirmador("claveDeBenchmarkSoloParaMedirConAlMenos32Caracteres");
+        qr = new QrFirmado("qr_1024_2048_a1b2c3d4", 1024L, 2048L, true, 12L, LocalDate.now().plusDays(1),
+                LocalTime.of(18, 0), LocalTime.of(19, 30), Instant.now().plusSeconds(2 * 86_400).getEpochSecond());
+        contenido = qrFirmador.firmar(qr);
+
+        IQrService qrService = mock(IQrService.class);
+        when(qrService.obtenerContenidoQr(anyString())).thenReturn(contenido);
+        // cache de 0 bytes: ninguna imagen entra
+        qrImagenService = new QrImagenServiceImpl(qrService, 0);
+    }
+
+    @Benchmark
+    public byte[] png() {
+        return qrImagenService.obtenerImagen(qr.codigoQr(), Formato.PNG, tamano);
+    }
+
+    @Benchmark
+    public byte[] svg() {
+        return qrImagenService.obtenerImagen(qr.codigoQr(), Formato.SVG, tamano);
+    }
+
+    @Benchmark
+    public String firmar() {
+        return qrFirmador.firmar(qr);
+    }
+
+    @Benchmark
+    public Optional<QrFirmado> verificar() {
+        return qrFirmador.verificar(contenido);
+    }
+}
@@ -0,0 +1,86 @@
+package com.espaciosdeportivos.validation;
+
+import com.espaciosdeportivos.dto.PagoDTO;
+import com.espaciosdeportivos.dto.ReservaDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+
+// ReservaValidator y PagoValidator: camino valido y rechazo (el rechazo incluye armar la excepcion)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidadoresBenchmark {
+
+    private final ReservaValidator reservaValidator = new ReservaValidator();
+    private final PagoValidator pagoValidator = new PagoValidator();
+
+    private ReservaDTO reservaValida;
+    private ReservaDTO reservaInvalida;
+    private PagoDTO pagoValido;
+    private PagoDTO pagoInvalido;
+
+    @Setup
+    public void preparar() {
+        reservaValida = ReservaDTO.builder().fechaReserva(LocalDate.now().plusDays(3))
+                .horaInicio(LocalTime.of(18, 0)).horaFin(LocalTime.of(19, 30))
+                .estadoReserva("PENDIENTE").clienteId(15L).build();
+        // la hora de fin antes que la de inicio
+        reservaInvalida = ReservaDTO.builder().fechaReserva(LocalDate.now().plusDays(3))
+                .horaInicio(LocalTime.of(19, 0)).horaFin(LocalTime.of(18, 0))
+                .estadoReserva("PENDIENTE").clienteId(15L).build();
+
+        pagoValido = PagoDTO.builder().monto(150.0).fecha(LocalDate.now()).tipoPago("TOTAL")
+                .metodoPago("QR").estado("PENDIENTE").idReserva(1024L).clienteId(15L)
+                .codigoTransaccion("TX-20240518-000123").descripcion("Pago de la reserva").build();
+        pagoInvalido = PagoDTO.builder().monto(150.0).fecha(LocalDate.now()).tipoPago("TOTAL")
+                .metodoPago("CHEQUE").estado("PENDIENTE").idReserva(1024L).clienteId(15L)
+                .codigoTransaccion("TX-20240518-000123").build();
+    }
+
+    @Benchmark
+    public ReservaDTO reservaValida() {
+        reservaValidator.validarReserva(reservaValida);
+        return reservaValida;
+    }
+
+    @Benchmark
+    public RuntimeException reservaRechazada() {
+        try {
+            reservaValidator.validarReserva(reservaInvalida);
+            return null;
+        } catch (ReservaValidator.BusinessException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public PagoDTO pagoValido() {
+        pagoValidator.validarPagoCreacion(pagoValido);
+        return pagoValido;
+    }
+
+    @Benchmark
+    public RuntimeException pagoRechazado() {
+        try {
+            pagoValidator.validarPagoCreacion(pagoInvalido);
+            return null;
+        } catch (PagoValidator.BusinessException e) {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.espaciosdeportivos.config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Sentencias SQL y tiempo de BD de la peticion (o bloque) en curso, por hilo.
+// Las mediciones se pueden anidar: una sentencia cuenta en la medicion actual y en las que la contienen
+// (asi una prueba puede medir una llamada MockMvc aunque el filtro de la peticion tambien mida).
+public final class ConsultasSql {
+
+    // sentencias distintas que se recuerdan por medicion para buscar la mas repetida
+    private static final int MAX_SENTENCIAS_DISTINTAS = 200;
+
+    private static final ThreadLocal<Medicion> ACTUAL = new ThreadLocal<>();
+
+    private ConsultasSql() {
+    }
+
+    public static Medicion iniciar() {
+        Medicion medicion = new Medicion(ACTUAL.get());
+        ACTUAL.set(medicion);
+        return medicion;
+    }
+
+    // cierra la medicion y vuelve a la que la contenia (si habia)
+    public static void terminar(Medicion medicion) {
+        if (medicion.anterior != null) {
+            ACTUAL.set(medicion.anterior);
+        } else {
+            ACTUAL.remove();
+        }
+    }
+
+    // ConsultasSqlListener: cada sentencia que se ejecuta contra el DataSource
+    static void registrarSentencia(String sql) {
+        for (Medicion m = ACTUAL.get(); m != null; m = m.anterior) {
+            m.consultas++;
+            if (m.repeticiones.size() < MAX_SENTENCIAS_DISTINTAS || m.repeticiones.containsKey(sql)) {
+                m.repeticiones.merge(sql, 1, Integer::sum);
+            }
+        }
+    }
+
+    // ConsultasSqlListener: tiempo de cada ejecucion JDBC
+    static void registrarTiempo(long nanos) {
+        for (Medicion m = ACTUAL.get(); m != null; m = m.anterior) {
+            m.nanosBd += nanos;
+        }
+    }
+
+    public static final class Medicion {
+
+        private final Medicion anterior;
+        private final Map<String, Integer> repeticiones = new HashMap<>();
+        private int consultas;
+        private long nanosBd;
+
+        private Medicion(Medicion anterior) {
+            this.anterior = anterior;
+        }
+
+        public int getConsultas() {
+            return consultas;
+        }
+
+        public long getMilisBd() {
+            return nanosBd / 1_000_000;
+        }
+
+        // la sentencia mas repetida y sus veces; un numero alto suele ser un N+1
+        public Map.Entry<String, Integer> masRepetida() {
+            return repeticiones.entrySet().stream()
+                    .max(Map.Entry.comparingByValue())
+                    .orElse(Map.entry("", 0));
+        }
+    }
+}
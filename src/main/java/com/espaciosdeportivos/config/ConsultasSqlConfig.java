@@ -0,0 +1,45 @@
+package com.espaciosdeportivos.config;
+
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+
+// Conteo de consultas SQL por peticion: DataSource envuelto con datasource-proxy + filtro HTTP.
+// Se mide en el DataSource y no en Hibernate para contar tambien lo que va por JdbcTemplate (lotes, upserts).
+@Configuration
+public class ConsultasSqlConfig {
+
+    // static: el post-procesador se registra antes de que se cree el DataSource
+    @Bean
+    public static BeanPostProcessor consultasSqlDataSource() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ProxyDataSource)) {
+                    return ProxyDataSourceBuilder.create(beanName, dataSource)
+                            .listener(new ConsultasSqlListener())
+                            .build();
+                }
+                return bean;
+            }
+        };
+    }
+
+    // antes que la cadena de seguridad para contar tambien lo que consulta la autenticacion
+    @Bean
+    public FilterRegistrationBean<ConsultasSqlFilter> consultasSqlFilter(
+            @Value("${app.sql.umbral-consultas:20}") int umbralConsultas,
+            @Value("${app.sql.cabeceras-respuesta:false}") boolean cabeceras) {
+        FilterRegistrationBean<ConsultasSqlFilter> registro =
+                new FilterRegistrationBean<>(new ConsultasSqlFilter(umbralConsultas, cabeceras));
+        registro.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registro;
+    }
+}
@@ -0,0 +1,53 @@
+package com.espaciosdeportivos.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.util.Map;
+
+// Mide las consultas SQL y el tiempo de BD de cada peticion.
+// Sobre el umbral deja un warn con la sentencia mas repetida; en desarrollo ademas devuelve las cabeceras
+// X-Consultas-Sql y X-Tiempo-Sql-Ms (la respuesta se guarda en memoria hasta el final para poder agregarlas).
+@Slf4j
+public class ConsultasSqlFilter extends OncePerRequestFilter {
+
+    public static final String CABECERA_CONSULTAS = "X-Consultas-Sql";
+    public static final String CABECERA_TIEMPO = "X-Tiempo-Sql-Ms";
+
+    private final int umbralConsultas;
+    private final boolean cabeceras;
+
+    public ConsultasSqlFilter(int umbralConsultas, boolean cabeceras) {
+        this.umbralConsultas = umbralConsultas;
+        this.cabeceras = cabeceras;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        ContentCachingResponseWrapper envoltura = cabeceras ? new ContentCachingResponseWrapper(response) : null;
+        ConsultasSql.Medicion medicion = ConsultasSql.iniciar();
+        try {
+            chain.doFilter(request, envoltura != null ? envoltura : response);
+        } finally {
+            ConsultasSql.terminar(medicion);
+            if (medicion.getConsultas() > umbralConsultas) {
+                Map.Entry<String, Integer> repetida = medicion.masRepetida();
+                log.warn("{} {} -> {} consultas SQL, {} ms en BD; la mas repetida ({} veces): {}",
+                        request.getMethod(), request.getRequestURI(), medicion.getConsultas(),
+                        medicion.getMilisBd(), repetida.getValue(), repetida.getKey());
+            }
+            if (envoltura != null) {
+                envoltura.setHeader(CABECERA_CONSULTAS, String.valueOf(medicion.getConsultas()));
+                envoltura.setHeader(CABECERA_TIEMPO, String.valueOf(medicion.getMilisBd()));
+                envoltura.copyBodyToResponse();
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.espaciosdeportivos.config;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+import java.util.List;
+
+// Escucha del DataSource envuelto (ver ConsultasSqlConfig): cuenta cada sentencia y su tiempo en la medicion
+// del hilo, venga de Hibernate o de JdbcTemplate. Un lote (batchUpdate) cuenta una vez por sentencia distinta.
+public class ConsultasSqlListener implements QueryExecutionListener {
+
+    private static final ThreadLocal<long[]> INICIO = ThreadLocal.withInitial(() -> new long[1]);
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        INICIO.get()[0] = System.nanoTime();
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        ConsultasSql.registrarTiempo(System.nanoTime() - INICIO.get()[0]);
+        for (QueryInfo consulta : queryInfoList) {
+            ConsultasSql.registrarSentencia(consulta.getQuery());
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.espaciosdeportivos.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+// Pools acotados para las imagenes: uno para generar las variantes (miniatura, mediana, grande)
+// y otro para validar y escribir en disco los archivos de una subida multiple
+@Configuration
+public class ImagenAsyncConfig {
+
+    @Bean(name = "imagenExecutor")
+    public ThreadPoolTaskExecutor imagenExecutor(@Value("${app.imagen.hilos:2}") int hilos,
+                                                 @Value("${app.imagen.capacidad-cola:200}") int capacidadCola) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(hilos);
+        executor.setMaxPoolSize(hilos);
+        executor.setQueueCapacity(capacidadCola);
+        executor.setThreadNamePrefix("imagen-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    // Cola llena: el hilo de la peticion escribe el archivo el mismo (frena la subida en vez de rechazarla)
+    @Bean(name = "subidaImagenExecutor")
+    public ThreadPoolTaskExecutor subidaImagenExecutor(@Value("${app.imagen.hilos-subida:4}") int hilos,
+                                                       @Value("${app.imagen.capacidad-cola-subida:100}") int capacidadCola) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(hilos);
+        executor.setMaxPoolSize(hilos);
+        executor.setQueueCapacity(capacidadCola);
+        executor.setThreadNamePrefix("subida-imagen-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,29 @@
+package com.espaciosdeportivos.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+// Pool acotado para generar los QR de las reservas pagadas fuera de la transaccion del pago.
+// Scheduling: sincronizacion de los ingresos con QR aceptados sin BD
+@Configuration
+@EnableScheduling
+public class QrAsyncConfig {
+
+    @Bean(name = "qrExecutor")
+    public ThreadPoolTaskExecutor qrExecutor(@Value("${app.qr.hilos:2}") int hilos,
+                                             @Value("${app.qr.capacidad-cola:500}") int capacidadCola) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(hilos);
+        executor.setMaxPoolSize(hilos);
+        executor.setQueueCapacity(capacidadCola);
+        executor.setThreadNamePrefix("qr-");
+        // al apagar se terminan los QR en curso
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,162 @@
+package com.espaciosdeportivos.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// Crea en PostgreSQL la proteccion contra reservas solapadas por cancha:
+// incluye guarda una copia del horario de su reserva (mantenida por triggers), una columna generada
+// tsrange y una restriccion EXCLUDE (GiST) que solo compara filas de la misma cancha en estados activos.
+// Todo es idempotente; Hibernate (ddl-auto=update) ya creo las tablas antes de que corra esto.
+// Si al final la restriccion no existe, los servicios vuelven a verificar el solapamiento con consultas
+// (restriccionActiva() = false) o, con app.reservas.exigir-restriccion-solapamiento=true, la app no arranca.
+@Component
+@Order(0)
+public class ReservaSolapamientoInitializer implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReservaSolapamientoInitializer.class);
+
+    static final String CONSTRAINT = "incluye_cancha_sin_solapamiento";
+
+    private static final String ESTADOS_ACTIVOS = "('PENDIENTE', 'CONFIRMADA', 'EN_CURSO')";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.reservas.exigir-restriccion-solapamiento:false}")
+    private boolean exigirRestriccion;
+
+    // false hasta confirmar que la restriccion existe (tambien mientras corre esto)
+    private volatile boolean restriccionActiva;
+
+    public boolean restriccionActiva() {
+        return restriccionActiva;
+    }
+
+    @Override
+    public void run(String... args) {
+        if (prepararIncluye()) {
+            crearRestriccion();
+        }
+        restriccionActiva = existeRestriccion();
+        if (restriccionActiva) {
+            return;
+        }
+        if (exigirRestriccion) {
+            throw new IllegalStateException("No existe la restricción " + CONSTRAINT +
+                    " en incluye: no hay protección contra reservas solapadas");
+        }
+        logger.error("No existe la restricción {} en incluye: el solapamiento de reservas se verificará con consultas previas",
+                CONSTRAINT);
+    }
+
+    private boolean prepararIncluye() {
+        try {
+            jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS btree_gist");
+
+            jdbcTemplate.execute("ALTER TABLE incluye ADD COLUMN IF NOT EXISTS fecha_reserva date");
+            jdbcTemplate.execute("ALTER TABLE incluye ADD COLUMN IF NOT EXISTS hora_inicio time");
+            jdbcTemplate.execute("ALTER TABLE incluye ADD COLUMN IF NOT EXISTS hora_fin time");
+            jdbcTemplate.execute("ALTER TABLE incluye ADD COLUMN IF NOT EXISTS activa boolean NOT NULL DEFAULT true");
+            // hora_fin <= hora_inicio significa que termina a medianoche (o despues) del dia siguiente
+            jdbcTemplate.execute("""
+                    ALTER TABLE incluye ADD COLUMN IF NOT EXISTS rango tsrange
+                    GENERATED ALWAYS AS (tsrange(
+                        fecha_reserva + hora_inicio,
+                        CASE WHEN hora_fin > hora_inicio THEN fecha_reserva + hora_fin
+                             ELSE (fecha_reserva + 1) + hora_fin END,
+                        '[)')) STORED
+                    """);
+
+            // Al insertar un incluye se copia el horario/estado de su reserva
+            jdbcTemplate.execute("""
+                    CREATE OR REPLACE FUNCTION incluye_copiar_horario() RETURNS trigger AS $$
+                    BEGIN
+                        SELECT r.fecha_reserva, r.hora_inicio, r.hora_fin, r.estado_reserva IN %s
+                          INTO NEW.fecha_reserva, NEW.hora_inicio, NEW.hora_fin, NEW.activa
+                          FROM reserva r
+                         WHERE r.id_reserva = NEW.id_reserva;
+                        RETURN NEW;
+                    END
+                    $$ LANGUAGE plpgsql
+                    """.formatted(ESTADOS_ACTIVOS));
+            jdbcTemplate.execute("DROP TRIGGER IF EXISTS incluye_horario ON incluye");
+            jdbcTemplate.execute("""
+                    CREATE TRIGGER incluye_horario BEFORE INSERT ON incluye
+                    FOR EACH ROW EXECUTE FUNCTION incluye_copiar_horario()
+                    """);
+
+            // Cuando cambia el horario o el estado de la reserva se propaga a sus incluye
+            jdbcTemplate.execute("""
+                    CREATE OR REPLACE FUNCTION reserva_propagar_horario() RETURNS trigger AS $$
+                    BEGIN
+                        UPDATE incluye
+                           SET fecha_reserva = NEW.fecha_reserva,
+                               hora_inicio = NEW.hora_inicio,
+                               hora_fin = NEW.hora_fin,
+                               activa = NEW.estado_reserva IN %s
+                         WHERE id_reserva = NEW.id_reserva;
+                        RETURN NEW;
+                    END
+                    $$ LANGUAGE plpgsql
+                    """.formatted(ESTADOS_ACTIVOS));
+            jdbcTemplate.execute("DROP TRIGGER IF EXISTS reserva_horario ON reserva");
+            jdbcTemplate.execute("""
+                    CREATE TRIGGER reserva_horario AFTER UPDATE ON reserva
+                    FOR EACH ROW
+                    WHEN (OLD.fecha_reserva IS DISTINCT FROM NEW.fecha_reserva
+                       OR OLD.hora_inicio IS DISTINCT FROM NEW.hora_inicio
+                       OR OLD.hora_fin IS DISTINCT FROM NEW.hora_fin
+                       OR OLD.estado_reserva IS DISTINCT FROM NEW.estado_reserva)
+                    EXECUTE FUNCTION reserva_propagar_horario()
+                    """);
+
+            // Rellenar filas anteriores a esta migracion
+            jdbcTemplate.execute("""
+                    UPDATE incluye i
+                       SET fecha_reserva = r.fecha_reserva,
+                           hora_inicio = r.hora_inicio,
+                           hora_fin = r.hora_fin,
+                           activa = r.estado_reserva IN %s
+                      FROM reserva r
+                     WHERE r.id_reserva = i.id_reserva
+                       AND i.fecha_reserva IS NULL
+                    """.formatted(ESTADOS_ACTIVOS));
+            return true;
+        } catch (DataAccessException e) {
+            logger.error("No se pudo preparar la tabla incluye para la restricción de solapamiento: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private void crearRestriccion() {
+        if (existeRestriccion()) {
+            return;
+        }
+        try {
+            jdbcTemplate.execute("ALTER TABLE incluye ADD CONSTRAINT " + CONSTRAINT +
+                    " EXCLUDE USING gist (id_cancha WITH =, rango WITH &&) WHERE (activa)");
+            logger.info("Restricción {} creada en incluye", CONSTRAINT);
+        } catch (DataAccessException e) {
+            // Pasa si ya hay reservas activas solapadas en los datos existentes
+            logger.warn("No se pudo crear la restricción {} (¿reservas solapadas existentes?): {}",
+                    CONSTRAINT, e.getMessage());
+        }
+    }
+
+    private boolean existeRestriccion() {
+        try {
+            return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = ?)", Boolean.class, CONSTRAINT));
+        } catch (DataAccessException e) {
+            logger.error("No se pudo verificar la restricción {}: {}", CONSTRAINT, e.getMessage());
+            return false;
+        }
+    }
+}
@@ -1,9 +1,14 @@
 package com.espaciosdeportivos.config;
 
 import com.espaciosdeportivos.security.JwtAuthenticationEntryPoint;
+import com.espaciosdeportivos.security.AuthRateLimitFilter;
+import com.espaciosdeportivos.security.AuthRateLimiter;
 import com.espaciosdeportivos.security.JwtAuthenticationFilter;
 import com.espaciosdeportivos.security.JwtUtils;
+import com.espaciosdeportivos.security.TokenRevocationStore;
+import com.espaciosdeportivos.security.TokenVersionStore;
 import com.espaciosdeportivos.service.UserDetailsServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -37,6 +42,18 @@ public class SecurityConfig {
 
     @Autowired
     private JwtUtils jwtUtils;
+
+    @Autowired
+    private TokenVersionStore tokenVersionStore;
+
+    @Autowired
+    private AuthRateLimiter authRateLimiter;
+
+    @Autowired
+    private TokenRevocationStore tokenRevocationStore;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
     
 
     @Bean
@@ -53,7 +70,8 @@ public class SecurityConfig {
 
     @Bean
     public JwtAuthenticationFilter authenticationJwtTokenFilter() {
-        return new JwtAuthenticationFilter(jwtUtils, userDetailsService);
+        return new JwtAuthenticationFilter(jwtUtils, userDetailsService, tokenVersionStore, tokenRevocationStore,
+                meterRegistry);
     }
 
     @Bean
@@ -96,6 +114,10 @@ public class SecurityConfig {
                 // Swagger / OpenAPI
                 .requestMatchers("/swagger-ui/**", "/v3/api-docs/**").permitAll()
 
+                // Monitoreo: solo la salud es pública; métricas y scrape de Prometheus (con token) solo superusuario
+                .requestMatchers("/actuator/health").permitAll()
+                .requestMatchers("/actuator/**").hasRole("SUPERUSUARIO")
+
                 /* ==================== SUPERUSUARIO (acceso total a rutas /super) ==================== */
                 .requestMatchers("/api/super/**").hasRole("SUPERUSUARIO")
                 //rutas restringidas por rol
@@ -115,8 +137,12 @@ public class SecurityConfig {
                 .requestMatchers("/api/admin/**").hasAnyRole("SUPERUSUARIO", "ADMINISTRADOR")
                 .requestMatchers("/api/administradores/**").hasAnyRole("SUPERUSUARIO", "ADMINISTRADOR")
                 .requestMatchers(HttpMethod.POST, "/api/cancha/*/imagenes").hasAnyRole("ADMINISTRADOR", "SUPERUSUARIO")
+                // regenerar variantes recodifica la imagen completa (CPU): solo administradores
+                .requestMatchers(HttpMethod.POST, "/api/imagenes/*/variantes").hasAnyRole("ADMINISTRADOR", "SUPERUSUARIO")
                 .requestMatchers("/api/usuario_control/**").hasAnyRole("ADMINISTRADOR", "SUPERUSUARIO")
                 .requestMatchers(HttpMethod.PUT, "/api/reservas/*/eliminar").hasRole("ADMINISTRADOR")
+                // el listado general trae las reservas de todos los clientes; cada cliente usa /api/reservas/cliente/{id}
+                .requestMatchers(HttpMethod.GET, "/api/reservas").hasAnyRole("ADMINISTRADOR", "SUPERUSUARIO")
                 
                 // ADMINISTRADOR exclusivo
                 .requestMatchers("/api/supervisa/**").hasRole("ADMINISTRADOR")
@@ -137,6 +163,8 @@ public class SecurityConfig {
             );
 
         http.addFilterBefore(authenticationJwtTokenFilter(), UsernamePasswordAuthenticationFilter.class);
+        // límite de intentos de login/registro por IP (no es bean para que no se registre dos veces)
+        http.addFilterBefore(new AuthRateLimitFilter(authRateLimiter), JwtAuthenticationFilter.class);
         return http.build();
     }
 
@@ -15,10 +15,14 @@ import org.springframework.transaction.annotation.Transactional;
 
 import org.springframework.http.HttpStatus;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import com.espaciosdeportivos.repository.PersonaRepository;
 import com.espaciosdeportivos.repository.ClienteRepository;
 import com.espaciosdeportivos.repository.AdministradorRepository;
+import com.espaciosdeportivos.service.UserDetailsServiceImpl;
+import com.espaciosdeportivos.security.AuthRateLimiter;
+import com.espaciosdeportivos.security.TokenVersionStore;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,6 +31,8 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 
+import static com.espaciosdeportivos.util.Transacciones.despuesDelCommit;
+
 @RestController
 @RequestMapping("/api/admin")
 public class AdminController {
@@ -48,6 +54,22 @@ public class AdminController {
     @Autowired
     private AdministradorRepository adminRepo;
 
+    @Autowired
+    private UserDetailsServiceImpl userDetailsService;
+
+    @Autowired
+    private TokenVersionStore tokenVersionStore;
+
+    @Autowired
+    private AuthRateLimiter authRateLimiter;
+
+    // Contadores del límite de intentos de login/registro
+    @PreAuthorize("hasAnyRole('SUPERUSUARIO','ADMINISTRADOR')")
+    @GetMapping("/rate-limit")
+    public ResponseEntity<Map<String, Long>> estadisticasRateLimit() {
+        return ResponseEntity.ok(authRateLimiter.estadisticas());
+    }
+
     @PreAuthorize("hasAnyRole('SUPERUSUARIO','ADMINISTRADOR')")
     @GetMapping("/solicitudes")
     public ResponseEntity<List<AppUser>> listarSolicitudesPendientes() {
@@ -100,7 +122,10 @@ public class AdminController {
             }
             usuario.setEstadoVerificacion("APROBADO");
             usuario.setActivo(true);
+            tokenVersionStore.invalidarTokens(usuario); // roles cambiados: volver a iniciar sesión
             userRepo.save(usuario);
+            String username = usuario.getUsername();
+            despuesDelCommit(() -> userDetailsService.invalidar(username));
             logger.info("Rol asignado y usuario activado: {}", usuario.getUsername());
 
             // 5. Obtener y activar persona
@@ -171,6 +196,7 @@ public class AdminController {
         }
     }
 
+    @Transactional
     @PreAuthorize("hasAnyRole('SUPERUSUARIO','ADMINISTRADOR')")
     @PostMapping("/solicitudes/{id}/rechazar")
     public ResponseEntity<?> rechazarSolicitud(@PathVariable Long id, @RequestParam(required = false) String motivo) {
@@ -183,7 +209,10 @@ public class AdminController {
 
             usuario.setEstadoVerificacion("RECHAZADO");
             usuario.setActivo(false);
+            tokenVersionStore.invalidarTokens(usuario);
             userRepo.save(usuario);
+            String username = usuario.getUsername();
+            despuesDelCommit(() -> userDetailsService.invalidar(username));
 
             logger.info("Solicitud rechazada exitosamente para usuario: {}", usuario.getUsername());
             return ResponseEntity.ok(new MessageResponse(
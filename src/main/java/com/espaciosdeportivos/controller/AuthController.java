@@ -10,9 +10,14 @@ import com.espaciosdeportivos.model.Role.RoleName;
 import com.espaciosdeportivos.repository.AppUserRepository;
 import com.espaciosdeportivos.repository.RoleRepository;
 import com.espaciosdeportivos.repository.PersonaRepository;
+import com.espaciosdeportivos.security.AuthRateLimiter;
 import com.espaciosdeportivos.security.JwtUtils;
+import com.espaciosdeportivos.security.TokenRevocationStore;
+import io.jsonwebtoken.Claims;
 import com.espaciosdeportivos.service.RegistrationService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.*;
 import org.springframework.security.core.Authentication;
@@ -48,6 +53,12 @@ public class AuthController {
     @Autowired
     JwtUtils jwtUtils;
 
+    @Autowired
+    AuthRateLimiter authRateLimiter;
+
+    @Autowired
+    TokenRevocationStore tokenRevocationStore;
+
     @Autowired
     private PersonaRepository personaRepo;
 
@@ -137,6 +148,13 @@ public class AuthController {
     }
     @PostMapping("/login")
     public ResponseEntity<?> authenticateUser(@Valid @RequestBody LoginRequest loginRequest) {
+        // límite por usuario (el de IP lo aplica AuthRateLimitFilter): frena la fuerza bruta antes de BCrypt
+        long espera = authRateLimiter.intentarLoginUsuario(loginRequest.getUsername());
+        if (espera > 0) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, Long.toString(espera))
+                    .body(new MessageResponse("Demasiados intentos. Intente de nuevo en " + espera + " segundos."));
+        }
         try {
             // Verificar si existe y está aprobado antes de autenticar
             Optional<AppUser> maybeUser = userRepo.findByUsername(loginRequest.getUsername());
@@ -148,20 +166,20 @@ public class AuthController {
             } else {
                 return ResponseEntity.badRequest().body(new MessageResponse("Error: Usuario no encontrado."));
             }
+            AppUser usuario = maybeUser.get();
 
             Authentication authentication = authenticationManager.authenticate(
                     new UsernamePasswordAuthenticationToken(loginRequest.getUsername(), loginRequest.getPassword()));
 
             SecurityContextHolder.getContext().setAuthentication(authentication);
-            String jwt = jwtUtils.generateJwtToken(authentication);
+            // el token lleva roles, persona y versión: las peticiones siguientes no cargan el usuario
+            String jwt = jwtUtils.generateJwtToken(authentication, usuario);
 
             UserDetails userDetails = (UserDetails) authentication.getPrincipal();
             Set<String> roles = userDetails.getAuthorities().stream()
                     .map(item -> item.getAuthority())
                     .collect(Collectors.toSet());
 
-            AppUser usuario = userRepo.findByUsername(userDetails.getUsername()).orElseThrow();
-
             // 🔧 CAMBIO: incluir idPersona en la respuesta del login
             return ResponseEntity.ok(new JwtResponse(
                 jwt,
@@ -232,7 +250,13 @@ public class AuthController {
     }
 
     @PostMapping("/logout")
-    public ResponseEntity<?> logoutUser() {
+    public ResponseEntity<?> logoutUser(HttpServletRequest request) {
+        // el token deja de valer desde ya (no solo al expirar)
+        String jwt = parseJwt(request);
+        Claims claims = jwt != null ? jwtUtils.parseClaims(jwt) : null;
+        if (claims != null && claims.getId() != null) {
+            tokenRevocationStore.revocar(claims.getId(), claims.getExpiration().toInstant());
+        }
         SecurityContextHolder.clearContext();
         return ResponseEntity.ok(new MessageResponse("Sesión cerrada exitosamente!"));
     }
@@ -0,0 +1,155 @@
+package com.espaciosdeportivos.controller;
+
+import com.espaciosdeportivos.dto.MetadatosArchivo;
+import com.espaciosdeportivos.service.FileStorageService;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.WebUtils;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+// Envia archivos del almacenamiento sin copiarlos por la JVM:
+// con Tomcat se le pasa el archivo (y el rango) para que lo mande con sendfile del kernel;
+// si no se puede, FileChannel.transferTo hacia la salida de la respuesta.
+// Las cabeceras salen de MetadatosArchivo (cacheado en FileStorageService): un 304 no abre el archivo.
+@Component
+@Slf4j
+class EnvioArchivos {
+
+    private static final String SENDFILE_SOPORTADO = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_ARCHIVO = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_INICIO = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_FIN = "org.apache.tomcat.sendfile.end";
+
+    private final FileStorageService fileStorageService;
+    private final long minimoBytesSendfile;
+
+    EnvioArchivos(FileStorageService fileStorageService,
+                  @Value("${app.archivos.sendfile-min-bytes:49152}") long minimoBytesSendfile) {
+        this.fileStorageService = fileStorageService;
+        this.minimoBytesSendfile = minimoBytesSendfile;
+    }
+
+    // 304 si el cliente ya tiene esta version, 206 para un rango, 416 si el rango cae fuera, 200 si no
+    void enviar(HttpServletRequest request, HttpServletResponse response, MetadatosArchivo metadatos,
+                String tipoMime, CacheControl cacheControl, String contentDisposition) throws IOException {
+        if (cacheControl != null) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+        }
+        if (new ServletWebRequest(request, response)
+                .checkNotModified(metadatos.etag(), metadatos.ultimaModificacion().toEpochMilli())) {
+            return;
+        }
+
+        long tamanio = metadatos.tamanioBytes();
+        response.setContentType(tipoMime);
+        response.setHeader(HttpHeaders.ETAG, metadatos.etag());
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, metadatos.ultimaModificacion().toEpochMilli());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (contentDisposition != null) {
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, contentDisposition);
+        }
+
+        long inicio = 0;
+        long fin = tamanio - 1;
+        HttpRange rango = rangoSolicitado(request, metadatos);
+        if (rango != null) {
+            try {
+                inicio = rango.getRangeStart(tamanio);
+                fin = rango.getRangeEnd(tamanio);
+            } catch (IllegalArgumentException e) {
+                inicio = tamanio;
+            }
+            if (inicio >= tamanio || fin < inicio) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + tamanio);
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + inicio + "-" + fin + "/" + tamanio);
+        }
+        long longitud = fin - inicio + 1;
+        response.setContentLengthLong(longitud);
+
+        if ("HEAD".equals(request.getMethod()) || longitud <= 0) {
+            return;
+        }
+        Path archivo = Paths.get(fileStorageService.obtenerRutaAbsoluta(metadatos.rutaArchivo()));
+        if (puedeUsarSendfile(request, response, longitud)) {
+            // Tomcat lo envia al terminar la peticion; aqui no se escribe cuerpo
+            request.setAttribute(SENDFILE_ARCHIVO, archivo.toString());
+            request.setAttribute(SENDFILE_INICIO, inicio);
+            request.setAttribute(SENDFILE_FIN, fin + 1);
+            return;
+        }
+        transferir(archivo, inicio, longitud, response);
+    }
+
+    // Un solo rango y solo si If-Range (cuando viene) coincide con la version actual;
+    // varios rangos o un Range mal formado se responden con el archivo completo
+    private static HttpRange rangoSolicitado(HttpServletRequest request, MetadatosArchivo metadatos) {
+        String cabecera = request.getHeader(HttpHeaders.RANGE);
+        if (cabecera == null || !rangoVigente(request, metadatos)) {
+            return null;
+        }
+        try {
+            List<HttpRange> rangos = HttpRange.parseRanges(cabecera);
+            return rangos.size() == 1 ? rangos.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static boolean rangoVigente(HttpServletRequest request, MetadatosArchivo metadatos) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null || ifRange.equals(metadatos.etag())) {
+            return true;
+        }
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == metadatos.ultimaModificacion().getEpochSecond();
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // sendfile necesita el Content-Length en la respuesta real: no sirve si un filtro la envuelve para cachearla
+    private boolean puedeUsarSendfile(HttpServletRequest request, HttpServletResponse response, long longitud) {
+        return longitud >= minimoBytesSendfile
+                && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SOPORTADO))
+                && WebUtils.getNativeResponse(response, ContentCachingResponseWrapper.class) == null;
+    }
+
+    private static void transferir(Path archivo, long inicio, long longitud, HttpServletResponse response) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            WritableByteChannel salida = Channels.newChannel(response.getOutputStream());
+            long posicion = inicio;
+            long restante = longitud;
+            while (restante > 0) {
+                long enviados = canal.transferTo(posicion, restante, salida);
+                if (enviados <= 0) {
+                    // el archivo se achico mientras se enviaba
+                    log.warn("Archivo {} truncado durante el envío", archivo);
+                    break;
+                }
+                posicion += enviados;
+                restante -= enviados;
+            }
+        }
+    }
+}
@@ -1,17 +1,20 @@
 package com.espaciosdeportivos.controller;
 
+import com.espaciosdeportivos.dto.MetadatosArchivo;
 import com.espaciosdeportivos.service.FileStorageService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.core.io.Resource;
-import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
 @Slf4j
 @RestController
 @RequestMapping("/api/archivos")
@@ -20,6 +23,7 @@ import org.springframework.web.bind.annotation.*;
 public class FileStorageController {
 
     private final FileStorageService fileStorageService;
+    private final EnvioArchivos envioArchivos;
 
     @Operation(summary = "Verificar existencia de archivo", description = "Verifica si un archivo existe en el sistema de almacenamiento")
     @GetMapping("/existe/{rutaArchivo:.+}")
@@ -91,25 +95,25 @@ public class FileStorageController {
 
     @Operation(summary = "Descargar archivo directo", description = "Descarga un archivo directamente por su ruta")
     @GetMapping("/descargar/{rutaArchivo:.+}")
-    public ResponseEntity<Resource> descargarArchivoDirecto(
+    public void descargarArchivoDirecto(
             @Parameter(description = "Ruta completa del archivo") 
-            @PathVariable String rutaArchivo) {
+            @PathVariable String rutaArchivo,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
         
         log.info("Descargando archivo directo: {}", rutaArchivo);
         
+        MetadatosArchivo metadatos;
         try {
-            Resource resource = fileStorageService.cargarArchivo(rutaArchivo);
-            
-            String contentType = "application/octet-stream";
-            String filename = rutaArchivo.substring(rutaArchivo.lastIndexOf("/") + 1);
-            
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(contentType))
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-                    .body(resource);
+            metadatos = fileStorageService.obtenerMetadatos(rutaArchivo);
         } catch (Exception e) {
             log.error("Error descargando archivo: {}", e.getMessage());
-            return ResponseEntity.notFound().build();
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
         }
+
+        String filename = rutaArchivo.substring(rutaArchivo.lastIndexOf("/") + 1);
+        envioArchivos.enviar(request, response, metadatos, MediaType.APPLICATION_OCTET_STREAM_VALUE, null,
+                "attachment; filename=\"" + filename + "\"");
     }
 }
\ No newline at end of file
@@ -1,35 +1,61 @@
 package com.espaciosdeportivos.controller;
 
 import com.espaciosdeportivos.dto.ImagenDTO;
+import com.espaciosdeportivos.dto.MetadatosArchivo;
+import com.espaciosdeportivos.service.FileStorageService;
 import com.espaciosdeportivos.service.ImagenService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.annotation.Timed;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.core.io.Resource;
-import org.springframework.http.HttpHeaders;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
 import java.util.List;
+import java.util.regex.Pattern;
 
 @Slf4j
 @RestController
 @RequestMapping("/api/imagenes")
-@RequiredArgsConstructor
 @Tag(name = "Gestión de Imágenes", description = "API para gestión completa de imágenes y sus relaciones")
 public class ImagenController {
 
+    // originales guardados como <uuid>.<ext> o <sha256>.<ext>: su contenido nunca cambia bajo el mismo nombre
+    private static final Pattern NOMBRE_INMUTABLE =
+            Pattern.compile("^([0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}|[0-9a-f]{64})\\.\\w+$");
+
     private final ImagenService imagenService;
-    private final com.espaciosdeportivos.service.FileStorageService fileStorageService;
+    private final FileStorageService fileStorageService;
+    private final EnvioArchivos envioArchivos;
+    private final CacheControl cacheInmutable;
+    private final CacheControl cacheRevalidable;
+
+    public ImagenController(ImagenService imagenService,
+                            FileStorageService fileStorageService,
+                            EnvioArchivos envioArchivos,
+                            @Value("${app.imagen.cache-dias:365}") long cacheDias,
+                            @Value("${app.imagen.cache-variantes-minutos:60}") long cacheVariantesMinutos) {
+        this.imagenService = imagenService;
+        this.fileStorageService = fileStorageService;
+        this.envioArchivos = envioArchivos;
+        this.cacheInmutable = CacheControl.maxAge(Duration.ofDays(cacheDias)).cachePublic().immutable();
+        // variantes (se pueden regenerar con el mismo nombre): se revalidan con el ETag pasado este tiempo
+        this.cacheRevalidable = CacheControl.maxAge(Duration.ofMinutes(cacheVariantesMinutos)).cachePublic();
+    }
 
     @Operation(summary = "Subir imágenes para una entidad", description = "Sube una o múltiples imágenes y las asocia a una entidad específica")
     @PostMapping(value = "/subir/{entidadTipo}/{entidadId}", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Timed(value = "imagenes.subir", histogram = true)
     public ResponseEntity<List<ImagenDTO>> subirImagenes(
             @Parameter(description = "Tipo de entidad (ej: instalacion, usuario, evento)") 
             @PathVariable String entidadTipo,
@@ -49,9 +75,12 @@ public class ImagenController {
         }
     }
 
+    // Con ETag (hash del contenido) y Last-Modified: If-None-Match / If-Modified-Since responden 304 sin
+    // abrir el archivo. El cuerpo (completo o un Range) sale por sendfile, ver EnvioArchivos.
     @Operation(summary = "Descargar archivo de imagen (proxy)", description = "Descarga el archivo físico de una imagen por su ruta de almacenamiento")
     @GetMapping("/archivo/**")
-    public ResponseEntity<Resource> descargarArchivoImagen(HttpServletRequest request) {
+    @Timed(value = "imagenes.descargar", histogram = true)
+    public void descargarArchivoImagen(HttpServletRequest request, HttpServletResponse response) throws IOException {
         
         // Obtener la ruta completa manualmente
         String requestURI = request.getRequestURI();
@@ -59,24 +88,19 @@ public class ImagenController {
         
         log.info("Descargando archivo de imagen: {}", rutaArchivo);
 
+        MetadatosArchivo metadatos;
         try {
-            Resource resource = fileStorageService.cargarArchivo(rutaArchivo);
-
-            String contentType = fileStorageService.obtenerTipoMimeArchivo(rutaArchivo);
-            if (contentType == null || contentType.isBlank()) {
-                contentType = "application/octet-stream";
-            }
-
-            String filename = rutaArchivo.substring(rutaArchivo.lastIndexOf("/") + 1);
-
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(contentType))
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filename + "\"")
-                    .body(resource);
+            metadatos = fileStorageService.obtenerMetadatos(rutaArchivo);
         } catch (Exception e) {
             log.error("Error descargando archivo: {}", e.getMessage());
-            return ResponseEntity.notFound().build();
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
         }
+
+        String filename = rutaArchivo.substring(rutaArchivo.lastIndexOf("/") + 1);
+        CacheControl cacheControl = NOMBRE_INMUTABLE.matcher(filename).matches() ? cacheInmutable : cacheRevalidable;
+        envioArchivos.enviar(request, response, metadatos, metadatos.tipoMime(), cacheControl,
+                "inline; filename=\"" + filename + "\"");
     }
 
     @Operation(summary = "Obtener imágenes de una entidad", description = "Recupera todas las imágenes activas asociadas a una entidad específica")
@@ -168,6 +192,23 @@ public class ImagenController {
         }
     }
 
+    @Operation(summary = "Regenerar variantes de una imagen", description = "Encola la generación de miniatura, mediana y grande (p. ej. para imágenes subidas antes de existir las variantes)")
+    @PostMapping("/{idImagen}/variantes")
+    public ResponseEntity<Void> regenerarVariantes(
+            @Parameter(description = "ID de la imagen")
+            @PathVariable Long idImagen) {
+
+        log.info("Regenerando variantes de imagen ID: {}", idImagen);
+
+        try {
+            imagenService.regenerarVariantes(idImagen);
+            return ResponseEntity.accepted().build();
+        } catch (Exception e) {
+            log.error("Error regenerando variantes: {}", e.getMessage());
+            return ResponseEntity.notFound().build();
+        }
+    }
+
     @Operation(summary = "Obtener todas las imágenes activas", description = "Recupera todas las imágenes activas del sistema")
     @GetMapping("/activas")
     public ResponseEntity<List<ImagenDTO>> obtenerTodasLasImagenesActivas() {
@@ -1,11 +1,19 @@
 package com.espaciosdeportivos.controller;
 
+import com.espaciosdeportivos.dto.EstadoGeneracionQrDTO;
 import com.espaciosdeportivos.dto.QrDTO;
+import com.espaciosdeportivos.dto.ValidacionQrDTO;
 import com.espaciosdeportivos.model.Qr;
+import com.espaciosdeportivos.service.IGeneracionQrService;
+import com.espaciosdeportivos.service.IQrImagenService;
 import com.espaciosdeportivos.service.IQrService;
+import com.espaciosdeportivos.service.IValidacionQrService;
 
+import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -15,13 +23,8 @@ import org.springframework.web.bind.annotation.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.List;
 
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 
@@ -31,11 +34,18 @@ import org.springframework.http.ResponseEntity;
 public class QrController {
 
     private final IQrService qrService;
+    private final IGeneracionQrService generacionQrService;
+    private final IQrImagenService qrImagenService;
+    private final IValidacionQrService validacionQrService;
     private static final Logger logger = LoggerFactory.getLogger(QrController.class);
 
     @Autowired
-    public QrController(IQrService qrService) {
+    public QrController(IQrService qrService, IGeneracionQrService generacionQrService,
+                        IQrImagenService qrImagenService, IValidacionQrService validacionQrService) {
         this.qrService = qrService;
+        this.generacionQrService = generacionQrService;
+        this.qrImagenService = qrImagenService;
+        this.validacionQrService = validacionQrService;
     }
 
     @GetMapping
@@ -110,31 +120,55 @@ public class QrController {
         return ResponseEntity.ok(qr);
     }
     
+    // Estado de la generación en segundo plano de los QRs de una reserva pagada
+    @GetMapping("/reserva/{idReserva}/estado-generacion")
+    public ResponseEntity<EstadoGeneracionQrDTO> obtenerEstadoGeneracion(@PathVariable Long idReserva) {
+        return ResponseEntity.ok(generacionQrService.obtenerEstado(idReserva));
+    }
+
+    // Vuelve a encolar la generación (por ejemplo, tras un estado FALLIDO)
+    @PostMapping("/reserva/{idReserva}/regenerar")
+    public ResponseEntity<EstadoGeneracionQrDTO> regenerarQrs(@PathVariable Long idReserva) {
+        generacionQrService.solicitarGeneracion(idReserva);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(generacionQrService.obtenerEstado(idReserva));
+    }
+
     //VALIDAR QR
     @PostMapping("/validar")
     public ResponseEntity<Boolean> validarQr(@RequestParam String codigo) {
         try {
-            // Aquí puedes implementar la lógica de validación de QR
-            // Por ahora, devolvemos true si existe y está activo
-            List<QrDTO> qrs = qrService.obtenerTodosLosQrs();
-            boolean existe = qrs.stream()
-                    .anyMatch(qr -> qr.getCodigoQr().equals(codigo) && Boolean.TRUE.equals(qr.getEstado()));
-            return ResponseEntity.ok(existe);
+            // true si existe, está activo y no expiró (búsqueda por código, sin registrar ingreso)
+            return ResponseEntity.ok(validacionQrService.esValido(codigo));
         } catch (Exception e) {
             return ResponseEntity.status(500).body(false);
         }
     }
 
+    //INGRESO CON QR: valida y registra el ingreso; el mismo código no puede volver a entrar
+    @PostMapping("/ingreso")
+    public ResponseEntity<ValidacionQrDTO> registrarIngreso(@RequestParam String codigo) {
+        ValidacionQrDTO resultado = validacionQrService.registrarIngreso(codigo);
+        return resultado.isValido()
+                ? ResponseEntity.ok(resultado)
+                : ResponseEntity.status(HttpStatus.CONFLICT).body(resultado);
+    }
+
+    //INGRESO CON CONTENIDO FIRMADO: lo que lee el escáner; se verifica sin consultar la BD
+    @PostMapping("/ingreso-firmado")
+    public ResponseEntity<ValidacionQrDTO> registrarIngresoFirmado(@RequestParam String contenido) {
+        ValidacionQrDTO resultado = validacionQrService.registrarIngresoFirmado(contenido);
+        return resultado.isValido()
+                ? ResponseEntity.ok(resultado)
+                : ResponseEntity.status(HttpStatus.CONFLICT).body(resultado);
+    }
+
     @GetMapping("/contenido/{codigo}")
     public ResponseEntity<String> verContenidoQr(@PathVariable String codigo) {
         try {
-            List<QrDTO> qrs = qrService.obtenerTodosLosQrs();
-            QrDTO qr = qrs.stream()
-                    .filter(q -> q.getCodigoQr().equals(codigo))
-                    .findFirst()
-                    .orElse(null);
-
-            if (qr == null) {
+            QrDTO qr;
+            try {
+                qr = qrService.obtenerQrPorCodigo(codigo);
+            } catch (RuntimeException e) {
                 return ResponseEntity.notFound().build();
             }
 
@@ -154,14 +188,24 @@ public class QrController {
         }
     }
 
+    // Imagen del QR dibujada al momento (png por defecto, svg para la versión vectorial compacta)
     @GetMapping("/imagen/{codigo}")
-    public ResponseEntity<org.springframework.core.io.Resource> verImagenQr(@PathVariable String codigo) {
+    public ResponseEntity<byte[]> verImagenQr(@PathVariable String codigo,
+                                              @RequestParam(defaultValue = "png") String formato,
+                                              @RequestParam(defaultValue = "300") @Min(100) @Max(1000) int tamano) {
+        IQrImagenService.Formato f;
+        try {
+            f = IQrImagenService.Formato.valueOf(formato.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
         try {
-            // Aquí puedes implementar la lógica para servir la imagen del QR
-            // Por ahora, devolvemos un error
+            byte[] imagen = qrImagenService.obtenerImagen(codigo, f, tamano);
+            return ResponseEntity.ok()
+                    .contentType(f == IQrImagenService.Formato.SVG ? MediaType.valueOf("image/svg+xml") : MediaType.IMAGE_PNG)
+                    .body(imagen);
+        } catch (EntityNotFoundException e) {
             return ResponseEntity.notFound().build();
-        } catch (Exception e) {
-            return ResponseEntity.status(500).build();
         }
     }
 
@@ -178,18 +222,10 @@ public class QrController {
         return ResponseEntity.ok(qrService.obtenerQrsPorPersona(idPersona));
     }
     //aqui jalamos literalmente la imagen :)
+    // los QR antiguos guardaban el nombre del PNG como código; ahora se dibuja igual que /imagen/{codigo}
     @GetMapping("/qrs/{filename}")
-    public ResponseEntity<Resource> getQrImage(@PathVariable String filename) throws IOException {
-        Path path = Paths.get("uploads", "img", "qr").resolve(filename);
-        Resource resource = new UrlResource(path.toUri());
-
-        if (!resource.exists()) {
-            return ResponseEntity.notFound().build();
-        }
-
-        return ResponseEntity.ok()
-                .contentType(MediaType.IMAGE_PNG)
-                .body(resource);
+    public ResponseEntity<byte[]> getQrImage(@PathVariable String filename) {
+        return verImagenQr(filename, "png", 300);
     }
 
 }
\ No newline at end of file
@@ -1,16 +1,22 @@
 package com.espaciosdeportivos.controller;
 
+import com.espaciosdeportivos.dto.CalendarioDisponibilidadDTO;
+import com.espaciosdeportivos.dto.PaginaDTO;
 import com.espaciosdeportivos.dto.ReservaDTO;
+import com.espaciosdeportivos.dto.ReservaSerieDTO;
 import com.espaciosdeportivos.model.Reserva;
 import com.espaciosdeportivos.service.IReservaService;
 
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
@@ -26,16 +32,25 @@ import org.slf4j.LoggerFactory;
 @RestController
 @RequestMapping("/api/reservas")
 @CrossOrigin(origins = "*")
+@Validated
 public class ReservaController {
 
+    // duracion de bloque aceptada en los listados de disponibilidad (de 5 minutos a un dia)
+    private static final long MIN_MINUTOS_BLOQUE = 5;
+    private static final long MAX_MINUTOS_BLOQUE = 1440;
+
     @Autowired
     private IReservaService reservaService;
 
     private static final Logger logger = LoggerFactory.getLogger(ReservaController.class);
 
     // CRUD
-    public ResponseEntity<List<ReservaDTO>> listarTodas() {
-        List<ReservaDTO> reservas = reservaService.listarTodas();
+    // Los listados se paginan por cursor: ?limite=N (máx. 200) y ?cursor=<siguienteCursor de la página anterior>
+    @GetMapping
+    public ResponseEntity<PaginaDTO<ReservaDTO>> listarTodas(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limite) {
+        PaginaDTO<ReservaDTO> reservas = reservaService.listarTodas(cursor, limite);
         return ResponseEntity.ok(reservas);
     }
 
@@ -52,6 +67,13 @@ public class ReservaController {
         return ResponseEntity.ok(reservaCreada);
     }
 
+    // Serie semanal de reservas (ligas, escuelas); devuelve las fechas aceptadas y las rechazadas con su motivo
+    @PostMapping("/serie")
+    public ResponseEntity<ReservaSerieDTO.Resultado> crearSerie(@Valid @RequestBody ReservaSerieDTO.Solicitud solicitud) {
+        ReservaSerieDTO.Resultado resultado = reservaService.crearSerie(solicitud);
+        return ResponseEntity.ok(resultado);
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<ReservaDTO> actualizar(@PathVariable Long id, @Valid @RequestBody ReservaDTO dto) {
         ReservaDTO reservaActualizada = reservaService.actualizar(id, dto);
@@ -66,23 +88,31 @@ public class ReservaController {
 
     // BÚSQUEDAS
     @GetMapping("/cliente/{idCliente}")
-    public ResponseEntity<List<ReservaDTO>> buscarPorCliente(@PathVariable Long idCliente) {
-        List<ReservaDTO> reservas = reservaService.buscarPorCliente(idCliente);
+    public ResponseEntity<PaginaDTO<ReservaDTO>> buscarPorCliente(
+            @PathVariable Long idCliente,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limite) {
+        PaginaDTO<ReservaDTO> reservas = reservaService.buscarPorCliente(idCliente, cursor, limite);
         return ResponseEntity.ok(reservas);
     }
 
     @GetMapping("/estado/{estado}")
-    public ResponseEntity<List<ReservaDTO>> buscarPorEstado(@PathVariable String estado) {
-        List<ReservaDTO> reservas = reservaService.buscarPorEstado(estado);
+    public ResponseEntity<PaginaDTO<ReservaDTO>> buscarPorEstado(
+            @PathVariable String estado,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limite) {
+        PaginaDTO<ReservaDTO> reservas = reservaService.buscarPorEstado(estado, cursor, limite);
         return ResponseEntity.ok(reservas);
     }
 
     @GetMapping("/rango-fechas")
-    public ResponseEntity<List<ReservaDTO>> buscarPorRangoFechas(
+    public ResponseEntity<PaginaDTO<ReservaDTO>> buscarPorRangoFechas(
             @RequestParam("inicio") String inicio,
-            @RequestParam("fin") String fin) {
-        List<ReservaDTO> reservas = reservaService.buscarPorRangoFechas(
-            LocalDate.parse(inicio), LocalDate.parse(fin));
+            @RequestParam("fin") String fin,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limite) {
+        PaginaDTO<ReservaDTO> reservas = reservaService.buscarPorRangoFechas(
+            LocalDate.parse(inicio), LocalDate.parse(fin), cursor, limite);
         return ResponseEntity.ok(reservas);
     }
 
@@ -101,15 +131,33 @@ public class ReservaController {
     @GetMapping("/horario-disponible")
     public ResponseEntity<List<String>> getHorasDisponibles(
             @RequestParam Long canchaId,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fecha) {
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fecha,
+            @RequestParam(required = false) @Min(MIN_MINUTOS_BLOQUE) @Max(MAX_MINUTOS_BLOQUE) Integer minutos) {
 
-        List<String> horasDisponibles = reservaService.obtenerHorasDisponibles(canchaId, fecha);
+        List<String> horasDisponibles = minutos != null
+                ? reservaService.obtenerHorasDisponibles(canchaId, fecha, minutos)
+                : reservaService.obtenerHorasDisponibles(canchaId, fecha);
 
         // Ya son strings del tipo "08:00 - 08:30"
         return ResponseEntity.ok(horasDisponibles);
     }
 
 
+    // Vista de semana/mes: ?canchaId= o ?areaId=, &inicio=&fin= (máx. 62 días) y &minutos= opcional
+    @GetMapping("/calendario-disponible")
+    public ResponseEntity<CalendarioDisponibilidadDTO> getCalendarioDisponible(
+            @RequestParam(required = false) Long canchaId,
+            @RequestParam(required = false) Long areaId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate inicio,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fin,
+            @RequestParam(required = false) @Min(MIN_MINUTOS_BLOQUE) @Max(MAX_MINUTOS_BLOQUE) Integer minutos) {
+
+        CalendarioDisponibilidadDTO calendario =
+                reservaService.obtenerCalendarioDisponible(canchaId, areaId, inicio, fin, minutos);
+        return ResponseEntity.ok(calendario);
+    }
+
+
     @PostMapping("/{id}/en-curso")
     public ResponseEntity<ReservaDTO> marcarEnCurso(@PathVariable Long id) {
         ReservaDTO reservaEnCurso = reservaService.marcarComoEnCurso(id);
@@ -133,12 +181,19 @@ public class ReservaController {
     public ResponseEntity<Map<String, Boolean>> validarDisponibilidad(
             @RequestParam String fecha,
             @RequestParam String horaInicio,
-            @RequestParam String horaFin) {
-        boolean disponible = reservaService.validarDisponibilidad(
-            LocalDate.parse(fecha), 
-            LocalTime.parse(horaInicio), 
-            LocalTime.parse(horaFin)
-        );
+            @RequestParam String horaFin,
+            @RequestParam(required = false) Long canchaId) {
+        boolean disponible = canchaId != null
+            ? reservaService.validarDisponibilidad(
+                canchaId,
+                LocalDate.parse(fecha),
+                LocalTime.parse(horaInicio),
+                LocalTime.parse(horaFin))
+            : reservaService.validarDisponibilidad(
+                LocalDate.parse(fecha), 
+                LocalTime.parse(horaInicio), 
+                LocalTime.parse(horaFin)
+            );
         return ResponseEntity.ok(Map.of("disponible", disponible));
     }
 
@@ -199,8 +254,11 @@ public class ReservaController {
     }
     //RESERVAS DEL CLIENTE
     @GetMapping("/cliente/{clienteId}/reserva")
-    public ResponseEntity<List<ReservaDTO>> buscarTodasPorCliente(@PathVariable Long clienteId) {
-        List<ReservaDTO> reservas = reservaService.buscarTodasLasReservasDelCliente(clienteId);
+    public ResponseEntity<PaginaDTO<ReservaDTO>> buscarTodasPorCliente(
+            @PathVariable Long clienteId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limite) {
+        PaginaDTO<ReservaDTO> reservas = reservaService.buscarPorCliente(clienteId, cursor, limite);
         return ResponseEntity.ok(reservas);
     }
 
@@ -220,12 +278,14 @@ public class ReservaController {
     // RESERVAS POR ADMINISTRADOR EN RANGO DE FECHAS
     //PAra administrador ver sus reservas en rango de fechas k
     @GetMapping("/administrador/{idAdministrador}/rango-fechas")
-    public ResponseEntity<List<ReservaDTO>> buscarPorAdministradorEnRango(
+    public ResponseEntity<PaginaDTO<ReservaDTO>> buscarPorAdministradorEnRango(
             @PathVariable Long idAdministrador,
             @RequestParam String inicio,
-            @RequestParam String fin) {
-        List<ReservaDTO> reservas = reservaService.buscarPorAdministradorEnRango(
-                idAdministrador, LocalDate.parse(inicio), LocalDate.parse(fin));
+            @RequestParam String fin,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limite) {
+        PaginaDTO<ReservaDTO> reservas = reservaService.buscarPorAdministradorEnRango(
+                idAdministrador, LocalDate.parse(inicio), LocalDate.parse(fin), cursor, limite);
         return ResponseEntity.ok(reservas);
     }
 
@@ -240,8 +300,11 @@ public class ReservaController {
 
     // Listar reservas por cancha k
 @GetMapping("/{idCancha}/reservas")
-public ResponseEntity<List<ReservaDTO>> obtenerReservasPorCancha(@PathVariable Long idCancha) {
-    List<ReservaDTO> reservas = reservaService.listarReservasPorCancha(idCancha);
+public ResponseEntity<PaginaDTO<ReservaDTO>> obtenerReservasPorCancha(
+        @PathVariable Long idCancha,
+        @RequestParam(required = false) String cursor,
+        @RequestParam(required = false) Integer limite) {
+    PaginaDTO<ReservaDTO> reservas = reservaService.listarReservasPorCancha(idCancha, cursor, limite);
     return ResponseEntity.ok(reservas);
 }
 
@@ -0,0 +1,6 @@
+package com.espaciosdeportivos.dto;
+
+// Archivo recien subido, ya escrito en un temporal y con su hash calculado, listo para publicarse
+// en rutaPorContenido (blobs/ab/cd/<sha256>.<ext>) si ese contenido todavia no existe.
+public record ArchivoPorContenido(String hash, String rutaTemporal, String rutaPorContenido, long tamanioBytes) {
+}
@@ -0,0 +1,34 @@
+package com.espaciosdeportivos.dto;
+
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.List;
+
+// Disponibilidad de una o varias canchas para un rango de fechas (vista de semana/mes)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CalendarioDisponibilidadDTO implements Serializable {
+
+    private LocalDate inicio;
+    private LocalDate fin;
+    private Integer minutosBloque;
+    private List<CanchaCalendario> canchas;
+
+    @Data @NoArgsConstructor @AllArgsConstructor @Builder
+    public static class CanchaCalendario implements Serializable {
+        private Long idCancha;
+        private String nombre;
+        private List<DiaCalendario> dias;
+    }
+
+    @Data @NoArgsConstructor @AllArgsConstructor @Builder
+    public static class DiaCalendario implements Serializable {
+        private LocalDate fecha;
+        private Integer bloquesLibres;
+        private List<String> bloques; // "08:00 - 08:30"
+    }
+}
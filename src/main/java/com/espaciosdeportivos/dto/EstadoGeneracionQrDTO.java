@@ -0,0 +1,23 @@
+package com.espaciosdeportivos.dto;
+
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+// Estado de la generacion asincrona de los QR de una reserva (para consultar desde el cliente)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EstadoGeneracionQrDTO implements Serializable {
+
+    public enum Estado { SIN_SOLICITUD, EN_COLA, EN_PROCESO, REINTENTANDO, COMPLETADO, FALLIDO }
+
+    private Long idReserva;
+    private Estado estado;
+    private int intentos;
+    private Integer qrsGenerados;
+    private String error;
+    private LocalDateTime actualizado;
+}
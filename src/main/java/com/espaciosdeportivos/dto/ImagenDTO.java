@@ -10,6 +10,7 @@ import jakarta.validation.constraints.Size;
 import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @Data
 public class ImagenDTO implements Serializable {
@@ -51,6 +52,9 @@ public class ImagenDTO implements Serializable {
 
     private LocalDateTime fechaActualizacion;
 
+    // URL de cada variante por tipo (MINIATURA, MEDIANA, GRANDE); si falta alguna se usa urlAcceso
+    private Map<String, String> variantes;
+
 
     // Constructores para flexibilidad
     public ImagenDTO() {
@@ -0,0 +1,9 @@
+package com.espaciosdeportivos.dto;
+
+import java.time.Instant;
+
+// Datos de un archivo almacenado que bastan para responder cabeceras HTTP sin abrirlo.
+// etag es un hash del contenido (ya entre comillas, listo para la cabecera ETag).
+public record MetadatosArchivo(String rutaArchivo, long tamanioBytes, Instant ultimaModificacion,
+                               String tipoMime, String etag) {
+}
@@ -0,0 +1,23 @@
+package com.espaciosdeportivos.dto;
+
+import lombok.*;
+
+import java.io.Serializable;
+import java.util.List;
+
+// Página de resultados con paginación por cursor (keyset)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PaginaDTO<T> implements Serializable {
+
+    private List<T> contenido;
+
+    // cursor a enviar en la siguiente petición; null si no hay más resultados
+    private String siguienteCursor;
+
+    private Integer tamano;
+
+    private Boolean hayMas;
+}
@@ -0,0 +1,38 @@
+package com.espaciosdeportivos.dto;
+
+import com.espaciosdeportivos.exception.CursorInvalidoException;
+import com.espaciosdeportivos.model.Reserva;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Base64;
+
+// Posición (fechaReserva, horaInicio, idReserva) de la última reserva devuelta en una página.
+// Viaja al cliente como texto opaco en base64 url-safe.
+public record ReservaCursor(LocalDate fecha, LocalTime hora, Long id) {
+
+    // anterior a cualquier reserva: se usa para la primera página
+    public static final ReservaCursor INICIO = new ReservaCursor(LocalDate.of(1900, 1, 1), LocalTime.MIN, 0L);
+
+    public static ReservaCursor de(Reserva reserva) {
+        return new ReservaCursor(reserva.getFechaReserva(), reserva.getHoraInicio(), reserva.getIdReserva());
+    }
+
+    public static ReservaCursor decodificar(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return INICIO;
+        }
+        try {
+            String[] partes = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            return new ReservaCursor(LocalDate.parse(partes[0]), LocalTime.parse(partes[1]), Long.parseLong(partes[2]));
+        } catch (RuntimeException e) {
+            throw new CursorInvalidoException("Cursor de paginación inválido: " + cursor);
+        }
+    }
+
+    public String codificar() {
+        String texto = fecha + "|" + hora + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(texto.getBytes(StandardCharsets.UTF_8));
+    }
+}
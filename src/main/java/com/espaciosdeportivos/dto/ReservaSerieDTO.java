@@ -0,0 +1,65 @@
+package com.espaciosdeportivos.dto;
+
+import jakarta.validation.constraints.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+// Reservas recurrentes (ligas, escuelas): misma cancha y horario cada N semanas en los días indicados
+public class ReservaSerieDTO {
+
+    @Data @NoArgsConstructor @AllArgsConstructor @Builder
+    public static class Solicitud implements Serializable {
+
+        @NotNull(message = "El ID del cliente es obligatorio")
+        private Long clienteId;
+
+        @NotNull(message = "El ID de la cancha es obligatorio")
+        private Long idCancha;
+
+        @NotNull(message = "El ID de la disciplina es obligatorio")
+        private Long idDisciplina;
+
+        @NotNull(message = "La fecha de inicio es obligatoria")
+        private LocalDate fechaInicio;
+
+        @NotNull(message = "La fecha de fin es obligatoria")
+        private LocalDate fechaFin;
+
+        // equivalente a BYDAY de una RRULE semanal: MONDAY, WEDNESDAY, ...
+        @NotEmpty(message = "Debe indicar al menos un día de la semana")
+        private List<DayOfWeek> diasSemana;
+
+        // equivalente a INTERVAL: 1 = cada semana, 2 = semana por medio
+        @Min(value = 1, message = "El intervalo debe ser de al menos 1 semana")
+        @Max(value = 52, message = "El intervalo no puede superar las 52 semanas")
+        @Builder.Default
+        private Integer intervaloSemanas = 1;
+
+        @NotNull(message = "La hora de inicio es obligatoria")
+        private LocalTime horaInicio;
+
+        @NotNull(message = "La hora de fin es obligatoria")
+        private LocalTime horaFin;
+
+        @Size(max = 500, message = "Las observaciones no pueden superar los 500 caracteres")
+        private String observaciones;
+    }
+
+    @Data @NoArgsConstructor @AllArgsConstructor @Builder
+    public static class Ocurrencia implements Serializable {
+        private LocalDate fecha;
+        private Long idReserva;   // solo en las aceptadas
+        private String motivo;    // solo en las rechazadas
+    }
+
+    @Data @NoArgsConstructor @AllArgsConstructor @Builder
+    public static class Resultado implements Serializable {
+        private List<Ocurrencia> aceptadas;
+        private List<Ocurrencia> rechazadas;
+    }
+}
@@ -0,0 +1,25 @@
+package com.espaciosdeportivos.dto;
+
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+// Resultado de escanear un QR en el ingreso
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ValidacionQrDTO implements Serializable {
+
+    private boolean valido;
+    private String motivo;
+    private String codigoQr;
+    private Long idQr;
+    private Long idReserva;
+    private Long idPersona;
+    private Boolean esCliente;
+    private LocalDateTime fechaIngreso;
+    // true si el ingreso se aceptó sin BD y queda pendiente de guardar
+    private boolean pendienteSincronizar;
+}
@@ -0,0 +1,9 @@
+package com.espaciosdeportivos.exception;
+
+// El cursor de paginacion que mando el cliente no se puede decodificar (manipulado o de otra version): 400
+public class CursorInvalidoException extends IllegalArgumentException {
+
+    public CursorInvalidoException(String message) {
+        super(message);
+    }
+}
@@ -1,20 +1,31 @@
 package com.espaciosdeportivos.exception;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.ConstraintViolationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.multipart.support.MissingServletRequestPartException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.method.annotation.HandlerMethodValidationException;
 
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(GlobalExceptionHandler.class);
 
+    private final Counter conflictosReserva;
+
+    public GlobalExceptionHandler(MeterRegistry meterRegistry) {
+        this.conflictosReserva = meterRegistry.counter("reservas.conflictos");
+    }
+
     @ExceptionHandler(MissingServletRequestPartException.class)
     public ResponseEntity<Object> handleMissingPart(MissingServletRequestPartException ex, HttpServletRequest request) {
         logger.error("MissingServletRequestPartException -> URI: {} Part: {} Message: {}", request.getRequestURI(), ex.getRequestPartName(), ex.getMessage());
@@ -23,6 +34,50 @@ public class GlobalExceptionHandler {
                 .body(String.format("Missing required part '%s'", ex.getRequestPartName()));
     }
 
+    @ExceptionHandler(ReservaSolapadaException.class)
+    public ResponseEntity<Object> handleReservaSolapada(ReservaSolapadaException ex, HttpServletRequest request) {
+        logger.warn("ReservaSolapadaException -> URI: {} Message: {}", request.getRequestURI(), ex.getMessage());
+        conflictosReserva.increment();
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .header(HttpHeaders.CONTENT_TYPE, "application/json")
+                .body(ex.getMessage());
+    }
+
+    @ExceptionHandler(CursorInvalidoException.class)
+    public ResponseEntity<Object> handleCursorInvalido(CursorInvalidoException ex, HttpServletRequest request) {
+        logger.warn("CursorInvalidoException -> URI: {} Message: {}", request.getRequestURI(), ex.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .header(HttpHeaders.CONTENT_TYPE, "application/json")
+                .body(ex.getMessage());
+    }
+
+    // Parametros fuera de rango (@Min/@Max en los controladores): 400 con el detalle de cada uno
+    @ExceptionHandler(ConstraintViolationException.class)
+    public ResponseEntity<Object> handleConstraintViolation(ConstraintViolationException ex, HttpServletRequest request) {
+        logger.warn("ConstraintViolationException -> URI: {} Message: {}", request.getRequestURI(), ex.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .header(HttpHeaders.CONTENT_TYPE, "application/json")
+                .body(ex.getMessage());
+    }
+
+    @ExceptionHandler(HandlerMethodValidationException.class)
+    public ResponseEntity<Object> handleMethodValidation(HandlerMethodValidationException ex, HttpServletRequest request) {
+        logger.warn("HandlerMethodValidationException -> URI: {} Message: {}", request.getRequestURI(), ex.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .header(HttpHeaders.CONTENT_TYPE, "application/json")
+                .body(ex.getMessage());
+    }
+
+    // Solapamientos detectados recien al hacer commit (p. ej. cambios de estado que reactivan una reserva)
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<Object> handleDataIntegrity(DataIntegrityViolationException ex, HttpServletRequest request) {
+        if (ReservaSolapadaException.esSolapamiento(ex)) {
+            return handleReservaSolapada(
+                    new ReservaSolapadaException("La cancha ya tiene una reserva en ese horario", ex), request);
+        }
+        return handleAll(ex, request);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Object> handleAll(Exception ex, HttpServletRequest request) {
         logger.error("Unhandled exception -> URI: {} Message: {}", request.getRequestURI(), ex.getMessage(), ex);
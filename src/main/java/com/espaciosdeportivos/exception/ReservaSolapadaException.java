@@ -0,0 +1,31 @@
+package com.espaciosdeportivos.exception;
+
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.sql.SQLException;
+
+// La cancha ya tiene una reserva activa que se cruza con el horario pedido (restriccion EXCLUDE de incluye)
+public class ReservaSolapadaException extends RuntimeException {
+
+    // SQLSTATE de PostgreSQL para exclusion_violation
+    private static final String EXCLUSION_VIOLATION = "23P01";
+
+    public ReservaSolapadaException(String message) {
+        super(message);
+    }
+
+    public ReservaSolapadaException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public static boolean esSolapamiento(DataIntegrityViolationException ex) {
+        Throwable causa = ex;
+        while (causa != null) {
+            if (causa instanceof SQLException sql && EXCLUSION_VIOLATION.equals(sql.getSQLState())) {
+                return true;
+            }
+            causa = causa.getCause();
+        }
+        return false;
+    }
+}
@@ -43,4 +43,8 @@ public class AppUser {
 
     @Column(name = "rol_solicitado")
     private String rolSolicitado; // "CLIENTE", "ADMINISTRADOR", "SUPERUSUARIO"
+
+    // se incrementa al cambiar roles o desactivar: los JWT con otra versión dejan de valer
+    @Column(name = "token_version", nullable = false, columnDefinition = "integer default 0")
+    private Integer tokenVersion = 0;
 }
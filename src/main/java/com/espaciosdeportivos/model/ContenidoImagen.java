@@ -0,0 +1,32 @@
+package com.espaciosdeportivos.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+// Archivo guardado una sola vez por contenido (blobs/ab/cd/<sha256>.<ext>).
+// referencias = cantidad de filas de imagen que lo usan; en 0 se borra el archivo.
+@Entity
+@Table(name = "contenido_imagen")
+@Getter @Setter @NoArgsConstructor
+public class ContenidoImagen {
+
+    @Id
+    @Column(name = "hash", length = 64)
+    private String hash;
+
+    @Column(name = "ruta_almacenamiento", nullable = false, length = 500)
+    private String rutaAlmacenamiento;
+
+    @Column(name = "tamanio_bytes", nullable = false)
+    private Long tamanioBytes;
+
+    @Column(name = "referencias", nullable = false)
+    private Integer referencias;
+
+    @CreationTimestamp
+    @Column(name = "fecha_creacion")
+    private LocalDateTime fechaCreacion;
+}
@@ -4,14 +4,20 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Positive;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
 
 @Entity
 @Table(name = "imagen", indexes = {
     @Index(name = "idx_imagen_estado", columnList = "estado"),
-    @Index(name = "idx_imagen_fecha_creacion", columnList = "fecha_creacion")
+    @Index(name = "idx_imagen_fecha_creacion", columnList = "fecha_creacion"),
+    @Index(name = "idx_imagen_hash_contenido", columnList = "hash_contenido")
 })
 @Data
 public class Imagen {
@@ -38,6 +44,10 @@ public class Imagen {
     
     @Column(name = "estado")
     private Boolean estado = true;
+
+    // contenido_imagen del que se toma el archivo; null en imágenes guardadas antes de deduplicar
+    @Column(name = "hash_contenido", length = 64)
+    private String hashContenido;
     
     @CreationTimestamp
     @Column(name = "fecha_creacion")
@@ -47,6 +57,13 @@ public class Imagen {
     @Column(name = "fecha_actualizacion")
     private LocalDateTime fechaActualizacion;
 
+    // miniatura/mediana/grande; vacio mientras se generan o si el formato no se puede redimensionar
+    @OneToMany(mappedBy = "imagen", fetch = FetchType.LAZY)
+    @BatchSize(size = 50)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private Set<ImagenVariante> variantes = new HashSet<>();
+
     // Constructor sin argumentos (Lombok lo genera, pero explícito para claridad)
     public Imagen() {
         this.estado = true;
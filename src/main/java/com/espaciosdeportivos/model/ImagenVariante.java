@@ -0,0 +1,51 @@
+package com.espaciosdeportivos.model;
+
+import com.espaciosdeportivos.model.enums.TipoVarianteImagen;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.LocalDateTime;
+
+// Copia redimensionada y recomprimida (JPEG o PNG) de una imagen, generada en segundo plano tras subirla
+@Entity
+@Table(name = "imagen_variante", uniqueConstraints = @UniqueConstraint(
+        name = "uk_imagen_variante_tipo", columnNames = {"id_imagen", "tipo"}))
+@Getter @Setter @NoArgsConstructor
+public class ImagenVariante {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_imagen_variante")
+    private Long idImagenVariante;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "id_imagen", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Imagen imagen;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "tipo", nullable = false, length = 20)
+    private TipoVarianteImagen tipo;
+
+    @Column(name = "ruta_almacenamiento", nullable = false, length = 500)
+    private String rutaAlmacenamiento;
+
+    @Column(name = "tipo_mime", length = 100)
+    private String tipoMime;
+
+    @Column(name = "ancho")
+    private Integer ancho;
+
+    @Column(name = "alto")
+    private Integer alto;
+
+    @Column(name = "tamanio_bytes")
+    private Long tamanioBytes;
+
+    @CreationTimestamp
+    @Column(name = "fecha_creacion")
+    private LocalDateTime fechaCreacion;
+}
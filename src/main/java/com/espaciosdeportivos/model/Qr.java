@@ -33,9 +33,17 @@ public class Qr {
     @Column(name = "estado", nullable = false)
     private Boolean estado;
 
+    // contenido codificado en la imagen; la imagen se dibuja al pedirla
+    @Column(name = "contenido", columnDefinition = "TEXT")
+    private String contenido;
+
     @Column(name = "descripcion", length = 255)
     private String descripcion;
 
+    // momento en que se registró el ingreso con este QR (null = no usado)
+    @Column(name = "fecha_ingreso")
+    private LocalDateTime fechaIngreso;
+
     @Column(name = "es_cliente", nullable = false)
     private Boolean esCliente ;
 
@@ -11,7 +11,12 @@ import java.util.List;
 import java.time.Duration;
 
 @Entity
-@Table(name = "reserva")
+@Table(name = "reserva", indexes = {
+    // Índices para la paginación por cursor (fechaReserva, horaInicio, idReserva)
+    @Index(name = "idx_reserva_cursor", columnList = "fecha_reserva, hora_inicio, id_reserva"),
+    @Index(name = "idx_reserva_cliente_cursor", columnList = "id_cliente, fecha_reserva, hora_inicio, id_reserva"),
+    @Index(name = "idx_reserva_estado_cursor", columnList = "estado_reserva, fecha_reserva, hora_inicio, id_reserva")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -127,6 +132,13 @@ public class Reserva {
                estadoReserva.equals(EstadoReserva.EN_CURSO.name());
     }
 
+    // Estados que bloquean el horario de la cancha (los mismos que controla la restriccion de solapamiento)
+    public boolean ocupaCancha() {
+        return estadoReserva.equals(EstadoReserva.PENDIENTE.name()) ||
+               estadoReserva.equals(EstadoReserva.CONFIRMADA.name()) ||
+               estadoReserva.equals(EstadoReserva.EN_CURSO.name());
+    }
+
     public boolean esModificable() {
         return estadoReserva.equals(EstadoReserva.PENDIENTE.name()) || 
                estadoReserva.equals(EstadoReserva.CONFIRMADA.name());
@@ -0,0 +1,26 @@
+package com.espaciosdeportivos.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+// JWT invalidado con /api/auth/logout; la fila sirve hasta que el token expira
+@Entity
+@Table(name = "token_revocado", indexes = {
+        @Index(name = "idx_token_revocado_expira", columnList = "expira"),
+        @Index(name = "idx_token_revocado_revocado", columnList = "revocado")})
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor
+public class TokenRevocado {
+
+    @Id
+    @Column(length = 36)
+    private String jti;
+
+    @Column(nullable = false)
+    private Instant expira;
+
+    // cuando se revoco; los demas nodos leen solo lo revocado desde su ultima sincronizacion
+    @Column(name = "revocado")
+    private Instant revocado;
+}
@@ -0,0 +1,16 @@
+package com.espaciosdeportivos.model.enums;
+
+// Tamaños derivados de cada imagen subida; ladoMaximo es el lado mayor en pixeles
+public enum TipoVarianteImagen {
+    MINIATURA(200), MEDIANA(640), GRANDE(1280);
+
+    private final int ladoMaximo;
+
+    TipoVarianteImagen(int ladoMaximo) {
+        this.ladoMaximo = ladoMaximo;
+    }
+
+    public int getLadoMaximo() {
+        return ladoMaximo;
+    }
+}
@@ -21,4 +21,8 @@ public interface AppUserRepository extends JpaRepository<AppUser, Long> {
     List<AppUser> findByEstadoVerificacion(String estado);
     
     Optional<AppUser> findByPersonaId(Long personaId);
+
+    // Solo los usuarios con versión > 0 (el resto usa la versión por defecto)
+    @Query("SELECT u.username, u.tokenVersion FROM AppUser u WHERE u.tokenVersion > 0")
+    List<Object[]> findVersionesToken();
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package com.espaciosdeportivos.repository;
 
 
 import com.espaciosdeportivos.model.AreaDeportiva;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -13,7 +14,8 @@ import java.util.Optional;
 @Repository
 public interface AreaDeportivaRepository extends JpaRepository<AreaDeportiva, Long> {
 
-    // Solo activos
+    // Solo activos; con zona, macrodistrito y administrador en la misma consulta
+    @EntityGraph(attributePaths = {"zona", "zona.macrodistrito", "administrador"})
     List<AreaDeportiva> findByEstadoTrue();
 
     //boolean existsById(Long id);
@@ -4,6 +4,7 @@ import com.espaciosdeportivos.dto.CanchaDTO;
 import com.espaciosdeportivos.model.Cancha;
 //import com.espaciosdeportivos.model.Equipamiento;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -15,12 +16,22 @@ import java.util.Optional;
 @Repository
 public interface CanchaRepository extends JpaRepository<Cancha, Long> {
 
-    // Solo activas (soft delete)
+    // Solo activas (soft delete); con area, zona, macrodistrito y administrador para el listado
+    @EntityGraph(attributePaths = {"areaDeportiva", "areaDeportiva.zona", "areaDeportiva.zona.macrodistrito", "areaDeportiva.administrador"})
     List<Cancha> findByEstadoTrue();
 
     // Activa por idfindByIdCanchaAndEstadoTrue
     Optional<Cancha> findByIdCanchaAndEstadoTrue(Long idCancha);
 
+    // Cancha con su área ya cargada (para calcular el horario de atención fuera de una transacción)
+    @Query("SELECT c FROM Cancha c LEFT JOIN FETCH c.areaDeportiva WHERE c.idCancha = :idCancha")
+    Optional<Cancha> findByIdConArea(@Param("idCancha") Long idCancha);
+
+    // Canchas activas del área con el área ya cargada (calendario de disponibilidad)
+    @Query("SELECT c FROM Cancha c JOIN FETCH c.areaDeportiva a " +
+        "WHERE a.idAreaDeportiva = :idArea AND c.estado = true ORDER BY c.idCancha")
+    List<Cancha> findActivasByAreaConArea(@Param("idArea") Long idArea);
+
     // Por área deportiva (solo activas)
     //List<Cancha> findByAreaDeportiva_IdAreaDeportivaAndEstadoboolTrue(Long idAreaDeportiva);
 
@@ -48,6 +59,7 @@ public interface CanchaRepository extends JpaRepository<Cancha, Long> {
    // boolean existsByNombreIgnoreCaseAndAreaDeportiva_IdAreaDeportiva(String nombre, Long idAreaDeportiva);
 
    //ADMIN - Obtener canchas por área deportiva
+    @EntityGraph(attributePaths = {"areaDeportiva", "areaDeportiva.zona", "areaDeportiva.zona.macrodistrito", "areaDeportiva.administrador"})
     List<Cancha> findByAreaDeportiva_IdAreaDeportiva(Long idArea);
 
 
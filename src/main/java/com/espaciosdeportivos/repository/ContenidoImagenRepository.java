@@ -0,0 +1,20 @@
+package com.espaciosdeportivos.repository;
+
+import com.espaciosdeportivos.model.ContenidoImagen;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ContenidoImagenRepository extends JpaRepository<ContenidoImagen, String> {
+
+    @Modifying
+    @Query("UPDATE ContenidoImagen c SET c.referencias = c.referencias - 1 WHERE c.hash = :hash AND c.referencias > 0")
+    int quitarReferencia(@Param("hash") String hash);
+
+    @Modifying
+    @Query("DELETE FROM ContenidoImagen c WHERE c.hash = :hash AND c.referencias = 0")
+    int eliminarSinReferencias(@Param("hash") String hash);
+}
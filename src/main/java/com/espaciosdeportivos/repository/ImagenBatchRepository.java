@@ -0,0 +1,130 @@
+package com.espaciosdeportivos.repository;
+
+import com.espaciosdeportivos.dto.ArchivoPorContenido;
+import com.espaciosdeportivos.model.Imagen;
+import com.espaciosdeportivos.model.ImagenRelacion;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Inserciones masivas de imagenes por JDBC (subida de varios archivos a la vez).
+// imagen e imagen_relacion usan IDENTITY, asi que Hibernate no puede agrupar sus INSERT en lotes:
+// los ids se toman de la secuencia en una sola consulta y las filas se insertan en lotes JDBC.
+@Repository
+@RequiredArgsConstructor
+public class ImagenBatchRepository {
+
+    private static final int TAMANO_LOTE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // ruta con la que quedo guardado el contenido y si la fila la creo esta transaccion (no existia)
+    public record ReferenciaContenido(String ruta, boolean creada) {
+    }
+
+    // Alta o +n de cada contenido en una sola sentencia; devuelve hash -> referencia.
+    // Las filas se bloquean en orden de hash: dos subidas concurrentes no se interbloquean.
+    public Map<String, ReferenciaContenido> agregarReferencias(List<ArchivoPorContenido> archivos) {
+        Map<String, ArchivoPorContenido> porHash = new TreeMap<>();
+        Map<String, Integer> cantidades = new HashMap<>();
+        for (ArchivoPorContenido archivo : archivos) {
+            porHash.putIfAbsent(archivo.hash(), archivo);
+            cantidades.merge(archivo.hash(), 1, Integer::sum);
+        }
+        String sql = """
+                INSERT INTO contenido_imagen (hash, ruta_almacenamiento, tamanio_bytes, referencias, fecha_creacion)
+                SELECT h, r, t, n, now()
+                  FROM unnest(?::varchar[], ?::varchar[], ?::bigint[], ?::int[]) AS c(h, r, t, n)
+                 ORDER BY h
+                ON CONFLICT (hash) DO UPDATE SET referencias = contenido_imagen.referencias + EXCLUDED.referencias
+                RETURNING hash, ruta_almacenamiento, (xmax = 0) AS creada
+                """;
+
+        Map<String, ReferenciaContenido> rutas = new HashMap<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setArray(1, con.createArrayOf("varchar", porHash.keySet().toArray()));
+            ps.setArray(2, con.createArrayOf("varchar",
+                    porHash.values().stream().map(ArchivoPorContenido::rutaPorContenido).toArray()));
+            ps.setArray(3, con.createArrayOf("bigint",
+                    porHash.values().stream().map(ArchivoPorContenido::tamanioBytes).toArray()));
+            ps.setArray(4, con.createArrayOf("integer",
+                    porHash.keySet().stream().map(cantidades::get).toArray()));
+            return ps;
+        }, (RowCallbackHandler) rs -> rutas.put(rs.getString("hash"),
+                new ReferenciaContenido(rs.getString("ruta_almacenamiento"), rs.getBoolean("creada"))));
+        return rutas;
+    }
+
+    // ruta y referencias de un contenido leidas con su fila bloqueada
+    public record ContenidoBloqueado(String ruta, int referencias) {
+    }
+
+    // Toma el candado de la fila del contenido (creandola con 0 referencias si no existe);
+    // si otra transaccion la esta insertando, espera a que termine
+    public ContenidoBloqueado bloquearContenido(String hash, String ruta, long tamanioBytes) {
+        return jdbcTemplate.queryForObject("""
+                INSERT INTO contenido_imagen (hash, ruta_almacenamiento, tamanio_bytes, referencias, fecha_creacion)
+                VALUES (?, ?, ?, 0, now())
+                ON CONFLICT (hash) DO UPDATE SET referencias = contenido_imagen.referencias
+                RETURNING ruta_almacenamiento, referencias
+                """, (rs, fila) -> new ContenidoBloqueado(rs.getString("ruta_almacenamiento"), rs.getInt("referencias")),
+                hash, ruta, tamanioBytes);
+    }
+
+    // Asigna el id a cada imagen y las inserta en lotes
+    public void insertarImagenes(List<Imagen> imagenes) {
+        List<Long> ids = reservarIds("imagen", "id_imagen", imagenes.size());
+        for (int i = 0; i < imagenes.size(); i++) {
+            imagenes.get(i).setIdImagen(ids.get(i));
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO imagen (id_imagen, nombre_archivo, ruta_almacenamiento, tipo_mime, tamanio_bytes, " +
+                "estado, hash_contenido, fecha_creacion, fecha_actualizacion) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                imagenes, TAMANO_LOTE, (ps, imagen) -> {
+                    ps.setLong(1, imagen.getIdImagen());
+                    ps.setString(2, imagen.getNombreArchivo());
+                    ps.setString(3, imagen.getRutaAlmacenamiento());
+                    ps.setString(4, imagen.getTipoMime());
+                    ps.setObject(5, imagen.getTamanioBytes());
+                    ps.setObject(6, imagen.getEstado());
+                    ps.setString(7, imagen.getHashContenido());
+                    ps.setObject(8, imagen.getFechaCreacion());
+                    ps.setObject(9, imagen.getFechaActualizacion());
+                });
+    }
+
+    // Asigna el id a cada relacion (sus imagenes ya deben tener id) y las inserta en lotes
+    public void insertarRelaciones(List<ImagenRelacion> relaciones) {
+        List<Long> ids = reservarIds("imagen_relacion", "id_imagen_relacion", relaciones.size());
+        for (int i = 0; i < relaciones.size(); i++) {
+            relaciones.get(i).setIdImagenRelacion(ids.get(i));
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO imagen_relacion (id_imagen_relacion, id_imagen, entidad_tipo, entidad_id, orden, " +
+                "estado, fecha_creacion) VALUES (?, ?, ?, ?, ?, ?, ?)",
+                relaciones, TAMANO_LOTE, (ps, relacion) -> {
+                    ps.setLong(1, relacion.getIdImagenRelacion());
+                    ps.setLong(2, relacion.getImagen().getIdImagen());
+                    ps.setString(3, relacion.getEntidadTipo());
+                    ps.setLong(4, relacion.getEntidadId());
+                    ps.setObject(5, relacion.getOrden());
+                    ps.setObject(6, relacion.getEstado());
+                    ps.setObject(7, relacion.getFechaCreacion());
+                });
+    }
+
+    // n valores de la secuencia de la columna IDENTITY en un solo viaje
+    private List<Long> reservarIds(String tabla, String columnaId, int cantidad) {
+        return jdbcTemplate.queryForList(
+                "SELECT nextval(pg_get_serial_sequence(?, ?)) FROM generate_series(1, ?)",
+                Long.class, tabla, columnaId, cantidad);
+    }
+}
@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -73,11 +74,18 @@ public interface ImagenRelacionRepository extends JpaRepository<ImagenRelacion,
     );
     
     // Consultas avanzadas con FETCH
-    @Query("SELECT ir FROM ImagenRelacion ir JOIN FETCH ir.imagen WHERE ir.entidadTipo = :entidadTipo AND ir.entidadId = :entidadId AND ir.estado = true ORDER BY ir.orden ASC")
+    @Query("SELECT DISTINCT ir FROM ImagenRelacion ir JOIN FETCH ir.imagen i LEFT JOIN FETCH i.variantes WHERE ir.entidadTipo = :entidadTipo AND ir.entidadId = :entidadId AND ir.estado = true ORDER BY ir.orden ASC")
     List<ImagenRelacion> findWithImagenByEntidad(
         @Param("entidadTipo") String entidadTipo, 
         @Param("entidadId") Long entidadId
     );
+
+    // Lo mismo para varias entidades del mismo tipo (mapeo por lotes de listados)
+    @Query("SELECT DISTINCT ir FROM ImagenRelacion ir JOIN FETCH ir.imagen i LEFT JOIN FETCH i.variantes WHERE ir.entidadTipo = :entidadTipo AND ir.entidadId IN :entidadIds AND ir.estado = true ORDER BY ir.entidadId ASC, ir.orden ASC")
+    List<ImagenRelacion> findWithImagenByEntidades(
+        @Param("entidadTipo") String entidadTipo,
+        @Param("entidadIds") Collection<Long> entidadIds
+    );
     
     // Estadísticas y reportes
     @Query("SELECT ir.entidadTipo, COUNT(ir) FROM ImagenRelacion ir WHERE ir.estado = true GROUP BY ir.entidadTipo")
@@ -1,7 +1,9 @@
 package com.espaciosdeportivos.repository;
 
 import com.espaciosdeportivos.model.Imagen;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -29,6 +31,11 @@ public interface ImagenRepository extends JpaRepository<Imagen, Long> {
     // Verificar existencia por nombre de archivo
     boolean existsByNombreArchivo(String nombreArchivo);
     
+    // Bloquea la fila mientras se guardan sus variantes (dos regeneraciones de la misma imagen no se cruzan)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT i FROM Imagen i WHERE i.idImagen = :idImagen")
+    Optional<Imagen> findByIdParaActualizar(@Param("idImagen") Long idImagen);
+
     // Buscar por ruta de almacenamiento
     Optional<Imagen> findByRutaAlmacenamiento(String rutaAlmacenamiento);
     
@@ -0,0 +1,18 @@
+package com.espaciosdeportivos.repository;
+
+import com.espaciosdeportivos.model.ImagenVariante;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ImagenVarianteRepository extends JpaRepository<ImagenVariante, Long> {
+
+    List<ImagenVariante> findByImagenIdImagen(Long idImagen);
+
+    // variantes ya generadas para el mismo contenido en otra imagen (archivos deduplicados)
+    List<ImagenVariante> findByImagenHashContenidoAndImagenIdImagenNot(String hashContenido, Long idImagen);
+
+    long countByRutaAlmacenamiento(String rutaAlmacenamiento);
+}
@@ -8,6 +8,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.util.Optional;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -32,5 +33,17 @@ public  interface IncluyeRepository extends JpaRepository<Incluye, IncluyeId>{
     @Query("SELECT i FROM Incluye i WHERE i.id.idCancha = :idCancha AND i.reserva.fechaReserva = :fecha")
     List<Incluye> findByCanchaAndFecha(@Param("idCancha") Long idCancha, @Param("fecha") java.time.LocalDate fecha);
 
+    // Incluye de varias reservas con cancha y disciplina ya cargadas (mapeo por lotes de ReservaDTO)
+    @Query("SELECT i FROM Incluye i JOIN FETCH i.cancha JOIN FETCH i.disciplina WHERE i.id.idReserva IN :idsReserva")
+    List<Incluye> findConCanchaYDisciplinaByReservaIds(@Param("idsReserva") Collection<Long> idsReserva);
+
+    // Ocupación de varias canchas en un rango de fechas, en una sola consulta (calendario de disponibilidad)
+    @Query("SELECT i FROM Incluye i JOIN FETCH i.reserva r " +
+           "WHERE i.id.idCancha IN :idsCancha AND r.fechaReserva BETWEEN :inicio AND :fin " +
+           "AND r.estadoReserva IN ('PENDIENTE', 'CONFIRMADA', 'EN_CURSO')")
+    List<Incluye> findOcupacionEnRango(@Param("idsCancha") Collection<Long> idsCancha,
+                                       @Param("inicio") java.time.LocalDate inicio,
+                                       @Param("fin") java.time.LocalDate fin);
+
 }
 
@@ -7,6 +7,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -23,6 +24,10 @@ public interface PagoRepository extends JpaRepository<Pago, Long> {
     // Búsquedas por Reserva
     List<Pago> findByReservaIdReserva(Long idReserva);
     List<Pago> findByReservaIdReservaAndEstado(Long idReserva, String estado);
+
+    // Pagos de varias reservas con el cliente ya cargado (mapeo por lotes de ReservaDTO)
+    @Query("SELECT p FROM Pago p JOIN FETCH p.cliente WHERE p.reserva.idReserva IN :idsReserva")
+    List<Pago> findConClienteByReservaIds(@Param("idsReserva") Collection<Long> idsReserva);
     
     // Búsquedas por Cliente
     @Query("SELECT p FROM Pago p WHERE p.reserva.cliente.id = :clienteId")
@@ -3,6 +3,7 @@ package com.espaciosdeportivos.repository;
 import com.espaciosdeportivos.model.Participa;
 import com.espaciosdeportivos.model.ParticipaId;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -28,6 +29,11 @@ public interface ParticipaRepository extends JpaRepository<Participa, ParticipaI
     
     @Query("SELECT p FROM Participa p WHERE p.reserva.idReserva = :idReserva AND p.confirmado = true")
     List<Participa> findInvitadosConfirmadosPorReserva(@Param("idReserva") Long idReserva);
+
+    // Asistencia del invitado al ingresar con su QR
+    @Modifying
+    @Query("UPDATE Participa p SET p.asistio = true WHERE p.reserva.idReserva = :idReserva AND p.invitado.id = :idInvitado")
+    int marcarAsistencia(@Param("idReserva") Long idReserva, @Param("idInvitado") Long idInvitado);
     
     @Query("SELECT p FROM Participa p WHERE p.invitado.id = :idInvitado AND p.reserva.estadoReserva IN ('CONFIRMADA')")
     List<Participa> findReservasActivasPorInvitado(@Param("idInvitado") Long idInvitado);
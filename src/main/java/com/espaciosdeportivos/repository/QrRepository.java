@@ -2,8 +2,13 @@ package com.espaciosdeportivos.repository;
 
 import com.espaciosdeportivos.model.Qr;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -34,6 +39,11 @@ public interface QrRepository extends JpaRepository<Qr, Long> {
     // Alternativa duplicada (puedes eliminar si no se usa)
     List<Qr> findByReservaIdReserva(Long idReserva);
 
+    long countByReservaIdReservaAndEstadoTrue(Long idReserva);
+
+    // QRs de varias reservas (mapeo por lotes de ReservaDTO)
+    List<Qr> findByReservaIdReservaIn(Collection<Long> idsReserva);
+
     // Comprueba si existe un QR para una reserva y una persona concreta
     boolean existsByReserva_IdReservaAndPersona_Id(Long idReserva, Long personaId);
 
@@ -43,4 +53,9 @@ public interface QrRepository extends JpaRepository<Qr, Long> {
     List<Qr> findByPersona_IdAndEstadoTrue(Long idPersona);
 
     List<Qr> findByReserva_IdReservaAndEstadoTrue(Long idReserva);
+
+    // Registra el ingreso solo si el QR sigue activo y no se usó; devuelve 0 si otro escaneo ganó
+    @Modifying
+    @Query("UPDATE Qr q SET q.fechaIngreso = :fechaIngreso WHERE q.codigoQr = :codigoQr AND q.estado = true AND q.fechaIngreso IS NULL")
+    int registrarIngreso(@Param("codigoQr") String codigoQr, @Param("fechaIngreso") LocalDateTime fechaIngreso);
 }
@@ -0,0 +1,67 @@
+package com.espaciosdeportivos.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Inserciones masivas de reservas por JDBC (series de reservas).
+// Reserva usa IDENTITY, así que Hibernate no puede agrupar sus INSERT en lotes.
+@Repository
+@RequiredArgsConstructor
+public class ReservaBatchRepository {
+
+    private static final int TAMANO_LOTE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Inserta una reserva por fecha en una sola sentencia; devuelve el id generado de cada fecha
+    public Map<LocalDate, Long> insertarReservas(List<LocalDate> fechas, LocalTime horaInicio, LocalTime horaFin,
+                                                 String estado, String observaciones, Long idCliente) {
+        String sql = """
+                INSERT INTO reserva (fecha_creacion, fecha_reserva, hora_inicio, hora_fin, estado_reserva,
+                                     observaciones, duracion_minutos, id_cliente)
+                SELECT now(), f, ?::time, ?::time, ?, ?, ?, ?
+                  FROM unnest(?::date[]) AS f
+                RETURNING id_reserva, fecha_reserva
+                """;
+        int duracion = (int) java.time.Duration.between(horaInicio, horaFin).toMinutes();
+
+        Map<LocalDate, Long> ids = new HashMap<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setObject(1, horaInicio);
+            ps.setObject(2, horaFin);
+            ps.setString(3, estado);
+            ps.setString(4, observaciones);
+            ps.setInt(5, duracion);
+            ps.setLong(6, idCliente);
+            ps.setArray(7, con.createArrayOf("date", fechas.stream().map(Date::valueOf).toArray()));
+            return ps;
+        }, (RowCallbackHandler) rs ->
+                ids.put(rs.getObject("fecha_reserva", LocalDate.class), rs.getLong("id_reserva")));
+        return ids;
+    }
+
+    // Asocia cancha/disciplina a cada reserva en lotes JDBC
+    public void insertarIncluyes(Collection<Long> idsReserva, Long idCancha, Long idDisciplina, double montoTotal) {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO incluye (id_cancha, id_reserva, id_disciplina, monto_total, invitados_confirmados) " +
+                "VALUES (?, ?, ?, ?, 0)",
+                idsReserva, TAMANO_LOTE, (ps, idReserva) -> {
+                    ps.setLong(1, idCancha);
+                    ps.setLong(2, idReserva);
+                    ps.setLong(3, idDisciplina);
+                    ps.setDouble(4, montoTotal);
+                });
+    }
+}
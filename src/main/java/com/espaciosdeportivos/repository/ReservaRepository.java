@@ -3,7 +3,11 @@ package com.espaciosdeportivos.repository;
 import com.espaciosdeportivos.model.Cancha;
 import com.espaciosdeportivos.model.Cliente;
 import com.espaciosdeportivos.model.Reserva;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -16,6 +20,52 @@ import java.util.Optional;
 @Repository
 public interface ReservaRepository extends JpaRepository<Reserva, Long> {
 
+    // ======================
+    // PAGINACIÓN POR CURSOR (fechaReserva, horaInicio, idReserva)
+    // ======================
+
+    String DESPUES_DEL_CURSOR = "(r.fechaReserva > :cFecha OR (r.fechaReserva = :cFecha AND " +
+           "(r.horaInicio > :cHora OR (r.horaInicio = :cHora AND r.idReserva > :cId))))";
+    String ORDEN_CURSOR = " ORDER BY r.fechaReserva, r.horaInicio, r.idReserva";
+
+    @Query("SELECT r FROM Reserva r WHERE " + DESPUES_DEL_CURSOR + ORDEN_CURSOR)
+    List<Reserva> findPagina(@Param("cFecha") LocalDate cFecha, @Param("cHora") LocalTime cHora,
+                             @Param("cId") Long cId, Pageable pageable);
+
+    @Query("SELECT r FROM Reserva r WHERE r.cliente.id = :clienteId AND " + DESPUES_DEL_CURSOR + ORDEN_CURSOR)
+    List<Reserva> findPaginaByClienteId(@Param("clienteId") Long clienteId,
+                                        @Param("cFecha") LocalDate cFecha, @Param("cHora") LocalTime cHora,
+                                        @Param("cId") Long cId, Pageable pageable);
+
+    @Query("SELECT r FROM Reserva r WHERE r.estadoReserva = :estado AND " + DESPUES_DEL_CURSOR + ORDEN_CURSOR)
+    List<Reserva> findPaginaByEstadoReserva(@Param("estado") String estado,
+                                            @Param("cFecha") LocalDate cFecha, @Param("cHora") LocalTime cHora,
+                                            @Param("cId") Long cId, Pageable pageable);
+
+    @Query("SELECT r FROM Reserva r WHERE r.fechaReserva BETWEEN :inicio AND :fin AND " +
+           DESPUES_DEL_CURSOR + ORDEN_CURSOR)
+    List<Reserva> findPaginaByFechaReservaBetween(@Param("inicio") LocalDate inicio, @Param("fin") LocalDate fin,
+                                                  @Param("cFecha") LocalDate cFecha, @Param("cHora") LocalTime cHora,
+                                                  @Param("cId") Long cId, Pageable pageable);
+
+    @Query("SELECT r FROM Reserva r WHERE r.fechaReserva BETWEEN :inicio AND :fin AND r.idReserva IN " +
+           "(SELECT i.reserva.idReserva FROM Incluye i " +
+           "WHERE i.cancha.areaDeportiva.administrador.id = :idAdministrador) AND " +
+           DESPUES_DEL_CURSOR + ORDEN_CURSOR)
+    List<Reserva> findPaginaByAdministradorIdAndRangoFechas(@Param("idAdministrador") Long idAdministrador,
+                                                            @Param("inicio") LocalDate inicio,
+                                                            @Param("fin") LocalDate fin,
+                                                            @Param("cFecha") LocalDate cFecha,
+                                                            @Param("cHora") LocalTime cHora,
+                                                            @Param("cId") Long cId, Pageable pageable);
+
+    @Query("SELECT r FROM Reserva r WHERE r.idReserva IN " +
+           "(SELECT i.reserva.idReserva FROM Incluye i WHERE i.cancha.idCancha = :idCancha) AND " +
+           DESPUES_DEL_CURSOR + ORDEN_CURSOR)
+    List<Reserva> findPaginaByCanchaId(@Param("idCancha") Long idCancha,
+                                       @Param("cFecha") LocalDate cFecha, @Param("cHora") LocalTime cHora,
+                                       @Param("cId") Long cId, Pageable pageable);
+
     // Búsquedas por Cliente (usando id_persona)
     List<Reserva> findByClienteId(Long clienteId);
     
@@ -42,6 +92,35 @@ public interface ReservaRepository extends JpaRepository<Reserva, Long> {
                                        @Param("horaInicio") LocalTime horaInicio,
                                        @Param("horaFin") LocalTime horaFin);
 
+    // Igual que la anterior pero solo contra reservas activas de la misma cancha (mismos estados que la restricción EXCLUDE)
+    @Query("SELECT r FROM Reserva r WHERE r.fechaReserva = :fecha AND " +
+           "r.horaInicio < :horaFin AND r.horaFin > :horaInicio AND " +
+           "r.estadoReserva IN ('PENDIENTE', 'CONFIRMADA', 'EN_CURSO') AND r.idReserva IN " +
+           "(SELECT i.reserva.idReserva FROM Incluye i WHERE i.cancha.idCancha = :idCancha)")
+    List<Reserva> findReservasSolapadasEnCancha(@Param("idCancha") Long idCancha,
+                                               @Param("fecha") LocalDate fecha,
+                                               @Param("horaInicio") LocalTime horaInicio,
+                                               @Param("horaFin") LocalTime horaFin);
+
+    // Bloquea la fila de la reserva hasta el fin de la transaccion (serializa la generacion de sus QRs)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Reserva r WHERE r.idReserva = :idReserva")
+    Optional<Reserva> findByIdParaActualizar(@Param("idReserva") Long idReserva);
+
+    // Borra la reserva si sigue pendiente y sin cancha, pagos, QRs ni cancelacion (quedo huerfana al fallar su incluye)
+    @Modifying
+    @Query("DELETE FROM Reserva r WHERE r.idReserva = :idReserva AND r.estadoReserva = 'PENDIENTE' " +
+           "AND NOT EXISTS (SELECT i FROM Incluye i WHERE i.reserva = r) " +
+           "AND NOT EXISTS (SELECT p FROM Pago p WHERE p.reserva = r) " +
+           "AND NOT EXISTS (SELECT q FROM Qr q WHERE q.reserva = r) " +
+           "AND NOT EXISTS (SELECT c FROM Cancelacion c WHERE c.reserva = r)")
+    int borrarPendienteSinCancha(@Param("idReserva") Long idReserva);
+
+    // Reservas confirmadas y pagadas, aun no jugadas, que no tienen ningun QR (generacion perdida o fallida)
+    @Query("SELECT r.idReserva FROM Reserva r WHERE r.estadoReserva = 'CONFIRMADA' AND r.pagadaCompleta = true " +
+           "AND r.fechaReserva >= :desde AND NOT EXISTS (SELECT q FROM Qr q WHERE q.reserva = r)")
+    List<Long> findIdsPagadasSinQr(@Param("desde") LocalDate desde);
+
     // Consultas para reportes
     @Query("SELECT COUNT(r) FROM Reserva r WHERE r.fechaReserva = :fecha AND r.estadoReserva = 'CONFIRMADA'")
     Long countReservasConfirmadasPorFecha(@Param("fecha") LocalDate fecha);
@@ -76,6 +155,22 @@ public interface ReservaRepository extends JpaRepository<Reserva, Long> {
        "(SELECT i.reserva.idReserva FROM Incluye i WHERE i.cancha.idCancha = :idCancha)")
     List<Reserva> findByCanchaAndFecha(@Param("idCancha") Long idCancha, @Param("fecha") LocalDate fecha);
 
+    // Fechas (de la lista) en las que la cancha ya tiene una reserva activa que se cruza con el horario
+    @Query("SELECT DISTINCT r.fechaReserva FROM Reserva r JOIN Incluye i ON i.reserva = r " +
+       "WHERE i.cancha.idCancha = :idCancha AND r.fechaReserva IN :fechas " +
+       "AND r.horaInicio < :horaFin AND r.horaFin > :horaInicio " +
+       "AND r.estadoReserva IN ('PENDIENTE', 'CONFIRMADA', 'EN_CURSO')")
+    List<LocalDate> findFechasOcupadasEnCancha(@Param("idCancha") Long idCancha,
+                                               @Param("fechas") java.util.Collection<LocalDate> fechas,
+                                               @Param("horaInicio") LocalTime horaInicio,
+                                               @Param("horaFin") LocalTime horaFin);
+
+    // Reservas que ocupan la cancha en la fecha (mismos estados que la restriccion de solapamiento de incluye)
+    @Query("SELECT r FROM Reserva r WHERE r.fechaReserva = :fecha " +
+       "AND r.estadoReserva IN ('PENDIENTE', 'CONFIRMADA', 'EN_CURSO') " +
+       "AND r.idReserva IN (SELECT i.reserva.idReserva FROM Incluye i WHERE i.cancha.idCancha = :idCancha)")
+    List<Reserva> findQueOcupanByCanchaAndFecha(@Param("idCancha") Long idCancha, @Param("fecha") LocalDate fecha);
+
       /* @Query("""
               SELECT r
               FROM Reserva r
@@ -0,0 +1,29 @@
+package com.espaciosdeportivos.repository;
+
+import com.espaciosdeportivos.model.TokenRevocado;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface TokenRevocadoRepository extends JpaRepository<TokenRevocado, String> {
+
+    // jti de los tokens revocados que aún no expiran (para armar el filtro Bloom)
+    @Query("SELECT t.jti FROM TokenRevocado t WHERE t.expira > :ahora")
+    List<String> findJtiVigentes(@Param("ahora") Instant ahora);
+
+    // jti revocados desde un instante (sincronizacion incremental entre nodos)
+    @Query("SELECT t.jti FROM TokenRevocado t WHERE t.revocado >= :desde AND t.expira > :ahora")
+    List<String> findJtiRevocadosDesde(@Param("desde") Instant desde, @Param("ahora") Instant ahora);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM TokenRevocado t WHERE t.expira <= :ahora")
+    int eliminarExpirados(@Param("ahora") Instant ahora);
+}
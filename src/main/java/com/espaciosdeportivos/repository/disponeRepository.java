@@ -5,8 +5,11 @@ import com.espaciosdeportivos.model.DisponeId;
 
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -28,4 +31,8 @@ public interface disponeRepository extends JpaRepository<Dispone, DisponeId> {
 
     List<Dispone> findByCanchaIdCancha(Long idCancha); //aqui se agrego
 
+    // Equipamientos de varias canchas ya cargados (mapeo por lotes de CanchaDTO)
+    @Query("SELECT d FROM Dispone d JOIN FETCH d.equipamiento WHERE d.id.idCancha IN :idsCancha")
+    List<Dispone> findConEquipamientoByCanchaIds(@Param("idsCancha") Collection<Long> idsCancha);
+
 }
@@ -9,6 +9,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -40,4 +41,8 @@ public interface sepracticaRepository extends JpaRepository<Sepractica, Sepracti
     @Query("SELECT s.disciplina FROM Sepractica s WHERE s.id.idCancha = :idCancha")
     List<Disciplina> obtenerDisciplinasPorCancha(@Param("idCancha") Long idCancha);
 
+    // Disciplinas de varias canchas ya cargadas (mapeo por lotes de CanchaDTO)
+    @Query("SELECT s FROM Sepractica s JOIN FETCH s.disciplina WHERE s.id.idCancha IN :idsCancha")
+    List<Sepractica> findConDisciplinaByCanchaIds(@Param("idsCancha") Collection<Long> idsCancha);
+
 }
\ No newline at end of file
@@ -0,0 +1,51 @@
+package com.espaciosdeportivos.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+// Límite por IP antes de llegar a AuthController (el límite por usuario se aplica en el login, con el cuerpo ya leído)
+public class AuthRateLimitFilter extends OncePerRequestFilter {
+
+    private final AuthRateLimiter rateLimiter;
+
+    public AuthRateLimitFilter(AuthRateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        return !"POST".equals(request.getMethod())
+                || !(uri.equals("/api/auth/login") || uri.startsWith("/api/auth/registro/") || uri.equals("/api/auth/signup"));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        // con server.forward-headers-strategy=native es la IP del cliente, no la del proxy
+        String ip = request.getRemoteAddr();
+        long espera = request.getRequestURI().equals("/api/auth/login")
+                ? rateLimiter.intentarLoginIp(ip)
+                : rateLimiter.intentarRegistroIp(ip);
+        if (espera > 0) {
+            responderLimite(response, espera);
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private void responderLimite(HttpServletResponse response, long esperaSegundos) throws IOException {
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(esperaSegundos));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"message\":\"Demasiados intentos. Intente de nuevo en " + esperaSegundos + " segundos.\"}");
+    }
+}
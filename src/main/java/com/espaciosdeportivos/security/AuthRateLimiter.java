@@ -0,0 +1,88 @@
+package com.espaciosdeportivos.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Límites de /api/auth/login y /api/auth/registro/* (BCrypt es caro y no requieren sesión).
+// Baldes por IP para login y registro, y por nombre de usuario para login.
+// Los contadores se publican en Micrometer (auth.rate-limit.*, etiqueta "limite") y en GET /api/admin/rate-limit.
+@Component
+public class AuthRateLimiter {
+
+    private final TokenBucketLimiter loginPorIp;
+    private final TokenBucketLimiter loginPorUsuario;
+    private final TokenBucketLimiter registroPorIp;
+
+    private final Counter permitidas;
+    private final Counter rechazadasLoginIp;
+    private final Counter rechazadasLoginUsuario;
+    private final Counter rechazadasRegistroIp;
+
+    public AuthRateLimiter(MeterRegistry meterRegistry,
+                           @Value("${app.auth.rate-limit.login-ip.capacidad:20}") int loginIpCapacidad,
+                           @Value("${app.auth.rate-limit.login-ip.por-minuto:20}") int loginIpPorMinuto,
+                           @Value("${app.auth.rate-limit.login-usuario.capacidad:5}") int loginUsuarioCapacidad,
+                           @Value("${app.auth.rate-limit.login-usuario.por-minuto:5}") int loginUsuarioPorMinuto,
+                           @Value("${app.auth.rate-limit.registro-ip.capacidad:5}") int registroIpCapacidad,
+                           @Value("${app.auth.rate-limit.registro-ip.por-minuto:5}") int registroIpPorMinuto,
+                           @Value("${app.auth.rate-limit.max-claves:100000}") int maxClaves) {
+        this(meterRegistry,
+                new TokenBucketLimiter(loginIpCapacidad, loginIpPorMinuto, maxClaves),
+                new TokenBucketLimiter(loginUsuarioCapacidad, loginUsuarioPorMinuto, maxClaves),
+                new TokenBucketLimiter(registroIpCapacidad, registroIpPorMinuto, maxClaves));
+    }
+
+    AuthRateLimiter(MeterRegistry meterRegistry, TokenBucketLimiter loginPorIp,
+                    TokenBucketLimiter loginPorUsuario, TokenBucketLimiter registroPorIp) {
+        this.loginPorIp = loginPorIp;
+        this.loginPorUsuario = loginPorUsuario;
+        this.registroPorIp = registroPorIp;
+        this.permitidas = meterRegistry.counter("auth.rate-limit.permitidas");
+        this.rechazadasLoginIp = meterRegistry.counter("auth.rate-limit.rechazadas", "limite", "login-ip");
+        this.rechazadasLoginUsuario = meterRegistry.counter("auth.rate-limit.rechazadas", "limite", "login-usuario");
+        this.rechazadasRegistroIp = meterRegistry.counter("auth.rate-limit.rechazadas", "limite", "registro-ip");
+        meterRegistry.gauge("auth.rate-limit.baldes", Tags.of("limite", "login-ip"),
+                loginPorIp, TokenBucketLimiter::claves);
+        meterRegistry.gauge("auth.rate-limit.baldes", Tags.of("limite", "login-usuario"),
+                loginPorUsuario, TokenBucketLimiter::claves);
+        meterRegistry.gauge("auth.rate-limit.baldes", Tags.of("limite", "registro-ip"),
+                registroPorIp, TokenBucketLimiter::claves);
+    }
+
+    // Cada método devuelve 0 si se permite, o los segundos para Retry-After
+    public long intentarLoginIp(String ip) {
+        return contar(loginPorIp.intentar(ip), rechazadasLoginIp);
+    }
+
+    public long intentarLoginUsuario(String username) {
+        return contar(loginPorUsuario.intentar(username.toLowerCase()), rechazadasLoginUsuario);
+    }
+
+    public long intentarRegistroIp(String ip) {
+        return contar(registroPorIp.intentar(ip), rechazadasRegistroIp);
+    }
+
+    // Contadores para monitoreo
+    public Map<String, Long> estadisticas() {
+        Map<String, Long> datos = new LinkedHashMap<>();
+        datos.put("permitidas", (long) permitidas.count());
+        datos.put("rechazadasLoginIp", (long) rechazadasLoginIp.count());
+        datos.put("rechazadasLoginUsuario", (long) rechazadasLoginUsuario.count());
+        datos.put("rechazadasRegistroIp", (long) rechazadasRegistroIp.count());
+        datos.put("baldesLoginIp", (long) loginPorIp.claves());
+        datos.put("baldesLoginUsuario", (long) loginPorUsuario.claves());
+        datos.put("baldesRegistroIp", (long) registroPorIp.claves());
+        return datos;
+    }
+
+    private long contar(long espera, Counter rechazadas) {
+        (espera == 0 ? permitidas : rechazadas).increment();
+        return espera;
+    }
+}
@@ -0,0 +1,62 @@
+package com.espaciosdeportivos.security;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Filtro Bloom de cadenas, thread-safe y sin locks (bits en un AtomicLongArray).
+// "No contiene" es seguro; "puede contener" se confirma en otro lado.
+public class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final int numBits;
+    private final int numHashes;
+
+    public BloomFilter(int elementosEsperados, double probabilidadFalsoPositivo) {
+        long m = (long) Math.ceil(-elementosEsperados * Math.log(probabilidadFalsoPositivo) / (Math.log(2) * Math.log(2)));
+        this.numBits = (int) Math.max(64, Math.min(m, Integer.MAX_VALUE - 63));
+        this.numHashes = Math.max(1, (int) Math.round((double) numBits / elementosEsperados * Math.log(2)));
+        this.bits = new AtomicLongArray((numBits + 63) / 64);
+    }
+
+    public void agregar(String valor) {
+        long h = hash64(valor);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32);
+        for (int i = 0; i < numHashes; i++) {
+            int bit = Math.floorMod(h1 + i * h2, numBits);
+            int palabra = bit >>> 6;
+            long mascara = 1L << (bit & 63);
+            long actual;
+            do {
+                actual = bits.get(palabra);
+                if ((actual & mascara) != 0) break;
+            } while (!bits.compareAndSet(palabra, actual, actual | mascara));
+        }
+    }
+
+    public boolean puedeContener(String valor) {
+        long h = hash64(valor);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32);
+        for (int i = 0; i < numHashes; i++) {
+            int bit = Math.floorMod(h1 + i * h2, numBits);
+            if ((bits.get(bit >>> 6) & (1L << (bit & 63))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // FNV-1a de 64 bits con mezcla final (suficiente para jti aleatorios)
+    private static long hash64(String valor) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : valor.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
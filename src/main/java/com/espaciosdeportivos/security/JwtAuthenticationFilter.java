@@ -1,5 +1,9 @@
 package com.espaciosdeportivos.security;
 
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -10,6 +14,8 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.util.StringUtils;
 import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import jakarta.servlet.ServletException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,10 +27,37 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtUtils jwtUtils;
     private final UserDetailsServiceImpl userDetailsService;
+    private final TokenVersionStore tokenVersionStore;
+    private final TokenRevocationStore tokenRevocationStore;
+    // tiempo propio del filtro (sin contar el resto de la cadena)
+    private final Timer tiempoFiltro;
 
-    public JwtAuthenticationFilter(JwtUtils jwtUtils, UserDetailsServiceImpl userDetailsService) {
+    public JwtAuthenticationFilter(JwtUtils jwtUtils, UserDetailsServiceImpl userDetailsService,
+                                   TokenVersionStore tokenVersionStore, TokenRevocationStore tokenRevocationStore,
+                                   MeterRegistry meterRegistry) {
         this.jwtUtils = jwtUtils;
         this.userDetailsService = userDetailsService;
+        this.tokenVersionStore = tokenVersionStore;
+        this.tokenRevocationStore = tokenRevocationStore;
+        this.tiempoFiltro = Timer.builder("seguridad.jwt_filtro")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    // null si la cuenta está inactiva o la versión del token ya no es la vigente (roles cambiados, baja)
+    private UserDetails usuarioDesdeClaims(Claims claims) {
+        String username = claims.getSubject();
+        Number version = claims.get(JwtUtils.CLAIM_VERSION, Number.class);
+        if (!Boolean.TRUE.equals(claims.get(JwtUtils.CLAIM_ACTIVO, Boolean.class))
+                || version == null || version.intValue() != tokenVersionStore.version(username)) {
+            logger.debug("JWT Filter - token desactualizado o cuenta inactiva: {}", username);
+            return null;
+        }
+        List<SimpleGrantedAuthority> authorities = ((List<?>) claims.get(JwtUtils.CLAIM_ROLES, List.class)).stream()
+                .map(r -> new SimpleGrantedAuthority(r.toString()))
+                .toList();
+        Number personaId = claims.get(JwtUtils.CLAIM_PERSONA, Number.class);
+        return new JwtUsuario(username, true, authorities, personaId != null ? personaId.longValue() : null);
     }
 
     private String parseJwt(HttpServletRequest request) {
@@ -53,22 +86,36 @@ protected void doFilterInternal(HttpServletRequest request,
         }
 
         String jwt = parseJwt(request);
+        long inicio = System.nanoTime();
 
-        if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-            String username = jwtUtils.getUserNameFromJwtToken(jwt);
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-
-            UsernamePasswordAuthenticationToken authentication =
-                    new UsernamePasswordAuthenticationToken(
-                            userDetails,
-                            null,
-                            userDetails.getAuthorities()
-                    );
+        // un solo parseo del token; el usuario sale de la cache (sin consulta por petición)
+        Claims claims = jwt != null ? jwtUtils.parseClaims(jwt) : null;
+        if (claims != null && tokenRevocationStore.estaRevocado(claims.getId())) {
+            logger.debug("JWT Filter - token revocado por logout: {}", claims.getSubject());
+            claims = null;
+        }
+        if (claims != null) {
+            String username = claims.getSubject();
+            // tokens con roles en los claims: sin consultar la BD; los anteriores, desde la cache de usuarios
+            UserDetails userDetails = claims.containsKey(JwtUtils.CLAIM_ROLES)
+                    ? usuarioDesdeClaims(claims)
+                    : userDetailsService.loadUserCacheado(username);
+            if (userDetails != null) {
+                UsernamePasswordAuthenticationToken authentication =
+                        new UsernamePasswordAuthenticationToken(
+                                userDetails,
+                                null,
+                                userDetails.getAuthorities()
+                        );
 
-            authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-            SecurityContextHolder.getContext().setAuthentication(authentication);
+                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                SecurityContextHolder.getContext().setAuthentication(authentication);
 
-            logger.debug("JWT Filter - Authentication SUCCESS for user: {}", username);
+                logger.debug("JWT Filter - Authentication SUCCESS for user: {}", username);
+            }
+        }
+        if (jwt != null) {
+            tiempoFiltro.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
         }
         // ⚠️ Importante: si no hay JWT, simplemente no seteamos nada,
         // pero tampoco limpiamos el contexto → así permitAll funciona.
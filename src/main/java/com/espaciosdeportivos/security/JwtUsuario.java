@@ -0,0 +1,21 @@
+package com.espaciosdeportivos.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+// Principal armado solo con los claims del JWT (sin consultar la BD)
+public class JwtUsuario extends User {
+
+    private final Long personaId;
+
+    public JwtUsuario(String username, boolean activo, Collection<? extends GrantedAuthority> authorities, Long personaId) {
+        super(username, "", activo, true, true, true, authorities);
+        this.personaId = personaId;
+    }
+
+    public Long getPersonaId() {
+        return personaId;
+    }
+}
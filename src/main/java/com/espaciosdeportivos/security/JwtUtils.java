@@ -2,11 +2,16 @@ package com.espaciosdeportivos.security;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import com.espaciosdeportivos.model.AppUser;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import java.util.Date;
+import java.util.List;
+import java.util.UUID;
 import java.security.Key;
 
 @Component
@@ -18,33 +23,56 @@ public class JwtUtils {
     @Value("${app.jwtExpirationMs}")
     private int jwtExpirationMs;
 
-    private Key getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+    // La clave y el parser se arman una sola vez (el parser es inmutable y thread-safe)
+    private Key signingKey;
+    private JwtParser parser;
+
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
     }
 
-    public String generateJwtToken(Authentication authentication) {
+    // Claims propios: el filtro arma la autenticación con ellos, sin cargar el usuario
+    public static final String CLAIM_ROLES = "roles";
+    public static final String CLAIM_PERSONA = "pid";
+    public static final String CLAIM_ACTIVO = "act";
+    public static final String CLAIM_VERSION = "ver";
+
+    public String generateJwtToken(Authentication authentication, AppUser usuario) {
         UserDetails userPrincipal = (UserDetails) authentication.getPrincipal();
+        List<String> roles = userPrincipal.getAuthorities().stream()
+            .map(GrantedAuthority::getAuthority)
+            .toList();
 
         return Jwts.builder()
+            .setId(UUID.randomUUID().toString()) // jti: permite revocarlo en el logout
             .setSubject(userPrincipal.getUsername())
+            .claim(CLAIM_ROLES, roles)
+            .claim(CLAIM_PERSONA, usuario.getPersona() != null ? usuario.getPersona().getId() : null)
+            .claim(CLAIM_ACTIVO, usuario.getActivo())
+            .claim(CLAIM_VERSION, usuario.getTokenVersion() != null ? usuario.getTokenVersion() : 0)
             .setIssuedAt(new Date())
             .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
-            .signWith(getSigningKey(), SignatureAlgorithm.HS512)
+            .signWith(signingKey, SignatureAlgorithm.HS512)
             .compact();
     }
 
     public String getUserNameFromJwtToken(String token) {
-        return Jwts.parserBuilder().setSigningKey(getSigningKey()).build()
-            .parseClaimsJws(token).getBody().getSubject();
+        return parser.parseClaimsJws(token).getBody().getSubject();
     }
 
     public boolean validateJwtToken(String authToken) {
+        return parseClaims(authToken) != null;
+    }
+
+    // Valida y devuelve los claims en un solo parseo; null si el token no es válido
+    public Claims parseClaims(String authToken) {
         try {
-            Jwts.parserBuilder().setSigningKey(getSigningKey()).build().parseClaimsJws(authToken);
-            return true;
-        } catch (JwtException e) {
+            return parser.parseClaimsJws(authToken).getBody();
+        } catch (JwtException | IllegalArgumentException e) {
             // logger.warn("JWT invalid: {}", e.getMessage());
         }
-        return false;
+        return null;
     }
 }
@@ -0,0 +1,98 @@
+package com.espaciosdeportivos.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Base64;
+import java.util.Optional;
+
+// Firma HMAC-SHA256 del contenido de los QR: "base64url(datos).base64url(firma)".
+// El ingreso verifica la firma y la ventana horaria en memoria, sin consultar la BD.
+@Component
+public class QrFirmador {
+
+    private static final String ALGORITMO = "HmacSHA256";
+    private static final String VERSION = "1";
+    // 256 bits, el tamano de la salida de HMAC-SHA256
+    private static final int MIN_BYTES_SECRETO = 32;
+    private static final Base64.Encoder B64 = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder B64D = Base64.getUrlDecoder();
+
+    // Datos firmados: codigo del QR, reserva, persona, cancha, ventana horaria y expiracion (epoch segundos)
+    public record QrFirmado(String codigoQr, Long idReserva, Long idPersona, boolean esCliente, Long idCancha,
+                            LocalDate fecha, LocalTime horaInicio, LocalTime horaFin, long expira) {
+    }
+
+    private final SecretKeySpec clave;
+    // Mac no es thread-safe; una instancia inicializada por hilo
+    private final ThreadLocal<Mac> macs;
+
+    public QrFirmador(@Value("${app.qr.firma-secreto}") String secreto) {
+        // sin clave (o corta) cualquiera podria falsificar QR de ingreso: no se arranca
+        if (secreto == null || secreto.getBytes(StandardCharsets.UTF_8).length < MIN_BYTES_SECRETO) {
+            throw new IllegalStateException("app.qr.firma-secreto (variable QR_FIRMA_SECRETO) debe tener al menos "
+                    + MIN_BYTES_SECRETO + " bytes");
+        }
+        this.clave = new SecretKeySpec(secreto.getBytes(StandardCharsets.UTF_8), ALGORITMO);
+        this.macs = ThreadLocal.withInitial(this::nuevoMac);
+    }
+
+    public String firmar(QrFirmado qr) {
+        String datos = String.join("|", VERSION, qr.codigoQr(), texto(qr.idReserva()), texto(qr.idPersona()),
+                qr.esCliente() ? "C" : "I", texto(qr.idCancha()), texto(qr.fecha()), texto(qr.horaInicio()),
+                texto(qr.horaFin()), Long.toString(qr.expira()));
+        byte[] bytes = datos.getBytes(StandardCharsets.UTF_8);
+        return B64.encodeToString(bytes) + "." + B64.encodeToString(macs.get().doFinal(bytes));
+    }
+
+    // vacio si el formato o la firma no son validos
+    public Optional<QrFirmado> verificar(String token) {
+        int punto = token != null ? token.indexOf('.') : -1;
+        if (punto <= 0) {
+            return Optional.empty();
+        }
+        try {
+            byte[] datos = B64D.decode(token.substring(0, punto));
+            byte[] firma = B64D.decode(token.substring(punto + 1));
+            if (!MessageDigest.isEqual(firma, macs.get().doFinal(datos))) {
+                return Optional.empty();
+            }
+            String[] p = new String(datos, StandardCharsets.UTF_8).split("\\|", -1);
+            if (p.length != 10 || !VERSION.equals(p[0])) {
+                return Optional.empty();
+            }
+            return Optional.of(new QrFirmado(p[1], numero(p[2]), numero(p[3]), "C".equals(p[4]), numero(p[5]),
+                    p[6].isEmpty() ? null : LocalDate.parse(p[6]),
+                    p[7].isEmpty() ? null : LocalTime.parse(p[7]),
+                    p[8].isEmpty() ? null : LocalTime.parse(p[8]),
+                    Long.parseLong(p[9])));
+        } catch (IllegalArgumentException | java.time.DateTimeException e) {
+            return Optional.empty();
+        }
+    }
+
+    private Mac nuevoMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITMO);
+            mac.init(clave);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("No se pudo inicializar " + ALGORITMO, e);
+        }
+    }
+
+    private static String texto(Object valor) {
+        return valor != null ? valor.toString() : "";
+    }
+
+    private static Long numero(String valor) {
+        return valor.isEmpty() ? null : Long.valueOf(valor);
+    }
+}
@@ -0,0 +1,92 @@
+package com.espaciosdeportivos.security;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+// Token bucket por clave (IP, usuario...) sin locks: cada balde es un AtomicReference que se actualiza con CAS.
+// Los baldes sin uso se descartan y el mapa no pasa de maxClaves.
+// Si aun asi esta lleno (p. ej. un barrido de IPs o usuarios al azar) se descartan los baldes con mas tokens:
+// son los que menos limitan, y el de la cuenta atacada (vacio) se conserva.
+public class TokenBucketLimiter {
+
+    private static final long NANOS_POR_MINUTO = 60_000_000_000L;
+
+    // al llenarse se baja hasta este porcentaje de maxClaves, para no ordenar en cada peticion
+    private static final int PORCENTAJE_TRAS_DESCARTE = 90;
+
+    private final double capacidad;
+    private final double tokensPorNano;
+    private final int maxClaves;
+    private final long inactividadNanos;
+    // System.nanoTime; las pruebas pasan un reloj propio para simular el paso del tiempo
+    private final LongSupplier reloj;
+
+    private final Map<String, AtomicReference<Balde>> baldes = new ConcurrentHashMap<>();
+    private final AtomicBoolean descartando = new AtomicBoolean();
+
+    private record Balde(double tokens, long ultimaRecarga) {
+    }
+
+    public TokenBucketLimiter(int capacidad, int porMinuto, int maxClaves) {
+        this(capacidad, porMinuto, maxClaves, System::nanoTime);
+    }
+
+    TokenBucketLimiter(int capacidad, int porMinuto, int maxClaves, LongSupplier reloj) {
+        this.reloj = reloj;
+        this.capacidad = capacidad;
+        this.tokensPorNano = (double) porMinuto / NANOS_POR_MINUTO;
+        this.maxClaves = maxClaves;
+        // un balde que se llenó del todo ya no aporta información
+        this.inactividadNanos = (long) Math.ceil(capacidad / tokensPorNano);
+    }
+
+    // 0 si se consumió un token; si no, los segundos a esperar (para Retry-After)
+    public long intentar(String clave) {
+        long ahora = reloj.getAsLong();
+        if (baldes.size() >= maxClaves) {
+            descartar(ahora);
+        }
+        AtomicReference<Balde> ref = baldes.computeIfAbsent(clave, k -> new AtomicReference<>(new Balde(capacidad, ahora)));
+        while (true) {
+            Balde actual = ref.get();
+            double tokens = tokens(actual, ahora);
+            if (tokens < 1) {
+                return Math.max(1, (long) Math.ceil((1 - tokens) / tokensPorNano / 1_000_000_000L));
+            }
+            if (ref.compareAndSet(actual, new Balde(tokens - 1, Math.max(ahora, actual.ultimaRecarga())))) {
+                return 0;
+            }
+        }
+    }
+
+    public int claves() {
+        return baldes.size();
+    }
+
+    private double tokens(Balde balde, long ahora) {
+        return Math.min(capacidad, balde.tokens() + (ahora - balde.ultimaRecarga()) * tokensPorNano);
+    }
+
+    // un solo hilo descarta; los demas siguen (el mapa puede pasarse de maxClaves por unas pocas claves)
+    private void descartar(long ahora) {
+        if (!descartando.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            baldes.values().removeIf(ref -> ahora - ref.get().ultimaRecarga() >= inactividadNanos);
+            long exceso = baldes.size() - (long) maxClaves * PORCENTAJE_TRAS_DESCARTE / 100;
+            if (exceso > 0) {
+                baldes.entrySet().stream()
+                        .map(e -> Map.entry(e.getKey(), tokens(e.getValue().get(), ahora)))
+                        .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
+                        .limit(exceso)
+                        .forEach(e -> baldes.remove(e.getKey()));
+            }
+        } finally {
+            descartando.set(false);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.espaciosdeportivos.security;
+
+import com.espaciosdeportivos.model.TokenRevocado;
+import com.espaciosdeportivos.repository.TokenRevocadoRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+// Tokens revocados por logout: tabla token_revocado con un filtro Bloom en memoria delante.
+// Un token no revocado (el caso normal) se descarta en el filtro sin tocar la BD;
+// solo los "puede estar" se confirman con una consulta por clave primaria.
+// El filtro es local a cada nodo: un logout hecho en otro nodo se incorpora en la
+// sincronizacion periodica (solo los jti revocados desde la anterior), asi que con varias
+// instancias un token revocado puede seguir aceptandose como mucho sincronizacion-ms.
+@Component
+public class TokenRevocationStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationStore.class);
+
+    private final TokenRevocadoRepository repo;
+    private final int elementosEsperados;
+    private final double probabilidadFalsoPositivo;
+    // margen que se vuelve a leer en cada sincronizacion: filas que se confirmaron tarde o relojes algo desfasados
+    private final Duration margenSincronizacion;
+
+    // inicio de la ultima lectura de la tabla (completa o incremental)
+    private volatile Instant ultimaSincronizacion;
+
+    // se reemplaza entero al limpiar los expirados (un Bloom no admite borrar)
+    private volatile BloomFilter filtro;
+
+    public TokenRevocationStore(TokenRevocadoRepository repo,
+                                @Value("${app.auth.revocados.esperados:100000}") int elementosEsperados,
+                                @Value("${app.auth.revocados.falsos-positivos:0.01}") double probabilidadFalsoPositivo,
+                                @Value("${app.auth.revocados.margen-sincronizacion-ms:60000}") long margenSincronizacionMs) {
+        this.repo = repo;
+        this.elementosEsperados = elementosEsperados;
+        this.probabilidadFalsoPositivo = probabilidadFalsoPositivo;
+        this.margenSincronizacion = Duration.ofMillis(margenSincronizacionMs);
+    }
+
+    @PostConstruct
+    void cargar() {
+        reconstruirFiltro();
+    }
+
+    public void revocar(String jti, Instant expira) {
+        // primero la BD: así un filtro que se esté reconstruyendo también lo ve
+        repo.save(new TokenRevocado(jti, expira, Instant.now()));
+        filtro.agregar(jti);
+    }
+
+    public boolean estaRevocado(String jti) {
+        return jti != null && filtro.puedeContener(jti) && repo.existsById(jti);
+    }
+
+    // Agrega al filtro los logouts registrados por otros nodos desde la ultima lectura
+    @Scheduled(fixedDelayString = "${app.auth.revocados.sincronizacion-ms:30000}",
+            initialDelayString = "${app.auth.revocados.sincronizacion-ms:30000}")
+    public void sincronizar() {
+        Instant ahora = Instant.now();
+        List<String> nuevos = repo.findJtiRevocadosDesde(ultimaSincronizacion.minus(margenSincronizacion), ahora);
+        BloomFilter actual = filtro;
+        nuevos.forEach(actual::agregar);
+        ultimaSincronizacion = ahora;
+    }
+
+    // Borra los revocados que ya expiraron y rearma el filtro siempre (sin ellos y con
+    // todo lo vigente en la tabla, aunque no se haya borrado nada)
+    @Scheduled(fixedDelayString = "${app.auth.revocados.limpieza-ms:3600000}")
+    public void limpiarExpirados() {
+        int eliminados = repo.eliminarExpirados(Instant.now());
+        reconstruirFiltro();
+        if (eliminados > 0) {
+            logger.info("Tokens revocados expirados eliminados: {}", eliminados);
+        }
+    }
+
+    private void reconstruirFiltro() {
+        Instant inicio = Instant.now();
+        List<String> vigentes = repo.findJtiVigentes(inicio);
+        BloomFilter nuevo = new BloomFilter(Math.max(elementosEsperados, vigentes.size()), probabilidadFalsoPositivo);
+        vigentes.forEach(nuevo::agregar);
+        BloomFilter anterior = filtro;
+        filtro = nuevo;
+        // un logout guardado mientras se armaba el nuevo filtro quedó solo en el anterior: se vuelve a leer
+        if (anterior != null) {
+            repo.findJtiVigentes(Instant.now()).forEach(nuevo::agregar);
+        }
+        ultimaSincronizacion = inicio;
+    }
+}
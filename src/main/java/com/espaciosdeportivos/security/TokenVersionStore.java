@@ -0,0 +1,49 @@
+package com.espaciosdeportivos.security;
+
+import com.espaciosdeportivos.model.AppUser;
+import com.espaciosdeportivos.repository.AppUserRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.espaciosdeportivos.util.Transacciones.despuesDelCommit;
+
+// Versión vigente de los JWT de cada usuario, en memoria.
+// Se carga al iniciar y se actualiza al cambiar roles o desactivar usuarios; un token con otra versión se rechaza.
+@Component
+public class TokenVersionStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenVersionStore.class);
+
+    private final AppUserRepository userRepo;
+    private final Map<String, Integer> versiones = new ConcurrentHashMap<>();
+
+    public TokenVersionStore(AppUserRepository userRepo) {
+        this.userRepo = userRepo;
+    }
+
+    @PostConstruct
+    void cargar() {
+        for (Object[] fila : userRepo.findVersionesToken()) {
+            versiones.put((String) fila[0], (Integer) fila[1]);
+        }
+        logger.info("Versiones de token cargadas: {} usuarios", versiones.size());
+    }
+
+    public int version(String username) {
+        return versiones.getOrDefault(username, 0);
+    }
+
+    // Sube la versión del usuario (el llamador guarda la entidad): invalida sus tokens emitidos.
+    // La memoria se actualiza recién tras el commit: si la transacción se revierte, la BD y el mapa siguen iguales
+    public void invalidarTokens(AppUser usuario) {
+        int nueva = (usuario.getTokenVersion() != null ? usuario.getTokenVersion() : 0) + 1;
+        usuario.setTokenVersion(nueva);
+        String username = usuario.getUsername();
+        despuesDelCommit(() -> versiones.merge(username, nueva, Math::max));
+    }
+}
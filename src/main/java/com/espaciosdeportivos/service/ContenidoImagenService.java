@@ -0,0 +1,17 @@
+package com.espaciosdeportivos.service;
+
+import com.espaciosdeportivos.dto.ArchivoPorContenido;
+
+import java.util.List;
+import java.util.Map;
+
+public interface ContenidoImagenService {
+
+    // publica cada temporal (o reutiliza el archivo existente con el mismo contenido) y suma sus referencias;
+    // devuelve hash -> ruta del archivo guardado. Debe llamarse dentro de una transaccion:
+    // si se revierte, se borran los archivos de los contenidos que esta llamada creo
+    Map<String, String> registrar(List<ArchivoPorContenido> temporales);
+
+    // resta una referencia; tras el commit, si quedo en 0 se borran la fila y el archivo
+    void liberar(String hash);
+}
@@ -1,5 +1,7 @@
 package com.espaciosdeportivos.service;
 
+import com.espaciosdeportivos.dto.ArchivoPorContenido;
+import com.espaciosdeportivos.dto.MetadatosArchivo;
 import org.springframework.core.io.Resource;
 import org.springframework.web.multipart.MultipartFile;
 import java.util.List;
@@ -8,14 +10,21 @@ public interface FileStorageService {
     
     // OPERACIONES BÁSICAS (tus métodos actuales)
     String guardarArchivo(MultipartFile archivo, String subcarpeta);
+    void guardarBytes(byte[] contenido, String rutaArchivo);
     Resource cargarArchivo(String rutaArchivo);
     void eliminarArchivo(String rutaArchivo);
     String obtenerSubcarpetaPorTipoEntidad(String entidadTipo);
     
+    // ALMACENAMIENTO POR CONTENIDO (un archivo por hash, compartido entre imágenes)
+    ArchivoPorContenido escribirTemporalConHash(MultipartFile archivo);
+    void publicarArchivoPorContenido(ArchivoPorContenido archivo, String rutaDestino);
+    void descartarTemporal(ArchivoPorContenido archivo);
+    
     // NUEVAS OPERACIONES RECOMENDADAS
     boolean existeArchivo(String rutaArchivo);
     long obtenerTamanioArchivo(String rutaArchivo);
     String obtenerTipoMimeArchivo(String rutaArchivo);
+    MetadatosArchivo obtenerMetadatos(String rutaArchivo);
     boolean validarRutaArchivo(String rutaArchivo);
     
     // OPERACIONES DE MANTENIMIENTO
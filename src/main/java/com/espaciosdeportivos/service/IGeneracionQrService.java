@@ -0,0 +1,11 @@
+package com.espaciosdeportivos.service;
+
+import com.espaciosdeportivos.dto.EstadoGeneracionQrDTO;
+
+public interface IGeneracionQrService {
+
+    // encola la generacion de los QR que le falten a la reserva
+    void solicitarGeneracion(Long idReserva);
+
+    EstadoGeneracionQrDTO obtenerEstado(Long idReserva);
+}
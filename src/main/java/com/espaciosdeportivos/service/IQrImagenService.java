@@ -0,0 +1,9 @@
+package com.espaciosdeportivos.service;
+
+public interface IQrImagenService {
+
+    enum Formato { PNG, SVG }
+
+    // imagen del QR (PNG de tamano x tamano px o SVG vectorial), dibujada desde el contenido guardado
+    byte[] obtenerImagen(String codigoQr, Formato formato, int tamano);
+}
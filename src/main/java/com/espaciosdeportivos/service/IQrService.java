@@ -25,8 +25,14 @@ public interface IQrService {
 
     QrDTO generarQrParaReserva(Long idReserva,Long idPersona);
 
+    // genera los QR que falten (invitados confirmados o, si no hay, el cliente); devuelve cuantos se crearon
+    int generarQrsPendientes(Long idReserva);
+
     List<QrDTO> obtenerQrsPorReserva(Long idReserva);
 
+    // contenido que se codifica en la imagen del QR
+    String obtenerContenidoQr(String codigoQr);
+
     //agregue
     QrDTO obtenerQrPorCodigo(String codigoqr);
 
@@ -1,6 +1,9 @@
 package com.espaciosdeportivos.service;
 
+import com.espaciosdeportivos.dto.CalendarioDisponibilidadDTO;
+import com.espaciosdeportivos.dto.PaginaDTO;
 import com.espaciosdeportivos.dto.ReservaDTO;
+import com.espaciosdeportivos.dto.ReservaSerieDTO;
 import com.espaciosdeportivos.model.Reserva;
 import com.espaciosdeportivos.dto.CancelacionDTO;
 import com.espaciosdeportivos.dto.QrDTO;
@@ -16,30 +19,30 @@ import org.springframework.data.repository.query.Param;
 public interface IReservaService {
 
     // CRUD básico
-    List<ReservaDTO> listarTodas();
     //listar reservas por idcliente
     //List<ReservaDTO> listarPorCliente(Long idCliente);
 
     ReservaDTO obtenerPorId(Long id);
     ReservaDTO crear(ReservaDTO reservaDTO);
+    // Serie semanal de reservas (misma cancha y horario) creada en una sola transacción
+    ReservaSerieDTO.Resultado crearSerie(ReservaSerieDTO.Solicitud solicitud);
     ReservaDTO actualizar(Long id, ReservaDTO reservaDTO);
     void eliminar(Long id);
 
     List<String> obtenerHorasDisponibles(Long idCancha, LocalDate fecha);
+    List<String> obtenerHorasDisponibles(Long idCancha, LocalDate fecha, int minutosBloque);
+    // calendario de una cancha (idCancha) o de todas las canchas activas de un área (idArea)
+    CalendarioDisponibilidadDTO obtenerCalendarioDisponible(Long idCancha, Long idArea, LocalDate inicio, LocalDate fin,
+                                                            Integer minutosBloque);
     ReservaDTO actualizarEstadoPagoReserva(Long idReserva);
 
     //ReservaDTO crearReserva(ReservaDTO reservaDTO);
     //ReservaDTO reprogramarReserva(Long idReserva, ReprogramacionDTO nuevaReserva);
     //void cancelarReserva2(Long idReserva, CancelacionDTO cancelacionDTO);
     
-    // Búsquedas
-    List<ReservaDTO> buscarPorCliente(Long idCliente);
-    List<ReservaDTO> buscarPorEstado(String estado);
-    List<ReservaDTO> buscarPorRangoFechas(LocalDate inicio, LocalDate fin);
+    // Búsquedas (los listados completos van paginados por cursor, al final)
     List<ReservaDTO> buscarReservasActivasDelCliente(Long clienteId);
     List<ReservaDTO> obtenerReservasDelDia(LocalDate fecha);
-    // Reservas por administrador en rango de fechas
-    List<ReservaDTO> buscarPorAdministradorEnRango(Long idAdministrador, LocalDate inicio, LocalDate fin);
     //RESERVAS POR CLIETES
     List<ReservaDTO> buscarTodasLasReservasDelCliente(Long clienteId);
     //ReservaDTO obtenerPorCodigoReserva(String codigoReserva);
@@ -53,6 +56,7 @@ public interface IReservaService {
     
     // Validaciones y reportes
     boolean validarDisponibilidad(LocalDate fecha, LocalTime horaInicio, LocalTime horaFin);
+    boolean validarDisponibilidad(Long idCancha, LocalDate fecha, LocalTime horaInicio, LocalTime horaFin);
     void validarFechaReserva(LocalDate fechaReserva);
 
     //List<ReservaDTO> obtenerReservasProximas();
@@ -63,6 +67,12 @@ public interface IReservaService {
 
     //ReservaDTO crearReserva(ReservaDTO dto);
 
-       // Listar reservas por cancha k
-    List<ReservaDTO> listarReservasPorCancha(Long idCancha);
+    // Paginación por cursor (fechaReserva, horaInicio, idReserva); cursor null = primera página
+    PaginaDTO<ReservaDTO> listarTodas(String cursor, Integer limite);
+    PaginaDTO<ReservaDTO> buscarPorCliente(Long idCliente, String cursor, Integer limite);
+    PaginaDTO<ReservaDTO> buscarPorEstado(String estado, String cursor, Integer limite);
+    PaginaDTO<ReservaDTO> buscarPorRangoFechas(LocalDate inicio, LocalDate fin, String cursor, Integer limite);
+    PaginaDTO<ReservaDTO> buscarPorAdministradorEnRango(Long idAdministrador, LocalDate inicio, LocalDate fin,
+                                                        String cursor, Integer limite);
+    PaginaDTO<ReservaDTO> listarReservasPorCancha(Long idCancha, String cursor, Integer limite);
 }
\ No newline at end of file
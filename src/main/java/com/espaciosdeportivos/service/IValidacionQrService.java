@@ -0,0 +1,16 @@
+package com.espaciosdeportivos.service;
+
+import com.espaciosdeportivos.dto.ValidacionQrDTO;
+
+public interface IValidacionQrService {
+
+    // true si el código existe, está activo y no expiró (no registra ingreso)
+    boolean esValido(String codigoQr);
+
+    // valida y registra el ingreso; un segundo escaneo del mismo código se rechaza
+    ValidacionQrDTO registrarIngreso(String codigoQr);
+
+    // verifica un contenido firmado (firma y ventana horaria en memoria) y registra el ingreso;
+    // si la BD no responde, el ingreso se acepta y se sincroniza después
+    ValidacionQrDTO registrarIngresoFirmado(String contenido);
+}
@@ -2,12 +2,16 @@ package com.espaciosdeportivos.service;
 
 import com.espaciosdeportivos.dto.ImagenDTO;
 import org.springframework.web.multipart.MultipartFile;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface ImagenService {
     // Operaciones básicas de imágenes
     List<ImagenDTO> guardarImagenesParaEntidad(List<MultipartFile> archivos, String entidadTipo, Long entidadId);
     List<ImagenDTO> obtenerImagenesPorEntidad(String entidadTipo, Long entidadId);
+    // imagenes de varias entidades en una consulta (listados); las que no tienen quedan fuera del mapa
+    Map<Long, List<ImagenDTO>> obtenerImagenesPorEntidades(String entidadTipo, Collection<Long> entidadIds);
     void eliminarImagenLogicamente(Long idImagenRelacion);
     void eliminarImagenFisicamente(Long idImagenRelacion);
     void eliminarTodasImagenesDeEntidad(String entidadTipo, Long entidadId);
@@ -15,6 +19,7 @@ public interface ImagenService {
     
     // Gestión avanzada de imágenes
     ImagenDTO obtenerImagenPorId(Long idImagen);
+    void regenerarVariantes(Long idImagen);
     List<ImagenDTO> obtenerTodasLasImagenesActivas();
     ImagenDTO actualizarImagen(Long idImagen, ImagenDTO imagenDTO);
     void desactivarImagen(Long idImagen);
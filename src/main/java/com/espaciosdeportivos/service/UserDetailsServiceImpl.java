@@ -3,9 +3,15 @@ package com.espaciosdeportivos.service;
 import com.espaciosdeportivos.model.AppUser;
 import com.espaciosdeportivos.repository.AppUserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.*;
 import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 @Service
@@ -14,26 +20,67 @@ public class UserDetailsServiceImpl implements UserDetailsService {
     @Autowired
     private AppUserRepository userRepo;
 
+    // Cache de usuarios autenticados por JWT (username -> datos), con TTL y tamaño máximo
+    @Value("${app.auth.cache-usuarios-ttl-segundos:60}")
+    private long ttlSegundos;
+
+    @Value("${app.auth.cache-usuarios-max:10000}")
+    private int maxUsuarios;
+
+    private final Map<String, UsuarioCacheado> cache = new ConcurrentHashMap<>();
+
+    // Se guarda una copia inmutable: el User que se entrega puede tener la contraseña borrada tras el login
+    private record UsuarioCacheado(String username, String password, boolean activo,
+                                   List<GrantedAuthority> authorities, long vence) {
+        UserDetails aUserDetails() {
+            return new User(username, password, activo, true, true, true, authorities);
+        }
+    }
+
+    // Login: siempre desde la BD
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        return cargar(username).aUserDetails();
+    }
+
+    // Peticiones con JWT: desde la cache mientras no venza o se invalide
+    public UserDetails loadUserCacheado(String username) throws UsernameNotFoundException {
+        long ahora = System.currentTimeMillis();
+        UsuarioCacheado usuario = cache.get(username);
+        if (usuario == null || usuario.vence() <= ahora) {
+            usuario = cargar(username);
+            if (cache.size() >= maxUsuarios) {
+                cache.values().removeIf(u -> u.vence() <= ahora);
+                if (cache.size() >= maxUsuarios) {
+                    cache.clear();
+                }
+            }
+            cache.put(username, usuario);
+        }
+        return usuario.aUserDetails();
+    }
+
+    // Llamar cuando cambian los roles o el estado del usuario (aprobación, rechazo, baja)
+    public void invalidar(String username) {
+        cache.remove(username);
+    }
+
+    private UsuarioCacheado cargar(String username) {
         AppUser user = userRepo.findByUsername(username)
             .orElseThrow(() -> new UsernameNotFoundException("Usuario no encontrado: " + username));
 
-        var authorities = user.getRoles().stream()
+        List<GrantedAuthority> authorities = user.getRoles().stream()
             // RoleName: ROL_SUPERUSUARIO -> queremos "ROLE_SUPERUSUARIO"
             .map(r -> "ROLE_" + r.getName().name().replace("ROL_", ""))
             .map(SimpleGrantedAuthority::new)
             .collect(Collectors.toList());
 
-        return new User(
+        return new UsuarioCacheado(
                 user.getUsername(),
                 user.getPassword(),
                 user.getActivo(), // permite login solo si activo == true
-                true,
-                true,
-                true,
-                authorities
+                List.copyOf(authorities),
+                System.currentTimeMillis() + ttlSegundos * 1000
         );
     }
 }
-
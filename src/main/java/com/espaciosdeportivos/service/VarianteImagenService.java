@@ -0,0 +1,16 @@
+package com.espaciosdeportivos.service;
+
+import com.espaciosdeportivos.model.Imagen;
+
+public interface VarianteImagenService {
+
+    // encola la generacion (o regeneracion) de las variantes de la imagen
+    void solicitarVariantes(Long idImagen);
+
+    // borra del disco, tras el commit, los archivos de las variantes de una imagen sin contenido deduplicado;
+    // las filas caen junto con la imagen
+    void eliminarArchivosVariantes(Imagen imagen);
+
+    // borra las variantes de un archivo deduplicado; se llama con la fila del contenido bloqueada y en 0 referencias
+    void eliminarArchivosVariantesDeContenido(String rutaContenido);
+}
@@ -0,0 +1,112 @@
+package com.espaciosdeportivos.service.impl;
+
+import com.espaciosdeportivos.model.AreaDeportiva;
+import com.espaciosdeportivos.model.Cancha;
+
+import jakarta.persistence.EntityNotFoundException;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Ocupación de una cancha en un día, a resolución de minuto.
+// La usan el índice de disponibilidad y el calendario; los métodos son synchronized porque el índice la comparte entre hilos.
+final class AgendaDiaCancha {
+
+    static final int MINUTOS_DIA = 24 * 60;
+
+    private final int apertura;
+    private final int cierre;
+    private final Map<Long, int[]> reservas = new HashMap<>();
+    private final BitSet ocupado = new BitSet(MINUTOS_DIA);
+
+    private AgendaDiaCancha(int apertura, int cierre) {
+        this.apertura = apertura;
+        this.cierre = cierre;
+    }
+
+    // Agenda vacía con el horario efectivo: la intersección del horario del área y el de la cancha
+    static AgendaDiaCancha paraCancha(Cancha cancha) {
+        AreaDeportiva area = cancha.getAreaDeportiva();
+        if (area == null) {
+            throw new EntityNotFoundException("Área deportiva no asociada a la cancha");
+        }
+        LocalTime apertura = masTarde(area.getHoraInicioArea(), cancha.getHoraInicio());
+        LocalTime cierre = masTemprano(area.getHoraFinArea(), cancha.getHoraFin());
+        if (apertura == null || cierre == null) {
+            throw new IllegalStateException("La cancha " + cancha.getIdCancha() + " no tiene horario de atención definido");
+        }
+        return new AgendaDiaCancha(aMinuto(apertura), aMinuto(cierre));
+    }
+
+    synchronized void ocupar(Long idReserva, LocalTime horaInicio, LocalTime horaFin) {
+        int inicio = aMinuto(horaInicio);
+        int fin = aMinutoFin(horaFin);
+        if (fin <= inicio) return;
+        int[] anterior = reservas.put(idReserva, new int[]{inicio, fin});
+        if (anterior != null) {
+            reconstruir();
+        } else {
+            ocupado.set(inicio, fin);
+        }
+    }
+
+    synchronized void liberar(Long idReserva) {
+        if (reservas.remove(idReserva) != null) {
+            reconstruir();
+        }
+    }
+
+    // bloques libres cortados cada minutosBloque desde el inicio de cada hueco
+    synchronized List<String> bloquesLibres(int minutosBloque) {
+        List<String> bloques = new ArrayList<>();
+        int desde = ocupado.nextClearBit(apertura);
+        while (desde < cierre) {
+            int hasta = ocupado.nextSetBit(desde);
+            if (hasta < 0 || hasta > cierre) {
+                hasta = cierre;
+            }
+            for (int inicio = desde; inicio + minutosBloque <= hasta; inicio += minutosBloque) {
+                bloques.add(formatear(inicio) + " - " + formatear(inicio + minutosBloque));
+            }
+            desde = ocupado.nextClearBit(hasta);
+        }
+        return bloques;
+    }
+
+    private void reconstruir() {
+        ocupado.clear();
+        for (int[] rango : reservas.values()) {
+            ocupado.set(rango[0], rango[1]);
+        }
+    }
+
+    private static LocalTime masTarde(LocalTime a, LocalTime b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        return a.isAfter(b) ? a : b;
+    }
+
+    private static LocalTime masTemprano(LocalTime a, LocalTime b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        return a.isBefore(b) ? a : b;
+    }
+
+    private static int aMinuto(LocalTime hora) {
+        return hora.getHour() * 60 + hora.getMinute();
+    }
+
+    // 00:00 como hora de fin significa medianoche (fin del dia)
+    private static int aMinutoFin(LocalTime hora) {
+        int minuto = aMinuto(hora);
+        return minuto == 0 ? MINUTOS_DIA : minuto;
+    }
+
+    private static String formatear(int minuto) {
+        return LocalTime.of(minuto / 60, minuto % 60).toString();
+    }
+}
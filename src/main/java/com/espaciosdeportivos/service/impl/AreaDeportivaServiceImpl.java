@@ -1,6 +1,7 @@
 package com.espaciosdeportivos.service.impl;
 
 import com.espaciosdeportivos.dto.AreaDeportivaDTO;
+import com.espaciosdeportivos.dto.ImagenDTO;
 import com.espaciosdeportivos.dto.MacrodistritoDTO;
 //import com.espaciosdeportivos.dto.CanchaDTO;
 import com.espaciosdeportivos.dto.ZonaDTO; // objeto front K
@@ -31,7 +32,9 @@ import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 
 import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import java.util.Optional;
@@ -50,6 +53,7 @@ public class AreaDeportivaServiceImpl implements IAreaDeportivaService {
 
     private final ImagenService imagenService;
     private final DisciplinaRepository disciplinaRepository;
+    private final DisponibilidadCanchaIndex disponibilidadIndex;
     private static final String ENTIDAD_TIPO = "AREADEPORTIVA";
 
 
@@ -71,10 +75,7 @@ public class AreaDeportivaServiceImpl implements IAreaDeportivaService {
     @Override
     @Transactional(readOnly = true)
     public List<AreaDeportivaDTO> listarTodos() {
-        return areaDeportivaRepository.findByEstadoTrue()
-                .stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return convertToDTOs(areaDeportivaRepository.findByEstadoTrue());
     }
 
     @Override
@@ -136,6 +137,7 @@ public class AreaDeportivaServiceImpl implements IAreaDeportivaService {
         existente.setAdministrador(admin);
 
         AreaDeportiva actualizada = areaDeportivaRepository.save(existente);
+        disponibilidadIndex.invalidarTodo();
         return convertToDTO(actualizada);
     }
 
@@ -238,8 +240,45 @@ public class AreaDeportivaServiceImpl implements IAreaDeportivaService {
 
 
     // ---------- mapping ----------
+    // Listados: las imagenes de todas las areas en una sola consulta
+    private List<AreaDeportivaDTO> convertToDTOs(List<AreaDeportiva> areas) {
+        if (areas.isEmpty()) return List.of();
+
+        Map<Long, List<ImagenDTO>> imagenesPorArea;
+        try {
+            imagenesPorArea = imagenService.obtenerImagenesPorEntidades(ENTIDAD_TIPO,
+                    areas.stream().map(AreaDeportiva::getIdAreaDeportiva).toList());
+        } catch (Exception e) {
+            log.warn("Error cargando imágenes de las áreas: {}", e.getMessage());
+            imagenesPorArea = Map.of();
+        }
+
+        List<AreaDeportivaDTO> resultado = new ArrayList<>(areas.size());
+        for (AreaDeportiva a : areas) {
+            AreaDeportivaDTO dto = convertToDTOSinImagenes(a);
+            dto.setImagenes(imagenesPorArea.getOrDefault(a.getIdAreaDeportiva(), List.of()));
+            resultado.add(dto);
+        }
+        return resultado;
+    }
+
     private AreaDeportivaDTO convertToDTO(AreaDeportiva a) {
-        AreaDeportivaDTO dto = AreaDeportivaDTO.builder()
+        AreaDeportivaDTO dto = convertToDTOSinImagenes(a);
+
+        // Cargar imágenes asociadas a la área
+        try {
+            List<ImagenDTO> imagenes = imagenService.obtenerImagenesPorEntidad(ENTIDAD_TIPO, a.getIdAreaDeportiva());
+            dto.setImagenes(imagenes);
+        } catch (Exception e) {
+            log.warn("Error cargando imágenes para área {}: {}", a.getIdAreaDeportiva(), e.getMessage());
+            dto.setImagenes(java.util.List.of());
+        }
+
+        return dto;
+    }
+
+    private AreaDeportivaDTO convertToDTOSinImagenes(AreaDeportiva a) {
+        return AreaDeportivaDTO.builder()
                 .idAreadeportiva(a.getIdAreaDeportiva())
                 .nombreArea(a.getNombreArea())
                 .descripcionArea(a.getDescripcionArea())
@@ -255,17 +294,6 @@ public class AreaDeportivaServiceImpl implements IAreaDeportivaService {
                 .zona(convertZonaToDTO(a.getZona())) // objeto front K
                 .id(a.getAdministrador() != null ? a.getAdministrador().getId() : null)
                 .build();
-
-        // Cargar imágenes asociadas a la área
-        try {
-            List<com.espaciosdeportivos.dto.ImagenDTO> imagenes = imagenService.obtenerImagenesPorEntidad(ENTIDAD_TIPO, a.getIdAreaDeportiva());
-            dto.setImagenes(imagenes);
-        } catch (Exception e) {
-            log.warn("Error cargando imágenes para área {}: {}", a.getIdAreaDeportiva(), e.getMessage());
-            dto.setImagenes(java.util.List.of());
-        }
-
-        return dto;
     }
 
 
@@ -439,6 +467,7 @@ public class AreaDeportivaServiceImpl implements IAreaDeportivaService {
         area.setZona(zona);
 
         AreaDeportiva actualizada = areaDeportivaRepository.save(area);
+        disponibilidadIndex.invalidarTodo();
         return convertToDTO(actualizada);
     }
 
@@ -38,7 +38,9 @@ import jakarta.validation.Valid;
 
 //import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 
@@ -64,6 +66,7 @@ public class CanchaServiceImpl implements ICanchaService {
     private final IncluyeRepository incluyeRepository;
     private final sepracticaRepository sepracticaRepository;
     private final ImagenService imagenService;
+    private final DisponibilidadCanchaIndex disponibilidadIndex;
 
     private static final String ENTIDAD_TIPO = "CANCHA";
 
@@ -92,10 +95,7 @@ public class CanchaServiceImpl implements ICanchaService {
     @Override
     @Transactional(readOnly = true)
     public List<CanchaDTO> obtenerTodasLasCanchas() {
-        return canchaRepository.findByEstadoTrue()
-                .stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return convertToDTOs(canchaRepository.findByEstadoTrue());
     }
 
     @Override
@@ -157,6 +157,7 @@ public class CanchaServiceImpl implements ICanchaService {
         existente.setAreaDeportiva(area);
 
         Cancha actualizada = canchaRepository.save(existente);
+        disponibilidadIndex.invalidarCancha(id);
         return convertToDTO(actualizada);
     }
 
@@ -286,11 +287,9 @@ public class CanchaServiceImpl implements ICanchaService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<CanchaDTO> obtenerCanchasPorArea(Long idArea) {
-        List<Cancha> canchas = canchaRepository.findByAreaDeportiva_IdAreaDeportiva(idArea);
-        return canchas.stream()
-                    .map(this::convertToDTO)
-                    .collect(Collectors.toList());
+        return convertToDTOs(canchaRepository.findByAreaDeportiva_IdAreaDeportiva(idArea));
     }
 
 
@@ -299,27 +298,41 @@ public class CanchaServiceImpl implements ICanchaService {
     
 
     // --------- MAPEO ----------
+
+    // Listados: disciplinas, equipamientos e imagenes de todo el lote en tres consultas
+    // (el area, su zona y el administrador vienen con las canchas por el EntityGraph del repositorio)
+    private List<CanchaDTO> convertToDTOs(List<Cancha> canchas) {
+        if (canchas.isEmpty()) return List.of();
+        List<Long> ids = canchas.stream().map(Cancha::getIdCancha).toList();
+
+        Map<Long, List<DisciplinaDTO>> disciplinasPorCancha = sepracticaRepository.findConDisciplinaByCanchaIds(ids).stream()
+                .collect(Collectors.groupingBy(sp -> sp.getId().getIdCancha(),
+                        Collectors.mapping(sp -> convertDiciplinaToDTO(sp.getDisciplina()), Collectors.toList())));
+        Map<Long, List<EquipamientoDTO>> equipamientosPorCancha = disponeRepository.findConEquipamientoByCanchaIds(ids).stream()
+                .collect(Collectors.groupingBy(d -> d.getId().getIdCancha(),
+                        Collectors.mapping(d -> convertEquipamientoToDTO(d.getEquipamiento()), Collectors.toList())));
+        Map<Long, List<ImagenDTO>> imagenesPorCancha;
+        try {
+            imagenesPorCancha = imagenService.obtenerImagenesPorEntidades(ENTIDAD_TIPO, ids);
+        } catch (Exception e) {
+            log.warn("Error cargando imágenes de las canchas: {}", e.getMessage());
+            imagenesPorCancha = Map.of();
+        }
+
+        List<CanchaDTO> resultado = new ArrayList<>(canchas.size());
+        for (Cancha c : canchas) {
+            CanchaDTO dto = convertToDTOSinRelaciones(c);
+            dto.setDisciplinas(disciplinasPorCancha.getOrDefault(c.getIdCancha(), List.of()));
+            dto.setEquipamientos(equipamientosPorCancha.getOrDefault(c.getIdCancha(), List.of()));
+            dto.setImagenes(imagenesPorCancha.getOrDefault(c.getIdCancha(), List.of()));
+            resultado.add(dto);
+        }
+        return resultado;
+    }
+
     private CanchaDTO convertToDTO(Cancha c) {
         if (c == null) return null;
-        AreaDeportiva area = c.getAreaDeportiva(); // objeto front K
-
-        CanchaDTO dto = CanchaDTO.builder()
-                .idCancha(c.getIdCancha())
-                .nombre(c.getNombre())
-                .costoHora(c.getCostoHora())
-                .capacidad(c.getCapacidad())
-                .estado(c.getEstado())
-                .mantenimiento(c.getMantenimiento())
-                .horaInicio(c.getHoraInicio())
-                .horaFin(c.getHoraFin())
-                .tipoSuperficie(c.getTipoSuperficie())
-                .tamano(c.getTamano())
-                .iluminacion(c.getIluminacion())
-                .cubierta(c.getCubierta())
-                .urlImagen(c.getUrlImagen())
-                .idAreadeportiva(c.getAreaDeportiva() != null ? c.getAreaDeportiva().getIdAreaDeportiva() : null    )
-                .areaDeportiva(area != null ? convertAreaToDTO(area) : null)
-                .build();
+        CanchaDTO dto = convertToDTOSinRelaciones(c);
 
         // >>> Cargar disciplinas desde la tabla intermedia <<<
         try {
@@ -357,6 +370,28 @@ public class CanchaServiceImpl implements ICanchaService {
         return dto;
     }
 
+    private CanchaDTO convertToDTOSinRelaciones(Cancha c) {
+        AreaDeportiva area = c.getAreaDeportiva(); // objeto front K
+
+        return CanchaDTO.builder()
+                .idCancha(c.getIdCancha())
+                .nombre(c.getNombre())
+                .costoHora(c.getCostoHora())
+                .capacidad(c.getCapacidad())
+                .estado(c.getEstado())
+                .mantenimiento(c.getMantenimiento())
+                .horaInicio(c.getHoraInicio())
+                .horaFin(c.getHoraFin())
+                .tipoSuperficie(c.getTipoSuperficie())
+                .tamano(c.getTamano())
+                .iluminacion(c.getIluminacion())
+                .cubierta(c.getCubierta())
+                .urlImagen(c.getUrlImagen())
+                .idAreadeportiva(c.getAreaDeportiva() != null ? c.getAreaDeportiva().getIdAreaDeportiva() : null    )
+                .areaDeportiva(area != null ? convertAreaToDTO(area) : null)
+                .build();
+    }
+
     //---diciplina--
     private DisciplinaDTO convertDiciplinaToDTO(Disciplina d) {
         return DisciplinaDTO.builder()
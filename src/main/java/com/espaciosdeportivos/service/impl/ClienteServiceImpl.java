@@ -172,7 +172,7 @@ public class ClienteServiceImpl implements ClienteService {
     @Transactional(readOnly = true)
     public List<ReservaDTO> obtenerReservasDeCliente(Long clienteId) {
         // Delegar al servicio de reservas (ya mapea a DTOs)
-        return reservaService.buscarPorCliente(clienteId);
+        return reservaService.buscarTodasLasReservasDelCliente(clienteId);
     }
 
     @Override
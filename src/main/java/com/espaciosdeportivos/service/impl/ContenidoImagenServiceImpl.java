@@ -0,0 +1,133 @@
+package com.espaciosdeportivos.service.impl;
+
+import com.espaciosdeportivos.dto.ArchivoPorContenido;
+import com.espaciosdeportivos.model.ContenidoImagen;
+import com.espaciosdeportivos.repository.ContenidoImagenRepository;
+import com.espaciosdeportivos.repository.ImagenBatchRepository;
+import com.espaciosdeportivos.service.ContenidoImagenService;
+import com.espaciosdeportivos.service.FileStorageService;
+import com.espaciosdeportivos.service.VarianteImagenService;
+
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.espaciosdeportivos.util.Transacciones.despuesDelCommit;
+import static com.espaciosdeportivos.util.Transacciones.siSeRevierte;
+
+// Conteo de referencias de los archivos guardados por contenido.
+// La fila de contenido_imagen hace de candado: quien la tiene bloqueada (alta con +1 o baja en 0)
+// es el unico que puede publicar o borrar el archivo, asi una subida y un borrado del mismo
+// contenido nunca se pisan.
+// El archivo se publica antes del commit: si la transaccion que creo la fila se revierte, el archivo
+// se borra despues (nadie lo referencia). Las variantes del contenido se borran junto con su archivo.
+@Service
+@Slf4j
+public class ContenidoImagenServiceImpl implements ContenidoImagenService {
+
+    private final ContenidoImagenRepository contenidoImagenRepository;
+    private final ImagenBatchRepository imagenBatchRepository;
+    private final FileStorageService fileStorageService;
+    private final VarianteImagenService varianteImagenService;
+    private final TransactionTemplate transaccionNueva;
+
+    public ContenidoImagenServiceImpl(ContenidoImagenRepository contenidoImagenRepository,
+                                      ImagenBatchRepository imagenBatchRepository,
+                                      FileStorageService fileStorageService,
+                                      VarianteImagenService varianteImagenService,
+                                      PlatformTransactionManager transactionManager) {
+        this.contenidoImagenRepository = contenidoImagenRepository;
+        this.imagenBatchRepository = imagenBatchRepository;
+        this.fileStorageService = fileStorageService;
+        this.varianteImagenService = varianteImagenService;
+        this.transaccionNueva = new TransactionTemplate(transactionManager);
+        this.transaccionNueva.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // Corre dentro de la transaccion de quien sube (las filas quedan bloqueadas hasta su commit).
+    // Sin @Transactional propio: un error de disco no debe marcar para rollback toda la subida.
+    @Override
+    public Map<String, String> registrar(List<ArchivoPorContenido> temporales) {
+        int publicados = 0;
+        try {
+            // si ya existia, la ruta es la de la primera subida (la extension puede diferir)
+            Map<String, ImagenBatchRepository.ReferenciaContenido> referencias = imagenBatchRepository.agregarReferencias(temporales);
+            Map<String, String> rutas = new HashMap<>();
+            for (ArchivoPorContenido temporal : temporales) {
+                ImagenBatchRepository.ReferenciaContenido referencia = referencias.get(temporal.hash());
+                if (referencia == null) {
+                    throw new EntityNotFoundException("Contenido no encontrado: " + temporal.hash());
+                }
+                if (rutas.put(temporal.hash(), referencia.ruta()) == null && referencia.creada()) {
+                    // antes de publicar: si falla la publicacion de otro archivo tambien se revierte
+                    siSeRevierte(() -> eliminarSiHuerfano(temporal.hash(), referencia.ruta(), temporal.tamanioBytes()));
+                }
+                fileStorageService.publicarArchivoPorContenido(temporal, referencia.ruta());
+                publicados++;
+            }
+            return rutas;
+        } catch (RuntimeException e) {
+            temporales.subList(publicados, temporales.size()).forEach(fileStorageService::descartarTemporal);
+            throw e;
+        }
+    }
+
+    @Override
+    @Transactional
+    public void liberar(String hash) {
+        if (contenidoImagenRepository.quitarReferencia(hash) == 0) {
+            log.warn("Contenido {} sin referencias que liberar", hash);
+            return;
+        }
+        despuesDelCommit(() -> eliminarSiSinReferencias(hash));
+    }
+
+    // En su propia transaccion: si otra subida sumo una referencia mientras tanto, el DELETE no borra nada
+    private void eliminarSiSinReferencias(String hash) {
+        try {
+            transaccionNueva.executeWithoutResult(estado -> {
+                String ruta = contenidoImagenRepository.findById(hash)
+                        .map(ContenidoImagen::getRutaAlmacenamiento)
+                        .orElse(null);
+                if (ruta != null && contenidoImagenRepository.eliminarSinReferencias(hash) == 1) {
+                    // todavia con la fila bloqueada: una subida en curso espera y vuelve a publicar el archivo
+                    varianteImagenService.eliminarArchivosVariantesDeContenido(ruta);
+                    fileStorageService.eliminarArchivo(ruta);
+                    log.info("Contenido {} sin referencias eliminado", hash);
+                }
+            });
+        } catch (RuntimeException e) {
+            log.error("No se pudo eliminar el contenido {}: {}", hash, e.getMessage());
+        }
+    }
+
+    // Tras revertirse la transaccion que creo la fila: la fila ya no existe pero el archivo si.
+    // Se toma el candado del contenido (otra subida del mismo contenido puede estar insertandolo) y el archivo
+    // solo se borra si ninguna fila confirmada lo usa.
+    private void eliminarSiHuerfano(String hash, String ruta, long tamanioBytes) {
+        try {
+            transaccionNueva.executeWithoutResult(estado -> {
+                ImagenBatchRepository.ContenidoBloqueado contenido = imagenBatchRepository.bloquearContenido(hash, ruta, tamanioBytes);
+                if (contenido.referencias() > 0 && contenido.ruta().equals(ruta)) {
+                    // otra subida confirmo el mismo contenido con este archivo
+                    return;
+                }
+                if (contenido.referencias() == 0) {
+                    contenidoImagenRepository.eliminarSinReferencias(hash);
+                }
+                fileStorageService.eliminarArchivo(ruta);
+                log.info("Contenido {} de una subida revertida eliminado", hash);
+            });
+        } catch (RuntimeException e) {
+            log.error("No se pudo eliminar el contenido {} de una subida revertida: {}", hash, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.espaciosdeportivos.service.impl;
+
+import com.espaciosdeportivos.model.Cancha;
+import com.espaciosdeportivos.model.Reserva;
+import com.espaciosdeportivos.repository.CanchaRepository;
+import com.espaciosdeportivos.repository.ReservaRepository;
+
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+
+import static com.espaciosdeportivos.util.Transacciones.despuesDelCommit;
+
+// Indice en memoria de la ocupacion de cada cancha por dia.
+// Cada (cancha, fecha) guarda una AgendaDiaCancha que se arma la primera vez que se consulta
+// y luego se mantiene con los cambios de reservas (solo despues del commit).
+// La carga desde la BD se hace fuera de cualquier candado; cada cambio sube la version de su (cancha, fecha),
+// asi una carga que empezo antes de un cambio confirmado no se guarda (su foto podria no incluirlo).
+// Los dias pasados se descartan y, si se supera el tope de agendas, se descartan los dias mas lejanos.
+@Component
+@Slf4j
+public class DisponibilidadCanchaIndex {
+
+    // cargas seguidas que pueden perder contra cambios concurrentes antes de responder sin guardar
+    private static final int INTENTOS_CARGA = 3;
+
+    private final CanchaRepository canchaRepository;
+    private final ReservaRepository reservaRepository;
+    private final int maxAgendas;
+
+    private final ConcurrentSkipListMap<LocalDate, Map<Long, Ranura>> agendas = new ConcurrentSkipListMap<>();
+
+    // Lugar de una (cancha, fecha): la agenda cargada (o null) y la version de sus cambios; se usa con synchronized
+    private static final class Ranura {
+        private long version;
+        private AgendaDiaCancha agenda;
+    }
+
+    public DisponibilidadCanchaIndex(CanchaRepository canchaRepository,
+                                     ReservaRepository reservaRepository,
+                                     @Value("${app.disponibilidad.max-agendas:20000}") int maxAgendas) {
+        this.canchaRepository = canchaRepository;
+        this.reservaRepository = reservaRepository;
+        this.maxAgendas = maxAgendas;
+    }
+
+    // bloques libres de la cancha en la fecha, cortados cada minutosBloque desde el inicio de cada hueco
+    public List<String> bloquesLibres(Long idCancha, LocalDate fecha, int minutosBloque) {
+        if (minutosBloque <= 0) {
+            throw new IllegalArgumentException("La duración del bloque debe ser mayor a 0 minutos");
+        }
+        return obtenerAgenda(idCancha, fecha).bloquesLibres(minutosBloque);
+    }
+
+    // marca el horario de la reserva como ocupado (si la agenda de ese dia ya esta cargada)
+    public void registrar(Long idCancha, Long idReserva, LocalDate fecha, LocalTime horaInicio, LocalTime horaFin) {
+        despuesDelCommit(() -> aplicar(idCancha, fecha, agenda -> agenda.ocupar(idReserva, horaInicio, horaFin)));
+    }
+
+    // libera el horario de la reserva (cancelada, eliminada, no-show o movida a otro dia/hora)
+    public void liberar(Long idCancha, Long idReserva, LocalDate fecha) {
+        despuesDelCommit(() -> aplicar(idCancha, fecha, agenda -> agenda.liberar(idReserva)));
+    }
+
+    // se usa cuando cambia el horario de atencion de la cancha
+    public void invalidarCancha(Long idCancha) {
+        despuesDelCommit(() -> agendas.keySet().forEach(fecha -> aplicar(idCancha, fecha, null)));
+    }
+
+    // se usa cuando cambia el horario del area deportiva (afecta a todas sus canchas)
+    public void invalidarTodo() {
+        despuesDelCommit(() -> agendas.values().forEach(dia -> dia.values().forEach(ranura -> {
+            synchronized (ranura) {
+                ranura.version++;
+                ranura.agenda = null;
+            }
+        })));
+    }
+
+    // sin consultas: tambien se descartan los dias pasados aunque nadie pida disponibilidad
+    @Scheduled(cron = "${app.disponibilidad.limpieza-cron:0 5 0 * * *}")
+    public void descartarDiasPasados() {
+        agendas.headMap(LocalDate.now()).clear();
+    }
+
+    private AgendaDiaCancha obtenerAgenda(Long idCancha, LocalDate fecha) {
+        descartarDiasPasados();
+        Ranura ranura = ranura(idCancha, fecha);
+        for (int intento = 1; ; intento++) {
+            long version;
+            synchronized (ranura) {
+                if (ranura.agenda != null) {
+                    return ranura.agenda;
+                }
+                version = ranura.version;
+            }
+            AgendaDiaCancha cargada = cargarAgenda(idCancha, fecha);
+            synchronized (ranura) {
+                if (ranura.agenda != null) {
+                    return ranura.agenda;
+                }
+                if (ranura.version == version) {
+                    ranura.agenda = cargada;
+                    limitarTamanio();
+                    return cargada;
+                }
+            }
+            if (intento == INTENTOS_CARGA) {
+                // cambios continuos en esta agenda: se responde con la carga recien hecha sin guardarla
+                return cargada;
+            }
+        }
+    }
+
+    // cambio confirmado: sube la version y se aplica a la agenda si esta cargada (cambio null = descartarla)
+    private void aplicar(Long idCancha, LocalDate fecha, Consumer<AgendaDiaCancha> cambio) {
+        if (fecha.isBefore(LocalDate.now())) {
+            return;
+        }
+        Map<Long, Ranura> dia = agendas.get(fecha);
+        Ranura ranura = dia != null ? dia.get(idCancha) : null;
+        if (ranura == null) {
+            // sin agenda ni carga en curso para esa cancha y fecha: nada que mantener
+            return;
+        }
+        synchronized (ranura) {
+            ranura.version++;
+            if (ranura.agenda != null) {
+                if (cambio != null) {
+                    cambio.accept(ranura.agenda);
+                } else {
+                    ranura.agenda = null;
+                }
+            }
+        }
+    }
+
+    private Ranura ranura(Long idCancha, LocalDate fecha) {
+        return agendas.computeIfAbsent(fecha, f -> new ConcurrentHashMap<>())
+                .computeIfAbsent(idCancha, id -> new Ranura());
+    }
+
+    // se descartan primero los dias mas lejanos (los que menos se consultan)
+    private void limitarTamanio() {
+        int total = agendas.values().stream().mapToInt(Map::size).sum();
+        while (total > maxAgendas && agendas.size() > 1) {
+            Map.Entry<LocalDate, Map<Long, Ranura>> ultimo = agendas.pollLastEntry();
+            total -= ultimo.getValue().size();
+            log.debug("Agendas de disponibilidad del {} descartadas por tamaño", ultimo.getKey());
+        }
+    }
+
+    private AgendaDiaCancha cargarAgenda(Long idCancha, LocalDate fecha) {
+        Cancha cancha = canchaRepository.findByIdConArea(idCancha)
+                .orElseThrow(() -> new EntityNotFoundException("Cancha no encontrada"));
+
+        AgendaDiaCancha agenda = AgendaDiaCancha.paraCancha(cancha);
+        for (Reserva r : reservaRepository.findQueOcupanByCanchaAndFecha(idCancha, fecha)) {
+            agenda.ocupar(r.getIdReserva(), r.getHoraInicio(), r.getHoraFin());
+        }
+        log.debug("Agenda de cancha {} para {} cargada en memoria", idCancha, fecha);
+        return agenda;
+    }
+}
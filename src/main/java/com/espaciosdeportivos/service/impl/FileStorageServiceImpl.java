@@ -1,32 +1,73 @@
 package com.espaciosdeportivos.service.impl;
 
 import com.espaciosdeportivos.config.FileStorageProperties;
+import com.espaciosdeportivos.dto.ArchivoPorContenido;
+import com.espaciosdeportivos.dto.MetadatosArchivo;
 import com.espaciosdeportivos.service.FileStorageService;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.UrlResource;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class FileStorageServiceImpl implements FileStorageService {
     
+    // carpeta (dentro de base-img-dir) de los archivos guardados por contenido y de sus temporales
+    private static final String CARPETA_BLOBS = "blobs";
+    private static final String CARPETA_TEMPORALES = ".tmp";
+
+    // nombre de un archivo por contenido (sin extension)
+    private static final Pattern SHA256_HEX = Pattern.compile("[0-9a-f]{64}");
+
+    // tope de entradas de la cache de metadatos; al llenarse se vacia entera
+    private static final int MAX_METADATOS_EN_CACHE = 10_000;
+
     private final FileStorageProperties fileStorageProperties;
     private Path baseStorageLocation;
+
+    // ruta relativa -> tamaño, fecha, mime y hash; se revalida con un solo stat en cada consulta.
+    // Solo se usa mientras el indice en memoria no esta listo (o si esta desactivado)
+    private final Map<String, MetadatosArchivo> metadatosEnCache = new ConcurrentHashMap<>();
+
+    // true: existencia, tamaño, mime, metadatos y listados salen de un indice en memoria del arbol de archivos
+    @Value("${app.archivos.indice-memoria:true}")
+    private boolean usarIndice;
+
+    @Value("${app.archivos.indice-hilos:4}")
+    private int hilosIndice;
+
+    private IndiceArchivos indice;
     
     @PostConstruct
     public void init() {
@@ -39,6 +80,23 @@ public class FileStorageServiceImpl implements FileStorageService {
         } catch (Exception ex) {
             throw new RuntimeException("No se pudo crear el directorio base para almacenar archivos", ex);
         }
+
+        if (usarIndice) {
+            try {
+                // se carga en segundo plano: el arranque no espera a recorrer todo el almacenamiento
+                this.indice = new IndiceArchivos(this.baseStorageLocation, CARPETA_TEMPORALES, hilosIndice);
+                this.indice.iniciar();
+            } catch (IOException ex) {
+                log.warn("Sin índice de archivos en memoria (WatchService no disponible): {}", ex.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        if (indice != null) {
+            indice.close();
+        }
     }
     
     @Override
@@ -68,6 +126,7 @@ public class FileStorageServiceImpl implements FileStorageService {
             String nombreArchivo = UUID.randomUUID().toString() + extension;
             Path targetLocation = subcarpetaPath.resolve(nombreArchivo);
             Files.copy(archivo.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
+            archivoCambiado(subcarpetaLimpia + "/" + nombreArchivo);
             
             System.out.println("Archivo guardado en: " + targetLocation);
             
@@ -79,6 +138,86 @@ public class FileStorageServiceImpl implements FileStorageService {
         }
     }
     
+    // escribe contenido generado por la app (p. ej. variantes de imagen) en una ruta relativa dada
+    @Override
+    public void guardarBytes(byte[] contenido, String rutaArchivo) {
+        Path filePath = this.baseStorageLocation.resolve(rutaArchivo).normalize();
+        if (!filePath.startsWith(this.baseStorageLocation)) {
+            throw new RuntimeException("Ruta de archivo inválida: " + rutaArchivo);
+        }
+        try {
+            Files.createDirectories(filePath.getParent());
+            Files.write(filePath, contenido);
+            archivoCambiado(rutaArchivo);
+        } catch (IOException ex) {
+            throw new RuntimeException("No se pudo almacenar el archivo " + rutaArchivo + ": " + ex.getMessage(), ex);
+        }
+    }
+
+    // El hash se calcula mientras se escribe el temporal: el archivo se lee una sola vez
+    @Override
+    public ArchivoPorContenido escribirTemporalConHash(MultipartFile archivo) {
+        String carpetaBlobs = fileStorageProperties.getBaseImgDir() + "/" + CARPETA_BLOBS;
+        String rutaTemporal = carpetaBlobs + "/" + CARPETA_TEMPORALES + "/" + UUID.randomUUID();
+        Path temporal = this.baseStorageLocation.resolve(rutaTemporal).normalize();
+        try {
+            Files.createDirectories(temporal.getParent());
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (InputStream entrada = new DigestInputStream(archivo.getInputStream(), digest)) {
+                Files.copy(entrada, temporal);
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+            String extension = obtenerExtension(archivo.getOriginalFilename());
+            // ab/cd/abcd...: como mucho 65536 carpetas con pocos archivos cada una
+            String rutaPorContenido = carpetaBlobs + "/" + hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/"
+                    + hash + (extension.isEmpty() ? "" : "." + extension);
+            return new ArchivoPorContenido(hash, rutaTemporal, rutaPorContenido, Files.size(temporal));
+        } catch (IOException ex) {
+            eliminarSilencioso(temporal);
+            throw new RuntimeException("No se pudo almacenar el archivo " + archivo.getOriginalFilename() + ": " + ex.getMessage(), ex);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 no disponible", ex);
+        }
+    }
+
+    // Si el contenido ya estaba publicado el temporal sobra; si no, se mueve (atomico en el mismo disco)
+    @Override
+    public void publicarArchivoPorContenido(ArchivoPorContenido archivo, String rutaDestino) {
+        Path temporal = this.baseStorageLocation.resolve(archivo.rutaTemporal()).normalize();
+        Path destino = this.baseStorageLocation.resolve(rutaDestino).normalize();
+        try {
+            if (Files.exists(destino)) {
+                Files.deleteIfExists(temporal);
+                return;
+            }
+            // dos intentos: al borrar otro contenido se puede ir la carpeta compartida ab/cd si quedo vacia
+            for (int intento = 1; ; intento++) {
+                Files.createDirectories(destino.getParent());
+                try {
+                    Files.move(temporal, destino, StandardCopyOption.ATOMIC_MOVE);
+                    break;
+                } catch (FileAlreadyExistsException ex) {
+                    // otra subida del mismo contenido lo publico primero
+                    Files.deleteIfExists(temporal);
+                    break;
+                } catch (NoSuchFileException ex) {
+                    if (intento == 2) {
+                        throw ex;
+                    }
+                }
+            }
+            archivoCambiado(rutaDestino);
+        } catch (IOException ex) {
+            eliminarSilencioso(temporal);
+            throw new RuntimeException("No se pudo publicar el archivo " + rutaDestino + ": " + ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    public void descartarTemporal(ArchivoPorContenido archivo) {
+        eliminarSilencioso(this.baseStorageLocation.resolve(archivo.rutaTemporal()).normalize());
+    }
+
     @Override
     public Resource cargarArchivo(String rutaArchivo) {
         try {
@@ -101,6 +240,7 @@ public class FileStorageServiceImpl implements FileStorageService {
         try {
             Path filePath = this.baseStorageLocation.resolve(rutaArchivo).normalize();
             boolean eliminado = Files.deleteIfExists(filePath);
+            archivoCambiado(rutaArchivo);
             
             if (eliminado) {
                 System.out.println("Archivo eliminado: " + rutaArchivo);
@@ -130,7 +270,8 @@ public class FileStorageServiceImpl implements FileStorageService {
     @Override
     public boolean existeArchivo(String rutaArchivo) {
         Path filePath = this.baseStorageLocation.resolve(rutaArchivo).normalize();
-        boolean existe = Files.exists(filePath);
+        IndiceArchivos indiceListo = indiceListo();
+        boolean existe = indiceListo != null ? indiceListo.existe(filePath) : Files.exists(filePath);
         System.out.println("Archivo " + rutaArchivo + " existe: " + existe);
         return existe;
     }
@@ -139,7 +280,17 @@ public class FileStorageServiceImpl implements FileStorageService {
     public long obtenerTamanioArchivo(String rutaArchivo) {
         try {
             Path filePath = this.baseStorageLocation.resolve(rutaArchivo).normalize();
-            long tamanio = Files.size(filePath);
+            IndiceArchivos indiceListo = indiceListo();
+            long tamanio;
+            if (indiceListo != null) {
+                MetadatosArchivo metadatos = indiceListo.obtener(filePath);
+                if (metadatos == null) {
+                    throw new NoSuchFileException(filePath.toString());
+                }
+                tamanio = metadatos.tamanioBytes();
+            } else {
+                tamanio = Files.size(filePath);
+            }
             System.out.println("Tamaño de " + rutaArchivo + ": " + tamanio + " bytes");
             return tamanio;
         } catch (IOException e) {
@@ -151,6 +302,11 @@ public class FileStorageServiceImpl implements FileStorageService {
     public String obtenerTipoMimeArchivo(String rutaArchivo) {
         try {
             Path filePath = this.baseStorageLocation.resolve(rutaArchivo).normalize();
+            IndiceArchivos indiceListo = indiceListo();
+            if (indiceListo != null) {
+                MetadatosArchivo metadatos = indiceListo.obtener(filePath);
+                return metadatos != null ? metadatos.tipoMime() : null;
+            }
             return Files.probeContentType(filePath);
         } catch (IOException e) {
             System.err.println("Error obteniendo tipo MIME: " + e.getMessage());
@@ -158,6 +314,45 @@ public class FileStorageServiceImpl implements FileStorageService {
         }
     }
     
+    // Para cabeceras de cache HTTP: si el archivo no cambio (mismo tamaño y fecha) no se vuelve a leer
+    @Override
+    public MetadatosArchivo obtenerMetadatos(String rutaArchivo) {
+        Path filePath = this.baseStorageLocation.resolve(rutaArchivo).normalize();
+        if (!filePath.startsWith(this.baseStorageLocation)) {
+            throw new RuntimeException("Ruta de archivo inválida: " + rutaArchivo);
+        }
+        IndiceArchivos indiceListo = indiceListo();
+        if (indiceListo != null) {
+            return metadatosDesdeIndice(indiceListo, filePath, rutaArchivo);
+        }
+        try {
+            BasicFileAttributes atributos = Files.readAttributes(filePath, BasicFileAttributes.class);
+            if (!atributos.isRegularFile()) {
+                throw new RuntimeException("Archivo no encontrado: " + rutaArchivo);
+            }
+            Instant modificado = atributos.lastModifiedTime().toInstant();
+            MetadatosArchivo enCache = metadatosEnCache.get(rutaArchivo);
+            if (enCache != null && enCache.tamanioBytes() == atributos.size()
+                    && enCache.ultimaModificacion().equals(modificado)) {
+                return enCache;
+            }
+
+            String tipoMime = Files.probeContentType(filePath);
+            MetadatosArchivo metadatos = new MetadatosArchivo(rutaArchivo, atributos.size(), modificado,
+                    tipoMime != null ? tipoMime : "application/octet-stream", etag(filePath));
+            if (metadatosEnCache.size() >= MAX_METADATOS_EN_CACHE) {
+                metadatosEnCache.clear();
+            }
+            metadatosEnCache.put(rutaArchivo, metadatos);
+            return metadatos;
+        } catch (NoSuchFileException e) {
+            metadatosEnCache.remove(rutaArchivo);
+            throw new RuntimeException("Archivo no encontrado: " + rutaArchivo, e);
+        } catch (IOException e) {
+            throw new RuntimeException("Error obteniendo metadatos del archivo: " + rutaArchivo, e);
+        }
+    }
+
     @Override
     public boolean validarRutaArchivo(String rutaArchivo) {
         if (rutaArchivo == null || rutaArchivo.trim().isEmpty()) {
@@ -167,9 +362,10 @@ public class FileStorageServiceImpl implements FileStorageService {
         Path filePath = this.baseStorageLocation.resolve(rutaArchivo).normalize();
         
         // Verificar que la ruta esté dentro del directorio base por seguridad
+        IndiceArchivos indiceListo = indiceListo();
         boolean esValida = filePath.startsWith(this.baseStorageLocation) && 
                !rutaArchivo.contains("..") && 
-               Files.exists(filePath);
+               (indiceListo != null ? indiceListo.existe(filePath) : Files.exists(filePath));
         
         System.out.println("Ruta " + rutaArchivo + " válida: " + esValida);
         return esValida;
@@ -190,6 +386,11 @@ public class FileStorageServiceImpl implements FileStorageService {
     public List<String> listarArchivosEnDirectorio(String directorio) {
         try {
             Path dirPath = this.baseStorageLocation.resolve(directorio).normalize();
+            IndiceArchivos indiceListo = indiceListo();
+            if (indiceListo != null) {
+                List<String> nombres = indiceListo.listar(dirPath);
+                return nombres != null ? nombres : new ArrayList<>();
+            }
             if (Files.exists(dirPath) && Files.isDirectory(dirPath)) {
                 return Files.list(dirPath)
                     .map(path -> path.getFileName().toString())
@@ -232,6 +433,7 @@ public class FileStorageServiceImpl implements FileStorageService {
             Path destinoPath = this.baseStorageLocation.resolve(rutaDestino).normalize();
             
             Files.copy(origenPath, destinoPath, StandardCopyOption.REPLACE_EXISTING);
+            archivoCambiado(rutaDestino);
             System.out.println("Archivo copiado: " + rutaOrigen + " → " + rutaDestino);
             return true;
         } catch (IOException e) {
@@ -247,6 +449,8 @@ public class FileStorageServiceImpl implements FileStorageService {
             Path destinoPath = this.baseStorageLocation.resolve(rutaDestino).normalize();
             
             Files.move(origenPath, destinoPath, StandardCopyOption.REPLACE_EXISTING);
+            archivoCambiado(rutaOrigen);
+            archivoCambiado(rutaDestino);
             System.out.println("Archivo movido: " + rutaOrigen + " → " + rutaDestino);
             return true;
         } catch (IOException e) {
@@ -336,12 +540,86 @@ public class FileStorageServiceImpl implements FileStorageService {
     }
     
     // ========== MÉTODOS PRIVADOS ==========
+
+    private IndiceArchivos indiceListo() {
+        return indice != null && indice.listo() ? indice : null;
+    }
+
+    // tras escribir, borrar, copiar o mover: se actualiza el indice sin esperar al WatchService
+    private void archivoCambiado(String rutaArchivo) {
+        metadatosEnCache.remove(rutaArchivo);
+        if (indice != null) {
+            indice.refrescar(this.baseStorageLocation.resolve(rutaArchivo).normalize());
+        }
+    }
+
+    // El indice ya tiene tamaño, fecha y mime; el hash se calcula una vez por version del archivo
+    private MetadatosArchivo metadatosDesdeIndice(IndiceArchivos indiceListo, Path filePath, String rutaArchivo) {
+        MetadatosArchivo metadatos = indiceListo.obtener(filePath);
+        if (metadatos == null) {
+            throw new RuntimeException("Archivo no encontrado: " + rutaArchivo);
+        }
+        if (metadatos.etag() != null) {
+            return metadatos;
+        }
+        try {
+            String etag = etag(filePath);
+            indiceListo.guardarEtag(metadatos, etag);
+            return new MetadatosArchivo(metadatos.rutaArchivo(), metadatos.tamanioBytes(),
+                    metadatos.ultimaModificacion(), metadatos.tipoMime(), etag);
+        } catch (NoSuchFileException e) {
+            indiceListo.refrescar(filePath);
+            throw new RuntimeException("Archivo no encontrado: " + rutaArchivo, e);
+        } catch (IOException e) {
+            throw new RuntimeException("Error obteniendo metadatos del archivo: " + rutaArchivo, e);
+        }
+    }
+
+    // Los archivos por contenido ya llevan su SHA-256 en el nombre: no hace falta leerlos
+    private String etag(Path filePath) throws IOException {
+        String nombre = filePath.getFileName().toString();
+        int punto = nombre.indexOf('.');
+        String sinExtension = punto >= 0 ? nombre.substring(0, punto) : nombre;
+        if (filePath.getParent() != null && filePath.getParent().getParent() != null
+                && filePath.getParent().getParent().getParent() != null
+                && CARPETA_BLOBS.equals(filePath.getParent().getParent().getParent().getFileName().toString())
+                && SHA256_HEX.matcher(sinExtension).matches()) {
+            return "\"" + sinExtension.substring(0, 32) + "\"";
+        }
+        return "\"" + hashContenido(filePath) + "\"";
+    }
+
+    private static void eliminarSilencioso(Path archivo) {
+        try {
+            Files.deleteIfExists(archivo);
+        } catch (IOException e) {
+            log.warn("No se pudo eliminar el temporal {}: {}", archivo, e.getMessage());
+        }
+    }
+
+    // SHA-256 del contenido, recortado a 128 bits (suficiente para distinguir versiones de un archivo)
+    private static String hashContenido(Path filePath) throws IOException {
+        try (InputStream entrada = Files.newInputStream(filePath)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[64 * 1024];
+            int leidos;
+            while ((leidos = entrada.read(buffer)) != -1) {
+                digest.update(buffer, 0, leidos);
+            }
+            return HexFormat.of().formatHex(digest.digest(), 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
     
     private void eliminarSubcarpetaSiVacia(Path subcarpetaPath) {
         try {
             if (Files.isDirectory(subcarpetaPath) && 
                 !Files.list(subcarpetaPath).findAny().isPresent()) {
                 Files.delete(subcarpetaPath);
+                if (indice != null) {
+                    indice.refrescar(subcarpetaPath);
+                }
                 System.out.println("Subcarpeta vacía eliminada: " + subcarpetaPath);
             }
         } catch (IOException e) {
@@ -0,0 +1,162 @@
+package com.espaciosdeportivos.service.impl;
+
+import com.espaciosdeportivos.dto.EstadoGeneracionQrDTO;
+import com.espaciosdeportivos.dto.EstadoGeneracionQrDTO.Estado;
+import com.espaciosdeportivos.repository.QrRepository;
+import com.espaciosdeportivos.repository.ReservaRepository;
+import com.espaciosdeportivos.service.IGeneracionQrService;
+import com.espaciosdeportivos.service.IQrService;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Genera los QR de las reservas pagadas en un pool acotado, fuera de la transaccion del pago.
+// Cada reserva tiene un estado consultable; si la generacion falla se reintenta con espera creciente.
+// La cola y los estados viven solo en memoria: un barrido periodico vuelve a encolar las reservas
+// pagadas que quedaron sin QR (reinicio, cola llena o reintentos agotados).
+@Service
+@Slf4j
+public class GeneracionQrServiceImpl implements IGeneracionQrService {
+
+    // los estados terminados se descartan pasado este tiempo (luego se consulta la tabla qr)
+    private static final long RETENCION_ESTADOS_MINUTOS = 60;
+    // reservas que ya tienen una generacion en marcha; el barrido no las vuelve a encolar
+    private static final Set<Estado> EN_CURSO = EnumSet.of(Estado.EN_COLA, Estado.EN_PROCESO, Estado.REINTENTANDO);
+
+    private final IQrService qrService;
+    private final QrRepository qrRepository;
+    private final ReservaRepository reservaRepository;
+    private final ThreadPoolTaskExecutor qrExecutor;
+    private final int maxIntentos;
+    private final long esperaReintentoMs;
+
+    private final Map<Long, EstadoGeneracionQrDTO> estados = new ConcurrentHashMap<>();
+
+    public GeneracionQrServiceImpl(IQrService qrService,
+                                   QrRepository qrRepository,
+                                   ReservaRepository reservaRepository,
+                                   @Qualifier("qrExecutor") ThreadPoolTaskExecutor qrExecutor,
+                                   @Value("${app.qr.max-intentos:3}") int maxIntentos,
+                                   @Value("${app.qr.espera-reintento-ms:2000}") long esperaReintentoMs) {
+        this.qrService = qrService;
+        this.qrRepository = qrRepository;
+        this.reservaRepository = reservaRepository;
+        this.qrExecutor = qrExecutor;
+        this.maxIntentos = maxIntentos;
+        this.esperaReintentoMs = esperaReintentoMs;
+    }
+
+    // Solo despues del commit: el worker debe ver el pago y la reserva confirmados
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void alPagarReserva(ReservaPagadaEvent evento) {
+        solicitarGeneracion(evento.idReserva());
+    }
+
+    @Override
+    public void solicitarGeneracion(Long idReserva) {
+        descartarEstadosViejos();
+        encolar(idReserva, 1);
+    }
+
+    // Al arrancar (tras la espera inicial) y luego periodicamente: reencola las reservas pagadas sin QR
+    // y descarta los estados terminados viejos aunque no lleguen solicitudes nuevas
+    @Scheduled(initialDelayString = "${app.qr.recuperacion-espera-inicial-ms:30000}",
+            fixedDelayString = "${app.qr.recuperacion-ms:300000}")
+    public void recuperarPendientes() {
+        descartarEstadosViejos();
+        List<Long> sinQr = reservaRepository.findIdsPagadasSinQr(LocalDate.now());
+        int encoladas = 0;
+        for (Long idReserva : sinQr) {
+            EstadoGeneracionQrDTO estado = estados.get(idReserva);
+            if (estado != null && EN_CURSO.contains(estado.getEstado())) {
+                continue;
+            }
+            encolar(idReserva, 1);
+            encoladas++;
+        }
+        if (encoladas > 0) {
+            log.warn("Reservas pagadas sin QR reencoladas: {}", encoladas);
+        }
+    }
+
+    @Override
+    public EstadoGeneracionQrDTO obtenerEstado(Long idReserva) {
+        EstadoGeneracionQrDTO estado = estados.get(idReserva);
+        if (estado != null) {
+            return estado;
+        }
+        // sin estado en memoria (reinicio o ya descartado): lo que diga la tabla qr
+        long generados = qrRepository.countByReservaIdReservaAndEstadoTrue(idReserva);
+        return EstadoGeneracionQrDTO.builder()
+                .idReserva(idReserva)
+                .estado(generados > 0 ? Estado.COMPLETADO : Estado.SIN_SOLICITUD)
+                .qrsGenerados((int) generados)
+                .actualizado(LocalDateTime.now())
+                .build();
+    }
+
+    private void encolar(Long idReserva, int intento) {
+        actualizarEstado(idReserva, intento == 1 ? Estado.EN_COLA : Estado.REINTENTANDO, intento - 1, null, null);
+        try {
+            qrExecutor.execute(() -> procesar(idReserva, intento));
+        } catch (TaskRejectedException e) {
+            log.error("Cola de generación de QR llena, reserva {} sin QR", idReserva);
+            actualizarEstado(idReserva, Estado.FALLIDO, intento - 1, null, "Cola de generación de QR llena");
+        }
+    }
+
+    private void procesar(Long idReserva, int intento) {
+        actualizarEstado(idReserva, Estado.EN_PROCESO, intento, null, null);
+        try {
+            int generados = qrService.generarQrsPendientes(idReserva);
+            actualizarEstado(idReserva, Estado.COMPLETADO, intento, generados, null);
+            log.info("QRs de reserva {} generados ({} nuevos, intento {})", idReserva, generados, intento);
+        } catch (Exception e) {
+            if (intento < maxIntentos) {
+                long espera = esperaReintentoMs * intento;
+                log.warn("Error generando QRs de reserva {} (intento {}), reintento en {} ms: {}",
+                        idReserva, intento, espera, e.toString());
+                actualizarEstado(idReserva, Estado.REINTENTANDO, intento, null, e.getMessage());
+                CompletableFuture.delayedExecutor(espera, TimeUnit.MILLISECONDS)
+                        .execute(() -> encolar(idReserva, intento + 1));
+            } else {
+                log.error("No se pudieron generar los QRs de reserva {} tras {} intentos", idReserva, intento, e);
+                actualizarEstado(idReserva, Estado.FALLIDO, intento, null, e.getMessage());
+            }
+        }
+    }
+
+    private void actualizarEstado(Long idReserva, Estado estado, int intentos, Integer generados, String error) {
+        estados.put(idReserva, EstadoGeneracionQrDTO.builder()
+                .idReserva(idReserva)
+                .estado(estado)
+                .intentos(intentos)
+                .qrsGenerados(generados)
+                .error(error)
+                .actualizado(LocalDateTime.now())
+                .build());
+    }
+
+    private void descartarEstadosViejos() {
+        LocalDateTime limite = LocalDateTime.now().minusMinutes(RETENCION_ESTADOS_MINUTOS);
+        estados.values().removeIf(e -> (e.getEstado() == Estado.COMPLETADO || e.getEstado() == Estado.FALLIDO)
+                && e.getActualizado().isBefore(limite));
+    }
+}
@@ -0,0 +1,5 @@
+package com.espaciosdeportivos.service.impl;
+
+// Se publica al registrar una imagen subida; las variantes se generan tras el commit
+record ImagenGuardadaEvent(Long idImagen) {
+}
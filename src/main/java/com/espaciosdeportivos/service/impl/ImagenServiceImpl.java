@@ -1,95 +1,103 @@
 package com.espaciosdeportivos.service.impl;
 
+import com.espaciosdeportivos.dto.ArchivoPorContenido;
 import com.espaciosdeportivos.dto.ImagenDTO;
 import com.espaciosdeportivos.model.Imagen;
 import com.espaciosdeportivos.model.ImagenRelacion;
+import com.espaciosdeportivos.model.ImagenVariante;
+import com.espaciosdeportivos.repository.ImagenBatchRepository;
 import com.espaciosdeportivos.repository.ImagenRepository;
 import com.espaciosdeportivos.repository.ImagenRelacionRepository;
+import com.espaciosdeportivos.service.ContenidoImagenService;
 import com.espaciosdeportivos.service.FileStorageService;
 import com.espaciosdeportivos.service.ImagenService;
-import lombok.RequiredArgsConstructor;
+import com.espaciosdeportivos.service.VarianteImagenService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
+
+import static com.espaciosdeportivos.util.Transacciones.siSeRevierte;
     //OK
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class ImagenServiceImpl implements ImagenService {
 
     private final ImagenRepository imagenRepository;
     private final ImagenRelacionRepository imagenRelacionRepository;
+    private final ImagenBatchRepository imagenBatchRepository;
     private final FileStorageService fileStorageService;
+    private final VarianteImagenService varianteImagenService;
+    private final ContenidoImagenService contenidoImagenService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ThreadPoolTaskExecutor subidaImagenExecutor;
+    private final TransactionTemplate transactionTemplate;
+
+    // true: un archivo por contenido (hash) compartido entre imágenes; false: un archivo por subida
+    @Value("${app.imagen.deduplicar:true}")
+    private boolean deduplicar;
 
     private static final String[] TIPOS_PERMITIDOS = {"jpg", "jpeg", "png", "gif", "webp", "bmp", "svg"};
     private static final long TAMANIO_MAXIMO = 10 * 1024 * 1024; // 10MB
 
+    public ImagenServiceImpl(ImagenRepository imagenRepository,
+                             ImagenRelacionRepository imagenRelacionRepository,
+                             ImagenBatchRepository imagenBatchRepository,
+                             FileStorageService fileStorageService,
+                             VarianteImagenService varianteImagenService,
+                             ContenidoImagenService contenidoImagenService,
+                             ApplicationEventPublisher eventPublisher,
+                             @Qualifier("subidaImagenExecutor") ThreadPoolTaskExecutor subidaImagenExecutor,
+                             PlatformTransactionManager transactionManager) {
+        this.imagenRepository = imagenRepository;
+        this.imagenRelacionRepository = imagenRelacionRepository;
+        this.imagenBatchRepository = imagenBatchRepository;
+        this.fileStorageService = fileStorageService;
+        this.varianteImagenService = varianteImagenService;
+        this.contenidoImagenService = contenidoImagenService;
+        this.eventPublisher = eventPublisher;
+        this.subidaImagenExecutor = subidaImagenExecutor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // Validacion y escritura en disco en paralelo, fuera de la transaccion; despues, en una transaccion corta,
+    // las referencias de contenido, las imagenes y las relaciones se insertan en lotes JDBC
     @Override
-    @Transactional
     public List<ImagenDTO> guardarImagenesParaEntidad(List<MultipartFile> archivos, String entidadTipo, Long entidadId) {
         log.info("Guardando {} imágenes para entidad {}:{}", archivos.size(), entidadTipo, entidadId);
-        
-        List<ImagenDTO> imagenesGuardadas = new ArrayList<>();
-        
-        for (MultipartFile archivo : archivos) {
-            try {
-                // Validaciones
-                if (!validarTipoArchivo(archivo)) {
-                    log.warn("Tipo de archivo no permitido: {}", archivo.getOriginalFilename());
-                    continue;
-                }
-                
-                if (!validarTamanioArchivo(archivo)) {
-                    log.warn("Tamaño de archivo excedido: {}", archivo.getOriginalFilename());
-                    continue;
-                }
 
-                // Obtener subcarpeta según tipo de entidad
-                String subcarpeta = fileStorageService.obtenerSubcarpetaPorTipoEntidad(entidadTipo);
-                
-                // Guardar archivo físicamente
-                String rutaAlmacenamiento = fileStorageService.guardarArchivo(archivo, subcarpeta);
-                
-                // Crear entidad Imagen
-                Imagen imagen = new Imagen();
-                imagen.setNombreArchivo(archivo.getOriginalFilename());
-                imagen.setRutaAlmacenamiento(rutaAlmacenamiento);
-                imagen.setTipoMime(archivo.getContentType());
-                imagen.setTamanioBytes(archivo.getSize());
-                imagen.setEstado(true);
-                imagen.setFechaCreacion(LocalDateTime.now());
-                
-                Imagen imagenGuardada = imagenRepository.save(imagen);
-                log.info("Imagen guardada con ID: {}", imagenGuardada.getIdImagen());
-                
-                // Crear relación
-                //OJO
-                Integer siguienteOrden = imagenRelacionRepository.obtenerSiguienteOrden(entidadTipo, entidadId);
-                
-                ImagenRelacion relacion = new ImagenRelacion();
-                relacion.setImagen(imagenGuardada);
-                relacion.setEntidadTipo(entidadTipo);
-                relacion.setEntidadId(entidadId);
-                relacion.setOrden(siguienteOrden);
-                relacion.setEstado(true);
-                relacion.setFechaCreacion(LocalDateTime.now());
-                
-                ImagenRelacion relacionGuardada = imagenRelacionRepository.save(relacion);
-                log.info("Relación creada con ID: {} y orden: {}", relacionGuardada.getIdImagenRelacion(), siguienteOrden);
-                
-                // Convertir a DTO y agregar a la lista
-                imagenesGuardadas.add(convertirAImagenDTO(imagenGuardada, relacionGuardada));
-                
-            } catch (Exception e) {
-                log.error("Error guardando imagen {}: {}", archivo.getOriginalFilename(), e.getMessage(), e);
-            }
+        List<CompletableFuture<ArchivoEscrito>> escrituras = archivos.stream()
+                .map(archivo -> CompletableFuture.supplyAsync(() -> escribirArchivo(archivo, entidadTipo), subidaImagenExecutor))
+                .toList();
+        List<ArchivoEscrito> escritos = escrituras.stream()
+                .map(CompletableFuture::join)
+                .filter(Objects::nonNull)
+                .toList();
+        if (escritos.isEmpty()) {
+            log.info("Imágenes guardadas exitosamente: 0/{}", archivos.size());
+            return new ArrayList<>();
         }
-        
+
+        List<ImagenDTO> imagenesGuardadas;
+        try {
+            imagenesGuardadas = transactionTemplate.execute(estado -> registrarArchivos(escritos, entidadTipo, entidadId));
+        } catch (RuntimeException e) {
+            // los archivos ya se descartaron al revertirse la transaccion (ver registrarArchivos)
+            log.error("Error registrando imágenes para entidad {}:{}: {}", entidadTipo, entidadId, e.getMessage(), e);
+            throw e;
+        }
+
         log.info("Imágenes guardadas exitosamente: {}/{}", imagenesGuardadas.size(), archivos.size());
         return imagenesGuardadas;
     }
@@ -106,6 +114,19 @@ public class ImagenServiceImpl implements ImagenService {
                 .collect(Collectors.toList());
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Long, List<ImagenDTO>> obtenerImagenesPorEntidades(String entidadTipo, Collection<Long> entidadIds) {
+        if (entidadIds.isEmpty()) {
+            return Map.of();
+        }
+        // la consulta ya viene ordenada por entidad y orden; groupingBy conserva ese orden dentro de cada lista
+        return imagenRelacionRepository.findWithImagenByEntidades(entidadTipo, entidadIds).stream()
+                .collect(Collectors.groupingBy(ImagenRelacion::getEntidadId,
+                        Collectors.mapping(relacion -> convertirAImagenDTO(relacion.getImagen(), relacion),
+                                Collectors.toList())));
+    }
+
     @Override
     @Transactional
     public void eliminarImagenLogicamente(Long idImagenRelacion) {
@@ -144,8 +165,9 @@ public class ImagenServiceImpl implements ImagenService {
             boolean enUso = imagenRelacionRepository.estaImagenEnUso(imagen.getIdImagen());
             
             if (!enUso) {
-                // Eliminar archivo físico
-                fileStorageService.eliminarArchivo(imagen.getRutaAlmacenamiento());
+                // Eliminar archivo físico (o su referencia al contenido) y sus variantes
+                varianteImagenService.eliminarArchivosVariantes(imagen);
+                eliminarArchivoDeImagen(imagen);
                 
                 // Eliminar relación
                 imagenRelacionRepository.delete(relacion);
@@ -195,6 +217,15 @@ public class ImagenServiceImpl implements ImagenService {
         return convertirAImagenDTO(imagen, null);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public void regenerarVariantes(Long idImagen) {
+        if (!imagenRepository.existsById(idImagen)) {
+            throw new RuntimeException("Imagen no encontrada: " + idImagen);
+        }
+        varianteImagenService.solicitarVariantes(idImagen);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public List<ImagenDTO> obtenerTodasLasImagenesActivas() {
@@ -406,8 +437,9 @@ public class ImagenServiceImpl implements ImagenService {
             
             if (!tieneRelacionesActivas) {
                 try {
-                    // Eliminar archivo físico
-                    fileStorageService.eliminarArchivo(imagen.getRutaAlmacenamiento());
+                    // Eliminar archivo físico (o su referencia al contenido) y sus variantes
+                    varianteImagenService.eliminarArchivosVariantes(imagen);
+                    eliminarArchivoDeImagen(imagen);
                     
                     // Eliminar imagen de la base de datos
                     imagenRepository.delete(imagen);
@@ -476,6 +508,106 @@ public class ImagenServiceImpl implements ImagenService {
 
     // ========== MÉTODOS PRIVADOS ==========
 
+    // Archivo validado y ya en disco: en un temporal con su hash (deduplicando) o en su ruta final
+    private record ArchivoEscrito(MultipartFile archivo, ArchivoPorContenido temporal, String rutaAlmacenamiento) {
+    }
+
+    // corre en subidaImagenExecutor; un archivo invalido o que no se pudo escribir se omite (null)
+    private ArchivoEscrito escribirArchivo(MultipartFile archivo, String entidadTipo) {
+        try {
+            if (!validarTipoArchivo(archivo)) {
+                log.warn("Tipo de archivo no permitido: {}", archivo.getOriginalFilename());
+                return null;
+            }
+            if (!validarTamanioArchivo(archivo)) {
+                log.warn("Tamaño de archivo excedido: {}", archivo.getOriginalFilename());
+                return null;
+            }
+            if (deduplicar) {
+                // mismo contenido ya subido (para esta u otra entidad): se reutiliza el archivo al registrarlo
+                return new ArchivoEscrito(archivo, fileStorageService.escribirTemporalConHash(archivo), null);
+            }
+            String subcarpeta = fileStorageService.obtenerSubcarpetaPorTipoEntidad(entidadTipo);
+            return new ArchivoEscrito(archivo, null, fileStorageService.guardarArchivo(archivo, subcarpeta));
+        } catch (Exception e) {
+            log.error("Error guardando imagen {}: {}", archivo.getOriginalFilename(), e.getMessage(), e);
+            return null;
+        }
+    }
+
+    private List<ImagenDTO> registrarArchivos(List<ArchivoEscrito> escritos, String entidadTipo, Long entidadId) {
+        // atado al resultado de la transaccion (tambien si es la de quien llama y se revierte despues)
+        siSeRevierte(() -> escritos.forEach(this::descartarArchivo));
+
+        List<ArchivoPorContenido> temporales = escritos.stream()
+                .map(ArchivoEscrito::temporal)
+                .filter(Objects::nonNull)
+                .toList();
+        Map<String, String> rutasPorHash = temporales.isEmpty() ? Map.of() : contenidoImagenService.registrar(temporales);
+
+        LocalDateTime ahora = LocalDateTime.now();
+        List<Imagen> imagenes = new ArrayList<>();
+        for (ArchivoEscrito escrito : escritos) {
+            Imagen imagen = new Imagen();
+            if (escrito.temporal() != null) {
+                imagen.setRutaAlmacenamiento(rutasPorHash.get(escrito.temporal().hash()));
+                imagen.setHashContenido(escrito.temporal().hash());
+            } else {
+                imagen.setRutaAlmacenamiento(escrito.rutaAlmacenamiento());
+            }
+            imagen.setNombreArchivo(escrito.archivo().getOriginalFilename());
+            imagen.setTipoMime(escrito.archivo().getContentType());
+            imagen.setTamanioBytes(escrito.archivo().getSize());
+            imagen.setEstado(true);
+            imagen.setFechaCreacion(ahora);
+            imagen.setFechaActualizacion(ahora);
+            imagenes.add(imagen);
+        }
+        imagenBatchRepository.insertarImagenes(imagenes);
+
+        // un solo MAX(orden) para todo el lote; las nuevas van a continuación
+        int orden = imagenRelacionRepository.obtenerSiguienteOrden(entidadTipo, entidadId);
+        List<ImagenRelacion> relaciones = new ArrayList<>();
+        for (Imagen imagen : imagenes) {
+            ImagenRelacion relacion = new ImagenRelacion(imagen, entidadTipo, entidadId, ++orden);
+            relacion.setFechaCreacion(ahora);
+            relaciones.add(relacion);
+        }
+        imagenBatchRepository.insertarRelaciones(relaciones);
+
+        List<ImagenDTO> imagenesGuardadas = new ArrayList<>();
+        for (ImagenRelacion relacion : relaciones) {
+            // miniatura/mediana/grande en segundo plano, tras el commit
+            eventPublisher.publishEvent(new ImagenGuardadaEvent(relacion.getImagen().getIdImagen()));
+            imagenesGuardadas.add(convertirAImagenDTO(relacion.getImagen(), relacion));
+        }
+        return imagenesGuardadas;
+    }
+
+    // la transaccion no se confirmo: lo escrito para esta subida sobra.
+    // Aqui solo temporales y archivos sin deduplicar; los contenidos que esta subida creo y alcanzo a publicar
+    // los borra el rollback de su transaccion (ContenidoImagenService.registrar), los que ya existian no se tocan
+    private void descartarArchivo(ArchivoEscrito escrito) {
+        try {
+            if (escrito.temporal() != null) {
+                fileStorageService.descartarTemporal(escrito.temporal());
+            } else {
+                fileStorageService.eliminarArchivo(escrito.rutaAlmacenamiento());
+            }
+        } catch (Exception e) {
+            log.warn("No se pudo descartar {}: {}", escrito.archivo().getOriginalFilename(), e.getMessage());
+        }
+    }
+
+    // el archivo deduplicado solo se borra cuando la ultima imagen que lo usa lo suelta
+    private void eliminarArchivoDeImagen(Imagen imagen) {
+        if (imagen.getHashContenido() != null) {
+            contenidoImagenService.liberar(imagen.getHashContenido());
+        } else {
+            fileStorageService.eliminarArchivo(imagen.getRutaAlmacenamiento());
+        }
+    }
+
     private ImagenDTO convertirAImagenDTO(Imagen imagen, ImagenRelacion relacion) {
         ImagenDTO dto = new ImagenDTO();
         dto.setIdImagen(imagen.getIdImagen());
@@ -487,6 +619,12 @@ public class ImagenServiceImpl implements ImagenService {
         dto.setFechaCreacion(imagen.getFechaCreacion());
         dto.setFechaActualizacion(imagen.getFechaActualizacion());
         dto.setUrlAcceso(obtenerUrlAcceso(imagen.getRutaAlmacenamiento()));
+
+        Map<String, String> variantes = new TreeMap<>();
+        for (ImagenVariante variante : imagen.getVariantes()) {
+            variantes.put(variante.getTipo().name(), obtenerUrlAcceso(variante.getRutaAlmacenamiento()));
+        }
+        dto.setVariantes(variantes);
         
         if (relacion != null) {
             dto.setIdImagenRelacion(relacion.getIdImagenRelacion());
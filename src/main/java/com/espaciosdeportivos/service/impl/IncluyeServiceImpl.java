@@ -1,28 +1,42 @@
 package com.espaciosdeportivos.service.impl;
 // com.espaciosdeportivos.service.impl.IncluyeServiceImpl.java
 
+import com.espaciosdeportivos.config.ReservaSolapamientoInitializer;
 import com.espaciosdeportivos.dto.IncluyeDTO;
+import com.espaciosdeportivos.exception.ReservaSolapadaException;
 import com.espaciosdeportivos.model.*;
 import com.espaciosdeportivos.repository.*;
 import com.espaciosdeportivos.service.IIncluyeService;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalTime;
 import java.util.List;
 import java.util.stream.Collectors;
 
+import static com.espaciosdeportivos.util.Transacciones.siSeRevierte;
+
 @Service
 @RequiredArgsConstructor
 @Transactional
+@Slf4j
 public class IncluyeServiceImpl implements IIncluyeService {
 
     private final IncluyeRepository incluyeRepository;
     private final ReservaRepository reservaRepository;
     private final CanchaRepository canchaRepository;
     private final DisciplinaRepository disciplinaRepository;
+    private final DisponibilidadCanchaIndex disponibilidadIndex;
+    private final ReservaSolapamientoInitializer solapamiento;
+    private final PlatformTransactionManager transactionManager;
 
     @Override
     public IncluyeDTO asociarCanchaDisciplinaAReserva(IncluyeDTO dto) {
@@ -60,10 +74,49 @@ public class IncluyeServiceImpl implements IIncluyeService {
                 .montoTotal(montoTotal)
                 .build();
 
-        incluye = incluyeRepository.save(incluye);
+        // Sin la restriccion EXCLUDE (no se pudo crear al arrancar) se vuelve a la consulta previa
+        if (!solapamiento.restriccionActiva() && reserva.ocupaCancha()
+                && !reservaRepository.findReservasSolapadasEnCancha(cancha.getIdCancha(), reserva.getFechaReserva(),
+                        reserva.getHoraInicio(), reserva.getHoraFin()).isEmpty()) {
+            descartarSiQuedaHuerfana(reserva.getIdReserva());
+            throw new ReservaSolapadaException("La cancha ya tiene una reserva en ese horario");
+        }
+
+        // Insercion optimista: la restriccion EXCLUDE de incluye rechaza el solapamiento en la misma cancha
+        try {
+            incluye = incluyeRepository.saveAndFlush(incluye);
+        } catch (DataIntegrityViolationException e) {
+            if (ReservaSolapadaException.esSolapamiento(e)) {
+                descartarSiQuedaHuerfana(reserva.getIdReserva());
+                throw new ReservaSolapadaException("La cancha ya tiene una reserva en ese horario", e);
+            }
+            throw e;
+        }
+        if (reserva.ocupaCancha()) {
+            disponibilidadIndex.registrar(cancha.getIdCancha(), reserva.getIdReserva(),
+                    reserva.getFechaReserva(), reserva.getHoraInicio(), reserva.getHoraFin());
+        }
         return convertToDTO(incluye);
     }
 
+    // Reserva creada en dos pasos (POST /api/reservas y luego /api/incluye): si la cancha estaba ocupada,
+    // al revertirse esta transaccion se borra la reserva pendiente que quedo sin cancha.
+    // Va despues del rollback y en una transaccion nueva: el insert fallido bloquea la fila de la reserva hasta entonces.
+    private void descartarSiQuedaHuerfana(Long idReserva) {
+        siSeRevierte(() -> {
+            TransactionTemplate transaccionNueva = new TransactionTemplate(transactionManager);
+            transaccionNueva.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            try {
+                Integer borradas = transaccionNueva.execute(status -> reservaRepository.borrarPendienteSinCancha(idReserva));
+                if (borradas != null && borradas > 0) {
+                    log.info("Reserva {} pendiente sin cancha descartada por solapamiento", idReserva);
+                }
+            } catch (DataAccessException e) {
+                log.warn("No se pudo descartar la reserva {} sin cancha: {}", idReserva, e.getMessage());
+            }
+        });
+    }
+
     @Override
     public Double obtenerMontoTotal(Long idReserva, Long idCancha, Long idDisciplina) {
         IncluyeId id = new IncluyeId(idCancha, idReserva, idDisciplina);
@@ -108,9 +161,9 @@ public class IncluyeServiceImpl implements IIncluyeService {
     @Override
     public void desasociarCanchaDisciplinaDeReserva(Long idReserva, Long idCancha, Long idDisciplina) {
         IncluyeId id = new IncluyeId(idCancha, idReserva, idDisciplina);
-        if (!incluyeRepository.existsById(id)) {
-            throw new EntityNotFoundException("Asociación no encontrada");
-        }
+        Incluye incluye = incluyeRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Asociación no encontrada"));
+        disponibilidadIndex.liberar(idCancha, idReserva, incluye.getReserva().getFechaReserva());
         incluyeRepository.deleteById(id);
     }
 
@@ -0,0 +1,436 @@
+package com.espaciosdeportivos.service.impl;
+
+import com.espaciosdeportivos.dto.MetadatosArchivo;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+// Indice en memoria del arbol de archivos subidos: ruta relativa -> tamaño, fecha, mime y hash (etag),
+// y por carpeta los nombres que contiene.
+// Se arma al arrancar recorriendo las carpetas en paralelo y se mantiene con un WatchService (cambios hechos
+// por fuera de la app) y con las escrituras del propio servicio. Cada cambio se resuelve volviendo a leer
+// el archivo, no confiando en el tipo de evento, asi el orden en que llegan no importa.
+// Hasta que termina la carga inicial no esta listo: mientras tanto el servicio consulta el disco.
+// Una carpeta que no se pudo vigilar (limite de inotify, NFS) no recibe eventos: todo su subarbol se consulta
+// en disco. Lo que no esta en el indice tambien se confirma con una lectura del disco antes de darlo por ausente.
+// Las carpetas se releen siempre en el hilo vigilante; los hilos de peticiones solo dejan el pedido en cola.
+@Slf4j
+final class IndiceArchivos implements Closeable {
+
+    // cada cuanto el hilo vigilante mira la cola de recargas aunque no lleguen eventos
+    private static final long ESPERA_RECARGAS_MS = 200;
+
+    private final Path base;
+    private final String carpetaExcluida;
+    private final ForkJoinPool pool;
+    private final WatchService watchService;
+    private final Thread vigilante;
+
+    private final Map<String, MetadatosArchivo> archivos = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> carpetas = new ConcurrentHashMap<>();
+    private final Map<WatchKey, Path> carpetasVigiladas = new ConcurrentHashMap<>();
+    // claves de las carpetas cuyo register fallo: su subarbol se consulta en disco
+    private final Set<String> sinVigilar = ConcurrentHashMap.newKeySet();
+    // carpetas a releer pedidas desde otros hilos (se atienden en el hilo vigilante)
+    private final Queue<Path> recargasPendientes = new ConcurrentLinkedQueue<>();
+    private volatile boolean listo;
+
+    // carpetaExcluida: nombre de carpeta que no se indexa en ningun nivel (temporales de escritura)
+    IndiceArchivos(Path base, String carpetaExcluida, int hilos) throws IOException {
+        this.base = base;
+        this.carpetaExcluida = carpetaExcluida;
+        this.pool = new ForkJoinPool(hilos);
+        this.watchService = base.getFileSystem().newWatchService();
+        this.vigilante = new Thread(this::cargarYVigilar, "indice-archivos");
+        this.vigilante.setDaemon(true);
+    }
+
+    void iniciar() {
+        vigilante.start();
+    }
+
+    boolean listo() {
+        return listo;
+    }
+
+    // archivo o carpeta; si el indice no lo tiene se confirma con una sola consulta al disco
+    boolean existe(Path ruta) {
+        if (!ruta.startsWith(base)) {
+            return false;
+        }
+        String clave = clave(ruta);
+        if (vigilada(ruta) && (archivos.containsKey(clave) || carpetas.containsKey(clave))) {
+            return true;
+        }
+        return Files.exists(ruta, LinkOption.NOFOLLOW_LINKS);
+    }
+
+    // null si no es un archivo; lo que falta en el indice (o esta en una carpeta sin vigilar) se relee del disco
+    MetadatosArchivo obtener(Path archivo) {
+        if (!archivo.startsWith(base)) {
+            return null;
+        }
+        String clave = clave(archivo);
+        MetadatosArchivo metadatos = archivos.get(clave);
+        if (metadatos != null && vigilada(archivo)) {
+            return metadatos;
+        }
+        if (dentroDeExcluida(archivo)) {
+            return leer(archivo, clave, null);
+        }
+        ponerArchivo(archivo);
+        return archivos.get(clave);
+    }
+
+    // nombres (archivos y subcarpetas) de la carpeta; null si no existe
+    List<String> listar(Path carpeta) {
+        Set<String> nombres = vigilada(carpeta) ? carpetas.get(clave(carpeta)) : null;
+        return nombres != null ? new ArrayList<>(nombres) : listarEnDisco(carpeta);
+    }
+
+    // guarda el etag calculado, solo si el archivo no cambio mientras se calculaba
+    void guardarEtag(MetadatosArchivo sinEtag, String etag) {
+        archivos.replace(sinEtag.rutaArchivo(), sinEtag, new MetadatosArchivo(sinEtag.rutaArchivo(),
+                sinEtag.tamanioBytes(), sinEtag.ultimaModificacion(), sinEtag.tipoMime(), etag));
+    }
+
+    // vuelve a leer la ruta (escrita, borrada o movida) y deja el indice como esta en disco.
+    // Archivos y borrados se aplican en el momento; una carpeta se enlaza ya y se relee en el hilo vigilante
+    void refrescar(Path ruta) {
+        refrescar(ruta, false);
+    }
+
+    private void refrescar(Path ruta, boolean enVigilante) {
+        if (!ruta.startsWith(base)) {
+            return;
+        }
+        BasicFileAttributes atributos;
+        try {
+            atributos = Files.readAttributes(ruta, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (NoSuchFileException e) {
+            quitar(ruta);
+            return;
+        } catch (IOException e) {
+            log.warn("No se pudo leer {} para el índice: {}", ruta, e.getMessage());
+            return;
+        }
+        if (atributos.isDirectory()) {
+            if (excluida(ruta)) {
+                return;
+            }
+            if (enVigilante) {
+                pool.invoke(new CargaCarpeta(ruta));
+            } else {
+                carpetas.computeIfAbsent(clave(ruta), c -> ConcurrentHashMap.newKeySet());
+                agregarAPadres(ruta);
+                recargasPendientes.add(ruta);
+            }
+        } else if (atributos.isRegularFile() && !dentroDeExcluida(ruta)) {
+            ponerArchivo(ruta);
+        }
+    }
+
+    @Override
+    public void close() {
+        vigilante.interrupt();
+        pool.shutdownNow();
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            log.warn("No se pudo cerrar el WatchService del índice: {}", e.getMessage());
+        }
+    }
+
+    // ========== CARGA Y VIGILANCIA ==========
+
+    private void cargarYVigilar() {
+        long inicio = System.nanoTime();
+        try {
+            pool.invoke(new CargaCarpeta(base));
+        } catch (RuntimeException e) {
+            log.error("No se pudo cargar el índice de archivos, se seguirá consultando el disco", e);
+            return;
+        }
+        listo = true;
+        log.info("Índice de archivos cargado: {} archivos en {} carpetas ({} ms)",
+                archivos.size(), carpetas.size(), (System.nanoTime() - inicio) / 1_000_000);
+        if (!sinVigilar.isEmpty()) {
+            log.error("{} carpetas no se pudieron vigilar y se consultarán en disco (revisar fs.inotify.max_user_watches "
+                    + "o si el almacenamiento es un sistema de archivos de red)", sinVigilar.size());
+        }
+        // los eventos que llegaron durante la carga esperan en la cola del WatchService
+        vigilar();
+    }
+
+    private void vigilar() {
+        while (!Thread.currentThread().isInterrupted()) {
+            WatchKey clave;
+            try {
+                clave = watchService.poll(ESPERA_RECARGAS_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            atenderRecargas();
+            if (clave == null) {
+                continue;
+            }
+            Path carpeta = carpetasVigiladas.get(clave);
+            for (WatchEvent<?> evento : clave.pollEvents()) {
+                if (carpeta == null) {
+                    continue;
+                }
+                try {
+                    if (evento.kind() == OVERFLOW) {
+                        // se perdieron eventos de esta carpeta: se relee entera
+                        refrescar(carpeta, true);
+                    } else {
+                        refrescar(carpeta.resolve((Path) evento.context()), true);
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("Error actualizando el índice de archivos: {}", e.getMessage());
+                }
+            }
+            if (!clave.reset()) {
+                // la carpeta ya no existe
+                carpetasVigiladas.remove(clave);
+            }
+        }
+    }
+
+    private void atenderRecargas() {
+        Path carpeta;
+        while ((carpeta = recargasPendientes.poll()) != null) {
+            try {
+                refrescar(carpeta, true);
+            } catch (RuntimeException e) {
+                log.warn("Error releyendo {} para el índice: {}", carpeta, e.getMessage());
+            }
+        }
+    }
+
+    // Una tarea por carpeta: lista sus entradas, indexa los archivos y lanza en paralelo las subcarpetas.
+    // Al releer una carpeta ya indexada quita lo que el indice tenia y ya no aparece en disco
+    private final class CargaCarpeta extends RecursiveAction {
+
+        private final Path carpeta;
+
+        private CargaCarpeta(Path carpeta) {
+            this.carpeta = carpeta;
+        }
+
+        @Override
+        protected void compute() {
+            vigilarCarpeta(carpeta);
+            List<CargaCarpeta> subcarpetas = new ArrayList<>();
+            Set<String> vistos = new HashSet<>();
+            try (DirectoryStream<Path> entradas = Files.newDirectoryStream(carpeta)) {
+                for (Path entrada : entradas) {
+                    vistos.add(entrada.getFileName().toString());
+                    if (Files.isDirectory(entrada, LinkOption.NOFOLLOW_LINKS)) {
+                        if (!excluida(entrada)) {
+                            subcarpetas.add(new CargaCarpeta(entrada));
+                        }
+                    } else {
+                        ponerArchivo(entrada);
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("No se pudo listar {} para el índice: {}", carpeta, e.getMessage());
+                invokeAll(subcarpetas);
+                return;
+            }
+            quitarNoVistos(carpeta, vistos);
+            invokeAll(subcarpetas);
+        }
+    }
+
+    private void vigilarCarpeta(Path carpeta) {
+        String claveCarpeta = clave(carpeta);
+        try {
+            WatchKey clave = carpeta.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+            carpetasVigiladas.put(clave, carpeta);
+            sinVigilar.remove(claveCarpeta);
+        } catch (IOException | ClosedWatchServiceException e) {
+            // sin eventos de esta carpeta el indice no veria los cambios externos: el subarbol va a disco
+            if (sinVigilar.add(claveCarpeta) && sinVigilar.size() == 1) {
+                log.error("No se pudo vigilar {}, su contenido se consultará en disco: {}", carpeta, e.getMessage());
+            } else {
+                log.debug("No se pudo vigilar {}: {}", carpeta, e.getMessage());
+            }
+        }
+        carpetas.computeIfAbsent(claveCarpeta, c -> ConcurrentHashMap.newKeySet());
+        agregarAPadres(carpeta);
+    }
+
+    // lo que el indice tenia en la carpeta y no aparecio al listarla; se confirma en disco por si se creo despues
+    private void quitarNoVistos(Path carpeta, Set<String> vistos) {
+        Set<String> nombres = carpetas.get(clave(carpeta));
+        if (nombres == null) {
+            return;
+        }
+        for (String nombre : List.copyOf(nombres)) {
+            if (!vistos.contains(nombre)) {
+                Path ruta = carpeta.resolve(nombre);
+                if (!Files.exists(ruta, LinkOption.NOFOLLOW_LINKS)) {
+                    quitar(ruta);
+                }
+            }
+        }
+    }
+
+    private List<String> listarEnDisco(Path carpeta) {
+        if (!Files.isDirectory(carpeta, LinkOption.NOFOLLOW_LINKS)) {
+            return null;
+        }
+        try (Stream<Path> entradas = Files.list(carpeta)) {
+            return new ArrayList<>(entradas.map(ruta -> ruta.getFileName().toString()).toList());
+        } catch (IOException e) {
+            log.warn("No se pudo listar {}: {}", carpeta, e.getMessage());
+            return null;
+        }
+    }
+
+    // ========== ENTRADAS ==========
+
+    // Lee el archivo dentro del compute: la lectura y la actualizacion de una misma ruta no se cruzan entre hilos
+    private void ponerArchivo(Path archivo) {
+        MetadatosArchivo metadatos = archivos.compute(clave(archivo), (clave, anterior) -> leer(archivo, clave, anterior));
+        if (metadatos != null) {
+            agregarAPadres(archivo);
+        } else if (!carpetas.containsKey(clave(archivo))) {
+            // no es archivo ni carpeta indexada (obtener() puede recibir la ruta de una carpeta)
+            quitarDePadre(archivo);
+        }
+    }
+
+    private MetadatosArchivo leer(Path archivo, String clave, MetadatosArchivo anterior) {
+        try {
+            BasicFileAttributes atributos = Files.readAttributes(archivo, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            if (!atributos.isRegularFile()) {
+                return null;
+            }
+            Instant modificado = atributos.lastModifiedTime().toInstant();
+            if (anterior != null && anterior.tamanioBytes() == atributos.size()
+                    && anterior.ultimaModificacion().equals(modificado)) {
+                return anterior;
+            }
+            String tipoMime = Files.probeContentType(archivo);
+            // el etag se calcula (leyendo el contenido) la primera vez que se pide
+            return new MetadatosArchivo(clave, atributos.size(), modificado,
+                    tipoMime != null ? tipoMime : "application/octet-stream", null);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            log.warn("No se pudo leer {} para el índice: {}", archivo, e.getMessage());
+            return anterior;
+        }
+    }
+
+    private void quitar(Path ruta) {
+        String clave = clave(ruta);
+        archivos.remove(clave);
+        quitarSubarbol(clave);
+        quitarDePadre(ruta);
+    }
+
+    // carpeta borrada: se baja por los nombres de cada carpeta, sin recorrer el resto del indice
+    private void quitarSubarbol(String claveCarpeta) {
+        Set<String> contenido = carpetas.remove(claveCarpeta);
+        sinVigilar.remove(claveCarpeta);
+        if (contenido == null) {
+            return;
+        }
+        String prefijo = prefijo(claveCarpeta);
+        for (String nombre : contenido) {
+            String hijo = prefijo + nombre;
+            archivos.remove(hijo);
+            quitarSubarbol(hijo);
+        }
+    }
+
+    // enlaza el nombre en su carpeta y sube hasta encontrar un nivel ya enlazado
+    private void agregarAPadres(Path ruta) {
+        for (Path actual = ruta; !actual.equals(base) && actual.getParent() != null; actual = actual.getParent()) {
+            Set<String> nombres = carpetas.computeIfAbsent(clave(actual.getParent()), c -> ConcurrentHashMap.newKeySet());
+            if (!nombres.add(actual.getFileName().toString())) {
+                return;
+            }
+        }
+    }
+
+    private void quitarDePadre(Path ruta) {
+        if (ruta.equals(base) || ruta.getParent() == null) {
+            return;
+        }
+        Set<String> nombres = carpetas.get(clave(ruta.getParent()));
+        if (nombres != null) {
+            nombres.remove(ruta.getFileName().toString());
+        }
+    }
+
+    // false si la ruta cuelga de una carpeta sin WatchKey (sus datos en el indice pueden estar viejos)
+    private boolean vigilada(Path ruta) {
+        if (sinVigilar.isEmpty()) {
+            return true;
+        }
+        for (Path actual = ruta; actual != null && actual.startsWith(base); actual = actual.getParent()) {
+            if (sinVigilar.contains(clave(actual))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean excluida(Path carpeta) {
+        return carpeta.getFileName() != null && carpeta.getFileName().toString().equals(carpetaExcluida);
+    }
+
+    private boolean dentroDeExcluida(Path archivo) {
+        for (Path actual = archivo.getParent(); actual != null && !actual.equals(base); actual = actual.getParent()) {
+            if (excluida(actual)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String prefijo(String claveCarpeta) {
+        return claveCarpeta.isEmpty() ? "" : claveCarpeta + "/";
+    }
+
+    // img/cancha/uuid.png (con / en cualquier sistema); "" para la carpeta base
+    private String clave(Path ruta) {
+        return base.relativize(ruta).toString().replace(File.separatorChar, '/');
+    }
+}
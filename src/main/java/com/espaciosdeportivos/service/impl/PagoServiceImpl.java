@@ -15,6 +15,7 @@ import com.espaciosdeportivos.service.IReservaService;
 import com.espaciosdeportivos.validation.PagoValidator;
 import com.espaciosdeportivos.validation.PagoValidator.BusinessException;
 
+import io.micrometer.core.annotation.Timed;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -238,6 +239,7 @@ public class PagoServiceImpl implements IPagoService {
     // OPERACIONES DE NEGOCIO
     @Override
     @Transactional
+    @Timed(value = "pagos.confirmar", histogram = true)
     public PagoDTO confirmarPago(Long idPago, String codigoTransaccion) {
         pagoValidator.validarConfirmacionPago(codigoTransaccion);
         
@@ -0,0 +1,5 @@
+package com.espaciosdeportivos.service.impl;
+
+// Se publica cuando un QR se desactiva, se borra o cambia su codigo; tras el commit se descartan sus imagenes en cache
+record QrCambiadoEvent(String codigoQr) {
+}
@@ -0,0 +1,150 @@
+package com.espaciosdeportivos.service.impl;
+
+import com.espaciosdeportivos.service.IQrImagenService;
+import com.espaciosdeportivos.service.IQrService;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.WriterException;
+import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Dibuja las imagenes de los QR al pedirlas (no se escribe nada en disco).
+// Las imagenes recientes quedan en un LRU acotado por bytes, asi un QR muy consultado no vuelve a la BD.
+@Service
+@Slf4j
+public class QrImagenServiceImpl implements IQrImagenService {
+
+    private static final int TAMANO_MINIMO = 100;
+    private static final int TAMANO_MAXIMO = 1000;
+
+    // UTF-8 para los nombres con tildes; margen de 1 modulo (el estandar de 4 desperdicia espacio)
+    private static final Map<EncodeHintType, Object> HINTS = Map.of(
+            EncodeHintType.CHARACTER_SET, StandardCharsets.UTF_8.name(),
+            EncodeHintType.MARGIN, 1);
+
+    private final IQrService qrService;
+    private final long maxBytesCache;
+
+    // orden de acceso: el primero es el menos usado
+    private final LinkedHashMap<String, byte[]> cache = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytesEnCache;
+
+    public QrImagenServiceImpl(IQrService qrService,
+                               @Value("${app.qr.cache-imagenes-bytes:16777216}") long maxBytesCache) {
+        this.qrService = qrService;
+        this.maxBytesCache = maxBytesCache;
+    }
+
+    @Override
+    public byte[] obtenerImagen(String codigoQr, Formato formato, int tamano) {
+        if (tamano < TAMANO_MINIMO || tamano > TAMANO_MAXIMO) {
+            throw new IllegalArgumentException("El tamaño debe estar entre " + TAMANO_MINIMO + " y " + TAMANO_MAXIMO + " px");
+        }
+        String clave = codigoQr + "|" + formato + "|" + (formato == Formato.SVG ? 0 : tamano);
+        byte[] imagen = leerCache(clave);
+        if (imagen != null) {
+            return imagen;
+        }
+
+        String contenido = qrService.obtenerContenidoQr(codigoQr);
+        imagen = formato == Formato.SVG ? dibujarSvg(contenido, tamano) : dibujarPng(contenido, tamano);
+        guardarCache(clave, imagen);
+        return imagen;
+    }
+
+    // QR desactivado, borrado o con otro codigo: fuera todas sus imagenes (cualquier formato y tamano)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void alCambiarQr(QrCambiadoEvent evento) {
+        descartarCache(evento.codigoQr() + "|");
+    }
+
+    private byte[] dibujarPng(String contenido, int tamano) {
+        BitMatrix matriz = codificar(contenido, tamano);
+        try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            MatrixToImageWriter.writeToStream(matriz, "PNG", out);
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo escribir el PNG del QR", e);
+        }
+    }
+
+    // SVG compacto: un modulo por unidad y un solo <path> con los tramos horizontales de cada fila
+    private byte[] dibujarSvg(String contenido, int tamano) {
+        BitMatrix matriz = codificar(contenido, 0);
+        int ancho = matriz.getWidth();
+        int alto = matriz.getHeight();
+
+        StringBuilder path = new StringBuilder();
+        for (int y = 0; y < alto; y++) {
+            int x = 0;
+            while (x < ancho) {
+                if (!matriz.get(x, y)) {
+                    x++;
+                    continue;
+                }
+                int inicio = x;
+                while (x < ancho && matriz.get(x, y)) x++;
+                path.append('M').append(inicio).append(' ').append(y)
+                        .append('h').append(x - inicio).append("v1h-").append(x - inicio).append('z');
+            }
+        }
+
+        String svg = "<svg xmlns=\"http://www.w3.org/2000/svg\" viewBox=\"0 0 " + ancho + " " + alto + "\""
+                + " width=\"" + tamano + "\" height=\"" + tamano + "\" shape-rendering=\"crispEdges\">"
+                + "<rect width=\"100%\" height=\"100%\" fill=\"#fff\"/>"
+                + "<path fill=\"#000\" d=\"" + path + "\"/></svg>";
+        return svg.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private BitMatrix codificar(String contenido, int tamano) {
+        try {
+            return new QRCodeWriter().encode(contenido, BarcodeFormat.QR_CODE, tamano, tamano, HINTS);
+        } catch (WriterException e) {
+            throw new IllegalStateException("No se pudo codificar el QR: " + e.getMessage(), e);
+        }
+    }
+
+    private synchronized byte[] leerCache(String clave) {
+        return cache.get(clave);
+    }
+
+    private synchronized void descartarCache(String prefijo) {
+        Iterator<Map.Entry<String, byte[]>> it = cache.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, byte[]> entrada = it.next();
+            if (entrada.getKey().startsWith(prefijo)) {
+                bytesEnCache -= entrada.getValue().length;
+                it.remove();
+            }
+        }
+    }
+
+    private synchronized void guardarCache(String clave, byte[] imagen) {
+        if (imagen.length > maxBytesCache) {
+            return;
+        }
+        byte[] anterior = cache.put(clave, imagen);
+        bytesEnCache += imagen.length - (anterior != null ? anterior.length : 0);
+
+        Iterator<byte[]> it = cache.values().iterator();
+        while (bytesEnCache > maxBytesCache && it.hasNext()) {
+            bytesEnCache -= it.next().length;
+            it.remove();
+        }
+    }
+}
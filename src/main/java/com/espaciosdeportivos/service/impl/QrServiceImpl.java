@@ -11,32 +11,29 @@ import com.espaciosdeportivos.repository.QrRepository;
 import com.espaciosdeportivos.repository.ReservaRepository;
 import com.espaciosdeportivos.repository.InvitadoRepository;
 import com.espaciosdeportivos.repository.PersonaRepository;
+import com.espaciosdeportivos.repository.ParticipaRepository;
 import com.espaciosdeportivos.repository.UsuarioControlRepository;
 
+import com.espaciosdeportivos.security.QrFirmador;
 import com.espaciosdeportivos.service.IQrService;
 import com.espaciosdeportivos.validation.QrValidator;
 
-import com.google.zxing.BarcodeFormat;
-import com.google.zxing.WriterException;
-import com.google.zxing.client.j2se.MatrixToImageWriter;
-import com.google.zxing.qrcode.QRCodeWriter;
-import java.nio.file.Path;
-import java.nio.file.Files;
 import java.util.UUID;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import java.util.Map;
-import java.util.LinkedHashMap;
 
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
 
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 
@@ -52,6 +49,9 @@ public class QrServiceImpl implements IQrService {
     private final UsuarioControlRepository usuarioControlRepository;
     private final QrValidator qrValidator;
     private final PersonaRepository personaRepository;
+    private final ParticipaRepository participaRepository;
+    private final QrFirmador qrFirmador;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     @Transactional(readOnly = true)
@@ -106,6 +106,8 @@ public class QrServiceImpl implements IQrService {
         UsuarioControl usuarioControl = usuarioControlRepository.findById(dto.getIdUsuarioControl())
                 .orElseThrow(() -> new RuntimeException("UsuarioControl no encontrado con ID: " + dto.getIdUsuarioControl()));
 
+        // la imagen dibujada con el codigo anterior deja de ser valida (codigo o estado nuevos)
+        eventPublisher.publishEvent(new QrCambiadoEvent(existente.getCodigoQr()));
         existente.setCodigoQr(dto.getCodigoQr());
         existente.setFechaGeneracion(dto.getFechaGeneracion());
         existente.setFechaExpiracion(dto.getFechaExpiracion());
@@ -125,6 +127,7 @@ public class QrServiceImpl implements IQrService {
         Qr existente = qrRepository.findByIdQrAndEstadoTrue(id)
                 .orElseThrow(() -> new RuntimeException("QR no encontrado con ID: " + id));
         existente.setEstado(Boolean.FALSE);
+        eventPublisher.publishEvent(new QrCambiadoEvent(existente.getCodigoQr()));
         return convertToDTO(qrRepository.save(existente));
     }
 
@@ -145,9 +148,11 @@ public class QrServiceImpl implements IQrService {
         Qr existente = qrRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("QR no encontrado con ID: " + id));
         qrRepository.delete(existente);
+        eventPublisher.publishEvent(new QrCambiadoEvent(existente.getCodigoQr()));
     }
 
     @Override
+    @Timed(value = "qr.generar", histogram = true)
     public QrDTO generarQrParaReserva(Long idReserva, Long idPersona) {
         // 1️⃣ Buscar la reserva
         Reserva reserva = reservaRepository.findById(idReserva)
@@ -165,137 +170,113 @@ public class QrServiceImpl implements IQrService {
                 throw new IllegalArgumentException("Solo los clientes o invitados pueden tener un QR.");
         }
 
-        // 4️⃣ Obtener el nombre completo
-        String nombrePersona = persona.getNombre() + " " + persona.getApellidoPaterno() + " " + persona.getApellidoMaterno();
-
-        // 5️⃣ Obtener datos de la reserva
-        String nombreCliente = reserva.getCliente() != null 
-                ? reserva.getCliente().getNombre() + " " + reserva.getCliente().getApellidoPaterno() + " " + reserva.getCliente().getApellidoMaterno() 
-                : "";
-
-        String nombreCancha = reserva.getCancha() != null ? reserva.getCancha().getNombre() : "";
-
-        Double montoTotal = 0.0;
-        if (reserva.getIncluidos() != null && !reserva.getIncluidos().isEmpty() && reserva.getIncluidos().get(0) != null) {
-                try {
-                montoTotal = reserva.getIncluidos().get(0).getMontoTotal() != null 
-                        ? reserva.getIncluidos().get(0).getMontoTotal() 
-                        : 0.0;
-                } catch (Exception ignored) {
-                montoTotal = 0.0;
+        // Si ya existe un QR para esta reserva y persona, no generar uno nuevo
+        if (qrRepository.existsByReserva_IdReservaAndPersona_Id(idReserva, idPersona)) {
+                // Devolver el primer QR existente como DTO
+                List<Qr> existing = qrRepository.findByReserva_IdReserva(idReserva).stream()
+                                .filter(q -> q.getPersona() != null && q.getPersona().getId().equals(idPersona))
+                                .toList();
+                if (!existing.isEmpty()) {
+                        return convertToDTO(existing.get(0));
                 }
         }
+        log.info("QRService: generarQrParaReserva idReserva={} idPersona={}", idReserva, idPersona);
 
-                // Generar contenido del QR como JSON
-                Map<String, Object> payload = new LinkedHashMap<>();
-                payload.put("nombreReservador", nombreCliente);
-                payload.put("nombreParticipante", nombrePersona);
-                payload.put("nombreCancha", nombreCancha);
-                payload.put("idReserva", reserva.getIdReserva());
-                payload.put("horaInicio", reserva.getHoraInicio());
-                //aqui podemos poner mas cosas como ubicacion pero hayq ue relacioanr
-                payload.put("horaFin", reserva.getHoraFin());
-
-                if (reserva.getCancha() != null) {
-                        try {
-                                payload.put("canchaId", reserva.getCancha().getIdCancha());
-                        } catch (Exception ignored) {
-                                payload.put("canchaId", null);
-                        }
-                } else {
-                        payload.put("canchaId", null);
-                }
+        // La imagen no se escribe en disco: se dibuja al pedirla (/api/qr/imagen/{codigo}) a partir del contenido guardado
+        String codigo = "qr_" + idReserva + "_" + idPersona + "_" + UUID.randomUUID().toString().substring(0, 8);
+        String nombrePersona = persona.getNombre() + " " + persona.getApellidoPaterno() + " " + persona.getApellidoMaterno();
+        LocalDateTime fechaExpiracion = LocalDateTime.now().plusDays(7); // 7 días de expiración
+
+        // 8️⃣ Crear entidad QR
+        Qr qr = Qr.builder()
+                .codigoQr(codigo)
+                .urlQr("/api/qr/imagen/" + codigo) // Ruta para acceder
+                .contenido(construirContenido(codigo, reserva, persona, esCliente, fechaExpiracion))
+                .fechaGeneracion(LocalDateTime.now())
+                .fechaExpiracion(fechaExpiracion)
+                .estado(true)
+                .descripcion("QR para ingreso - Reserva #" + idReserva + " - Persona: " + nombrePersona)
+                .reserva(reserva)
+                .persona(persona) // ✅ Ahora sí está definida
+                .esCliente(esCliente) // ✅ Asignar si es cliente o no
+                .usuarioControl(reserva.getCliente()) // Quién generó (el cliente que hizo la reserva)
+                .build();
 
-                payload.put("fechaReserva", reserva.getFechaReserva() != null ? reserva.getFechaReserva().toString() : "");
-                payload.put("montoTotal", montoTotal);
-
-
-                ObjectMapper mapper = new ObjectMapper();
-                String contenido;
-                try {
-                        contenido = mapper.writeValueAsString(payload);
-                } catch (JsonProcessingException e) {
-                        // Si falla 
-                        log.warn("QRService: no se pudo serializar payload a JSON para reserva {} persona {}: {}", idReserva, idPersona, e.getMessage());
-                        contenido = String.format(
-                                "{\"reservaId\":%d, \"nombreReservador\":\"%s\", \"nombreParticipante\":\"%s\", " +
-                                "\"nombreCancha\":\"%s\", \"horaInicio\":\"%s\", \"horaFin\":\"%s\", " +
-                                "\"fechaReserva\":\"%s\", \"montoTotal\":%.2f}",
-                                reserva.getIdReserva(),
-                                nombreCliente != null ? nombreCliente : "",
-                                nombrePersona != null ? nombrePersona : "",
-                                nombreCancha != null ? nombreCancha : "",
-                                reserva.getHoraInicio() != null ? reserva.getHoraInicio().toString() : "",
-                                reserva.getHoraFin() != null ? reserva.getHoraFin().toString() : "",
-                                reserva.getFechaReserva() != null ? reserva.getFechaReserva().toString() : "",
-                                montoTotal
-                        );
-                }
+        qrRepository.save(qr);
+        log.info("QRService: registro QR guardado id={} codigo={} personaId={}", qr.getIdQr(), qr.getCodigoQr(), persona.getId());
 
-                try {
-                        // Si ya existe un QR para esta reserva y persona, no generar uno nuevo
-                        if (qrRepository.existsByReserva_IdReservaAndPersona_Id(idReserva, idPersona)) {
-                                // Devolver el primer QR existente como DTO
-                                List<Qr> existing = qrRepository.findByReserva_IdReserva(idReserva).stream()
-                                                .filter(q -> q.getPersona() != null && q.getPersona().getId().equals(idPersona))
-                                                .toList();
-                                if (!existing.isEmpty()) {
-                                        return convertToDTO(existing.get(0));
-                                }
-                        }
-                        log.info("QRService: generarQrParaReserva idReserva={} idPersona={}", idReserva, idPersona);
-                        // 7️⃣ Generar imagen QR con ZXing
-                QRCodeWriter qrCodeWriter = new QRCodeWriter();
-                var bitMatrix = qrCodeWriter.encode(contenido, BarcodeFormat.QR_CODE, 300, 300);
-
-                Path folder = Path.of("uploads", "img", "qr"); // Carpeta relativa
-                if (!Files.exists(folder)) Files.createDirectories(folder);
-
-                String nombreArchivo = "qr_" + idReserva + "_" + idPersona + "_" + UUID.randomUUID().toString().substring(0, 8) + ".png";
-                Path rutaArchivo = folder.resolve(nombreArchivo);
-                MatrixToImageWriter.writeToPath(bitMatrix, "PNG", rutaArchivo);
-                log.info("QRService: imagen escrita en {}", rutaArchivo.toAbsolutePath());
-
-                // 8️⃣ Crear entidad QR
-                Qr qr = Qr.builder()
-                        .codigoQr(nombreArchivo)
-                        .urlQr("/uploads/img/qr/" + nombreArchivo) // Ruta para acceder
-                        .fechaGeneracion(LocalDateTime.now())
-                        .fechaExpiracion(LocalDateTime.now().plusDays(7)) // 7 días de expiración
-                        .estado(true)
-                        .descripcion("QR para ingreso - Reserva #" + idReserva + " - Persona: " + nombrePersona)
-                        .reserva(reserva)
-                        .persona(persona) // ✅ Ahora sí está definida
-                        .esCliente(esCliente) // ✅ Asignar si es cliente o no
-                        .usuarioControl(reserva.getCliente()) // Quién generó (el cliente que hizo la reserva)
-                        .build();
-
-                qrRepository.save(qr);
-                log.info("QRService: registro QR guardado id={} codigo={} personaId={}", qr.getIdQr(), qr.getCodigoQr(), persona.getId());
-
-                // 9️⃣ Devolver DTO
-                return QrDTO.builder()
-                        .idQr(qr.getIdQr())
-                        .codigoQr(qr.getCodigoQr())
-                        .urlQr(qr.getUrlQr())
-                        .fechaGeneracion(qr.getFechaGeneracion())
-                        .fechaExpiracion(qr.getFechaExpiracion())
-                        .estado(qr.getEstado())
-                        .descripcion(qr.getDescripcion())
-                        .idReserva(reserva.getIdReserva())
-                        .idPersona(persona.getId())
-                        .esCliente(esCliente) // Valor booleano
-                        .idUsuarioControl(qr.getUsuarioControl() != null ? qr.getUsuarioControl().getId() : null)
-                        .build();
-
-        } catch (WriterException | java.io.IOException e) {
-                // Loguear el error pero no propagar una RuntimeException que pueda marcar la transacción para rollback
-                log.error("QRService: error al generar QR para reserva {} persona {}: {}", idReserva, idPersona, e.getMessage(), e);
-                return null;
-        }
+        // 9️⃣ Devolver DTO
+        return QrDTO.builder()
+                .idQr(qr.getIdQr())
+                .codigoQr(qr.getCodigoQr())
+                .urlQr(qr.getUrlQr())
+                .fechaGeneracion(qr.getFechaGeneracion())
+                .fechaExpiracion(qr.getFechaExpiracion())
+                .estado(qr.getEstado())
+                .descripcion(qr.getDescripcion())
+                .idReserva(reserva.getIdReserva())
+                .idPersona(persona.getId())
+                .esCliente(esCliente) // Valor booleano
+                .idUsuarioControl(qr.getUsuarioControl() != null ? qr.getUsuarioControl().getId() : null)
+                .build();
+    }
+
+    // Contenido (JSON) que se codifica en la imagen del QR
+    @Override
+    @Transactional(readOnly = true)
+    public String obtenerContenidoQr(String codigoQr) {
+        Qr qr = qrRepository.findByCodigoQrAndEstadoTrue(codigoQr)
+                .orElseThrow(() -> new EntityNotFoundException("QR no encontrado con código: " + codigoQr));
+        // los QR anteriores a la firma (sin contenido o con el JSON plano) se reconstruyen firmados desde la reserva
+        return qr.getContenido() != null && !qr.getContenido().startsWith("{") ? qr.getContenido()
+                : construirContenido(qr.getCodigoQr(), qr.getReserva(), qr.getPersona(),
+                        Boolean.TRUE.equals(qr.getEsCliente()), qr.getFechaExpiracion());
+    }
+
+    // Contenido firmado (ver QrFirmador): el ingreso lo verifica sin consultar la BD
+    private String construirContenido(String codigoQr, Reserva reserva, Persona persona, boolean esCliente,
+                                      LocalDateTime fechaExpiracion) {
+        return qrFirmador.firmar(new QrFirmador.QrFirmado(
+                codigoQr,
+                reserva.getIdReserva(),
+                persona.getId(),
+                esCliente,
+                reserva.getCancha() != null ? reserva.getCancha().getIdCancha() : null,
+                reserva.getFechaReserva(),
+                reserva.getHoraInicio(),
+                reserva.getHoraFin(),
+                fechaExpiracion.atZone(ZoneId.systemDefault()).toEpochSecond()));
     }
 
-    
+    @Override
+    @Timed(value = "qr.generar_reserva", histogram = true)
+    public int generarQrsPendientes(Long idReserva) {
+        // con la reserva bloqueada: el evento de pago y un /regenerar concurrente no ven los dos "sin QR"
+        // (el segundo espera y, al seguir, ya lee los QRs que confirmo el primero)
+        Reserva reserva = reservaRepository.findByIdParaActualizar(idReserva)
+                .orElseThrow(() -> new RuntimeException("Reserva no encontrada con ID: " + idReserva));
+
+        // Invitados confirmados; si no hay ninguno, el QR es para el cliente
+        List<Long> destinatarios = participaRepository.findInvitadosConfirmadosPorReserva(idReserva).stream()
+                .map(p -> p.getInvitado().getId())
+                .collect(Collectors.toList());
+        if (destinatarios.isEmpty()) {
+            destinatarios.add(reserva.getCliente().getId());
+        }
+
+        Set<Long> personasConQr = qrRepository.findByReserva_IdReserva(idReserva).stream()
+                .filter(q -> q.getPersona() != null)
+                .map(q -> q.getPersona().getId())
+                .collect(Collectors.toSet());
+
+        int generados = 0;
+        for (Long idPersona : destinatarios) {
+            if (personasConQr.contains(idPersona)) continue; // evitar duplicados
+            generarQrParaReserva(idReserva, idPersona);
+            generados++;
+        }
+        return generados;
+    }
 
     //k pa front
     @Override
@@ -0,0 +1,5 @@
+package com.espaciosdeportivos.service.impl;
+
+// Se publica cuando una reserva queda pagada por completo; los QR se generan tras el commit
+record ReservaPagadaEvent(Long idReserva) {
+}
@@ -1,16 +1,22 @@
 package com.espaciosdeportivos.service.impl;
 
+import com.espaciosdeportivos.config.ReservaSolapamientoInitializer;
 import com.espaciosdeportivos.dto.AreaDeportivaDTO;
 import com.espaciosdeportivos.dto.CancelacionDTO;
+import com.espaciosdeportivos.dto.CalendarioDisponibilidadDTO;
 import com.espaciosdeportivos.dto.CanchaDTO;
 import com.espaciosdeportivos.dto.ClienteDTO;
 import com.espaciosdeportivos.dto.DisciplinaDTO;
 import com.espaciosdeportivos.dto.EquipamientoDTO;
 import com.espaciosdeportivos.dto.ImagenDTO;
 import com.espaciosdeportivos.dto.PagoDTO;
+import com.espaciosdeportivos.dto.PaginaDTO;
 import com.espaciosdeportivos.dto.QrDTO;
 import com.espaciosdeportivos.dto.ReprogramacionDTO;
+import com.espaciosdeportivos.dto.ReservaCursor;
 import com.espaciosdeportivos.dto.ReservaDTO;
+import com.espaciosdeportivos.dto.ReservaSerieDTO;
+import com.espaciosdeportivos.exception.ReservaSolapadaException;
 import com.espaciosdeportivos.model.AreaDeportiva;
 import com.espaciosdeportivos.model.Cancelacion;
 import com.espaciosdeportivos.model.Cancha;
@@ -18,11 +24,12 @@ import com.espaciosdeportivos.model.Cliente;
 import com.espaciosdeportivos.model.Disciplina;
 import com.espaciosdeportivos.model.Dispone;
 import com.espaciosdeportivos.model.Incluye;
+import com.espaciosdeportivos.model.IncluyeId;
 import com.espaciosdeportivos.model.Pago;
-import com.espaciosdeportivos.model.Participa;
 import com.espaciosdeportivos.model.Qr;
 import com.espaciosdeportivos.model.Reserva;
 import com.espaciosdeportivos.model.Sepractica;
+import com.espaciosdeportivos.repository.ReservaBatchRepository;
 import com.espaciosdeportivos.repository.ReservaRepository;
 import com.espaciosdeportivos.repository.IncluyeRepository;
 import com.espaciosdeportivos.repository.sepracticaRepository;
@@ -39,21 +46,37 @@ import com.espaciosdeportivos.validation.ReservaValidator;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.List;
+import java.util.Map;
+import java.util.HashMap;
+import java.util.TreeMap;
 import java.util.UUID;
 import java.util.stream.Collectors;
 import java.time.Duration;
 import java.util.Optional;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.Comparator;
+import java.util.function.BiFunction;
+
+import static com.espaciosdeportivos.util.Transacciones.despuesDelCommit;
 
 @Service
 @RequiredArgsConstructor
@@ -68,21 +91,34 @@ public class ReservaServiceImpl implements IReservaService {
     private final AreaDeportivaRepository areaDeportivaRepository;
     private final PagoRepository pagoRepository;
     private final QrRepository qrRepository;
-    private final com.espaciosdeportivos.service.IQrService qrService;
-    private final com.espaciosdeportivos.repository.ParticipaRepository participaRepository;
     private final ReservaValidator reservaValidator;
     private final CancelacionRepository cancelacionRepository;
     private final IncluyeRepository incluyeRepository;
+    private final DisponibilidadCanchaIndex disponibilidadIndex;
+    private final ReservaBatchRepository reservaBatchRepository;
+    private final ReservaSolapamientoInitializer solapamiento;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
+
+    // ids por consulta IN al mapear listas de reservas
+    private static final int TAMANO_LOTE_MAPEO = 1000;
+
+    // límites de tamaño de página para los listados paginados
+    private static final int TAMANO_PAGINA_DEFECTO = 50;
+    private static final int TAMANO_PAGINA_MAXIMO = 200;
+
+    // rango máximo del calendario de disponibilidad
+    private static final int MAX_DIAS_CALENDARIO = 62;
+
+    // ocurrencias máximas de una serie de reservas
+    private static final int MAX_OCURRENCIAS_SERIE = 200;
+    // una serie cubre como mucho una temporada (un año); se valida antes de generar fechas
+    private static final int MAX_DIAS_SERIE = 366;
+
+    @Value("${app.reservas.minutos-bloque:30}")
+    private int minutosBloque;
 
     //  CRUD SIMPLE
-    //listar todas las reservas
-    @Override
-    @Transactional(readOnly = true)
-    public List<ReservaDTO> listarTodas() {
-        return reservaRepository.findAll().stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
-    }
         //obtener por id
     @Override
     @Transactional(readOnly = true)
@@ -95,12 +131,25 @@ public class ReservaServiceImpl implements IReservaService {
         //crear reservas
     @Override
     @Transactional
+    @Timed(value = "reservas.crear", histogram = true)
     public ReservaDTO crear(ReservaDTO dto) {
         reservaValidator.validarReserva(dto);
         validarFechaReserva(dto.getFechaReserva());
 
-        if (!validarDisponibilidad(dto.getFechaReserva(), dto.getHoraInicio(), dto.getHoraFin())) {
-            throw new IllegalArgumentException("No hay disponibilidad para el horario seleccionado");
+        Long idCancha = dto.getCancha() != null ? dto.getCancha().getIdCancha() : null;
+        Long idDisciplina = dto.getDisciplina() != null ? dto.getDisciplina().getIdDisciplina() : null;
+        if ((idCancha == null) != (idDisciplina == null)) {
+            throw new IllegalArgumentException("Debe indicar la cancha y la disciplina juntas");
+        }
+
+        // Con la restriccion EXCLUDE el solapamiento lo controla la BD al insertar el incluye; sin ella, consulta previa
+        if (!solapamiento.restriccionActiva()) {
+            boolean libre = idCancha != null
+                    ? validarDisponibilidad(idCancha, dto.getFechaReserva(), dto.getHoraInicio(), dto.getHoraFin())
+                    : validarDisponibilidad(dto.getFechaReserva(), dto.getHoraInicio(), dto.getHoraFin());
+            if (!libre) {
+                throw new ReservaSolapadaException("No hay disponibilidad para el horario seleccionado");
+            }
         }
 
         Reserva reserva = convertToEntity(dto);
@@ -109,7 +158,149 @@ public class ReservaServiceImpl implements IReservaService {
             reserva.setEstadoReserva(Reserva.EstadoReserva.PENDIENTE.name());
         }
 
-        return convertToDTO(reservaRepository.save(reserva));
+        Reserva guardada = reservaRepository.save(reserva);
+        // reserva e incluye en la misma transaccion: si la cancha esta ocupada no queda una reserva sin cancha
+        if (idCancha != null) {
+            incluirCancha(guardada, idCancha, idDisciplina);
+        }
+
+        // solo reservas confirmadas en la BD: un rollback (p. ej. solapamiento) no cuenta
+        despuesDelCommit(() -> meterRegistry.counter("reservas.creadas", "tipo", "individual").increment());
+        return convertToDTO(guardada);
+    }
+
+    private void incluirCancha(Reserva reserva, Long idCancha, Long idDisciplina) {
+        Cancha cancha = canchaRepository.findById(idCancha)
+                .orElseThrow(() -> new EntityNotFoundException("Cancha no encontrada con ID: " + idCancha));
+        Disciplina disciplina = disciplinaRepository.findById(idDisciplina)
+                .orElseThrow(() -> new EntityNotFoundException("Disciplina no encontrada con ID: " + idDisciplina));
+        double horas = Duration.between(reserva.getHoraInicio(), reserva.getHoraFin()).toMinutes() / 60.0;
+        Incluye incluye = Incluye.builder()
+                .id(new IncluyeId(idCancha, reserva.getIdReserva(), idDisciplina))
+                .reserva(reserva)
+                .cancha(cancha)
+                .disciplina(disciplina)
+                .montoTotal(cancha.getCostoHora() != null ? cancha.getCostoHora() * horas : 0.0)
+                .build();
+        try {
+            incluyeRepository.saveAndFlush(incluye);
+        } catch (DataIntegrityViolationException e) {
+            if (ReservaSolapadaException.esSolapamiento(e)) {
+                throw new ReservaSolapadaException("La cancha ya tiene una reserva en ese horario", e);
+            }
+            throw e;
+        }
+        if (reserva.ocupaCancha()) {
+            disponibilidadIndex.registrar(idCancha, reserva.getIdReserva(),
+                    reserva.getFechaReserva(), reserva.getHoraInicio(), reserva.getHoraFin());
+        }
+    }
+
+    // crear serie de reservas: un chequeo de conflictos para todas las fechas y las inserciones por lotes JDBC
+    @Override
+    @Transactional
+    @Timed(value = "reservas.crear_serie", histogram = true)
+    public ReservaSerieDTO.Resultado crearSerie(ReservaSerieDTO.Solicitud solicitud) {
+        if (solicitud.getFechaFin().isBefore(solicitud.getFechaInicio())) {
+            throw new IllegalArgumentException("La fecha fin no puede ser anterior a la fecha inicio");
+        }
+        if (solicitud.getFechaInicio().plusDays(MAX_DIAS_SERIE).isBefore(solicitud.getFechaFin())) {
+            throw new IllegalArgumentException("Una serie no puede abarcar más de " + MAX_DIAS_SERIE + " días");
+        }
+        if (!clienteRepository.existsById(solicitud.getClienteId())) {
+            throw new EntityNotFoundException("Cliente no encontrado con ID: " + solicitud.getClienteId());
+        }
+        if (!disciplinaRepository.existsById(solicitud.getIdDisciplina())) {
+            throw new EntityNotFoundException("Disciplina no encontrada con ID: " + solicitud.getIdDisciplina());
+        }
+        Cancha cancha = canchaRepository.findById(solicitud.getIdCancha())
+                .orElseThrow(() -> new EntityNotFoundException("Cancha no encontrada con ID: " + solicitud.getIdCancha()));
+
+        List<ReservaSerieDTO.Ocurrencia> rechazadas = new ArrayList<>();
+        List<LocalDate> candidatas = new ArrayList<>();
+        for (LocalDate fecha : generarFechasSerie(solicitud)) {
+            ReservaDTO ocurrencia = ReservaDTO.builder()
+                    .fechaReserva(fecha)
+                    .horaInicio(solicitud.getHoraInicio())
+                    .horaFin(solicitud.getHoraFin())
+                    .clienteId(solicitud.getClienteId())
+                    .build();
+            try {
+                reservaValidator.validarReserva(ocurrencia);
+                candidatas.add(fecha);
+            } catch (ReservaValidator.BusinessException e) {
+                rechazadas.add(ReservaSerieDTO.Ocurrencia.builder().fecha(fecha).motivo(e.getMessage()).build());
+            }
+        }
+
+        Set<LocalDate> ocupadas = candidatas.isEmpty() ? Set.of() : new HashSet<>(
+                reservaRepository.findFechasOcupadasEnCancha(cancha.getIdCancha(), candidatas,
+                        solicitud.getHoraInicio(), solicitud.getHoraFin()));
+        List<LocalDate> libres = new ArrayList<>();
+        for (LocalDate fecha : candidatas) {
+            if (ocupadas.contains(fecha)) {
+                rechazadas.add(ReservaSerieDTO.Ocurrencia.builder()
+                        .fecha(fecha).motivo("La cancha ya tiene una reserva en ese horario").build());
+            } else {
+                libres.add(fecha);
+            }
+        }
+
+        List<ReservaSerieDTO.Ocurrencia> aceptadas = new ArrayList<>();
+        if (!libres.isEmpty()) {
+            Map<LocalDate, Long> ids = reservaBatchRepository.insertarReservas(libres,
+                    solicitud.getHoraInicio(), solicitud.getHoraFin(), Reserva.EstadoReserva.PENDIENTE.name(),
+                    solicitud.getObservaciones(), solicitud.getClienteId());
+
+            double horas = Duration.between(solicitud.getHoraInicio(), solicitud.getHoraFin()).toMinutes() / 60.0;
+            // si otra reserva entra en paralelo, la restricción EXCLUDE rechaza el lote y se revierte toda la serie
+            try {
+                reservaBatchRepository.insertarIncluyes(ids.values(), cancha.getIdCancha(),
+                        solicitud.getIdDisciplina(), cancha.getCostoHora() != null ? cancha.getCostoHora() * horas : 0.0);
+            } catch (DataIntegrityViolationException e) {
+                if (ReservaSolapadaException.esSolapamiento(e)) {
+                    throw new ReservaSolapadaException("Otra reserva ocupó la cancha mientras se creaba la serie", e);
+                }
+                throw e;
+            }
+
+            for (LocalDate fecha : libres) {
+                Long idReserva = ids.get(fecha);
+                disponibilidadIndex.registrar(cancha.getIdCancha(), idReserva, fecha,
+                        solicitud.getHoraInicio(), solicitud.getHoraFin());
+                aceptadas.add(ReservaSerieDTO.Ocurrencia.builder().fecha(fecha).idReserva(idReserva).build());
+            }
+        }
+
+        rechazadas.sort(Comparator.comparing(ReservaSerieDTO.Ocurrencia::getFecha));
+        int creadas = aceptadas.size();
+        despuesDelCommit(() -> meterRegistry.counter("reservas.creadas", "tipo", "serie").increment(creadas));
+        log.info("Serie de reservas en cancha {}: {} aceptadas, {} rechazadas",
+                cancha.getIdCancha(), aceptadas.size(), rechazadas.size());
+        return ReservaSerieDTO.Resultado.builder().aceptadas(aceptadas).rechazadas(rechazadas).build();
+    }
+
+    // Fechas de la serie: los días indicados, cada intervaloSemanas semanas, desde fechaInicio hasta fechaFin.
+    // Se avanza de a intervalo semanas (el rango ya viene acotado por crearSerie)
+    private List<LocalDate> generarFechasSerie(ReservaSerieDTO.Solicitud solicitud) {
+        int intervalo = solicitud.getIntervaloSemanas() != null ? solicitud.getIntervaloSemanas() : 1;
+        Set<DayOfWeek> dias = EnumSet.copyOf(solicitud.getDiasSemana());
+        LocalDate inicio = solicitud.getFechaInicio();
+        LocalDate fin = solicitud.getFechaFin();
+
+        List<LocalDate> fechas = new ArrayList<>();
+        for (LocalDate lunes = inicio.with(DayOfWeek.MONDAY); !lunes.isAfter(fin); lunes = lunes.plusWeeks(intervalo)) {
+            for (DayOfWeek dia : dias) {
+                LocalDate fecha = lunes.with(dia);
+                if (!fecha.isBefore(inicio) && !fecha.isAfter(fin)) {
+                    fechas.add(fecha);
+                }
+            }
+            if (fechas.size() > MAX_OCURRENCIAS_SERIE) {
+                throw new IllegalArgumentException("Una serie no puede tener más de " + MAX_OCURRENCIAS_SERIE + " reservas");
+            }
+        }
+        return fechas;
     }
 
     //actuaalizar reservas
@@ -126,14 +317,11 @@ public class ReservaServiceImpl implements IReservaService {
             throw new IllegalArgumentException("No se puede modificar una reserva completada o cancelada");
         }
 
-        if (!existente.getFechaReserva().equals(dto.getFechaReserva()) ||
-            !existente.getHoraInicio().equals(dto.getHoraInicio()) ||
-            !existente.getHoraFin().equals(dto.getHoraFin())) {
-            if (!validarDisponibilidad(dto.getFechaReserva(), dto.getHoraInicio(), dto.getHoraFin())) {
-                throw new IllegalArgumentException("No hay disponibilidad para el nuevo horario");
-            }
+        if (!solapamiento.restriccionActiva()) {
+            validarSinSolapamiento(id, dto);
         }
 
+        LocalDate fechaAnterior = existente.getFechaReserva();
         existente.setFechaReserva(dto.getFechaReserva());
         existente.setHoraInicio(dto.getHoraInicio());
         existente.setHoraFin(dto.getHoraFin());
@@ -143,7 +331,18 @@ public class ReservaServiceImpl implements IReservaService {
         existente.setCliente(clienteRepository.findById(dto.getClienteId())
                 .orElseThrow(() -> new EntityNotFoundException("Cliente no encontrado con ID: " + dto.getClienteId())));
 
-        return convertToDTO(reservaRepository.save(existente));
+        // El trigger de reserva mueve el rango de sus incluye; si choca con otra reserva de la cancha falla aqui
+        Reserva actualizada;
+        try {
+            actualizada = reservaRepository.saveAndFlush(existente);
+        } catch (DataIntegrityViolationException e) {
+            if (ReservaSolapadaException.esSolapamiento(e)) {
+                throw new ReservaSolapadaException("No hay disponibilidad para el nuevo horario", e);
+            }
+            throw e;
+        }
+        sincronizarDisponibilidad(actualizada, fechaAnterior);
+        return convertToDTO(actualizada);
     }
 
     //eliminar reserva
@@ -155,6 +354,8 @@ public class ReservaServiceImpl implements IReservaService {
         if (reserva.estaActiva()) {
             throw new IllegalArgumentException("No se puede eliminar una reserva activa");
         }
+        incluyeRepository.findByIdReserva(id).forEach(i ->
+                disponibilidadIndex.liberar(i.getId().getIdCancha(), id, reserva.getFechaReserva()));
         reservaRepository.deleteById(id);
     }
 
@@ -162,65 +363,110 @@ public class ReservaServiceImpl implements IReservaService {
 
 
     ///reservas/horario-disponible  aqui se sac los horarios disponibles //modifique
+    // Se responde desde el indice en memoria; solo la primera consulta del dia para la cancha va a la BD
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    @Timed(value = "reservas.horas_disponibles", histogram = true)
     public List<String> obtenerHorasDisponibles(Long idCancha, LocalDate fecha) {
-        Cancha cancha = canchaRepository.findById(idCancha)
-                .orElseThrow(() -> new EntityNotFoundException("Cancha no encontrada"));
-
-        AreaDeportiva area = cancha.getAreaDeportiva();
-        if (area == null) {
-            throw new EntityNotFoundException("Área deportiva no asociada a la cancha");
-        }
-
-        LocalTime apertura = area.getHoraInicioArea();
-        LocalTime cierre = area.getHoraFinArea();
-
-        // 1️⃣ Obtener reservas de esa cancha en esa fecha
-        List<Reserva> reservas = reservaRepository.findByCanchaAndFecha(idCancha, fecha);
+        return obtenerHorasDisponibles(idCancha, fecha, minutosBloque);
+    }
 
-        // Ordenar reservas por hora de inicio
-        reservas.sort(Comparator.comparing(Reserva::getHoraInicio));
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    @Timed(value = "reservas.horas_disponibles", histogram = true)
+    public List<String> obtenerHorasDisponibles(Long idCancha, LocalDate fecha, int minutosBloque) {
+        return disponibilidadIndex.bloquesLibres(idCancha, fecha, minutosBloque);
+    }
 
-        List<String> horariosDisponibles = new ArrayList<>();
-        LocalTime horaActual = apertura;
+    // Calendario de disponibilidad: una consulta para las canchas y otra para toda la ocupación del rango
+    @Override
+    @Transactional(readOnly = true)
+    public CalendarioDisponibilidadDTO obtenerCalendarioDisponible(Long idCancha, Long idArea, LocalDate inicio,
+                                                                   LocalDate fin, Integer minutosBloque) {
+        if ((idCancha == null) == (idArea == null)) {
+            throw new IllegalArgumentException("Debe indicar una cancha o un área deportiva");
+        }
+        if (fin.isBefore(inicio)) {
+            throw new IllegalArgumentException("La fecha fin no puede ser anterior a la fecha inicio");
+        }
+        if (inicio.plusDays(MAX_DIAS_CALENDARIO).isBefore(fin)) {
+            throw new IllegalArgumentException("El rango no puede superar " + MAX_DIAS_CALENDARIO + " días");
+        }
+        int minutos = minutosBloque != null ? minutosBloque : this.minutosBloque;
+        if (minutos <= 0) {
+            throw new IllegalArgumentException("La duración del bloque debe ser mayor a 0 minutos");
+        }
 
-        // 2️⃣ Recorrer reservas y detectar huecos entre ellas
-        for (Reserva reserva : reservas) {
-            LocalTime inicioReserva = reserva.getHoraInicio();
-            if (horaActual.isBefore(inicioReserva)) {
-                // Agregar rango disponible entre horaActual y la siguiente reserva
-                horariosDisponibles.add(formatearRango(horaActual, inicioReserva));
+        List<Cancha> canchas = idCancha != null
+                ? List.of(canchaRepository.findByIdConArea(idCancha)
+                        .orElseThrow(() -> new EntityNotFoundException("Cancha no encontrada")))
+                : canchaRepository.findActivasByAreaConArea(idArea);
+
+        // agenda vacía por (cancha, día) y luego se ocupa con todas las reservas del rango
+        Map<Long, Map<LocalDate, AgendaDiaCancha>> agendas = new HashMap<>();
+        for (Cancha cancha : canchas) {
+            Map<LocalDate, AgendaDiaCancha> dias = new TreeMap<>();
+            for (LocalDate dia = inicio; !dia.isAfter(fin); dia = dia.plusDays(1)) {
+                dias.put(dia, AgendaDiaCancha.paraCancha(cancha));
+            }
+            agendas.put(cancha.getIdCancha(), dias);
+        }
+        if (!canchas.isEmpty()) {
+            for (Incluye incluye : incluyeRepository.findOcupacionEnRango(agendas.keySet(), inicio, fin)) {
+                Reserva r = incluye.getReserva();
+                agendas.get(incluye.getId().getIdCancha()).get(r.getFechaReserva())
+                        .ocupar(r.getIdReserva(), r.getHoraInicio(), r.getHoraFin());
             }
-            // Actualizar horaActual al final de la reserva
-            horaActual = reserva.getHoraFin();
         }
 
-        // 3️⃣ Si después de la última reserva aún hay tiempo libre hasta el cierre
-        if (horaActual.isBefore(cierre)) {
-            horariosDisponibles.add(formatearRango(horaActual, cierre));
+        List<CalendarioDisponibilidadDTO.CanchaCalendario> resultado = new ArrayList<>(canchas.size());
+        for (Cancha cancha : canchas) {
+            List<CalendarioDisponibilidadDTO.DiaCalendario> dias = new ArrayList<>();
+            agendas.get(cancha.getIdCancha()).forEach((dia, agenda) -> {
+                List<String> bloques = agenda.bloquesLibres(minutos);
+                dias.add(CalendarioDisponibilidadDTO.DiaCalendario.builder()
+                        .fecha(dia)
+                        .bloquesLibres(bloques.size())
+                        .bloques(bloques)
+                        .build());
+            });
+            resultado.add(CalendarioDisponibilidadDTO.CanchaCalendario.builder()
+                    .idCancha(cancha.getIdCancha())
+                    .nombre(cancha.getNombre())
+                    .dias(dias)
+                    .build());
         }
 
-        return ajustarRangosCada30Minutos(horariosDisponibles);
+        return CalendarioDisponibilidadDTO.builder()
+                .inicio(inicio)
+                .fin(fin)
+                .minutosBloque(minutos)
+                .canchas(resultado)
+                .build();
     }
 
-    private List<String> ajustarRangosCada30Minutos(List<String> rangos) {
-        List<String> bloques30 = new ArrayList<>();
-
-        for (String rango : rangos) {
-            String[] partes = rango.split(" - ");
-            LocalTime inicio = LocalTime.parse(partes[0]);
-            LocalTime fin = LocalTime.parse(partes[1]);
-
-            while (inicio.plusMinutes(30).isBefore(fin) || inicio.plusMinutes(30).equals(fin)) {
-                bloques30.add(inicio + " - " + inicio.plusMinutes(30));
-                inicio = inicio.plusMinutes(30);
+    // Verificacion por consulta cuando falta la restriccion EXCLUDE: el nuevo horario contra las demas reservas de sus canchas
+    private void validarSinSolapamiento(Long idReserva, ReservaDTO dto) {
+        for (Incluye incluye : incluyeRepository.findByIdReserva(idReserva)) {
+            boolean ocupada = reservaRepository.findReservasSolapadasEnCancha(incluye.getId().getIdCancha(),
+                            dto.getFechaReserva(), dto.getHoraInicio(), dto.getHoraFin()).stream()
+                    .anyMatch(r -> !r.getIdReserva().equals(idReserva));
+            if (ocupada) {
+                throw new ReservaSolapadaException("No hay disponibilidad para el nuevo horario");
             }
         }
-        return bloques30;
     }
 
-    
-    private String formatearRango(LocalTime inicio, LocalTime fin) {
-        return inicio + " - " + fin;
+    // Mantiene el indice de disponibilidad al dia con el horario/estado actual de la reserva
+    private void sincronizarDisponibilidad(Reserva reserva, LocalDate fechaAnterior) {
+        for (Incluye incluye : incluyeRepository.findByIdReserva(reserva.getIdReserva())) {
+            Long idCancha = incluye.getId().getIdCancha();
+            disponibilidadIndex.liberar(idCancha, reserva.getIdReserva(), fechaAnterior);
+            if (reserva.ocupaCancha()) {
+                disponibilidadIndex.registrar(idCancha, reserva.getIdReserva(),
+                        reserva.getFechaReserva(), reserva.getHoraInicio(), reserva.getHoraFin());
+            }
+        }
     }
 
     //aqui empieza lo de actualizar
@@ -253,118 +499,106 @@ public class ReservaServiceImpl implements IReservaService {
         // Guardar cambios en la reserva
         reserva = reservaRepository.save(reserva);
 
-        // Si la reserva queda pagada en su totalidad, generar QRs para los invitados confirmados
+        // Si la reserva queda pagada en su totalidad, confirmarla; los QRs se generan en segundo plano tras el commit
         if (Boolean.TRUE.equals(reserva.getPagadaCompleta())) {
-            try {
-                confirmarReserva(idReserva); //aqui confirmo reserva
-                // Delegar la generación de QRs al servicio de QRs para mantener la lógica centralizada
-                log.info("Reserva {} pagada completamente -> generando QRs...", reserva.getIdReserva());
-                generarQrParaReserva(reserva );
-                log.info("Generación de QRs disparada para reserva {}", reserva.getIdReserva());
-            } catch (Exception e) {
-                log.warn("Error generando QR(s) para reserva {}: {}", reserva.getIdReserva(), e.toString());
-            }
+            confirmarReserva(idReserva); //aqui confirmo reserva
+            eventPublisher.publishEvent(new ReservaPagadaEvent(reserva.getIdReserva()));
+            log.info("Reserva {} pagada completamente -> generación de QRs encolada", reserva.getIdReserva());
         }
 
         return convertToDTO(reserva);
     }
 
-    // Genera QR(s) PNG y guarda registros en la tabla 'qr'.
-    private void generarQrParaReserva(Reserva reserva) throws Exception {
-        Long idReserva = reserva.getIdReserva();
-
-        // Obtener invitados confirmados; si no hay ninguno, usaremos al cliente como destinatario del QR
-        List<Participa> invitados = participaRepository.findInvitadosConfirmadosPorReserva(idReserva);
-
-        // Buscar QRs existentes para esta reserva y recoger los ids de persona
-        List<Qr> existentes = qrRepository.findByReserva_IdReserva(idReserva);
-        java.util.Set<Long> personasConQr = new java.util.HashSet<>();
-        for (Qr q : existentes) {
-            if (q.getPersona() != null) personasConQr.add(q.getPersona().getId());
-        }
-
-        if (invitados == null || invitados.isEmpty()) {
-                if (!personasConQr.contains(reserva.getCliente().getId())) {
-                    // usar el servicio de QRs para generar y persistir el QR 
-                    qrService.generarQrParaReserva(reserva.getIdReserva(), reserva.getCliente().getId());
-                }
-            return;
-        }
-
-        // Generar QR para cada invitado confirmado que no tenga QR
-        for (Participa p : invitados) {
-            Long idInv = p.getInvitado().getId();
-            if (personasConQr.contains(idInv)) continue; // evitar duplicados
-                qrService.generarQrParaReserva(reserva.getIdReserva(), idInv);
-        }
-    }
-
     // ======================
     // BÚSQUEDAS
     // ======================
 
     @Override
     @Transactional(readOnly = true)
-    public List<ReservaDTO> buscarPorCliente(Long idCliente) {
-        return reservaRepository.findByClienteId(idCliente).stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    public List<ReservaDTO> buscarReservasActivasDelCliente(Long clienteId) {
+        return convertToDTOs(reservaRepository.findReservasActivasDelCliente(clienteId));
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<ReservaDTO> buscarPorEstado(String estado) {
-        return reservaRepository.findByEstadoReserva(estado).stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    public List<ReservaDTO> obtenerReservasDelDia(LocalDate fecha) {
+        return convertToDTOs(reservaRepository.findReservasConfirmadasDelDia(fecha));
     }
 
+    //Reservas  para el cliente todas sus reservas
     @Override
     @Transactional(readOnly = true)
-    public List<ReservaDTO> buscarPorRangoFechas(LocalDate inicio, LocalDate fin) {
-        return reservaRepository.findByFechaReservaBetween(inicio, fin).stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    public List<ReservaDTO> buscarTodasLasReservasDelCliente(Long clienteId) {
+
+        List<Reserva> reservas = reservaRepository.findByClienteId(clienteId);
+
+        return convertToDTOs(reservas);
     }
 
+
+    // ======================
+    // BÚSQUEDAS PAGINADAS (cursor)
+    // ======================
+
     @Override
     @Transactional(readOnly = true)
-    public List<ReservaDTO> buscarReservasActivasDelCliente(Long clienteId) {
-        return reservaRepository.findReservasActivasDelCliente(clienteId).stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    public PaginaDTO<ReservaDTO> listarTodas(String cursor, Integer limite) {
+        return paginar(cursor, limite, (c, p) ->
+                reservaRepository.findPagina(c.fecha(), c.hora(), c.id(), p));
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<ReservaDTO> obtenerReservasDelDia(LocalDate fecha) {
-        return reservaRepository.findReservasConfirmadasDelDia(fecha).stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    public PaginaDTO<ReservaDTO> buscarPorCliente(Long idCliente, String cursor, Integer limite) {
+        return paginar(cursor, limite, (c, p) ->
+                reservaRepository.findPaginaByClienteId(idCliente, c.fecha(), c.hora(), c.id(), p));
     }
 
-    // Reservas por administrador en rango de fechas
-    // para que el administrador vea las reservas de sus canchas en un rango de fechas K
     @Override
     @Transactional(readOnly = true)
-    public List<ReservaDTO> buscarPorAdministradorEnRango(Long idAdministrador, LocalDate inicio, LocalDate fin) {
-        List<Reserva> reservas = reservaRepository.findByAdministradorIdAndRangoFechas(idAdministrador, inicio, fin);
-        return reservas.stream()
-                .map(this::convertToDTO) // 
-                .collect(Collectors.toList());
+    public PaginaDTO<ReservaDTO> buscarPorEstado(String estado, String cursor, Integer limite) {
+        return paginar(cursor, limite, (c, p) ->
+                reservaRepository.findPaginaByEstadoReserva(estado, c.fecha(), c.hora(), c.id(), p));
     }
-    //Reservas  para el cliente todas sus reservas
+
     @Override
     @Transactional(readOnly = true)
-    public List<ReservaDTO> buscarTodasLasReservasDelCliente(Long clienteId) {
-
-        List<Reserva> reservas = reservaRepository.findByClienteId(clienteId);
+    public PaginaDTO<ReservaDTO> buscarPorRangoFechas(LocalDate inicio, LocalDate fin, String cursor, Integer limite) {
+        return paginar(cursor, limite, (c, p) ->
+                reservaRepository.findPaginaByFechaReservaBetween(inicio, fin, c.fecha(), c.hora(), c.id(), p));
+    }
 
-        return reservas.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    @Override
+    @Transactional(readOnly = true)
+    public PaginaDTO<ReservaDTO> buscarPorAdministradorEnRango(Long idAdministrador, LocalDate inicio, LocalDate fin,
+                                                               String cursor, Integer limite) {
+        return paginar(cursor, limite, (c, p) ->
+                reservaRepository.findPaginaByAdministradorIdAndRangoFechas(
+                        idAdministrador, inicio, fin, c.fecha(), c.hora(), c.id(), p));
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public PaginaDTO<ReservaDTO> listarReservasPorCancha(Long idCancha, String cursor, Integer limite) {
+        return paginar(cursor, limite, (c, p) ->
+                reservaRepository.findPaginaByCanchaId(idCancha, c.fecha(), c.hora(), c.id(), p));
+    }
+
+    // Pide una fila de más para saber si hay otra página sin hacer un COUNT
+    private PaginaDTO<ReservaDTO> paginar(String cursor, Integer limite,
+                                          BiFunction<ReservaCursor, Pageable, List<Reserva>> consulta) {
+        int tamano = limite == null ? TAMANO_PAGINA_DEFECTO : Math.max(1, Math.min(limite, TAMANO_PAGINA_MAXIMO));
+        List<Reserva> filas = consulta.apply(ReservaCursor.decodificar(cursor), PageRequest.of(0, tamano + 1));
+
+        boolean hayMas = filas.size() > tamano;
+        List<Reserva> pagina = hayMas ? filas.subList(0, tamano) : filas;
+        return PaginaDTO.<ReservaDTO>builder()
+                .contenido(convertToDTOs(pagina))
+                .siguienteCursor(hayMas ? ReservaCursor.de(pagina.get(pagina.size() - 1)).codificar() : null)
+                .tamano(tamano)
+                .hayMas(hayMas)
+                .build();
+    }
 
     // ======================
     // MAPEO
@@ -372,7 +606,51 @@ public class ReservaServiceImpl implements IReservaService {
 
     private ReservaDTO convertToDTO(Reserva reserva) {
         if (reserva == null) return null;
+        Long idReserva = reserva.getIdReserva();
+        return convertToDTO(reserva,
+                incluyeRepository.findByReservaIdReserva(idReserva).orElse(null),
+                pagoRepository.findByReservaIdReserva(idReserva),
+                qrRepository.findByReservaIdReserva(idReserva));
+    }
+
+    // Mapeo por lotes: carga clientes, incluye (cancha/disciplina), pagos y QRs de todas las reservas
+    // con un numero fijo de consultas IN por cada lote, en lugar de varias consultas por reserva
+    private List<ReservaDTO> convertToDTOs(List<Reserva> reservas) {
+        if (reservas.isEmpty()) return List.of();
+
+        List<ReservaDTO> resultado = new ArrayList<>(reservas.size());
+        for (int desde = 0; desde < reservas.size(); desde += TAMANO_LOTE_MAPEO) {
+            List<Reserva> lote = reservas.subList(desde, Math.min(desde + TAMANO_LOTE_MAPEO, reservas.size()));
+            List<Long> ids = lote.stream().map(Reserva::getIdReserva).toList();
+
+            // deja los clientes en el contexto de persistencia para que los proxies no se carguen uno a uno
+            Set<Long> idsClientes = lote.stream()
+                    .filter(r -> r.getCliente() != null)
+                    .map(r -> r.getCliente().getId())
+                    .collect(Collectors.toSet());
+            clienteRepository.findAllById(idsClientes);
+
+            Map<Long, Incluye> incluyePorReserva = new HashMap<>();
+            for (Incluye incluye : incluyeRepository.findConCanchaYDisciplinaByReservaIds(ids)) {
+                incluyePorReserva.putIfAbsent(incluye.getId().getIdReserva(), incluye);
+            }
+            Map<Long, List<Pago>> pagosPorReserva = pagoRepository.findConClienteByReservaIds(ids).stream()
+                    .collect(Collectors.groupingBy(p -> p.getReserva().getIdReserva()));
+            Map<Long, List<Qr>> qrsPorReserva = qrRepository.findByReservaIdReservaIn(ids).stream()
+                    .collect(Collectors.groupingBy(q -> q.getReserva().getIdReserva()));
+
+            for (Reserva reserva : lote) {
+                Long idReserva = reserva.getIdReserva();
+                resultado.add(convertToDTO(reserva,
+                        incluyePorReserva.get(idReserva),
+                        pagosPorReserva.getOrDefault(idReserva, List.of()),
+                        qrsPorReserva.getOrDefault(idReserva, List.of())));
+            }
+        }
+        return resultado;
+    }
 
+    private ReservaDTO convertToDTO(Reserva reserva, Incluye incluye, List<Pago> pagos, List<Qr> qrs) {
         Cliente cliente = reserva.getCliente();
 
         // Crear el DTO básico
@@ -390,96 +668,46 @@ public class ReservaServiceImpl implements IReservaService {
             .duracionMinutos(reserva.getDuracionMinutos())
             .build();
 
-        // >>> Cargar valores de pago: priorizar valores en la entidad, si faltan calcularlos
-        try {
-            Double totalPagado = reserva.getTotalPagado();
-            if (totalPagado == null) {
-                totalPagado = pagoRepository.sumMontoConfirmadoPorReserva(reserva.getIdReserva());
-            }
-            dto.setTotalPagado(totalPagado != null ? totalPagado : 0.0);
-
-            Double saldo = reserva.getSaldoPendiente();
-            if (saldo == null) {
-                // intentar calcular desde incluye
-                try {
-                    var incluidos = incluyeRepository.findByReservaIdReserva(reserva.getIdReserva());
-                    if (!incluidos.isEmpty()) {
-                        saldo = incluidos.get().getMontoTotal() - (totalPagado != null ? totalPagado : 0.0);
-                    }
-                } catch (Exception ignored) {
-                    saldo = null;
-                }
-            }
-            dto.setSaldoPendiente(saldo);
-
-            Boolean pagada = reserva.getPagadaCompleta();
-            if (pagada == null) {
-                pagada = (dto.getSaldoPendiente() != null) && Math.abs(dto.getSaldoPendiente()) <= 0.01;
-            }
-            dto.setPagadaCompleta(pagada);
-        } catch (Exception e) {
-            log.warn("No se pudo calcular campos de pago para reserva {}: {}", reserva.getIdReserva(), e.getMessage());
-            dto.setTotalPagado(dto.getTotalPagado() == null ? 0.0 : dto.getTotalPagado());
-            dto.setSaldoPendiente(dto.getSaldoPendiente());
-            dto.setPagadaCompleta(dto.getPagadaCompleta());
+        // >>> Valores de pago: priorizar valores en la entidad, si faltan calcularlos con los pagos ya cargados
+        Double totalPagado = reserva.getTotalPagado();
+        if (totalPagado == null) {
+            totalPagado = pagos.stream()
+                    .filter(Pago::estaConfirmado)
+                    .mapToDouble(p -> p.getMonto() != null ? p.getMonto() : 0.0)
+                    .sum();
         }
+        dto.setTotalPagado(totalPagado);
 
-        try {
-            Optional<Incluye> incluidos = incluyeRepository.findByReservaIdReserva(reserva.getIdReserva());
-            if (!incluidos.isEmpty()) {
-                // Obtener datos relacionados desde Incluye
-                Incluye incluye = incluidos.get();
-                dto.setCancha(convertCanchaToDTO(incluye.getCancha()));
-                dto.setDisciplina(convertDisciplinaToDTO(incluye.getDisciplina()));
-
-                // Capacidad total de la cancha (null-safe)
-                if (incluye.getCancha() != null) {
-                    dto.setCapacidadTotal(incluye.getCancha().getCapacidad());
-                } else {
-                    dto.setCapacidadTotal(null);
-                }
-
-                // Invitados confirmados (mantener 0 si es null)
-                Integer invitados = incluye.getInvitadosConfirmados();
-                dto.setInvitadosConfirmados(invitados != null ? invitados : 0);
-            }
-        } catch (Exception e) {
-            log.warn("Error cargando cancha/disciplina para reserva {}: {}", reserva.getIdReserva(), e);
-            dto.setCancha(null);
-            dto.setDisciplina(null);
+        Double saldo = reserva.getSaldoPendiente();
+        if (saldo == null && incluye != null && incluye.getMontoTotal() != null) {
+            saldo = incluye.getMontoTotal() - totalPagado;
         }
+        dto.setSaldoPendiente(saldo);
 
-        // >>> Cargar PAGOS <<<
-        try {
-            List<Pago> pagos = pagoRepository.findByReservaIdReserva(reserva.getIdReserva());
-            dto.setPagos(pagos.stream()
-                .map(this::convertPagoToDTO)
-                .toList());
-        } catch (Exception e) {
-            log.warn("Error cargando pagos para reserva {}", reserva.getIdReserva(), e);
-            dto.setPagos(List.of());
+        Boolean pagada = reserva.getPagadaCompleta();
+        if (pagada == null) {
+            pagada = (saldo != null) && Math.abs(saldo) <= 0.01;
         }
-
-        // >>> Cargar QRs <<<
-        try {
-            List<Qr> qrs = qrRepository.findByReservaIdReserva(reserva.getIdReserva());
-            dto.setQrs(qrs.stream()
-                .map(this::convertQrToDTO)
-                .toList());
-        } catch (Exception e) {
-            log.warn("Error cargando QRs para reserva {}", reserva.getIdReserva(), e);
-            dto.setQrs(List.of());
+        dto.setPagadaCompleta(pagada);
+
+        if (incluye != null) {
+            // Obtener datos relacionados desde Incluye
+            Cancha cancha = incluye.getCancha();
+            dto.setCancha(cancha != null ? convertCanchaToDTO(cancha) : null);
+            dto.setDisciplina(incluye.getDisciplina() != null ? convertDisciplinaToDTO(incluye.getDisciplina()) : null);
+            // Capacidad total de la cancha (null-safe)
+            dto.setCapacidadTotal(cancha != null ? cancha.getCapacidad() : null);
+            // Invitados confirmados (mantener 0 si es null)
+            Integer invitados = incluye.getInvitadosConfirmados();
+            dto.setInvitadosConfirmados(invitados != null ? invitados : 0);
         }
-        /* 
 
-        // >>> Cargar CANCELACIÓN (0 o 1) <<<
-        try {
-            Optional<Cancelacion> cancelacionOpt = cancelacionRepository.findByReservaIdReserva(reserva.getIdReserva());
-            dto.setCancelacion(cancelacionOpt.map(this::convertCancelacionToDTO).orElse(null));
-        } catch (Exception e) {
-            log.warn("Error cargando cancelación para reserva {}", reserva.getIdReserva(), e);
-            dto.setCancelacion(null);
-        }*/
+        dto.setPagos(pagos.stream()
+            .map(this::convertPagoToDTO)
+            .toList());
+        dto.setQrs(qrs.stream()
+            .map(this::convertQrToDTO)
+            .toList());
 
         return dto;
     }
@@ -590,7 +818,9 @@ public class ReservaServiceImpl implements IReservaService {
                 .orElseThrow(() -> new EntityNotFoundException("Reserva no encontrada con ID: " + idReserva));
         //reservaValidator.validarConfirmacion(reserva.getEstadoReserva());
         reserva.setEstadoReserva(Reserva.EstadoReserva.CONFIRMADA.name());
-        return convertToDTO(reservaRepository.save(reserva));
+        Reserva guardada = reservaRepository.save(reserva);
+        sincronizarDisponibilidad(guardada, guardada.getFechaReserva());
+        return convertToDTO(guardada);
     }
 
     @Override
@@ -602,7 +832,9 @@ public class ReservaServiceImpl implements IReservaService {
         reserva.setEstadoReserva(Reserva.EstadoReserva.CANCELADA.name());
         reserva.setObservaciones("CANCELADA: " + motivo + 
             (reserva.getObservaciones() != null ? ". " + reserva.getObservaciones() : ""));
-        return convertToDTO(reservaRepository.save(reserva));
+        Reserva cancelada = reservaRepository.save(reserva);
+        sincronizarDisponibilidad(cancelada, cancelada.getFechaReserva());
+        return convertToDTO(cancelada);
     }
 
     @Override
@@ -614,7 +846,9 @@ public class ReservaServiceImpl implements IReservaService {
             throw new IllegalArgumentException("Solo reservas CONFIRMADAS pueden estar EN CURSO");
         }
         reserva.setEstadoReserva(Reserva.EstadoReserva.EN_CURSO.name());
-        return convertToDTO(reservaRepository.save(reserva));
+        Reserva guardada = reservaRepository.save(reserva);
+        sincronizarDisponibilidad(guardada, guardada.getFechaReserva());
+        return convertToDTO(guardada);
     }
 
     @Override
@@ -626,7 +860,9 @@ public class ReservaServiceImpl implements IReservaService {
             throw new IllegalArgumentException("Solo reservas EN CURSO pueden COMPLETARSE");
         }
         reserva.setEstadoReserva(Reserva.EstadoReserva.COMPLETADA.name());
-        return convertToDTO(reservaRepository.save(reserva));
+        Reserva guardada = reservaRepository.save(reserva);
+        sincronizarDisponibilidad(guardada, guardada.getFechaReserva());
+        return convertToDTO(guardada);
     }
 
     @Override
@@ -638,7 +874,9 @@ public class ReservaServiceImpl implements IReservaService {
             throw new IllegalArgumentException("Solo reservas CONFIRMADAS pueden ser NO-SHOW");
         }
         reserva.setEstadoReserva(Reserva.EstadoReserva.NO_SHOW.name());
-        return convertToDTO(reservaRepository.save(reserva));
+        Reserva guardada = reservaRepository.save(reserva);
+        sincronizarDisponibilidad(guardada, guardada.getFechaReserva());
+        return convertToDTO(guardada);
     }
 
     
@@ -652,6 +890,12 @@ public class ReservaServiceImpl implements IReservaService {
         return reservaRepository.findReservasSolapadas(fecha, horaInicio, horaFin).isEmpty();
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public boolean validarDisponibilidad(Long idCancha, LocalDate fecha, LocalTime horaInicio, LocalTime horaFin) {
+        return reservaRepository.findReservasSolapadasEnCancha(idCancha, fecha, horaInicio, horaFin).isEmpty();
+    }
+
     @Override
     public void validarFechaReserva(LocalDate fechaReserva) {
         if (fechaReserva.isBefore(LocalDate.now())) {
@@ -667,15 +911,4 @@ public class ReservaServiceImpl implements IReservaService {
         return ingresos != null ? ingresos : 0.0;
     }*/
 
-// Listar reservas por cancha k
-@Override
-@Transactional(readOnly = true)
-public List<ReservaDTO> listarReservasPorCancha(Long idCancha) {
-    List<Reserva> reservas = reservaRepository.findAllByCanchaId(idCancha);
-
-    return reservas.stream()
-            .map(this::convertToDTO) // usa el mismo convertToDTO que ya tienes
-            .collect(Collectors.toList());
-}
-
 }
\ No newline at end of file
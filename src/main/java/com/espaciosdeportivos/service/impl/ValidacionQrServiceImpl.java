@@ -0,0 +1,316 @@
+package com.espaciosdeportivos.service.impl;
+
+import com.espaciosdeportivos.dto.ValidacionQrDTO;
+import com.espaciosdeportivos.model.Qr;
+import com.espaciosdeportivos.repository.ParticipaRepository;
+import com.espaciosdeportivos.repository.QrRepository;
+import com.espaciosdeportivos.security.QrFirmador;
+import com.espaciosdeportivos.security.QrFirmador.QrFirmado;
+import com.espaciosdeportivos.service.IValidacionQrService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static com.espaciosdeportivos.util.Transacciones.despuesDelCommit;
+
+// Validacion de QR en el ingreso: busqueda por codigo (indice unico) y cache corta y acotada de los QR encontrados.
+// Los codigos que no existen no se guardan: un QR creado justo despues de un escaneo fallido vale de inmediato
+// y los codigos inventados no llenan la memoria.
+// El ingreso se registra con un UPDATE condicional, asi que dos escaneos simultaneos no pueden entrar ambos;
+// un codigo que ya ingreso se rechaza desde la cache sin volver a la BD.
+// Los contenidos firmados se verifican en memoria; la BD solo se toca para guardar el ingreso y,
+// si no responde, el ingreso queda en cola y se guarda cuando vuelva.
+@Service
+@Slf4j
+public class ValidacionQrServiceImpl implements IValidacionQrService {
+
+    // por encima de este tamaño se limpian los ingresos locales de dias anteriores
+    private static final int LIMPIAR_INGRESOS_DESDE = 10_000;
+
+    private final QrRepository qrRepository;
+    private final ParticipaRepository participaRepository;
+    private final QrFirmador qrFirmador;
+    private final TransactionTemplate transactionTemplate;
+    private final long ttlMs;
+    private final long toleranciaIngresoMinutos;
+    private final int maxEntradasCache;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, EntradaQr> cache = new ConcurrentHashMap<>();
+
+    // ingresos aceptados por este nodo (codigo -> fecha), para rechazar el segundo escaneo aunque no haya BD
+    private final Map<String, LocalDateTime> ingresosLocales = new ConcurrentHashMap<>();
+    private final Queue<IngresoPendiente> ingresosPendientes = new ConcurrentLinkedQueue<>();
+
+    // idQr null = el codigo no existe o esta inactivo (solo para armar el rechazo, nunca se guarda en la cache)
+    private record EntradaQr(Long idQr, Long idReserva, Long idPersona, Boolean esCliente,
+                             LocalDateTime fechaExpiracion, LocalDateTime fechaIngreso, long vence) {
+        boolean existe() {
+            return idQr != null;
+        }
+    }
+
+    private record IngresoPendiente(String codigoQr, Long idReserva, Long idPersona, boolean esCliente,
+                                    LocalDateTime fechaIngreso) {
+    }
+
+    public ValidacionQrServiceImpl(QrRepository qrRepository,
+                                   ParticipaRepository participaRepository,
+                                   QrFirmador qrFirmador,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${app.qr.validacion-ttl-segundos:30}") long ttlSegundos,
+                                   @Value("${app.qr.tolerancia-ingreso-minutos:30}") long toleranciaIngresoMinutos,
+                                   @Value("${app.qr.validacion-max-entradas:10000}") int maxEntradasCache,
+                                   MeterRegistry meterRegistry) {
+        this.qrRepository = qrRepository;
+        this.participaRepository = participaRepository;
+        this.qrFirmador = qrFirmador;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ttlMs = ttlSegundos * 1000;
+        this.toleranciaIngresoMinutos = toleranciaIngresoMinutos;
+        this.maxEntradasCache = maxEntradasCache;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public boolean esValido(String codigoQr) {
+        EntradaQr entrada = buscar(codigoQr);
+        return entrada.existe() && !expirado(entrada);
+    }
+
+    @Override
+    @Transactional
+    public ValidacionQrDTO registrarIngreso(String codigoQr) {
+        return contarEscaneo("codigo", ingresarPorCodigo(codigoQr));
+    }
+
+    private ValidacionQrDTO ingresarPorCodigo(String codigoQr) {
+        EntradaQr entrada = buscar(codigoQr);
+        if (!entrada.existe()) {
+            return rechazo(codigoQr, entrada, "QR no encontrado o inactivo");
+        }
+        if (expirado(entrada)) {
+            return rechazo(codigoQr, entrada, "QR expirado");
+        }
+        LocalDateTime yaIngreso = entrada.fechaIngreso() != null ? entrada.fechaIngreso() : ingresosLocales.get(codigoQr);
+        if (yaIngreso != null) {
+            return rechazo(codigoQr, entrada, "QR ya utilizado (" + yaIngreso + ")");
+        }
+
+        LocalDateTime ahora = LocalDateTime.now();
+        if (!guardarIngreso(codigoQr, entrada.idReserva(), entrada.idPersona(), Boolean.TRUE.equals(entrada.esCliente()), ahora)) {
+            // otro escaneo (u otro nodo) lo usó antes, o se desactivó después de cachearlo
+            cache.remove(codigoQr);
+            return rechazo(codigoQr, entrada, "QR ya utilizado o inactivo");
+        }
+
+        EntradaQr usada = new EntradaQr(entrada.idQr(), entrada.idReserva(), entrada.idPersona(), entrada.esCliente(),
+                entrada.fechaExpiracion(), ahora, System.currentTimeMillis() + ttlMs);
+        despuesDelCommit(() -> {
+            guardarEnCache(codigoQr, usada);
+            ingresosLocales.put(codigoQr, ahora);
+        });
+        log.info("Ingreso registrado con QR {} (reserva {}, persona {})", codigoQr, entrada.idReserva(), entrada.idPersona());
+
+        return aceptado(codigoQr, entrada.idQr(), entrada.idReserva(), entrada.idPersona(), entrada.esCliente(), ahora, false);
+    }
+
+    @Override
+    public ValidacionQrDTO registrarIngresoFirmado(String contenido) {
+        return contarEscaneo("firmado", ingresarFirmado(contenido));
+    }
+
+    private ValidacionQrDTO ingresarFirmado(String contenido) {
+        QrFirmado qr = qrFirmador.verificar(contenido).orElse(null);
+        if (qr == null) {
+            return ValidacionQrDTO.builder().valido(false).motivo("Firma del QR inválida").build();
+        }
+        LocalDateTime ahora = LocalDateTime.now();
+        if (Instant.now().getEpochSecond() > qr.expira()) {
+            return rechazo(qr, "QR expirado");
+        }
+        if (qr.fecha() != null && qr.horaInicio() != null && qr.horaFin() != null) {
+            LocalDateTime desde = qr.fecha().atTime(qr.horaInicio()).minusMinutes(toleranciaIngresoMinutos);
+            // 00:00 como hora de fin es medianoche (fin del dia), igual que en la agenda de disponibilidad
+            LocalDateTime hasta = LocalTime.MIDNIGHT.equals(qr.horaFin())
+                    ? qr.fecha().plusDays(1).atStartOfDay()
+                    : qr.fecha().atTime(qr.horaFin());
+            if (ahora.isBefore(desde) || ahora.isAfter(hasta)) {
+                return rechazo(qr, "Fuera del horario de la reserva");
+            }
+        }
+        if (ingresosLocales.putIfAbsent(qr.codigoQr(), ahora) != null) {
+            return rechazo(qr, "QR ya utilizado (" + ingresosLocales.get(qr.codigoQr()) + ")");
+        }
+
+        boolean guardado;
+        try {
+            guardado = transactionTemplate.execute(status ->
+                    guardarIngreso(qr.codigoQr(), qr.idReserva(), qr.idPersona(), qr.esCliente(), ahora));
+        } catch (DataAccessException | TransactionException e) {
+            // sin BD: la firma y la ventana ya se verificaron, se acepta y se guarda despues
+            log.warn("BD no disponible al registrar ingreso del QR {}, queda pendiente: {}", qr.codigoQr(), e.getMessage());
+            ingresosPendientes.add(new IngresoPendiente(qr.codigoQr(), qr.idReserva(), qr.idPersona(), qr.esCliente(), ahora));
+            return aceptado(qr.codigoQr(), null, qr.idReserva(), qr.idPersona(), qr.esCliente(), ahora, true);
+        }
+        if (!guardado) {
+            return rechazo(qr, "QR ya utilizado o inactivo");
+        }
+        cache.remove(qr.codigoQr());
+        log.info("Ingreso registrado con QR firmado {} (reserva {}, persona {})", qr.codigoQr(), qr.idReserva(), qr.idPersona());
+        return aceptado(qr.codigoQr(), null, qr.idReserva(), qr.idPersona(), qr.esCliente(), ahora, false);
+    }
+
+    // Guarda los ingresos aceptados mientras la BD no respondía
+    @Scheduled(fixedDelayString = "${app.qr.sincronizar-ingresos-ms:30000}")
+    public void sincronizarIngresosPendientes() {
+        IngresoPendiente pendiente;
+        while ((pendiente = ingresosPendientes.peek()) != null) {
+            IngresoPendiente p = pendiente;
+            try {
+                boolean guardado = transactionTemplate.execute(status ->
+                        guardarIngreso(p.codigoQr(), p.idReserva(), p.idPersona(), p.esCliente(), p.fechaIngreso()));
+                if (!guardado) {
+                    log.warn("QR {} aceptado sin BD ya tenía ingreso o estaba inactivo", p.codigoQr());
+                }
+                ingresosPendientes.poll();
+            } catch (DataAccessException | TransactionException e) {
+                log.debug("BD aún no disponible, {} ingresos pendientes", ingresosPendientes.size());
+                return;
+            }
+        }
+        limpiarIngresosLocales();
+    }
+
+    // escaneos en el ingreso por tipo (codigo/firmado) y resultado
+    private ValidacionQrDTO contarEscaneo(String tipo, ValidacionQrDTO resultado) {
+        meterRegistry.counter("qr.escaneos", "tipo", tipo,
+                "resultado", resultado.isValido() ? "aceptado" : "rechazado").increment();
+        return resultado;
+    }
+
+    // UPDATE condicional: true solo para el primer escaneo del codigo
+    private boolean guardarIngreso(String codigoQr, Long idReserva, Long idPersona, boolean esCliente, LocalDateTime fecha) {
+        if (qrRepository.registrarIngreso(codigoQr, fecha) == 0) {
+            return false;
+        }
+        if (!esCliente) {
+            participaRepository.marcarAsistencia(idReserva, idPersona);
+        }
+        return true;
+    }
+
+    // QR desactivado, borrado o con otro codigo: su entrada deja de valer antes del TTL
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void alCambiarQr(QrCambiadoEvent evento) {
+        cache.remove(evento.codigoQr());
+    }
+
+    private EntradaQr buscar(String codigoQr) {
+        long ahora = System.currentTimeMillis();
+        EntradaQr entrada = cache.get(codigoQr);
+        if (entrada != null && entrada.vence() > ahora) {
+            return entrada;
+        }
+
+        entrada = qrRepository.findByCodigoQrAndEstadoTrue(codigoQr)
+                .map(qr -> aEntrada(qr, ahora + ttlMs))
+                .orElse(null);
+        if (entrada == null) {
+            cache.remove(codigoQr);
+            return new EntradaQr(null, null, null, null, null, null, 0);
+        }
+        guardarEnCache(codigoQr, entrada);
+        return entrada;
+    }
+
+    // lleno: primero se sacan las vencidas; si sigue lleno no se guarda (la siguiente lectura va a la BD)
+    private void guardarEnCache(String codigoQr, EntradaQr entrada) {
+        if (cache.size() >= maxEntradasCache && !cache.containsKey(codigoQr)) {
+            long ahora = System.currentTimeMillis();
+            cache.values().removeIf(e -> e.vence() <= ahora);
+            if (cache.size() >= maxEntradasCache) {
+                return;
+            }
+        }
+        cache.put(codigoQr, entrada);
+    }
+
+    private EntradaQr aEntrada(Qr qr, long vence) {
+        return new EntradaQr(qr.getIdQr(),
+                qr.getReserva() != null ? qr.getReserva().getIdReserva() : null,
+                qr.getPersona() != null ? qr.getPersona().getId() : null,
+                qr.getEsCliente(),
+                qr.getFechaExpiracion(),
+                qr.getFechaIngreso(),
+                vence);
+    }
+
+    // los ingresos locales solo hacen falta mientras la reserva puede seguir escaneandose (un dia basta)
+    private void limpiarIngresosLocales() {
+        if (ingresosLocales.size() > LIMPIAR_INGRESOS_DESDE) {
+            LocalDateTime limite = LocalDateTime.now().minusDays(1);
+            ingresosLocales.values().removeIf(f -> f.isBefore(limite));
+        }
+    }
+
+    private boolean expirado(EntradaQr entrada) {
+        return entrada.fechaExpiracion() != null && entrada.fechaExpiracion().isBefore(LocalDateTime.now());
+    }
+
+    private ValidacionQrDTO aceptado(String codigoQr, Long idQr, Long idReserva, Long idPersona, Boolean esCliente,
+                                     LocalDateTime fechaIngreso, boolean pendiente) {
+        return ValidacionQrDTO.builder()
+                .valido(true)
+                .codigoQr(codigoQr)
+                .idQr(idQr)
+                .idReserva(idReserva)
+                .idPersona(idPersona)
+                .esCliente(esCliente)
+                .fechaIngreso(fechaIngreso)
+                .pendienteSincronizar(pendiente)
+                .build();
+    }
+
+    private ValidacionQrDTO rechazo(QrFirmado qr, String motivo) {
+        return ValidacionQrDTO.builder()
+                .valido(false)
+                .motivo(motivo)
+                .codigoQr(qr.codigoQr())
+                .idReserva(qr.idReserva())
+                .idPersona(qr.idPersona())
+                .esCliente(qr.esCliente())
+                .build();
+    }
+
+    private ValidacionQrDTO rechazo(String codigoQr, EntradaQr entrada, String motivo) {
+        return ValidacionQrDTO.builder()
+                .valido(false)
+                .motivo(motivo)
+                .codigoQr(codigoQr)
+                .idQr(entrada.idQr())
+                .idReserva(entrada.idReserva())
+                .idPersona(entrada.idPersona())
+                .esCliente(entrada.esCliente())
+                .fechaIngreso(entrada.fechaIngreso())
+                .build();
+    }
+}
@@ -0,0 +1,354 @@
+package com.espaciosdeportivos.service.impl;
+
+import com.espaciosdeportivos.model.Imagen;
+import com.espaciosdeportivos.model.ImagenVariante;
+import com.espaciosdeportivos.model.enums.TipoVarianteImagen;
+import com.espaciosdeportivos.repository.ImagenRepository;
+import com.espaciosdeportivos.repository.ImagenVarianteRepository;
+import com.espaciosdeportivos.service.FileStorageService;
+import com.espaciosdeportivos.service.VarianteImagenService;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.espaciosdeportivos.util.Transacciones.despuesDelCommit;
+
+// Genera en un pool acotado las variantes de cada imagen subida (miniatura, mediana y grande),
+// recomprimidas en JPEG (o PNG si tienen transparencia), para que los listados no bajen el original.
+// Formatos que ImageIO no lee (webp, svg) se quedan sin variantes y se sirve el original.
+// Antes de decodificar se leen las dimensiones de la cabecera: imagenes de mas de app.imagen.max-pixeles
+// tambien se quedan sin variantes (un PNG chico que declara 50k x 50k agotaria la memoria del pool).
+@Service
+@Slf4j
+public class VarianteImagenServiceImpl implements VarianteImagenService {
+
+    private static final String CARPETA_VARIANTES = "variantes";
+
+    private final ImagenRepository imagenRepository;
+    private final ImagenVarianteRepository imagenVarianteRepository;
+    private final FileStorageService fileStorageService;
+    private final ThreadPoolTaskExecutor imagenExecutor;
+    private final TransactionTemplate transactionTemplate;
+    private final float calidadJpeg;
+    private final long maxPixeles;
+
+    // archivos originales con variantes generandose en este nodo (imagenes con el mismo contenido comparten archivos)
+    private final Set<String> enProceso = ConcurrentHashMap.newKeySet();
+
+    public VarianteImagenServiceImpl(ImagenRepository imagenRepository,
+                                     ImagenVarianteRepository imagenVarianteRepository,
+                                     FileStorageService fileStorageService,
+                                     @Qualifier("imagenExecutor") ThreadPoolTaskExecutor imagenExecutor,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${app.imagen.calidad-jpeg:0.82}") float calidadJpeg,
+                                     @Value("${app.imagen.max-pixeles:40000000}") long maxPixeles) {
+        this.imagenRepository = imagenRepository;
+        this.imagenVarianteRepository = imagenVarianteRepository;
+        this.fileStorageService = fileStorageService;
+        this.imagenExecutor = imagenExecutor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.calidadJpeg = calidadJpeg;
+        this.maxPixeles = maxPixeles;
+    }
+
+    // Solo despues del commit: el worker debe encontrar la fila y el archivo de la imagen
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void alGuardarImagen(ImagenGuardadaEvent evento) {
+        solicitarVariantes(evento.idImagen());
+    }
+
+    @Override
+    public void solicitarVariantes(Long idImagen) {
+        try {
+            imagenExecutor.execute(() -> generar(idImagen));
+        } catch (TaskRejectedException e) {
+            log.warn("Cola de variantes llena, imagen {} se servirá sin variantes", idImagen);
+        }
+    }
+
+    @Override
+    public void eliminarArchivosVariantes(Imagen imagen) {
+        if (imagen.getHashContenido() != null) {
+            // archivos compartidos por todas las imagenes con ese contenido: se van cuando el contenido queda
+            // en 0 referencias (eliminarArchivosVariantesDeContenido), nunca desde aqui
+            return;
+        }
+        List<String> rutas = imagenVarianteRepository.findByImagenIdImagen(imagen.getIdImagen()).stream()
+                .map(ImagenVariante::getRutaAlmacenamiento)
+                .toList();
+        // solo si se confirma el borrado de la imagen: con rollback las filas seguirian apuntando a ellos
+        despuesDelCommit(() -> rutas.forEach(this::eliminarSilencioso));
+    }
+
+    @Override
+    public void eliminarArchivosVariantesDeContenido(String rutaContenido) {
+        for (TipoVarianteImagen tipo : TipoVarianteImagen.values()) {
+            for (String extension : List.of("jpg", "png")) {
+                String ruta = rutaVariante(rutaContenido, tipo, extension);
+                if (fileStorageService.existeArchivo(ruta)) {
+                    eliminarSilencioso(ruta);
+                }
+            }
+        }
+    }
+
+    private void eliminarSilencioso(String ruta) {
+        try {
+            fileStorageService.eliminarArchivo(ruta);
+        } catch (Exception e) {
+            log.warn("No se pudo eliminar la variante {}: {}", ruta, e.getMessage());
+        }
+    }
+
+    private void generar(Long idImagen) {
+        Imagen imagen = imagenRepository.findById(idImagen).orElse(null);
+        if (imagen == null) {
+            // se elimino antes de que le tocara el turno
+            return;
+        }
+        if (!enProceso.add(imagen.getRutaAlmacenamiento())) {
+            log.info("Variantes de imagen {} ya en proceso", idImagen);
+            return;
+        }
+        try {
+            generar(imagen);
+        } finally {
+            enProceso.remove(imagen.getRutaAlmacenamiento());
+        }
+    }
+
+    private void generar(Imagen imagen) {
+        Long idImagen = imagen.getIdImagen();
+        if (Boolean.TRUE.equals(transactionTemplate.execute(status -> reutilizarVariantes(idImagen)))) {
+            return;
+        }
+
+        BufferedImage original;
+        try {
+            original = leerAcotada(imagen);
+        } catch (IOException e) {
+            log.warn("No se pudo leer la imagen {} para generar variantes: {}", idImagen, e.getMessage());
+            return;
+        }
+        if (original == null) {
+            return;
+        }
+
+        boolean conTransparencia = original.getColorModel().hasAlpha();
+        String extension = conTransparencia ? "png" : "jpg";
+        int ladoOriginal = Math.max(original.getWidth(), original.getHeight());
+
+        List<ImagenVariante> variantes = new ArrayList<>();
+        List<String> escritas = new ArrayList<>();
+        try {
+            for (TipoVarianteImagen tipo : TipoVarianteImagen.values()) {
+                // una variante del tamaño del original no ahorra nada; GRANDE igual se recomprime
+                if (tipo != TipoVarianteImagen.GRANDE && ladoOriginal <= tipo.getLadoMaximo()) {
+                    continue;
+                }
+                BufferedImage escalada = redimensionar(original, tipo.getLadoMaximo(), conTransparencia);
+                byte[] contenido = codificar(escalada, conTransparencia);
+                if (tipo == TipoVarianteImagen.GRANDE && ladoOriginal <= tipo.getLadoMaximo()
+                        && imagen.getTamanioBytes() != null && contenido.length >= imagen.getTamanioBytes()) {
+                    continue;
+                }
+
+                String ruta = rutaVariante(imagen.getRutaAlmacenamiento(), tipo, extension);
+                fileStorageService.guardarBytes(contenido, ruta);
+                escritas.add(ruta);
+
+                ImagenVariante variante = new ImagenVariante();
+                variante.setTipo(tipo);
+                variante.setRutaAlmacenamiento(ruta);
+                variante.setTipoMime(conTransparencia ? "image/png" : "image/jpeg");
+                variante.setAncho(escalada.getWidth());
+                variante.setAlto(escalada.getHeight());
+                variante.setTamanioBytes((long) contenido.length);
+                variantes.add(variante);
+            }
+            transactionTemplate.executeWithoutResult(status -> guardarVariantes(idImagen, variantes));
+            log.info("Imagen {}: {} variantes generadas", idImagen, variantes.size());
+        } catch (Exception e) {
+            // p. ej. la imagen se borro mientras se procesaba: no dejar archivos huerfanos
+            log.error("Error generando variantes de imagen {}: {}", idImagen, e.getMessage(), e);
+            // la transaccion ya termino: solo se borran los archivos que ninguna fila confirmada usa
+            // (con contenido deduplicado otra imagen puede apuntar a las mismas rutas)
+            escritas.forEach(ruta -> {
+                try {
+                    if (imagenVarianteRepository.countByRutaAlmacenamiento(ruta) == 0) {
+                        fileStorageService.eliminarArchivo(ruta);
+                    }
+                } catch (Exception ignorada) {
+                    // no es critico
+                }
+            });
+        }
+    }
+
+    // Con la fila de la imagen bloqueada: una regeneracion concurrente actualiza las mismas filas en vez de duplicarlas
+    private void guardarVariantes(Long idImagen, List<ImagenVariante> nuevas) {
+        Imagen imagen = imagenRepository.findByIdParaActualizar(idImagen)
+                .orElseThrow(() -> new IllegalStateException("La imagen " + idImagen + " se eliminó"));
+        Map<TipoVarianteImagen, ImagenVariante> existentes = new EnumMap<>(TipoVarianteImagen.class);
+        imagenVarianteRepository.findByImagenIdImagen(idImagen).forEach(v -> existentes.put(v.getTipo(), v));
+
+        List<ImagenVariante> variantes = new ArrayList<>(nuevas.size());
+        for (ImagenVariante nueva : nuevas) {
+            ImagenVariante variante = existentes.getOrDefault(nueva.getTipo(), new ImagenVariante());
+            variante.setImagen(imagen);
+            variante.setTipo(nueva.getTipo());
+            variante.setRutaAlmacenamiento(nueva.getRutaAlmacenamiento());
+            variante.setTipoMime(nueva.getTipoMime());
+            variante.setAncho(nueva.getAncho());
+            variante.setAlto(nueva.getAlto());
+            variante.setTamanioBytes(nueva.getTamanioBytes());
+            variantes.add(variante);
+        }
+        imagenVarianteRepository.saveAll(variantes);
+    }
+
+    // Lee ancho y alto de la cabecera y solo decodifica si no pasa de maxPixeles; null si no se generan variantes
+    private BufferedImage leerAcotada(Imagen imagen) throws IOException {
+        try (ImageInputStream entrada = ImageIO.createImageInputStream(
+                Paths.get(fileStorageService.obtenerRutaAbsoluta(imagen.getRutaAlmacenamiento())).toFile())) {
+            Iterator<ImageReader> lectores = entrada != null ? ImageIO.getImageReaders(entrada) : null;
+            if (lectores == null || !lectores.hasNext()) {
+                log.info("Imagen {} ({}) sin variantes: formato no soportado", imagen.getIdImagen(), imagen.getTipoMime());
+                return null;
+            }
+            ImageReader lector = lectores.next();
+            try {
+                lector.setInput(entrada, true, true);
+                long pixeles = (long) lector.getWidth(0) * lector.getHeight(0);
+                if (pixeles > maxPixeles) {
+                    log.warn("Imagen {} sin variantes: {}x{} supera el máximo de {} píxeles",
+                            imagen.getIdImagen(), lector.getWidth(0), lector.getHeight(0), maxPixeles);
+                    return null;
+                }
+                return lector.read(0);
+            } finally {
+                lector.dispose();
+            }
+        }
+    }
+
+    // Mismo contenido que otra imagen que ya tiene variantes: se apunta a esos archivos sin recodificar
+    private boolean reutilizarVariantes(Long idImagen) {
+        Imagen imagen = imagenRepository.findByIdParaActualizar(idImagen).orElse(null);
+        if (imagen == null || imagen.getHashContenido() == null
+                || !imagenVarianteRepository.findByImagenIdImagen(idImagen).isEmpty()) {
+            return false;
+        }
+        Map<TipoVarianteImagen, ImagenVariante> copias = new EnumMap<>(TipoVarianteImagen.class);
+        for (ImagenVariante otra : imagenVarianteRepository
+                .findByImagenHashContenidoAndImagenIdImagenNot(imagen.getHashContenido(), idImagen)) {
+            if (copias.containsKey(otra.getTipo())) {
+                continue;
+            }
+            ImagenVariante copia = new ImagenVariante();
+            copia.setImagen(imagen);
+            copia.setTipo(otra.getTipo());
+            copia.setRutaAlmacenamiento(otra.getRutaAlmacenamiento());
+            copia.setTipoMime(otra.getTipoMime());
+            copia.setAncho(otra.getAncho());
+            copia.setAlto(otra.getAlto());
+            copia.setTamanioBytes(otra.getTamanioBytes());
+            copias.put(otra.getTipo(), copia);
+        }
+        if (copias.isEmpty()) {
+            return false;
+        }
+        imagenVarianteRepository.saveAll(copias.values());
+        log.info("Imagen {}: {} variantes reutilizadas del mismo contenido", idImagen, copias.size());
+        return true;
+    }
+
+    // imagenes/cancha/uuid.png -> imagenes/cancha/variantes/uuid_miniatura.jpg
+    private static String rutaVariante(String rutaOriginal, TipoVarianteImagen tipo, String extension) {
+        int barra = rutaOriginal.lastIndexOf('/');
+        String carpeta = barra >= 0 ? rutaOriginal.substring(0, barra + 1) : "";
+        String nombre = rutaOriginal.substring(barra + 1);
+        int punto = nombre.lastIndexOf('.');
+        String base = punto > 0 ? nombre.substring(0, punto) : nombre;
+        return carpeta + CARPETA_VARIANTES + "/" + base + "_" + tipo.name().toLowerCase() + "." + extension;
+    }
+
+    // Reduce a la mitad por pasos hasta el tamaño final: el bilineal en un solo paso grande pierde detalle
+    private static BufferedImage redimensionar(BufferedImage original, int ladoMaximo, boolean conTransparencia) {
+        double escala = Math.min(1.0, (double) ladoMaximo / Math.max(original.getWidth(), original.getHeight()));
+        int ancho = Math.max(1, (int) Math.round(original.getWidth() * escala));
+        int alto = Math.max(1, (int) Math.round(original.getHeight() * escala));
+        int tipoBuffer = conTransparencia ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+        BufferedImage actual = original;
+        int w = original.getWidth();
+        int h = original.getHeight();
+        do {
+            w = Math.max(ancho, w / 2);
+            h = Math.max(alto, h / 2);
+            BufferedImage paso = new BufferedImage(w, h, tipoBuffer);
+            Graphics2D g = paso.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            if (!conTransparencia) {
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, w, h);
+            }
+            g.drawImage(actual, 0, 0, w, h, null);
+            g.dispose();
+            actual = paso;
+        } while (w != ancho || h != alto);
+        return actual;
+    }
+
+    private byte[] codificar(BufferedImage imagen, boolean png) throws IOException {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        if (png) {
+            ImageIO.write(imagen, "png", salida);
+            return salida.toByteArray();
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam parametros = writer.getDefaultWriteParam();
+        parametros.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        parametros.setCompressionQuality(calidadJpeg);
+        // JPEG progresivo: el navegador pinta una version borrosa antes de terminar de bajarla
+        parametros.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(salida)) {
+            writer.setOutput(ios);
+            writer.write(null, new IIOImage(imagen, null, null), parametros);
+        } finally {
+            writer.dispose();
+        }
+        return salida.toByteArray();
+    }
+}
@@ -0,0 +1,39 @@
+package com.espaciosdeportivos.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Acciones atadas al resultado de la transaccion en curso (caches en memoria, archivos en disco).
+// Sin transaccion activa se ejecutan en el momento (despuesDelCommit) o nunca (siSeRevierte).
+public final class Transacciones {
+
+    private Transacciones() {
+    }
+
+    public static void despuesDelCommit(Runnable accion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    accion.run();
+                }
+            });
+        } else {
+            accion.run();
+        }
+    }
+
+    // tambien cuando el resultado es desconocido: la accion debe poder repetirse sin daño
+    public static void siSeRevierte(Runnable accion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int estado) {
+                    if (estado != STATUS_COMMITTED) {
+                        accion.run();
+                    }
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.espaciosdeportivos.carga;
+
+import com.espaciosdeportivos.model.AppUser;
+import com.espaciosdeportivos.model.Cliente;
+import com.espaciosdeportivos.security.JwtUtils;
+import com.espaciosdeportivos.soporte.DatosPrueba;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Prueba de carga del flujo de reserva completo contra la PostgreSQL local (la de application.properties,
+// o la que se pase con -Dspring.datasource.url=...). No corre con el resto de pruebas:
+//   mvn test -Dtest=FlujoReservaCargaTest -Dcarga=true [-Dcarga.usuarios=100 -Dcarga.iteraciones=10]
+// Cada usuario virtual (un hilo virtual) repite: buscar canchas, ver disponibilidad, crear reserva,
+// asociar cancha, pagar, confirmar, esperar los QR y validarlos. Al final se reportan p50/p95/p99 y
+// errores por paso (tambien en target/carga-resultados.txt) y se borra lo sembrado y lo creado.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Import(DatosPrueba.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@EnabledIfSystemProperty(named = "carga", matches = "true")
+class FlujoReservaCargaTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(FlujoReservaCargaTest.class);
+
+    private static final int USUARIOS = Integer.getInteger("carga.usuarios", 50);
+    private static final int ITERACIONES = Integer.getInteger("carga.iteraciones", 5);
+    private static final int AREAS = Integer.getInteger("carga.areas", 5);
+    private static final int CANCHAS_POR_AREA = Integer.getInteger("carga.canchas-por-area", 6);
+    private static final Duration ESPERA_MAXIMA_QR = Duration.ofSeconds(30);
+
+    @LocalServerPort
+    private int puerto;
+
+    @Autowired
+    private DatosPrueba datosPrueba;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private DatosPrueba.Semilla semilla;
+    private final Queue<Long> reservasCreadas = new ConcurrentLinkedQueue<>();
+    private final ResultadosCarga resultados = new ResultadosCarga();
+    private final AtomicInteger flujosCompletos = new AtomicInteger();
+    private HttpClient http;
+    private String tokenControl;
+
+    @BeforeAll
+    void preparar() {
+        semilla = datosPrueba.sembrar(AREAS, CANCHAS_POR_AREA, USUARIOS, 0);
+        http = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        tokenControl = token("carga_control", "ROLE_USUARIO_CONTROL", null);
+    }
+
+    @AfterAll
+    void limpiar() {
+        datosPrueba.eliminarReservas(List.copyOf(reservasCreadas));
+        datosPrueba.eliminar(semilla);
+    }
+
+    @Test
+    void flujoDeReservaConUsuariosConcurrentes() throws Exception {
+        long inicio = System.nanoTime();
+        try (ExecutorService usuarios = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int u = 0; u < USUARIOS; u++) {
+                int usuario = u;
+                usuarios.submit(() -> usuarioVirtual(usuario));
+            }
+        }
+        long segundos = Math.max(1, Duration.ofNanos(System.nanoTime() - inicio).toSeconds());
+
+        String reporte = String.format("%d usuarios x %d iteraciones en %d s; flujos completos: %d (%.1f/s)",
+                USUARIOS, ITERACIONES, segundos, flujosCompletos.get(), (double) flujosCompletos.get() / segundos)
+                + resultados.reporte();
+        logger.info(reporte);
+        Files.writeString(Path.of("target", "carga-resultados.txt"), reporte);
+
+        assertTrue(flujosCompletos.get() > 0, "Ningun flujo de reserva llego al final");
+    }
+
+    private void usuarioVirtual(int usuario) {
+        Long idCliente = semilla.idsClientes().get(usuario);
+        String tokenCliente = token("carga_cliente_" + usuario, "ROLE_CLIENTE", idCliente);
+        Random random = new Random(usuario);
+        for (int i = 0; i < ITERACIONES; i++) {
+            try {
+                if (flujo(tokenCliente, idCliente, random)) {
+                    flujosCompletos.incrementAndGet();
+                }
+            } catch (Exception e) {
+                logger.debug("Flujo interrumpido del usuario {}: {}", usuario, e.getMessage());
+            }
+        }
+    }
+
+    // false si algun paso falla; el resto del flujo de esa iteracion no se ejecuta
+    private boolean flujo(String tokenCliente, Long idCliente, Random random) throws Exception {
+        Long idArea = semilla.idsAreas().get(random.nextInt(semilla.idsAreas().size()));
+        JsonNode canchas = llamar("buscar canchas", tokenCliente, get("/api/cancha/area/" + idArea));
+        if (canchas == null || canchas.isEmpty()) return false;
+        Long idCancha = canchas.get(random.nextInt(canchas.size())).get("idCancha").asLong();
+
+        LocalDate fecha = LocalDate.now().plusDays(1 + random.nextInt(14));
+        JsonNode horas = llamar("disponibilidad", tokenCliente,
+                get("/api/reservas/horario-disponible?canchaId=" + idCancha + "&fecha=" + fecha));
+        if (horas == null || horas.isEmpty()) return false;
+        // bloque "HH:mm - HH:mm"
+        String[] bloque = horas.get(random.nextInt(horas.size())).asText().split(" - ");
+
+        JsonNode reserva = llamar("crear reserva", tokenCliente, post("/api/reservas", Map.of(
+                "fechaReserva", fecha.toString(),
+                "horaInicio", bloque[0],
+                "horaFin", bloque[1],
+                "estadoReserva", "PENDIENTE",
+                "clienteId", idCliente)));
+        if (reserva == null) return false;
+        Long idReserva = reserva.get("idReserva").asLong();
+        reservasCreadas.add(idReserva);
+
+        // 409 aqui = otro usuario tomo el mismo horario de la cancha
+        JsonNode incluye = llamar("asociar cancha", tokenCliente, post("/api/incluye", Map.of(
+                "idReserva", idReserva,
+                "idCancha", idCancha,
+                "idDisciplina", semilla.disciplinaPorCancha().get(idCancha))));
+        if (incluye == null) return false;
+        double monto = incluye.path("montoTotal").asDouble(100.0);
+
+        String codigoTransaccion = "CARGA-" + UUID.randomUUID();
+        Map<String, Object> pagoNuevo = new HashMap<>();
+        pagoNuevo.put("monto", monto);
+        pagoNuevo.put("fecha", LocalDate.now().toString());
+        pagoNuevo.put("tipoPago", "TOTAL");
+        pagoNuevo.put("metodoPago", "QR");
+        pagoNuevo.put("estado", "PENDIENTE");
+        pagoNuevo.put("idReserva", idReserva);
+        pagoNuevo.put("clienteId", idCliente);
+        pagoNuevo.put("codigoTransaccion", codigoTransaccion);
+        JsonNode pago = llamar("pagar", tokenCliente, post("/api/pagos", pagoNuevo));
+        if (pago == null) return false;
+
+        JsonNode confirmado = llamar("confirmar pago", tokenCliente, post("/api/pagos/" + pago.get("idPago").asLong()
+                + "/confirmar", Map.of("codigoTransaccion", codigoTransaccion)));
+        if (confirmado == null) return false;
+
+        if (!esperarQrs(tokenCliente, idReserva)) return false;
+
+        JsonNode qrs = llamar("listar qr", tokenCliente, get("/api/qr/reserva/" + idReserva));
+        if (qrs == null || qrs.isEmpty()) return false;
+        String codigo = URLEncoder.encode(qrs.get(0).get("codigoQr").asText(), StandardCharsets.UTF_8);
+        JsonNode valido = llamar("validar qr", tokenControl, post("/api/qr/validar?codigo=" + codigo, null));
+        return valido != null && valido.asBoolean();
+    }
+
+    // la generacion es asincrona tras el commit del pago: se mide el tiempo hasta COMPLETADO
+    private boolean esperarQrs(String token, Long idReserva) throws Exception {
+        long inicio = System.nanoTime();
+        long limite = inicio + ESPERA_MAXIMA_QR.toNanos();
+        while (System.nanoTime() < limite) {
+            HttpResponse<String> respuesta = http.send(conToken(get("/api/qr/reserva/" + idReserva + "/estado-generacion"), token),
+                    HttpResponse.BodyHandlers.ofString());
+            String estado = respuesta.statusCode() == 200
+                    ? objectMapper.readTree(respuesta.body()).path("estado").asText()
+                    : "";
+            if ("COMPLETADO".equals(estado) || "FALLIDO".equals(estado) || respuesta.statusCode() != 200) {
+                int status = "COMPLETADO".equals(estado) ? 200 : Math.max(respuesta.statusCode(), 500);
+                resultados.registrar("generar qr", System.nanoTime() - inicio, status);
+                return status == 200;
+            }
+            Thread.sleep(50);
+        }
+        resultados.registrar("generar qr", System.nanoTime() - inicio, 0);
+        return false;
+    }
+
+    // null si la respuesta no es 2xx
+    private JsonNode llamar(String paso, String token, HttpRequest.Builder peticion) {
+        long inicio = System.nanoTime();
+        try {
+            HttpResponse<String> respuesta = http.send(conToken(peticion, token), HttpResponse.BodyHandlers.ofString());
+            resultados.registrar(paso, System.nanoTime() - inicio, respuesta.statusCode());
+            if (respuesta.statusCode() / 100 != 2) {
+                return null;
+            }
+            return objectMapper.readTree(respuesta.body());
+        } catch (Exception e) {
+            resultados.registrar(paso, System.nanoTime() - inicio, 0);
+            return null;
+        }
+    }
+
+    private HttpRequest.Builder get(String ruta) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + puerto + ruta)).GET();
+    }
+
+    private HttpRequest.Builder post(String ruta, Object cuerpo) throws Exception {
+        HttpRequest.Builder peticion = HttpRequest.newBuilder(URI.create("http://localhost:" + puerto + ruta));
+        if (cuerpo == null) {
+            return peticion.POST(HttpRequest.BodyPublishers.noBody());
+        }
+        return peticion.header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(cuerpo)));
+    }
+
+    private HttpRequest conToken(HttpRequest.Builder peticion, String token) {
+        return peticion.header("Authorization", "Bearer " + token).timeout(Duration.ofSeconds(30)).build();
+    }
+
+    // token firmado con la misma clave que usa la aplicacion; el filtro arma el usuario con los claims
+    private String token(String username, String rol, Long idPersona) {
+        User principal = new User(username, "", List.of(new SimpleGrantedAuthority(rol)));
+        AppUser usuario = new AppUser();
+        usuario.setUsername(username);
+        usuario.setActivo(true);
+        usuario.setPersona(idPersona != null ? new Cliente(idPersona) : null);
+        return jwtUtils.generateJwtToken(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()), usuario);
+    }
+}
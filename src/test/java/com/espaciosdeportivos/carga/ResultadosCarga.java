@@ -0,0 +1,68 @@
+package com.espaciosdeportivos.carga;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Latencias y errores por paso del flujo; el reporte da p50/p95/p99 y la tasa de error de cada paso
+public class ResultadosCarga {
+
+    private final Map<String, Paso> pasos = new ConcurrentHashMap<>();
+    // orden de aparicion de los pasos para el reporte
+    private final Map<String, Boolean> orden = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    public void registrar(String paso, long nanos, int status) {
+        orden.putIfAbsent(paso, Boolean.TRUE);
+        pasos.computeIfAbsent(paso, p -> new Paso()).agregar(nanos, status);
+    }
+
+    public String reporte() {
+        StringBuilder sb = new StringBuilder(String.format("%n%-22s %8s %8s %9s %9s %9s %9s  %s%n",
+                "paso", "total", "error %", "p50 ms", "p95 ms", "p99 ms", "max ms", "status"));
+        synchronized (orden) {
+            for (String nombre : orden.keySet()) {
+                sb.append(pasos.get(nombre).linea(nombre)).append(System.lineSeparator());
+            }
+        }
+        return sb.toString();
+    }
+
+    private static final class Paso {
+
+        private long[] nanos = new long[1024];
+        private int total;
+        private int errores;
+        private final Map<Integer, Integer> porStatus = new TreeMap<>();
+
+        synchronized void agregar(long duracion, int status) {
+            if (total == nanos.length) {
+                nanos = Arrays.copyOf(nanos, total * 2);
+            }
+            nanos[total++] = duracion;
+            // 0 = sin respuesta (timeout o excepcion en el cliente)
+            if (status == 0 || status >= 400) {
+                errores++;
+            }
+            porStatus.merge(status, 1, Integer::sum);
+        }
+
+        synchronized String linea(String nombre) {
+            long[] ordenadas = Arrays.copyOf(nanos, total);
+            Arrays.sort(ordenadas);
+            return String.format("%-22s %8d %8.2f %9.1f %9.1f %9.1f %9.1f  %s", nombre, total,
+                    total == 0 ? 0.0 : 100.0 * errores / total,
+                    percentil(ordenadas, 50), percentil(ordenadas, 95), percentil(ordenadas, 99),
+                    ordenadas.length == 0 ? 0.0 : ordenadas[ordenadas.length - 1] / 1e6, porStatus);
+        }
+
+        // metodo del rango mas cercano
+        private static double percentil(long[] ordenadas, int p) {
+            if (ordenadas.length == 0) return 0.0;
+            int indice = (int) Math.ceil(p / 100.0 * ordenadas.length) - 1;
+            return ordenadas[Math.max(indice, 0)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.espaciosdeportivos.controller;
+
+import com.espaciosdeportivos.soporte.DatosPrueba;
+import com.espaciosdeportivos.soporte.LimiteConsultas;
+import com.espaciosdeportivos.soporte.PostgresPrueba;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDate;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Limite de consultas SQL por endpoint sobre un conjunto sembrado en un PostgreSQL desechable.
+// Los listados se resuelven por lotes: el limite es fijo y no crece con las filas (un N+1 lo rompe).
+// Se cuenta en el DataSource, asi que tambien entran las sentencias de JdbcTemplate.
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Testcontainers(disabledWithoutDocker = true)
+@Import({DatosPrueba.class, PostgresPrueba.class})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@WithMockUser(roles = "SUPERUSUARIO")
+class ConsultasPorEndpointTest {
+
+    private static final int AREAS = 3;
+    private static final int CANCHAS_POR_AREA = 4;
+    private static final int CLIENTES = 5;
+    private static final int RESERVAS_POR_CANCHA = 5;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DatosPrueba datosPrueba;
+
+    private DatosPrueba.Semilla semilla;
+
+    @BeforeAll
+    void sembrar() {
+        semilla = datosPrueba.sembrar(AREAS, CANCHAS_POR_AREA, CLIENTES, RESERVAS_POR_CANCHA);
+    }
+
+    @AfterAll
+    void limpiar() {
+        datosPrueba.eliminar(semilla);
+    }
+
+    @Test
+    void listadoDeReservasPorCursor() throws Exception {
+        LimiteConsultas.maximo(8, mockMvc, get("/api/reservas").param("limite", "50"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void reservasDelCliente() throws Exception {
+        LimiteConsultas.maximo(8, mockMvc, get("/api/reservas/cliente/{id}", semilla.idsClientes().get(0)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void reservasPorCancha() throws Exception {
+        LimiteConsultas.maximo(8, mockMvc, get("/api/reservas/{idCancha}/reservas", semilla.idsCanchas().get(0)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void horarioDisponible() throws Exception {
+        LimiteConsultas.maximo(4, mockMvc, get("/api/reservas/horario-disponible")
+                        .param("canchaId", semilla.idsCanchas().get(0).toString())
+                        .param("fecha", LocalDate.now().plusDays(1).toString()))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void detalleDeReserva() throws Exception {
+        LimiteConsultas.maximo(6, mockMvc, get("/api/reservas/{id}", semilla.idsReservas().get(0)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void listadoDeCanchasActivas() throws Exception {
+        // canchas con area y zona, disciplinas, equipamientos e imagenes
+        LimiteConsultas.maximo(6, mockMvc, get("/api/cancha/activos"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void canchasDelArea() throws Exception {
+        LimiteConsultas.maximo(6, mockMvc, get("/api/cancha/area/{idArea}", semilla.idsAreas().get(0)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void listadoDeAreasActivas() throws Exception {
+        // areas con zona y administrador, imagenes
+        LimiteConsultas.maximo(4, mockMvc, get("/api/areasdeportivas/activos"))
+                .andExpect(status().isOk());
+    }
+}
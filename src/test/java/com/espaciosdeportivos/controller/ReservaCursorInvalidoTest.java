@@ -0,0 +1,60 @@
+package com.espaciosdeportivos.controller;
+
+import com.espaciosdeportivos.dto.PaginaDTO;
+import com.espaciosdeportivos.dto.ReservaCursor;
+import com.espaciosdeportivos.dto.ReservaDTO;
+import com.espaciosdeportivos.exception.GlobalExceptionHandler;
+import com.espaciosdeportivos.service.IReservaService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Un cursor que no salio de una pagina anterior es un error del cliente: 400, no 500.
+// Sin BD: el servicio simulado solo decodifica el cursor como lo hace el real antes de consultar.
+class ReservaCursorInvalidoTest {
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void preparar() {
+        IReservaService reservaService = mock(IReservaService.class);
+        when(reservaService.listarTodas(nullable(String.class), any())).thenAnswer(inv -> {
+            ReservaCursor.decodificar(inv.getArgument(0));
+            return PaginaDTO.<ReservaDTO>builder().contenido(List.of()).tamano(50).hayMas(false).build();
+        });
+        ReservaController controller = new ReservaController();
+        ReflectionTestUtils.setField(controller, "reservaService", reservaService);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .setControllerAdvice(new GlobalExceptionHandler(new SimpleMeterRegistry()))
+                .build();
+    }
+
+    @Test
+    void cursorMalformadoResponde400() throws Exception {
+        mockMvc.perform(get("/api/reservas").param("cursor", "no-es-un-cursor"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string(containsString("no-es-un-cursor")));
+    }
+
+    @Test
+    void sinCursorDevuelveLaPrimeraPagina() throws Exception {
+        mockMvc.perform(get("/api/reservas"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.hayMas").value(false));
+    }
+}
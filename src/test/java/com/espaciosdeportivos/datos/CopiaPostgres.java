@@ -0,0 +1,74 @@
+package com.espaciosdeportivos.datos;
+
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+
+// COPY ... FROM STDIN en formato texto: las filas se juntan en un buffer y se envian de a ~1 MB
+final class CopiaPostgres implements AutoCloseable {
+
+    private static final int BYTES_POR_ENVIO = 1 << 20;
+
+    private final CopyIn copyIn;
+    private final StringBuilder buffer = new StringBuilder(BYTES_POR_ENVIO + 4096);
+    private long filas;
+
+    CopiaPostgres(CopyManager copyManager, String tabla, String columnas) throws SQLException {
+        this.copyIn = copyManager.copyIn("COPY " + tabla + " (" + columnas + ") FROM STDIN");
+    }
+
+    void fila(Object... valores) throws SQLException {
+        for (int i = 0; i < valores.length; i++) {
+            if (i > 0) buffer.append('\t');
+            agregar(valores[i]);
+        }
+        buffer.append('\n');
+        filas++;
+        if (buffer.length() >= BYTES_POR_ENVIO) {
+            enviar();
+        }
+    }
+
+    long filas() {
+        return filas;
+    }
+
+    private void agregar(Object valor) {
+        if (valor == null) {
+            buffer.append("\\N");
+        } else if (valor instanceof Boolean b) {
+            buffer.append(b ? 't' : 'f');
+        } else if (valor instanceof String s) {
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                switch (c) {
+                    case '\\' -> buffer.append("\\\\");
+                    case '\t' -> buffer.append("\\t");
+                    case '\n' -> buffer.append("\\n");
+                    case '\r' -> buffer.append("\\r");
+                    default -> buffer.append(c);
+                }
+            }
+        } else {
+            // numeros y java.time (ISO-8601, que PostgreSQL acepta tal cual)
+            buffer.append(valor);
+        }
+    }
+
+    private void enviar() throws SQLException {
+        byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        buffer.setLength(0);
+    }
+
+    @Override
+    public void close() throws SQLException {
+        // si el COPY ya fallo, la conexion lo cancelo y la transaccion se descarta
+        if (copyIn.isActive()) {
+            enviar();
+            copyIn.endCopy();
+        }
+    }
+}
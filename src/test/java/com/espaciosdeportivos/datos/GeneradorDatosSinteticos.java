@@ -0,0 +1,400 @@
+package com.espaciosdeportivos.datos;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.SplittableRandom;
+
+// Llena el esquema (ya creado por Hibernate al levantar la app una vez) con volumenes realistas usando COPY.
+//   mvn -Pdatos-sinteticos test-compile exec:java [-Ddatos.reservas=2000000 -Ddatos.url=jdbc:postgresql://...]
+// Los ids continuan desde el maximo actual de cada tabla, asi que se puede correr sobre datos existentes.
+// Todo va en una transaccion: si algo falla no queda nada a medias.
+public final class GeneradorDatosSinteticos {
+
+    private static final Logger logger = LoggerFactory.getLogger(GeneradorDatosSinteticos.class);
+
+    // misma restriccion que crea ReservaSolapamientoInitializer
+    private static final String CONSTRAINT_SOLAPAMIENTO = "incluye_cancha_sin_solapamiento";
+
+    // reservas de una hora entre las 08:00 y las 22:00, repartidas en un año hacia atras y medio hacia adelante
+    private static final int PRIMERA_HORA = 8;
+    private static final int HORAS_POR_DIA = 14;
+    private static final int DIAS_PASADOS = 365;
+    private static final int DIAS_FUTUROS = 180;
+
+    private static final String[] NOMBRES = {"Juan", "Maria", "Carlos", "Ana", "Luis", "Sofia", "Jorge", "Lucia",
+            "Miguel", "Valeria", "Diego", "Camila", "Pedro", "Daniela", "Jose", "Gabriela"};
+    private static final String[] APELLIDOS = {"Mamani", "Quispe", "Flores", "Gutierrez", "Lopez", "Choque",
+            "Condori", "Rojas", "Vargas", "Fernandez", "Torrez", "Apaza", "Perez", "Limachi"};
+    private static final String[] DISCIPLINAS = {"Futsal", "Basquet", "Voleibol", "Tenis", "Raquet", "Fulbito"};
+    private static final String[] SUPERFICIES = {"Sintetico", "Cemento", "Parquet", "Cesped"};
+    private static final String[] COMENTARIOS = {"Muy buena cancha", "La iluminacion podria mejorar",
+            "Excelente atencion", "Los vestuarios estaban sucios", "Buen precio", "Volveremos"};
+
+    private final int macrodistritos = Integer.getInteger("datos.macrodistritos", 10);
+    private final int zonasPorMacrodistrito = Integer.getInteger("datos.zonas-por-macrodistrito", 10);
+    private final int areas = Integer.getInteger("datos.areas", 2000);
+    private final int canchasPorArea = Integer.getInteger("datos.canchas-por-area", 3);
+    private final int disciplinasPorArea = Integer.getInteger("datos.disciplinas-por-area", 2);
+    private final int clientes = Integer.getInteger("datos.clientes", 100_000);
+    private final int invitados = Integer.getInteger("datos.invitados", 50_000);
+    private final int reservas = Integer.getInteger("datos.reservas", 1_000_000);
+    private final int comentarios = Integer.getInteger("datos.comentarios", 200_000);
+
+    private final long semilla = Long.getLong("datos.semilla", 42L);
+    private final SplittableRandom random = new SplittableRandom(semilla);
+    private final LocalDate hoy = LocalDate.now();
+
+    // primer id libre de cada tabla
+    private long baseMacro, baseZona, basePersona, baseArea, baseDisciplina, baseCancha;
+    private long baseReserva, basePago, baseQr, baseComentario;
+
+    public static void main(String[] args) throws Exception {
+        String url = System.getProperty("datos.url", "jdbc:postgresql://localhost:5432/abasediesinueve");
+        String usuario = System.getProperty("datos.usuario", "user_espacios_qr");
+        String clave = System.getProperty("datos.clave", "1234");
+        try (Connection conexion = DriverManager.getConnection(url, usuario, clave)) {
+            new GeneradorDatosSinteticos().generar(conexion);
+        }
+    }
+
+    void generar(Connection conexion) throws SQLException {
+        int canchas = areas * canchasPorArea;
+        if ((long) reservas > (long) canchas * HORAS_POR_DIA * (DIAS_PASADOS + DIAS_FUTUROS)) {
+            throw new IllegalArgumentException("No caben " + reservas + " reservas sin solaparse en " + canchas + " canchas");
+        }
+
+        long inicio = System.nanoTime();
+        conexion.setAutoCommit(false);
+        CopyManager copyManager = conexion.unwrap(PGConnection.class).getCopyAPI();
+        try (Statement st = conexion.createStatement()) {
+            leerIdsBase(st);
+            // el trigger copia el horario fila por fila y la restriccion GiST se valida por fila:
+            // se cargan las columnas directo y la restriccion se arma una sola vez al final
+            boolean teniaRestriccion = existeRestriccion(st);
+            st.execute("ALTER TABLE incluye DISABLE TRIGGER incluye_horario");
+            if (teniaRestriccion) {
+                st.execute("ALTER TABLE incluye DROP CONSTRAINT " + CONSTRAINT_SOLAPAMIENTO);
+            }
+
+            generarUbicaciones(copyManager);
+            generarPersonas(copyManager);
+            generarAreasYCanchas(copyManager);
+            generarReservas(copyManager);
+            generarComentarios(copyManager);
+
+            st.execute("ALTER TABLE incluye ENABLE TRIGGER incluye_horario");
+            if (teniaRestriccion) {
+                logger.info("Recreando {}...", CONSTRAINT_SOLAPAMIENTO);
+                st.execute("ALTER TABLE incluye ADD CONSTRAINT " + CONSTRAINT_SOLAPAMIENTO
+                        + " EXCLUDE USING gist (id_cancha WITH =, rango WITH &&) WHERE (activa)");
+            }
+            ajustarSecuencias(st);
+            conexion.commit();
+        } catch (SQLException | RuntimeException e) {
+            conexion.rollback();
+            throw e;
+        }
+
+        conexion.setAutoCommit(true);
+        try (Statement st = conexion.createStatement()) {
+            st.execute("ANALYZE");
+        }
+        logger.info("Datos sinteticos generados en {} s", (System.nanoTime() - inicio) / 1_000_000_000L);
+    }
+
+    private void leerIdsBase(Statement st) throws SQLException {
+        baseMacro = siguienteId(st, "macrodistrito", "id_macrodistrito");
+        baseZona = siguienteId(st, "zona", "id_zona");
+        basePersona = siguienteId(st, "persona", "id_persona");
+        baseArea = siguienteId(st, "areadeportiva", "id_areadeportiva");
+        baseDisciplina = siguienteId(st, "disciplina", "id_disciplina");
+        baseCancha = siguienteId(st, "cancha", "id_cancha");
+        baseReserva = siguienteId(st, "reserva", "id_reserva");
+        basePago = siguienteId(st, "pago", "id_pago");
+        baseQr = siguienteId(st, "qr", "id_qr");
+        baseComentario = siguienteId(st, "comentario", "id_comentario");
+    }
+
+    private static long siguienteId(Statement st, String tabla, String columna) throws SQLException {
+        try (ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(" + columna + "), 0) + 1 FROM " + tabla)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static boolean existeRestriccion(Statement st) throws SQLException {
+        try (ResultSet rs = st.executeQuery(
+                "SELECT 1 FROM pg_constraint WHERE conname = '" + CONSTRAINT_SOLAPAMIENTO + "'")) {
+            return rs.next();
+        }
+    }
+
+    // las columnas identity no avanzan con ids explicitos: se ponen al maximo cargado
+    private static void ajustarSecuencias(Statement st) throws SQLException {
+        String[][] tablas = {{"macrodistrito", "id_macrodistrito"}, {"zona", "id_zona"}, {"persona", "id_persona"},
+                {"areadeportiva", "id_areadeportiva"}, {"disciplina", "id_disciplina"}, {"cancha", "id_cancha"},
+                {"reserva", "id_reserva"}, {"pago", "id_pago"}, {"qr", "id_qr"}, {"comentario", "id_comentario"}};
+        for (String[] t : tablas) {
+            st.execute("SELECT setval(pg_get_serial_sequence('" + t[0] + "', '" + t[1] + "'), "
+                    + "(SELECT MAX(" + t[1] + ") FROM " + t[0] + "))");
+        }
+    }
+
+    private void generarUbicaciones(CopyManager copyManager) throws SQLException {
+        try (CopiaPostgres macro = new CopiaPostgres(copyManager, "macrodistrito",
+                "id_macrodistrito, nombre_macrodistrito, descripcion, estado")) {
+            for (int m = 0; m < macrodistritos; m++) {
+                macro.fila(baseMacro + m, "Macrodistrito " + (m + 1), "Generado", true);
+            }
+        }
+        try (CopiaPostgres zona = new CopiaPostgres(copyManager, "zona",
+                "id_zona, nombre_zona, descripcion, estado, id_macrodistrito")) {
+            for (int z = 0; z < macrodistritos * zonasPorMacrodistrito; z++) {
+                zona.fila(baseZona + z, "Zona " + (z + 1), "Generada", true, baseMacro + z / zonasPorMacrodistrito);
+            }
+        }
+        logger.info("Macrodistritos: {}, zonas: {}", macrodistritos, macrodistritos * zonasPorMacrodistrito);
+    }
+
+    // ids de persona: [administradores (uno por area)][clientes][invitados]
+    private long idAdministrador(int area) {
+        return basePersona + area;
+    }
+
+    private long idCliente(int cliente) {
+        return basePersona + areas + cliente;
+    }
+
+    private long idInvitado(int invitado) {
+        return basePersona + areas + clientes + invitado;
+    }
+
+    private void generarPersonas(CopyManager copyManager) throws SQLException {
+        int total = areas + clientes + invitados;
+        try (CopiaPostgres persona = new CopiaPostgres(copyManager, "persona",
+                "id_persona, fecha_nacimiento, nombre, a_paterno, a_materno, telefono, email, url_imagen, estado")) {
+            for (int p = 0; p < total; p++) {
+                long id = basePersona + p;
+                persona.fila(id, LocalDate.of(1960 + random.nextInt(45), 1 + random.nextInt(12), 1 + random.nextInt(28)),
+                        elegir(NOMBRES), elegir(APELLIDOS), elegir(APELLIDOS),
+                        "7" + (1_000_000 + random.nextInt(9_000_000)), "persona" + id + "@generado.bo", "", true);
+            }
+        }
+        try (CopiaPostgres administrador = new CopiaPostgres(copyManager, "administrador",
+                "id_persona, cargo, direccion")) {
+            for (int a = 0; a < areas; a++) {
+                administrador.fila(idAdministrador(a), "Encargado", "Calle " + (a + 1));
+            }
+        }
+        try (CopiaPostgres cliente = new CopiaPostgres(copyManager, "cliente", "id_persona, categoria")) {
+            for (int c = 0; c < clientes; c++) {
+                cliente.fila(idCliente(c), random.nextInt(10) == 0 ? "VIP" : "REGULAR");
+            }
+        }
+        try (CopiaPostgres invitado = new CopiaPostgres(copyManager, "invitado", "id_persona, verificado")) {
+            for (int i = 0; i < invitados; i++) {
+                invitado.fila(idInvitado(i), random.nextBoolean());
+            }
+        }
+        logger.info("Personas: {} (administradores {}, clientes {}, invitados {})", total, areas, clientes, invitados);
+    }
+
+    private long idCancha(int cancha) {
+        return baseCancha + cancha;
+    }
+
+    // disciplina que se juega en la cancha (una de las de su area)
+    private long idDisciplinaDeCancha(int cancha) {
+        int area = cancha / canchasPorArea;
+        return baseDisciplina + (long) area * disciplinasPorArea + cancha % disciplinasPorArea;
+    }
+
+    private void generarAreasYCanchas(CopyManager copyManager) throws SQLException {
+        int zonas = macrodistritos * zonasPorMacrodistrito;
+        LocalDateTime creacion = hoy.minusDays(DIAS_PASADOS).atStartOfDay();
+        try (CopiaPostgres area = new CopiaPostgres(copyManager, "areadeportiva",
+                "id_areadeportiva, nombre_area, descripcion_area, email_area, telefono_area, hora_inicio_area, "
+                        + "hora_fin_area, url_imagen, latitud, longitud, estado, id_zona, id_persona")) {
+            for (int a = 0; a < areas; a++) {
+                area.fila(baseArea + a, "Area deportiva " + (a + 1), "Generada", "area" + (a + 1) + "@generado.bo",
+                        "2" + (1_000_000 + random.nextInt(9_000_000)), LocalTime.of(7, 0), LocalTime.of(23, 0), "",
+                        -16.5 + random.nextDouble() * 0.2, -68.15 + random.nextDouble() * 0.2, true,
+                        baseZona + a % zonas, idAdministrador(a));
+            }
+        }
+        try (CopiaPostgres disciplina = new CopiaPostgres(copyManager, "disciplina",
+                "id_disciplina, nombre, descripcion, estado, fecha_creacion, fecha_actualizacion, id_areadeportiva")) {
+            for (int a = 0; a < areas; a++) {
+                for (int d = 0; d < disciplinasPorArea; d++) {
+                    disciplina.fila(baseDisciplina + (long) a * disciplinasPorArea + d,
+                            DISCIPLINAS[d % DISCIPLINAS.length], null, true, creacion, creacion, baseArea + a);
+                }
+            }
+        }
+        int canchas = areas * canchasPorArea;
+        try (CopiaPostgres cancha = new CopiaPostgres(copyManager, "cancha",
+                "id_cancha, nombre_cancha, costo_hora, capacidad, mantenimiento, hora_inicio, hora_fin, "
+                        + "tipo_superficie, tamano, iluminacion, cubierta, url_imagen, estado, id_areadeportiva")) {
+            for (int c = 0; c < canchas; c++) {
+                cancha.fila(idCancha(c), "Cancha " + (c % canchasPorArea + 1), 50.0 + 10 * random.nextInt(10),
+                        10 + random.nextInt(15), "NO", LocalTime.of(7, 0), LocalTime.of(23, 0), elegir(SUPERFICIES),
+                        random.nextBoolean() ? "Mediana" : "Grande", random.nextBoolean() ? "LED" : "Halogena",
+                        random.nextBoolean() ? "SI" : "NO", "", true, baseArea + c / canchasPorArea);
+            }
+        }
+        try (CopiaPostgres sepractica = new CopiaPostgres(copyManager, "sepractica", "id_cancha, id_disciplina")) {
+            for (int c = 0; c < canchas; c++) {
+                sepractica.fila(idCancha(c), idDisciplinaDeCancha(c));
+            }
+        }
+        logger.info("Areas: {}, disciplinas: {}, canchas: {}", areas, areas * disciplinasPorArea, canchas);
+    }
+
+    // Cada reserva: incluye, un pago (confirmado si la reserva esta pagada) y QR del cliente si se pago.
+    // Una de cada tres lleva un invitado (participa + su QR).
+    // Una conexion solo puede tener un COPY abierto a la vez, asi que se hace una pasada por tabla;
+    // cada reserva se deriva de su propio indice para que todas las pasadas vean los mismos datos.
+    private void generarReservas(CopyManager copyManager) throws SQLException {
+        try (CopiaPostgres reserva = new CopiaPostgres(copyManager, "reserva",
+                "id_reserva, fecha_creacion, fecha_reserva, hora_inicio, hora_fin, estado_reserva, observaciones, "
+                        + "duracion_minutos, total_pagado, saldo_pendiente, pagada_completa, id_cliente")) {
+            for (int r = 0; r < reservas; r++) {
+                ReservaSintetica s = reservaSintetica(r);
+                reserva.fila(s.id(), s.creada(), s.fecha(), s.inicio(), s.fin(), s.estado(), null, 60,
+                        s.pagada() ? s.monto() : 0.0, s.pagada() ? 0.0 : s.monto(), s.pagada(), s.idCliente());
+                if ((r + 1) % 250_000 == 0) {
+                    logger.info("Reservas: {}/{}", r + 1, reservas);
+                }
+            }
+        }
+        try (CopiaPostgres incluye = new CopiaPostgres(copyManager, "incluye",
+                "id_cancha, id_reserva, id_disciplina, monto_total, invitados_confirmados, "
+                        + "fecha_reserva, hora_inicio, hora_fin, activa")) {
+            for (int r = 0; r < reservas; r++) {
+                ReservaSintetica s = reservaSintetica(r);
+                incluye.fila(idCancha(s.cancha()), s.id(), idDisciplinaDeCancha(s.cancha()), s.monto(),
+                        s.pagada() && s.idInvitado() != null ? 1 : 0, s.fecha(), s.inicio(), s.fin(), s.activa());
+            }
+        }
+        try (CopiaPostgres pago = new CopiaPostgres(copyManager, "pago",
+                "id_pago, monto, fecha, tipo_pago, metodo_pago, estado, codigo_transaccion, descripcion, "
+                        + "fecha_creacion, fecha_actualizacion, id_reserva, id_cliente")) {
+            for (int r = 0; r < reservas; r++) {
+                ReservaSintetica s = reservaSintetica(r);
+                long idPago = basePago + r;
+                pago.fila(idPago, s.monto(), s.creada().toLocalDate(), "TOTAL", s.metodoPago(),
+                        s.pagada() ? "CONFIRMADO" : (s.estado().equals("CANCELADA") ? "ANULADO" : "PENDIENTE"),
+                        "GEN-" + idPago, null, s.creada(), s.creada(), s.id(), s.idCliente());
+            }
+        }
+        long participaciones;
+        try (CopiaPostgres participa = new CopiaPostgres(copyManager, "participa",
+                "id_invitado, id_reserva, fecha_invitacion, asistio, confirmado, notificado")) {
+            for (int r = 0; r < reservas; r++) {
+                ReservaSintetica s = reservaSintetica(r);
+                if (s.pagada() && s.idInvitado() != null) {
+                    participa.fila(s.idInvitado(), s.id(), s.creada(), s.ingreso() != null, true, true);
+                }
+            }
+            participaciones = participa.filas();
+        }
+        long qrs;
+        try (CopiaPostgres qr = new CopiaPostgres(copyManager, "qr",
+                "id_qr, codigo_qr, url_qr, fecha_generacion, fecha_expiracion, estado, descripcion, "
+                        + "fecha_ingreso, es_cliente, id_usuario, id_persona, id_reserva")) {
+            long idQr = baseQr;
+            for (int r = 0; r < reservas; r++) {
+                ReservaSintetica s = reservaSintetica(r);
+                if (!s.pagada()) {
+                    continue;
+                }
+                filaQr(qr, idQr++, s, s.idCliente(), true);
+                if (s.idInvitado() != null) {
+                    filaQr(qr, idQr++, s, s.idInvitado(), false);
+                }
+            }
+            qrs = qr.filas();
+        }
+        logger.info("Reservas: {}, incluye: {}, pagos: {}, participa: {}, qr: {}",
+                reservas, reservas, reservas, participaciones, qrs);
+    }
+
+    private void filaQr(CopiaPostgres qr, long idQr, ReservaSintetica s, long idPersona, boolean esCliente)
+            throws SQLException {
+        String codigo = codigoQr(s.id(), idPersona, idQr);
+        boolean vigente = !s.fecha().isBefore(hoy);
+        qr.fila(idQr, codigo, "/api/qr/imagen/" + codigo, s.creada(), s.fecha().atTime(s.fin()), vigente,
+                esCliente ? "QR del cliente" : "QR de invitado", s.ingreso(), esCliente,
+                s.idCliente(), idPersona, s.id());
+    }
+
+    private record ReservaSintetica(long id, int cancha, LocalDate fecha, LocalTime inicio, LocalTime fin,
+                                    LocalDateTime creada, String estado, boolean pagada, boolean activa,
+                                    double monto, long idCliente, String metodoPago, Long idInvitado,
+                                    LocalDateTime ingreso) {
+    }
+
+    // La ranura k de una cancha es (dia k % dias, hora k / dias): nunca se solapan dentro de la cancha
+    private ReservaSintetica reservaSintetica(int r) {
+        SplittableRandom rnd = new SplittableRandom(semilla * 31 + r);
+        int canchas = areas * canchasPorArea;
+        int dias = DIAS_PASADOS + DIAS_FUTUROS;
+        int cancha = r % canchas;
+        int ranura = r / canchas;
+        LocalDate fecha = hoy.minusDays(DIAS_PASADOS).plusDays(ranura % dias);
+        LocalTime inicio = LocalTime.of(PRIMERA_HORA + ranura / dias, 0);
+        LocalTime fin = inicio.plusHours(1);
+        LocalDateTime creada = fecha.minusDays(1 + rnd.nextInt(20)).atTime(12, 0);
+
+        String estado = estadoReserva(rnd, fecha);
+        boolean pagada = !estado.equals("PENDIENTE") && !estado.equals("CANCELADA");
+        boolean activa = estado.equals("PENDIENTE") || estado.equals("CONFIRMADA") || estado.equals("EN_CURSO");
+        Long idInvitado = invitados > 0 && r % 3 == 0 ? idInvitado(rnd.nextInt(invitados)) : null;
+        LocalDateTime ingreso = estado.equals("COMPLETADA") ? fecha.atTime(inicio).minusMinutes(10) : null;
+        return new ReservaSintetica(baseReserva + r, cancha, fecha, inicio, fin, creada, estado, pagada, activa,
+                100.0, idCliente(rnd.nextInt(clientes)), rnd.nextBoolean() ? "QR" : "TRANSFERENCIA",
+                idInvitado, ingreso);
+    }
+
+    // pasadas: casi todas completadas; futuras: confirmadas o pendientes de pago
+    private String estadoReserva(SplittableRandom rnd, LocalDate fecha) {
+        int dado = rnd.nextInt(100);
+        if (fecha.isBefore(hoy)) {
+            return dado < 85 ? "COMPLETADA" : dado < 95 ? "CANCELADA" : "NO_SHOW";
+        }
+        return dado < 60 ? "CONFIRMADA" : dado < 90 ? "PENDIENTE" : "CANCELADA";
+    }
+
+    // mismo formato que QrServiceImpl (qr_<reserva>_<persona>_<sufijo>); el sufijo sale del id, asi es unico
+    private static String codigoQr(long idReserva, long idPersona, long idQr) {
+        return "qr_" + idReserva + "_" + idPersona + "_" + String.format("%08x", idQr);
+    }
+
+    private void generarComentarios(CopyManager copyManager) throws SQLException {
+        int canchas = areas * canchasPorArea;
+        try (CopiaPostgres comentario = new CopiaPostgres(copyManager, "comentario",
+                "id_comentario, contenido, calificacion, fecha, estado, id_persona, id_cancha")) {
+            for (int c = 0; c < comentarios; c++) {
+                comentario.fila(baseComentario + c, elegir(COMENTARIOS), 1 + random.nextInt(5),
+                        hoy.minusDays(random.nextInt(DIAS_PASADOS)).atTime(20, 0), true,
+                        idCliente(random.nextInt(clientes)), idCancha(random.nextInt(canchas)));
+            }
+        }
+        logger.info("Comentarios: {}", comentarios);
+    }
+
+    private String elegir(String[] opciones) {
+        return opciones[random.nextInt(opciones.length)];
+    }
+}
@@ -0,0 +1,62 @@
+package com.espaciosdeportivos.dto;
+
+import com.espaciosdeportivos.exception.CursorInvalidoException;
+import com.espaciosdeportivos.model.Reserva;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.NullAndEmptySource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Cursor de paginacion de reservas: ida y vuelta, primera pagina y textos que no son un cursor
+class ReservaCursorTest {
+
+    @Test
+    void codificarYDecodificarDevuelveLaMismaPosicion() {
+        Reserva reserva = new Reserva();
+        reserva.setIdReserva(42L);
+        reserva.setFechaReserva(LocalDate.of(2026, 3, 14));
+        reserva.setHoraInicio(LocalTime.of(18, 30));
+
+        String cursor = ReservaCursor.de(reserva).codificar();
+
+        assertThat(ReservaCursor.decodificar(cursor))
+                .isEqualTo(new ReservaCursor(LocalDate.of(2026, 3, 14), LocalTime.of(18, 30), 42L));
+    }
+
+    @Test
+    void elCursorEsSeguroEnUnaUrl() {
+        String cursor = new ReservaCursor(LocalDate.of(2026, 12, 31), LocalTime.of(23, 59), Long.MAX_VALUE).codificar();
+
+        assertThat(cursor).matches("[A-Za-z0-9_-]+");
+    }
+
+    @ParameterizedTest
+    @NullAndEmptySource
+    @ValueSource(strings = {"  "})
+    void sinCursorEmpiezaDesdeElInicio(String cursor) {
+        assertThat(ReservaCursor.decodificar(cursor)).isEqualTo(ReservaCursor.INICIO);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"no es base64!", "2026-03-14|18:30", "2026-13-40|18:30|1", "2026-03-14|25:00|1",
+            "2026-03-14|18:30|uno"})
+    void rechazaCursoresMalformados(String texto) {
+        String cursor = texto.contains("|") ? base64(texto) : texto;
+
+        assertThatThrownBy(() -> ReservaCursor.decodificar(cursor))
+                .isInstanceOf(CursorInvalidoException.class)
+                .hasMessageContaining(cursor);
+    }
+
+    private static String base64(String texto) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(texto.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,66 @@
+package com.espaciosdeportivos.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Limites de login y registro: cada rechazo se cuenta en Micrometer con el limite que lo causo
+class AuthRateLimiterTest {
+
+    private MeterRegistry meterRegistry;
+    private AuthRateLimiter limiter;
+
+    @BeforeEach
+    void preparar() {
+        meterRegistry = new SimpleMeterRegistry();
+        limiter = new AuthRateLimiter(meterRegistry, 2, 1, 1, 1, 1, 1, 100);
+    }
+
+    @Test
+    void cuentaPermitidasYRechazadasPorLimite() {
+        limiter.intentarLoginIp("10.0.0.1");
+        limiter.intentarLoginIp("10.0.0.1");
+        limiter.intentarLoginIp("10.0.0.1");
+        limiter.intentarRegistroIp("10.0.0.1");
+        limiter.intentarRegistroIp("10.0.0.1");
+
+        assertThat(meterRegistry.get("auth.rate-limit.permitidas").counter().count()).isEqualTo(3);
+        assertThat(rechazadas("login-ip")).isEqualTo(1);
+        assertThat(rechazadas("registro-ip")).isEqualTo(1);
+        assertThat(rechazadas("login-usuario")).isZero();
+        assertThat(limiter.estadisticas())
+                .containsEntry("permitidas", 3L)
+                .containsEntry("rechazadasLoginIp", 1L)
+                .containsEntry("rechazadasRegistroIp", 1L);
+    }
+
+    @Test
+    void elUsuarioNoDistingueMayusculas() {
+        assertThat(limiter.intentarLoginUsuario("Ana")).isZero();
+        assertThat(limiter.intentarLoginUsuario("ana")).isPositive();
+
+        assertThat(rechazadas("login-usuario")).isEqualTo(1);
+    }
+
+    @Test
+    void publicaLaCantidadDeBaldes() {
+        limiter.intentarLoginIp("10.0.0.1");
+        limiter.intentarLoginIp("10.0.0.2");
+        limiter.intentarLoginUsuario("ana");
+
+        assertThat(baldes("login-ip")).isEqualTo(2);
+        assertThat(baldes("login-usuario")).isEqualTo(1);
+        assertThat(baldes("registro-ip")).isZero();
+    }
+
+    private double rechazadas(String limite) {
+        return meterRegistry.get("auth.rate-limit.rechazadas").tag("limite", limite).counter().count();
+    }
+
+    private double baldes(String limite) {
+        return meterRegistry.get("auth.rate-limit.baldes").tag("limite", limite).gauge().value();
+    }
+}
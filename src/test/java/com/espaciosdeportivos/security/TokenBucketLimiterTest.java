@@ -0,0 +1,109 @@
+package com.espaciosdeportivos.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Token bucket con un reloj simulado: consumo, recarga, tope de capacidad y descarte de baldes
+class TokenBucketLimiterTest {
+
+    private final AtomicLong reloj = new AtomicLong(1_000L);
+
+    @Test
+    void permiteHastaLaCapacidadYLuegoPideEsperar() {
+        TokenBucketLimiter limiter = limiter(3, 60, 100);
+
+        assertThat(limiter.intentar("ip")).isZero();
+        assertThat(limiter.intentar("ip")).isZero();
+        assertThat(limiter.intentar("ip")).isZero();
+        // 60 por minuto: el siguiente token llega en un segundo
+        assertThat(limiter.intentar("ip")).isEqualTo(1);
+    }
+
+    @Test
+    void elRetryAfterEsElTiempoHastaElProximoToken() {
+        TokenBucketLimiter limiter = limiter(1, 1, 100);
+
+        assertThat(limiter.intentar("usuario")).isZero();
+        assertThat(limiter.intentar("usuario")).isEqualTo(60);
+
+        avanzar(30, TimeUnit.SECONDS);
+        assertThat(limiter.intentar("usuario")).isEqualTo(30);
+    }
+
+    @Test
+    void recargaConElTiempo() {
+        TokenBucketLimiter limiter = limiter(2, 60, 100);
+        limiter.intentar("ip");
+        limiter.intentar("ip");
+        assertThat(limiter.intentar("ip")).isPositive();
+
+        avanzar(1, TimeUnit.SECONDS);
+
+        assertThat(limiter.intentar("ip")).isZero();
+        assertThat(limiter.intentar("ip")).isPositive();
+    }
+
+    @Test
+    void laRecargaNoPasaDeLaCapacidad() {
+        TokenBucketLimiter limiter = limiter(2, 60, 100);
+        limiter.intentar("ip");
+
+        avanzar(10, TimeUnit.MINUTES);
+
+        assertThat(limiter.intentar("ip")).isZero();
+        assertThat(limiter.intentar("ip")).isZero();
+        assertThat(limiter.intentar("ip")).isPositive();
+    }
+
+    @Test
+    void lasClavesSonIndependientes() {
+        TokenBucketLimiter limiter = limiter(1, 1, 100);
+
+        assertThat(limiter.intentar("a")).isZero();
+        assertThat(limiter.intentar("a")).isPositive();
+        assertThat(limiter.intentar("b")).isZero();
+    }
+
+    @Test
+    void alLlenarseDescartaLosBaldesInactivos() {
+        TokenBucketLimiter limiter = limiter(5, 60, 10);
+        for (int i = 0; i < 10; i++) {
+            limiter.intentar("ip-" + i);
+        }
+
+        // 5 tokens a 60 por minuto: en 5 segundos todos los baldes vuelven a estar llenos
+        avanzar(5, TimeUnit.SECONDS);
+        limiter.intentar("nueva");
+
+        assertThat(limiter.claves()).isEqualTo(1);
+    }
+
+    @Test
+    void alLlenarseConservaElBaldeVaciadoYDescartaLosMasLlenos() {
+        TokenBucketLimiter limiter = limiter(5, 1, 10);
+        for (int i = 0; i < 5; i++) {
+            limiter.intentar("atacada");
+        }
+        for (int i = 0; i < 9; i++) {
+            limiter.intentar("ip-" + i);
+        }
+
+        limiter.intentar("nueva");
+
+        // ninguno inactivo: se baja al 90% quitando el balde con mas tokens, nunca el vaciado
+        assertThat(limiter.claves()).isEqualTo(10);
+        assertThat(limiter.intentar("atacada")).isPositive();
+    }
+
+    private TokenBucketLimiter limiter(int capacidad, int porMinuto, int maxClaves) {
+        return new TokenBucketLimiter(capacidad, porMinuto, maxClaves, reloj::get);
+    }
+
+    private void avanzar(long cantidad, TimeUnit unidad) {
+        reloj.addAndGet(unidad.toNanos(cantidad));
+    }
+}
@@ -0,0 +1,96 @@
+package com.espaciosdeportivos.service.impl;
+
+import com.espaciosdeportivos.model.AreaDeportiva;
+import com.espaciosdeportivos.model.Cancha;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Ocupacion de una cancha en un dia: horario efectivo, cortes de bloques y reservas que se mueven o liberan
+class AgendaDiaCanchaTest {
+
+    @Test
+    void usaLaVentanaDeLaCanchaCuandoEsMasAngostaQueLaDelArea() {
+        AgendaDiaCancha agenda = agenda("08:00", "22:00", "10:00", "12:00");
+
+        assertThat(agenda.bloquesLibres(30))
+                .containsExactly("10:00 - 10:30", "10:30 - 11:00", "11:00 - 11:30", "11:30 - 12:00");
+    }
+
+    @Test
+    void usaLaVentanaDelAreaCuandoEsMasAngostaQueLaDeLaCancha() {
+        AgendaDiaCancha agenda = agenda("09:00", "11:00", "07:00", "23:00");
+
+        assertThat(agenda.bloquesLibres(60)).containsExactly("09:00 - 10:00", "10:00 - 11:00");
+    }
+
+    @Test
+    void cortaBloquesDeDuracionDistintaATreintaMinutos() {
+        AgendaDiaCancha agenda = agenda("10:00", "12:00", null, null);
+
+        // el ultimo bloque de 45 terminaria 12:15, fuera del horario
+        assertThat(agenda.bloquesLibres(45)).containsExactly("10:00 - 10:45", "10:45 - 11:30");
+
+        agenda.ocupar(1L, hora("10:30"), hora("11:00"));
+        // el hueco de 30 minutos antes de la reserva no alcanza para un bloque de 60
+        assertThat(agenda.bloquesLibres(60)).containsExactly("11:00 - 12:00");
+        assertThat(agenda.bloquesLibres(20)).containsExactly(
+                "10:00 - 10:20", "11:00 - 11:20", "11:20 - 11:40", "11:40 - 12:00");
+    }
+
+    @Test
+    void reservaQueTerminaAMedianocheOcupaHastaElFinDelDia() {
+        AgendaDiaCancha agenda = agenda("18:00", "23:00", null, null);
+
+        agenda.ocupar(1L, hora("22:00"), LocalTime.MIDNIGHT);
+
+        assertThat(agenda.bloquesLibres(60))
+                .containsExactly("18:00 - 19:00", "19:00 - 20:00", "20:00 - 21:00", "21:00 - 22:00");
+    }
+
+    @Test
+    void ocuparYLiberarDejaLaAgendaComoEstaba() {
+        AgendaDiaCancha agenda = agenda("08:00", "12:00", null, null);
+        List<String> libre = agenda.bloquesLibres(30);
+
+        agenda.ocupar(1L, hora("09:00"), hora("10:00"));
+        agenda.ocupar(2L, hora("09:30"), hora("10:30"));
+        agenda.liberar(1L);
+        // la reserva 2 sigue ocupando su tramo aunque se solapaba con la liberada
+        assertThat(agenda.bloquesLibres(30)).doesNotContain("09:30 - 10:00", "10:00 - 10:30")
+                .contains("09:00 - 09:30");
+
+        agenda.liberar(2L);
+        assertThat(agenda.bloquesLibres(30)).isEqualTo(libre);
+    }
+
+    @Test
+    void ocuparDeNuevoUnaReservaLaMueveDeHorario() {
+        AgendaDiaCancha agenda = agenda("08:00", "10:00", null, null);
+
+        agenda.ocupar(1L, hora("08:00"), hora("09:00"));
+        agenda.ocupar(1L, hora("09:00"), hora("10:00"));
+
+        assertThat(agenda.bloquesLibres(60)).containsExactly("08:00 - 09:00");
+    }
+
+    private static AgendaDiaCancha agenda(String aperturaArea, String cierreArea,
+                                          String aperturaCancha, String cierreCancha) {
+        AreaDeportiva area = new AreaDeportiva();
+        area.setHoraInicioArea(hora(aperturaArea));
+        area.setHoraFinArea(hora(cierreArea));
+        Cancha cancha = new Cancha();
+        cancha.setIdCancha(1L);
+        cancha.setHoraInicio(hora(aperturaCancha));
+        cancha.setHoraFin(hora(cierreCancha));
+        cancha.setAreaDeportiva(area);
+        return AgendaDiaCancha.paraCancha(cancha);
+    }
+
+    private static LocalTime hora(String texto) {
+        return texto == null ? null : LocalTime.parse(texto);
+    }
+}
@@ -0,0 +1,144 @@
+package com.espaciosdeportivos.service.impl;
+
+import com.espaciosdeportivos.model.AreaDeportiva;
+import com.espaciosdeportivos.model.Cancha;
+import com.espaciosdeportivos.model.Reserva;
+import com.espaciosdeportivos.repository.CanchaRepository;
+import com.espaciosdeportivos.repository.ReservaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+// Indice de disponibilidad con repositorios simulados: cuando carga de la BD y como mantiene las agendas.
+// Sin transaccion activa los cambios se aplican en el momento (despuesDelCommit).
+class DisponibilidadCanchaIndexTest {
+
+    private static final Long ID_CANCHA = 1L;
+    private static final List<String> LIBRE = List.of("08:00 - 09:00", "09:00 - 10:00");
+
+    private CanchaRepository canchaRepository;
+    private ReservaRepository reservaRepository;
+
+    @BeforeEach
+    void preparar() {
+        canchaRepository = mock(CanchaRepository.class);
+        reservaRepository = mock(ReservaRepository.class);
+        AreaDeportiva area = new AreaDeportiva();
+        area.setHoraInicioArea(LocalTime.of(8, 0));
+        area.setHoraFinArea(LocalTime.of(10, 0));
+        Cancha cancha = new Cancha();
+        cancha.setIdCancha(ID_CANCHA);
+        cancha.setAreaDeportiva(area);
+        when(canchaRepository.findByIdConArea(ID_CANCHA)).thenReturn(Optional.of(cancha));
+    }
+
+    @Test
+    void cargaLaAgendaUnaSolaVezConSusReservas() {
+        LocalDate manana = LocalDate.now().plusDays(1);
+        Reserva reserva = new Reserva();
+        reserva.setIdReserva(10L);
+        reserva.setHoraInicio(LocalTime.of(8, 0));
+        reserva.setHoraFin(LocalTime.of(9, 0));
+        when(reservaRepository.findQueOcupanByCanchaAndFecha(ID_CANCHA, manana)).thenReturn(List.of(reserva));
+        DisponibilidadCanchaIndex index = index(100);
+
+        assertThat(index.bloquesLibres(ID_CANCHA, manana, 60)).containsExactly("09:00 - 10:00");
+        assertThat(index.bloquesLibres(ID_CANCHA, manana, 60)).containsExactly("09:00 - 10:00");
+
+        verify(canchaRepository, times(1)).findByIdConArea(ID_CANCHA);
+        verify(reservaRepository, times(1)).findQueOcupanByCanchaAndFecha(ID_CANCHA, manana);
+    }
+
+    @Test
+    void registrarYLiberarMantienenLaAgendaCargada() {
+        LocalDate manana = LocalDate.now().plusDays(1);
+        DisponibilidadCanchaIndex index = index(100);
+        assertThat(index.bloquesLibres(ID_CANCHA, manana, 60)).isEqualTo(LIBRE);
+
+        index.registrar(ID_CANCHA, 10L, manana, LocalTime.of(9, 0), LocalTime.of(10, 0));
+        assertThat(index.bloquesLibres(ID_CANCHA, manana, 60)).containsExactly("08:00 - 09:00");
+
+        index.liberar(ID_CANCHA, 10L, manana);
+        assertThat(index.bloquesLibres(ID_CANCHA, manana, 60)).isEqualTo(LIBRE);
+
+        // los cambios se aplicaron sobre la agenda en memoria, sin volver a cargarla
+        verify(canchaRepository, times(1)).findByIdConArea(ID_CANCHA);
+    }
+
+    @Test
+    void registrarSinAgendaCargadaNoConsultaLaBd() {
+        DisponibilidadCanchaIndex index = index(100);
+
+        index.registrar(ID_CANCHA, 10L, LocalDate.now().plusDays(1), LocalTime.of(9, 0), LocalTime.of(10, 0));
+        index.liberar(ID_CANCHA, 10L, LocalDate.now().plusDays(1));
+
+        verifyNoInteractions(canchaRepository, reservaRepository);
+    }
+
+    @Test
+    void invalidarCanchaObligaARecargar() {
+        LocalDate manana = LocalDate.now().plusDays(1);
+        DisponibilidadCanchaIndex index = index(100);
+        index.bloquesLibres(ID_CANCHA, manana, 60);
+
+        index.invalidarCancha(ID_CANCHA);
+        index.bloquesLibres(ID_CANCHA, manana, 60);
+
+        verify(canchaRepository, times(2)).findByIdConArea(ID_CANCHA);
+    }
+
+    @Test
+    void losDiasPasadosNoQuedanGuardados() {
+        LocalDate ayer = LocalDate.now().minusDays(1);
+        DisponibilidadCanchaIndex index = index(100);
+
+        index.bloquesLibres(ID_CANCHA, ayer, 60);
+        index.bloquesLibres(ID_CANCHA, ayer, 60);
+
+        // cada consulta descarta los dias pasados antes de buscar la agenda
+        verify(reservaRepository, times(2)).findQueOcupanByCanchaAndFecha(ID_CANCHA, ayer);
+    }
+
+    @Test
+    void alSuperarElTopeSeDescartanLosDiasMasLejanos() {
+        LocalDate manana = LocalDate.now().plusDays(1);
+        LocalDate pasado = LocalDate.now().plusDays(2);
+        DisponibilidadCanchaIndex index = index(1);
+
+        index.bloquesLibres(ID_CANCHA, manana, 60);
+        index.bloquesLibres(ID_CANCHA, pasado, 60);
+        index.bloquesLibres(ID_CANCHA, pasado, 60);
+        index.bloquesLibres(ID_CANCHA, manana, 60);
+
+        verify(reservaRepository, times(1)).findQueOcupanByCanchaAndFecha(ID_CANCHA, manana);
+        verify(reservaRepository, times(2)).findQueOcupanByCanchaAndFecha(ID_CANCHA, pasado);
+    }
+
+    @Test
+    void rechazaBloquesSinDuracion() {
+        DisponibilidadCanchaIndex index = index(100);
+
+        assertThatThrownBy(() -> index.bloquesLibres(ID_CANCHA, LocalDate.now(), 0))
+                .isInstanceOf(IllegalArgumentException.class);
+        verify(canchaRepository, times(0)).findByIdConArea(eq(ID_CANCHA));
+        verify(reservaRepository, times(0)).findQueOcupanByCanchaAndFecha(any(), any());
+    }
+
+    private DisponibilidadCanchaIndex index(int maxAgendas) {
+        return new DisponibilidadCanchaIndex(canchaRepository, reservaRepository, maxAgendas);
+    }
+}
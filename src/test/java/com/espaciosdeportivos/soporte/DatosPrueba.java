@@ -0,0 +1,149 @@
+package com.espaciosdeportivos.soporte;
+
+import com.espaciosdeportivos.model.Administrador;
+import com.espaciosdeportivos.model.AreaDeportiva;
+import com.espaciosdeportivos.model.Cancha;
+import com.espaciosdeportivos.model.Cliente;
+import com.espaciosdeportivos.model.Disciplina;
+import com.espaciosdeportivos.model.Incluye;
+import com.espaciosdeportivos.model.IncluyeId;
+import com.espaciosdeportivos.model.Macrodistrito;
+import com.espaciosdeportivos.model.Reserva;
+import com.espaciosdeportivos.model.Sepractica;
+import com.espaciosdeportivos.model.SepracticaId;
+import com.espaciosdeportivos.model.Zona;
+import com.espaciosdeportivos.repository.AdministradorRepository;
+import com.espaciosdeportivos.repository.AreaDeportivaRepository;
+import com.espaciosdeportivos.repository.CanchaRepository;
+import com.espaciosdeportivos.repository.ClienteRepository;
+import com.espaciosdeportivos.repository.DisciplinaRepository;
+import com.espaciosdeportivos.repository.IncluyeRepository;
+import com.espaciosdeportivos.repository.MacrodistritoRepository;
+import com.espaciosdeportivos.repository.ReservaRepository;
+import com.espaciosdeportivos.repository.ZonaRepository;
+import com.espaciosdeportivos.repository.sepracticaRepository;
+
+import lombok.RequiredArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// Siembra un conjunto de datos conocido (areas, canchas, clientes y reservas) y lo borra al final.
+// Se registra en la prueba con @Import(DatosPrueba.class); cada siembra usa un sufijo propio en los nombres.
+@RequiredArgsConstructor
+public class DatosPrueba {
+
+    private final MacrodistritoRepository macrodistritoRepository;
+    private final ZonaRepository zonaRepository;
+    private final AdministradorRepository administradorRepository;
+    private final ClienteRepository clienteRepository;
+    private final AreaDeportivaRepository areaDeportivaRepository;
+    private final DisciplinaRepository disciplinaRepository;
+    private final CanchaRepository canchaRepository;
+    private final sepracticaRepository sepracticaRepository;
+    private final ReservaRepository reservaRepository;
+    private final IncluyeRepository incluyeRepository;
+
+    public record Semilla(Long idMacrodistrito, List<Long> idsAdministradores, List<Long> idsAreas,
+                          List<Long> idsCanchas, Map<Long, Long> disciplinaPorCancha,
+                          List<Long> idsClientes, List<Long> idsReservas) {
+    }
+
+    // reservasPorCancha reservas de una hora en dias distintos (no chocan con la restriccion de solapamiento)
+    public Semilla sembrar(int areas, int canchasPorArea, int clientes, int reservasPorCancha) {
+        String sufijo = UUID.randomUUID().toString().substring(0, 8);
+
+        Macrodistrito macrodistrito = macrodistritoRepository.save(Macrodistrito.builder()
+                .nombre("Macro " + sufijo).estado(true).build());
+        Zona zona = zonaRepository.save(Zona.builder()
+                .nombre("Zona " + sufijo).estado(true).macrodistrito(macrodistrito).build());
+
+        List<Cliente> listaClientes = new ArrayList<>();
+        for (int i = 0; i < clientes; i++) {
+            listaClientes.add(Cliente.builder()
+                    .nombre("Cliente " + i).apellidoPaterno("Prueba").apellidoMaterno(sufijo)
+                    .fechaNacimiento(LocalDate.of(1995, 1, 1)).telefono("70000000")
+                    .email("cliente" + i + "_" + sufijo + "@prueba.bo").urlImagen("")
+                    .estado(true).categoria("REGULAR").build());
+        }
+        listaClientes = clienteRepository.saveAll(listaClientes);
+
+        List<Administrador> administradores = new ArrayList<>();
+        List<AreaDeportiva> listaAreas = new ArrayList<>();
+        List<Cancha> listaCanchas = new ArrayList<>();
+        Map<Long, Long> disciplinaPorCancha = new HashMap<>();
+        List<Reserva> listaReservas = new ArrayList<>();
+        for (int a = 0; a < areas; a++) {
+            Administrador administrador = administradorRepository.save(Administrador.builder()
+                    .nombre("Admin " + a).apellidoPaterno("Prueba").apellidoMaterno(sufijo)
+                    .fechaNacimiento(LocalDate.of(1990, 1, 1)).telefono("70000000")
+                    .email("admin" + a + "_" + sufijo + "@prueba.bo").urlImagen("")
+                    .estado(true).cargo("Encargado").direccion("Calle " + a).build());
+            administradores.add(administrador);
+
+            AreaDeportiva area = areaDeportivaRepository.save(AreaDeportiva.builder()
+                    .nombreArea("Area " + a + " " + sufijo).estado(true)
+                    .horaInicioArea(LocalTime.of(6, 0)).horaFinArea(LocalTime.of(23, 0))
+                    .zona(zona).administrador(administrador).build());
+            listaAreas.add(area);
+
+            Disciplina disciplina = disciplinaRepository.save(Disciplina.builder()
+                    .nombre("Futsal " + sufijo).estado(true).areaDeportiva(area).build());
+
+            for (int c = 0; c < canchasPorArea; c++) {
+                Cancha cancha = canchaRepository.save(Cancha.builder()
+                        .nombre("Cancha " + a + "-" + c + " " + sufijo).costoHora(100.0).capacidad(12)
+                        .mantenimiento("NO").horaInicio(LocalTime.of(6, 0)).horaFin(LocalTime.of(23, 0))
+                        .tipoSuperficie("Sintetico").tamano("Mediana").iluminacion("LED").cubierta("NO")
+                        .estado(true).areaDeportiva(area).build());
+                listaCanchas.add(cancha);
+                disciplinaPorCancha.put(cancha.getIdCancha(), disciplina.getIdDisciplina());
+                sepracticaRepository.save(Sepractica.builder()
+                        .id(new SepracticaId(cancha.getIdCancha(), disciplina.getIdDisciplina()))
+                        .cancha(cancha).disciplina(disciplina).build());
+
+                for (int r = 0; r < reservasPorCancha; r++) {
+                    Reserva reserva = reservaRepository.save(Reserva.builder()
+                            .fechaReserva(LocalDate.now().plusDays(1 + r))
+                            .horaInicio(LocalTime.of(10, 0)).horaFin(LocalTime.of(11, 0))
+                            .estadoReserva(Reserva.EstadoReserva.PENDIENTE.name())
+                            .cliente(listaClientes.get(listaReservas.size() % clientes))
+                            .build());
+                    incluyeRepository.save(Incluye.builder()
+                            .id(new IncluyeId(cancha.getIdCancha(), reserva.getIdReserva(), disciplina.getIdDisciplina()))
+                            .cancha(cancha).reserva(reserva).disciplina(disciplina).montoTotal(100.0).build());
+                    listaReservas.add(reserva);
+                }
+            }
+        }
+
+        return new Semilla(macrodistrito.getIdMacrodistrito(),
+                administradores.stream().map(Administrador::getId).toList(),
+                listaAreas.stream().map(AreaDeportiva::getIdAreaDeportiva).toList(),
+                listaCanchas.stream().map(Cancha::getIdCancha).toList(),
+                disciplinaPorCancha,
+                listaClientes.stream().map(Cliente::getId).toList(),
+                listaReservas.stream().map(Reserva::getIdReserva).toList());
+    }
+
+    // reservas creadas durante la prueba (con sus incluye, pagos y QR); van antes de eliminar la semilla
+    public void eliminarReservas(Collection<Long> idsReservas) {
+        reservaRepository.deleteAllById(idsReservas);
+    }
+
+    // en orden inverso a las FK; las reservas arrastran sus incluye, las areas sus canchas (con sepractica)
+    // y disciplinas, y el macrodistrito sus zonas
+    public void eliminar(Semilla semilla) {
+        reservaRepository.deleteAllById(semilla.idsReservas());
+        areaDeportivaRepository.deleteAllById(semilla.idsAreas());
+        administradorRepository.deleteAllById(semilla.idsAdministradores());
+        clienteRepository.deleteAllById(semilla.idsClientes());
+        macrodistritoRepository.deleteById(semilla.idMacrodistrito());
+    }
+}
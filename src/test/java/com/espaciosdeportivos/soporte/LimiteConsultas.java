@@ -0,0 +1,38 @@
+package com.espaciosdeportivos.soporte;
+
+import com.espaciosdeportivos.config.ConsultasSql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+// Falla la prueba si el bloque ejecuta mas consultas SQL que el limite (guardia contra N+1)
+public final class LimiteConsultas {
+
+    private LimiteConsultas() {
+    }
+
+    public static ResultActions maximo(int limite, MockMvc mockMvc, RequestBuilder peticion) throws Exception {
+        return maximo(limite, () -> mockMvc.perform(peticion));
+    }
+
+    public static <T> T maximo(int limite, Callable<T> bloque) throws Exception {
+        ConsultasSql.Medicion medicion = ConsultasSql.iniciar();
+        T resultado;
+        try {
+            resultado = bloque.call();
+        } finally {
+            ConsultasSql.terminar(medicion);
+        }
+        if (medicion.getConsultas() > limite) {
+            Map.Entry<String, Integer> repetida = medicion.masRepetida();
+            fail("Se esperaban como máximo " + limite + " consultas SQL y hubo " + medicion.getConsultas()
+                    + ". La más repetida (" + repetida.getValue() + " veces): " + repetida.getKey());
+        }
+        return resultado;
+    }
+}
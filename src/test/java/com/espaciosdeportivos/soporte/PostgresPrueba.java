@@ -0,0 +1,19 @@
+package com.espaciosdeportivos.soporte;
+
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Bean;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+// PostgreSQL desechable (Testcontainers) para las pruebas de integracion: el contexto se conecta a el
+// en lugar de la base de desarrollo. Se registra con @Import junto al perfil "test".
+@TestConfiguration(proxyBeanMethods = false)
+public class PostgresPrueba {
+
+    @Bean
+    @ServiceConnection
+    PostgreSQLContainer<?> postgres() {
+        // la imagen oficial trae btree_gist (restriccion EXCLUDE de solapamiento en incluye)
+        return new PostgreSQLContainer<>("postgres:16-alpine");
+    }
+}